@@ -5,6 +5,9 @@ import kotlinx.coroutines.delay
 import kotlinx.coroutines.isActive
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import java.util.concurrent.Callable
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
 import java.util.function.Consumer
 import java.util.function.Supplier
 import kotlin.coroutines.CoroutineContext
@@ -24,6 +27,15 @@ open class CoroutineScheduler(private val foregroundContext: CoroutineContext, p
         }
     }
 
+    override fun <T> immediateInBackground(background: Callable<T>): Future<T> {
+        val future = FutureTask(background)
+        CoroutineScope(backgroundContext).launch {
+            future.run()
+        }
+
+        return future
+    }
+
     override fun repeat(foreground: Runnable, repeatPeriod: Long): Cancellable {
         val repeatScope = CoroutineScope(foregroundContext)
 
@@ -1,5 +1,7 @@
 package org.odk.collect.async
 
+import java.util.concurrent.Callable
+import java.util.concurrent.Future
 import java.util.function.Consumer
 import java.util.function.Supplier
 
@@ -26,6 +28,16 @@ interface Scheduler {
      */
     fun immediate(foreground: Runnable)
 
+    /**
+     * Run work in the background (off the UI thread) without anything being run in the
+     * foreground afterwards. Cancelled if application closed.
+     *
+     * @param background the task to be run
+     * @return a [Future] that can be used to wait for the result of the task from another
+     * background thread
+     */
+    fun <T> immediateInBackground(background: Callable<T>): Future<T>
+
     /**
      * Schedule a task to run in the background even if the app isn't running. The task
      * will only be run when the network is available.
@@ -58,7 +58,8 @@ object StorageUtils {
             val component = DaggerUtils.getComponent(ApplicationProvider.getApplicationContext<Application>())
             val formsRepository = component.formsRepositoryProvider().get()
             val formsDir = component.storagePathProvider().getOdkDirPath(StorageSubdirectory.FORMS)
-            LocalFormUseCases.synchronizeWithDisk(formsRepository, formsDir)
+            val cacheDir = component.storagePathProvider().getOdkDirPath(StorageSubdirectory.CACHE)
+            LocalFormUseCases.synchronizeWithDisk(formsRepository, formsDir, cacheDir, component.formDefCacheWarmer())
         }
     }
 
@@ -14,6 +14,8 @@ import org.odk.collect.async.TaskSpec;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -62,6 +64,19 @@ public class TestScheduler implements Scheduler {
         });
     }
 
+    @Override
+    public <T> Future<T> immediateInBackground(@NotNull Callable<T> background) {
+        increment();
+
+        return wrappedScheduler.immediateInBackground(() -> {
+            try {
+                return background.call();
+            } finally {
+                decrement();
+            }
+        });
+    }
+
     @Override
     public void networkDeferred(@NotNull String tag, @NotNull TaskSpec spec, @NotNull Map<String, String> inputData) {
         deferredTasks.add(new DeferredTask(tag, spec, null, inputData));
@@ -14,6 +14,22 @@ import org.odk.collect.forms.instances.Instance;
 public class CursorLoaderFactory {
 
     public static final String INTERNAL_QUERY_PARAM = "internal";
+
+    /**
+     * The columns the instance lists use. Leaves out the geometry (which can be large) so that
+     * more rows fit into each cursor window.
+     */
+    private static final String[] INSTANCE_LIST_PROJECTION = {
+            DatabaseInstanceColumns._ID,
+            DatabaseInstanceColumns.DISPLAY_NAME,
+            DatabaseInstanceColumns.CAN_EDIT_WHEN_COMPLETE,
+            DatabaseInstanceColumns.JR_FORM_ID,
+            DatabaseInstanceColumns.JR_VERSION,
+            DatabaseInstanceColumns.STATUS,
+            DatabaseInstanceColumns.LAST_STATUS_CHANGE_DATE,
+            DatabaseInstanceColumns.DELETED_DATE
+    };
+
     private final ProjectsDataService projectsDataService;
 
     public CursorLoaderFactory(ProjectsDataService projectsDataService) {
@@ -140,7 +156,7 @@ public class CursorLoaderFactory {
         return new CursorLoader(
                 Collect.getInstance(),
                 getUriWithAnalyticsParam(uri),
-                null,
+                INSTANCE_LIST_PROJECTION,
                 selection,
                 selectionArgs,
                 sortOrder);
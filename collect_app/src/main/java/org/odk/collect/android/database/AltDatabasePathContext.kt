@@ -22,7 +22,13 @@ class AltDatabasePathContext(private val path: String, context: Context) : Conte
         factory: SQLiteDatabase.CursorFactory?,
         errorHandler: DatabaseErrorHandler?
     ): SQLiteDatabase {
-        return openOrCreateDatabase(name, mode, factory)
+        // Before Android 9 SQLiteOpenHelper asks for a write-ahead log with the mode
+        var flags = SQLiteDatabase.CREATE_IF_NECESSARY
+        if ((mode and MODE_ENABLE_WRITE_AHEAD_LOGGING) != 0) {
+            flags = flags or SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING
+        }
+
+        return SQLiteDatabase.openDatabase(getDatabasePath(name).path, factory, flags, errorHandler)
     }
 
     override fun openOrCreateDatabase(
@@ -30,6 +36,6 @@ class AltDatabasePathContext(private val path: String, context: Context) : Conte
         mode: Int,
         factory: SQLiteDatabase.CursorFactory?
     ): SQLiteDatabase {
-        return SQLiteDatabase.openOrCreateDatabase(getDatabasePath(name), null)
+        return openOrCreateDatabase(name, mode, factory, null)
     }
 }
@@ -13,13 +13,16 @@ import java.io.File
  * [DatabaseConnection] that refer to the same file.
  *
  * @param migrator used to migrate or create the database automatically before access
+ * @param writeAheadLogging whether to use a write-ahead log (so that reads aren't blocked by
+ * writes) rather than a rollback journal
  */
-open class DatabaseConnection(
+open class DatabaseConnection @JvmOverloads constructor(
     private val context: Context,
     private val path: String,
     private val name: String,
     private val migrator: DatabaseMigrator,
-    private val databaseVersion: Int
+    private val databaseVersion: Int,
+    private val writeAheadLogging: Boolean = false
 ) {
 
     val writeableDatabase: SQLiteDatabase
@@ -40,6 +43,10 @@ open class DatabaseConnection(
                 openHelpers.remove(databasePath)?.let {
                     toClose.add(it)
                 }
+
+                // A log left behind by the old database must not be applied to the new one
+                File("$databasePath-wal").delete()
+                File("$databasePath-shm").delete()
             }
 
             return openHelpers.getOrPut(databasePath) {
@@ -48,7 +55,8 @@ open class DatabaseConnection(
                     name,
                     null,
                     databaseVersion,
-                    migrator
+                    migrator,
+                    writeAheadLogging
                 )
             }
         }
@@ -93,9 +101,22 @@ private class DatabaseMigratorSQLiteOpenHelper(
     name: String,
     cursorFactory: CursorFactory?,
     version: Int,
-    private val databaseMigrator: DatabaseMigrator
+    private val databaseMigrator: DatabaseMigrator,
+    private val writeAheadLogging: Boolean
 ) : SQLiteOpenHelper(context, name, cursorFactory, version) {
 
+    init {
+        setWriteAheadLoggingEnabled(writeAheadLogging)
+    }
+
+    override fun onConfigure(db: SQLiteDatabase) {
+        if (writeAheadLogging) {
+            // With a write-ahead log, NORMAL only syncs at checkpoints. A crash or power loss can
+            // roll back the last transactions but can't corrupt the database.
+            db.execSQL("PRAGMA synchronous = NORMAL")
+        }
+    }
+
     override fun onCreate(db: SQLiteDatabase?) {
         databaseMigrator.onCreate(db)
     }
@@ -5,12 +5,18 @@ public final class DatabaseConstants {
     public static final String FORMS_DATABASE_NAME = "forms.db";
     public static final String FORMS_TABLE_NAME = "forms";
     // Please always test upgrades manually when you change this value
-    public static final int FORMS_DATABASE_VERSION = 12;
+    public static final int FORMS_DATABASE_VERSION = 14;
 
     public static final String INSTANCES_DATABASE_NAME = "instances.db";
     public static final String INSTANCES_TABLE_NAME = "instances";
     // Please always test upgrades manually when you change this value
-    public static final int INSTANCES_DATABASE_VERSION = 6;
+    public static final int INSTANCES_DATABASE_VERSION = 7;
+
+    public static final String ENTITIES_DATABASE_NAME = "entities.db";
+    public static final String ENTITIES_TABLE_NAME = "entities";
+    public static final String ENTITY_PROPERTIES_TABLE_NAME = "entity_properties";
+    // Please always test upgrades manually when you change this value
+    public static final int ENTITIES_DATABASE_VERSION = 1;
 
     private DatabaseConstants() {
 
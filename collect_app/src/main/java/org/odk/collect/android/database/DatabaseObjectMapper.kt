@@ -34,6 +34,8 @@ object DatabaseObjectMapper {
         values.put(DatabaseFormColumns.AUTO_DELETE, form.autoDelete)
         values.put(DatabaseFormColumns.GEOMETRY_XPATH, form.geometryXpath)
         values.put(DatabaseFormColumns.LAST_DETECTED_ATTACHMENTS_UPDATE_DATE, form.lastDetectedAttachmentsUpdateDate)
+        values.put(DatabaseFormColumns.FILE_SIZE, form.fileSize)
+        values.put(DatabaseFormColumns.FILE_LAST_MODIFIED, form.fileLastModified)
         return values
     }
 
@@ -71,6 +73,8 @@ object DatabaseObjectMapper {
             .geometryXpath(values.getAsString(DatabaseFormColumns.GEOMETRY_XPATH))
             .deleted(values.getAsLong(DatabaseFormColumns.DELETED_DATE) != null)
             .lastDetectedAttachmentsUpdateDate(values.getAsLong(DatabaseFormColumns.LAST_DETECTED_ATTACHMENTS_UPDATE_DATE))
+            .fileSize(values.getAsLong(DatabaseFormColumns.FILE_SIZE))
+            .fileLastModified(values.getAsLong(DatabaseFormColumns.FILE_LAST_MODIFIED))
             .build()
     }
 
@@ -100,6 +104,8 @@ object DatabaseObjectMapper {
         val geometryXpathColumnIndex = cursor.getColumnIndex(DatabaseFormColumns.GEOMETRY_XPATH)
         val deletedDateColumnIndex = cursor.getColumnIndex(DatabaseFormColumns.DELETED_DATE)
         val lastDetectedAttachmentsUpdateDateColumnIndex = cursor.getColumnIndex(DatabaseFormColumns.LAST_DETECTED_ATTACHMENTS_UPDATE_DATE)
+        val fileSizeColumnIndex = cursor.getColumnIndex(DatabaseFormColumns.FILE_SIZE)
+        val fileLastModifiedColumnIndex = cursor.getColumnIndex(DatabaseFormColumns.FILE_LAST_MODIFIED)
         return Form.Builder()
             .dbId(cursor.getLong(idColumnIndex))
             .displayName(cursor.getString(displayNameColumnIndex))
@@ -134,6 +140,8 @@ object DatabaseObjectMapper {
             .geometryXpath(cursor.getString(geometryXpathColumnIndex))
             .deleted(!cursor.isNull(deletedDateColumnIndex))
             .lastDetectedAttachmentsUpdateDate(if (cursor.isNull(lastDetectedAttachmentsUpdateDateColumnIndex)) null else cursor.getLong(lastDetectedAttachmentsUpdateDateColumnIndex))
+            .fileSize(if (cursor.isNull(fileSizeColumnIndex)) null else cursor.getLong(fileSizeColumnIndex))
+            .fileLastModified(if (cursor.isNull(fileLastModifiedColumnIndex)) null else cursor.getLong(fileLastModifiedColumnIndex))
             .build()
     }
 
@@ -0,0 +1,152 @@
+package org.odk.collect.android.database.entities
+
+import android.content.Context
+import android.database.Cursor
+import android.database.DatabaseUtils
+import android.provider.BaseColumns._ID
+import org.odk.collect.android.database.DatabaseConnection
+import org.odk.collect.android.database.DatabaseConstants.ENTITIES_DATABASE_NAME
+import org.odk.collect.android.database.DatabaseConstants.ENTITIES_DATABASE_VERSION
+import org.odk.collect.android.database.DatabaseConstants.ENTITIES_TABLE_NAME
+import org.odk.collect.android.database.DatabaseConstants.ENTITY_PROPERTIES_TABLE_NAME
+import org.odk.collect.android.database.entities.DatabaseEntityColumns.DATASET
+import org.odk.collect.android.database.entities.DatabaseEntityColumns.ENTITY_ID
+import org.odk.collect.android.database.entities.DatabaseEntityColumns.NAME
+import org.odk.collect.android.database.entities.DatabaseEntityColumns.POSITION
+import org.odk.collect.android.database.entities.DatabaseEntityColumns.VALUE
+import org.odk.collect.entities.EntitiesRepository
+import org.odk.collect.entities.Entity
+
+/**
+ * Mediates between [Entity] objects and the underlying SQLite database that stores them. Entities
+ * are stored in one table (indexed by dataset) with their properties stored in a second table so
+ * that properties can be indexed by name and value.
+ */
+class DatabaseEntitiesRepository(context: Context, dbPath: String) : EntitiesRepository {
+
+    private val databaseConnection = DatabaseConnection(
+        context,
+        dbPath,
+        ENTITIES_DATABASE_NAME,
+        EntitiesDatabaseMigrator(),
+        ENTITIES_DATABASE_VERSION
+    )
+
+    override fun save(vararg entities: Entity) {
+        if (entities.isEmpty()) {
+            return
+        }
+
+        val database = databaseConnection.writeableDatabase
+        database.beginTransaction()
+        try {
+            val insertEntity = database.compileStatement(
+                "INSERT INTO $ENTITIES_TABLE_NAME ($DATASET) VALUES (?);"
+            )
+            val insertProperty = database.compileStatement(
+                "INSERT INTO $ENTITY_PROPERTIES_TABLE_NAME ($ENTITY_ID, $POSITION, $NAME, $VALUE) VALUES (?, ?, ?, ?);"
+            )
+
+            insertEntity.use {
+                insertProperty.use {
+                    entities.forEach { entity ->
+                        insertEntity.bindString(1, entity.dataset)
+                        val entityId = insertEntity.executeInsert()
+
+                        entity.properties.forEachIndexed { position, (name, value) ->
+                            insertProperty.bindLong(1, entityId)
+                            insertProperty.bindLong(2, position.toLong())
+                            insertProperty.bindString(3, name)
+                            insertProperty.bindString(4, value)
+                            insertProperty.executeInsert()
+                        }
+                    }
+                }
+            }
+
+            database.setTransactionSuccessful()
+        } finally {
+            database.endTransaction()
+        }
+    }
+
+    override fun getDatasets(): Set<String> {
+        return databaseConnection.readableDatabase
+            .rawQuery("SELECT DISTINCT $DATASET FROM $ENTITIES_TABLE_NAME;", null)
+            .use { cursor ->
+                val datasets = mutableSetOf<String>()
+                while (cursor.moveToNext()) {
+                    datasets.add(cursor.getString(0))
+                }
+
+                datasets
+            }
+    }
+
+    override fun getEntities(dataset: String): List<Entity> {
+        return queryEntities(dataset, -1, 0)
+    }
+
+    override fun getEntities(dataset: String, offset: Int, limit: Int): List<Entity> {
+        return queryEntities(dataset, limit, offset)
+    }
+
+    override fun getCount(dataset: String): Int {
+        return DatabaseUtils.queryNumEntries(
+            databaseConnection.readableDatabase,
+            ENTITIES_TABLE_NAME,
+            "$DATASET = ?",
+            arrayOf(dataset)
+        ).toInt()
+    }
+
+    /**
+     * Selects the page of entity ids first (using the dataset index) and then joins in the
+     * properties for just that page. A negative [limit] means no limit.
+     */
+    private fun queryEntities(dataset: String, limit: Int, offset: Int): List<Entity> {
+        val query = """
+            SELECT e.$_ID, p.$NAME, p.$VALUE
+            FROM (
+                SELECT $_ID FROM $ENTITIES_TABLE_NAME
+                WHERE $DATASET = ?
+                ORDER BY $_ID
+                LIMIT ? OFFSET ?
+            ) e
+            LEFT JOIN $ENTITY_PROPERTIES_TABLE_NAME p ON p.$ENTITY_ID = e.$_ID
+            ORDER BY e.$_ID, p.$POSITION;
+        """.trimIndent()
+
+        return databaseConnection.readableDatabase
+            .rawQuery(query, arrayOf(dataset, limit.toString(), offset.toString()))
+            .use { getEntitiesFromCursor(it, dataset) }
+    }
+
+    private fun getEntitiesFromCursor(cursor: Cursor, dataset: String): List<Entity> {
+        val entities = mutableListOf<Entity>()
+
+        var currentId: Long? = null
+        var currentProperties = mutableListOf<Pair<String, String>>()
+        while (cursor.moveToNext()) {
+            val id = cursor.getLong(0)
+            if (id != currentId) {
+                if (currentId != null) {
+                    entities.add(Entity(dataset, currentProperties))
+                }
+
+                currentId = id
+                currentProperties = mutableListOf()
+            }
+
+            if (!cursor.isNull(1)) {
+                currentProperties.add(Pair(cursor.getString(1), cursor.getString(2) ?: ""))
+            }
+        }
+
+        if (currentId != null) {
+            entities.add(Entity(dataset, currentProperties))
+        }
+
+        return entities
+    }
+}
@@ -0,0 +1,15 @@
+package org.odk.collect.android.database.entities
+
+import android.provider.BaseColumns
+
+object DatabaseEntityColumns : BaseColumns {
+
+    // entities column names
+    const val DATASET = "dataset"
+
+    // entity_properties column names
+    const val ENTITY_ID = "entityId"
+    const val POSITION = "position"
+    const val NAME = "name"
+    const val VALUE = "value"
+}
@@ -0,0 +1,53 @@
+package org.odk.collect.android.database.entities
+
+import android.database.sqlite.SQLiteDatabase
+import android.provider.BaseColumns._ID
+import org.odk.collect.android.database.DatabaseConstants.ENTITIES_TABLE_NAME
+import org.odk.collect.android.database.DatabaseConstants.ENTITY_PROPERTIES_TABLE_NAME
+import org.odk.collect.android.database.DatabaseMigrator
+import org.odk.collect.android.database.entities.DatabaseEntityColumns.DATASET
+import org.odk.collect.android.database.entities.DatabaseEntityColumns.ENTITY_ID
+import org.odk.collect.android.database.entities.DatabaseEntityColumns.NAME
+import org.odk.collect.android.database.entities.DatabaseEntityColumns.POSITION
+import org.odk.collect.android.database.entities.DatabaseEntityColumns.VALUE
+import org.odk.collect.android.utilities.SQLiteUtils
+
+class EntitiesDatabaseMigrator : DatabaseMigrator {
+
+    override fun onCreate(db: SQLiteDatabase) {
+        db.execSQL(
+            "CREATE TABLE IF NOT EXISTS $ENTITIES_TABLE_NAME (" +
+                "$_ID integer primary key, " +
+                "$DATASET text not null);"
+        )
+
+        db.execSQL(
+            "CREATE TABLE IF NOT EXISTS $ENTITY_PROPERTIES_TABLE_NAME (" +
+                "$ENTITY_ID integer not null, " +
+                "$POSITION integer not null, " +
+                "$NAME text not null, " +
+                "$VALUE text, " +
+                "primary key ($ENTITY_ID, $POSITION));"
+        )
+
+        db.execSQL(
+            "CREATE INDEX IF NOT EXISTS ${ENTITIES_TABLE_NAME}_$DATASET " +
+                "ON $ENTITIES_TABLE_NAME ($DATASET, $_ID);"
+        )
+
+        db.execSQL(
+            "CREATE INDEX IF NOT EXISTS ${ENTITY_PROPERTIES_TABLE_NAME}_${NAME}_$VALUE " +
+                "ON $ENTITY_PROPERTIES_TABLE_NAME ($NAME, $VALUE);"
+        )
+    }
+
+    override fun onUpgrade(db: SQLiteDatabase, oldVersion: Int) {
+        // No upgrades yet. Remember to bump the version number in DatabaseConstants when adding one
+    }
+
+    override fun onDowngrade(db: SQLiteDatabase) {
+        SQLiteUtils.dropTable(db, ENTITY_PROPERTIES_TABLE_NAME)
+        SQLiteUtils.dropTable(db, ENTITIES_TABLE_NAME)
+        onCreate(db)
+    }
+}
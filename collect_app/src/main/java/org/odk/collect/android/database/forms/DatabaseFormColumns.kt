@@ -26,6 +26,10 @@ object DatabaseFormColumns : BaseColumns {
     const val JRCACHE_FILE_PATH = "jrcacheFilePath"
     const val FORM_MEDIA_PATH = "formMediaPath"
 
+    // the form file's size and modification time when MD5_HASH was calculated
+    const val FILE_SIZE = "fileSize"
+    const val FILE_LAST_MODIFIED = "fileLastModified"
+
     // this is null on create, and can only be set on an update.
     const val LANGUAGE = "language"
     const val DELETED_DATE = "deleted_date"
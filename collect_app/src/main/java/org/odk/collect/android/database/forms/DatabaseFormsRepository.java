@@ -15,6 +15,7 @@ import org.odk.collect.android.utilities.FileUtils;
 import org.odk.collect.forms.Form;
 import org.odk.collect.forms.FormsRepository;
 import org.odk.collect.shared.files.DirectoryUtils;
+import org.odk.collect.shared.files.FileStats;
 import org.odk.collect.shared.strings.Md5;
 
 import java.io.File;
@@ -33,6 +34,8 @@ import static org.odk.collect.android.database.DatabaseObjectMapper.getFormFromC
 import static org.odk.collect.android.database.DatabaseObjectMapper.getValuesFromForm;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DATE;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DELETED_DATE;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FILE_LAST_MODIFIED;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FILE_SIZE;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_PATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_MEDIA_PATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.JRCACHE_FILE_PATH;
@@ -59,7 +62,8 @@ public class DatabaseFormsRepository implements FormsRepository {
                 dbPath,
                 DatabaseConstants.FORMS_DATABASE_NAME,
                 new FormDatabaseMigrator(),
-                DatabaseConstants.FORMS_DATABASE_VERSION
+                DatabaseConstants.FORMS_DATABASE_VERSION,
+                true
         );
     }
 
@@ -138,8 +142,25 @@ public class DatabaseFormsRepository implements FormsRepository {
     public Form save(@NotNull Form form) {
         final ContentValues values = getValuesFromForm(form, formsPath);
 
-        String md5Hash = Md5.getMd5Hash(new File(form.getFormFilePath()));
+        // Stat the file before hashing it so a change during hashing is picked up next time
+        File formFile = new File(form.getFormFilePath());
+        long fileSize = formFile.length();
+        long fileLastModified = formFile.lastModified();
+
+        String md5Hash = form.getMD5Hash() != null && FileStats.isUnchanged(formFile, form.getFileSize(), form.getFileLastModified())
+                ? form.getMD5Hash()
+                : Md5.getMd5Hash(formFile);
         values.put(MD5_HASH, md5Hash);
+
+        // If the file was modified too recently to trust its size and modification time, don't
+        // record them and make sure it's hashed again next time
+        if (FileStats.canRecord(fileLastModified)) {
+            values.put(FILE_SIZE, fileSize);
+            values.put(FILE_LAST_MODIFIED, fileLastModified);
+        } else {
+            values.putNull(FILE_SIZE);
+            values.putNull(FILE_LAST_MODIFIED);
+        }
         values.put(FORM_MEDIA_PATH, getRelativeFilePath(formsPath, FileUtils.constructMediaPath(form.getFormFilePath())));
         values.put(JRCACHE_FILE_PATH, md5Hash + ".formdef");
 
@@ -163,6 +184,25 @@ public class DatabaseFormsRepository implements FormsRepository {
         }
     }
 
+    @Override
+    public List<Form> saveAll(@NotNull List<Form> forms) {
+        SQLiteDatabase writeableDatabase = databaseConnection.getWriteableDatabase();
+        List<Form> savedForms = new ArrayList<>();
+
+        writeableDatabase.beginTransaction();
+        try {
+            for (Form form : forms) {
+                savedForms.add(save(form));
+            }
+
+            writeableDatabase.setTransactionSuccessful();
+        } finally {
+            writeableDatabase.endTransaction();
+        }
+
+        return savedForms;
+    }
+
     @Override
     public void delete(Long id) {
         String selection = _ID + "=?";
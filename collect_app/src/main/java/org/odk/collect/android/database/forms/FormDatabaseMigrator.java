@@ -16,6 +16,8 @@ import static org.odk.collect.android.database.forms.DatabaseFormColumns.DELETED
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DESCRIPTION;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DISPLAY_NAME;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DISPLAY_SUBTEXT;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FILE_LAST_MODIFIED;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FILE_SIZE;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_PATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_MEDIA_PATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.GEOMETRY_XPATH;
@@ -42,7 +44,8 @@ public class FormDatabaseMigrator implements DatabaseMigrator {
     private static final String MODEL_VERSION = "modelVersion";
 
     public void onCreate(SQLiteDatabase db) {
-        createFormsTableV12(db);
+        createFormsTableV13(db);
+        createIndexesV14(db);
     }
 
     @SuppressWarnings({"checkstyle:FallThrough"})
@@ -70,16 +73,21 @@ public class FormDatabaseMigrator implements DatabaseMigrator {
                 upgradeToVersion11(db);
             case 11:
                 upgradeToVersion12(db);
-                break;
             case 12:
+                upgradeToVersion13(db);
+            case 13:
+                upgradeToVersion14(db);
+                break;
+            case 14:
                 // Remember to bump the database version number in {@link org.odk.collect.android.database.DatabaseConstants}
-                // upgradeToVersion13(db);
+                // upgradeToVersion15(db);
         }
     }
 
     public void onDowngrade(SQLiteDatabase db) throws SQLException {
         SQLiteUtils.dropTable(db, FORMS_TABLE_NAME);
-        createFormsTableV12(db);
+        createFormsTableV13(db);
+        createIndexesV14(db);
     }
 
     private void upgradeToVersion2(SQLiteDatabase db) {
@@ -265,6 +273,15 @@ public class FormDatabaseMigrator implements DatabaseMigrator {
         SQLiteUtils.addColumn(db, FORMS_TABLE_NAME, LAST_DETECTED_ATTACHMENTS_UPDATE_DATE, "integer");
     }
 
+    private void upgradeToVersion13(SQLiteDatabase db) {
+        SQLiteUtils.addColumn(db, FORMS_TABLE_NAME, FILE_SIZE, "integer");
+        SQLiteUtils.addColumn(db, FORMS_TABLE_NAME, FILE_LAST_MODIFIED, "integer");
+    }
+
+    private void upgradeToVersion14(SQLiteDatabase db) {
+        createIndexesV14(db);
+    }
+
     private void createFormsTableV4(SQLiteDatabase db, String tableName) {
         db.execSQL("CREATE TABLE IF NOT EXISTS " + tableName + " ("
                 + _ID + " integer primary key, "
@@ -369,7 +386,7 @@ public class FormDatabaseMigrator implements DatabaseMigrator {
                 + DELETED_DATE + " integer);");
     }
 
-    private void createFormsTableV12(SQLiteDatabase db) {
+    private void createFormsTableV13(SQLiteDatabase db) {
         db.execSQL("CREATE TABLE IF NOT EXISTS " + FORMS_TABLE_NAME + " ("
                 + _ID + " integer primary key, "
                 + DISPLAY_NAME + " text not null, "
@@ -388,6 +405,20 @@ public class FormDatabaseMigrator implements DatabaseMigrator {
                 + AUTO_DELETE + " text, "
                 + GEOMETRY_XPATH + " text, "
                 + DELETED_DATE + " integer, "
-                + LAST_DETECTED_ATTACHMENTS_UPDATE_DATE + " integer);"); // milliseconds
+                + LAST_DETECTED_ATTACHMENTS_UPDATE_DATE + " integer, " // milliseconds
+                + FILE_SIZE + " integer, "
+                + FILE_LAST_MODIFIED + " integer);"); // milliseconds
+    }
+
+    /**
+     * Indexes for the lookups done by {@link DatabaseFormsRepository}. Lookups by
+     * {@link DatabaseFormColumns#MD5_HASH} already use the index created for its unique constraint.
+     */
+    private void createIndexesV14(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + FORMS_TABLE_NAME + "_" + JR_FORM_ID + "_" + JR_VERSION + " "
+                + "ON " + FORMS_TABLE_NAME + " (" + JR_FORM_ID + ", " + JR_VERSION + ", " + DELETED_DATE + ");");
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + FORMS_TABLE_NAME + "_" + FORM_FILE_PATH + " "
+                + "ON " + FORMS_TABLE_NAME + " (" + FORM_FILE_PATH + ");");
     }
 }
@@ -3,6 +3,7 @@ package org.odk.collect.android.database.instances;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 
@@ -14,7 +15,13 @@ import org.odk.collect.shared.files.DirectoryUtils;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 
 import static android.provider.BaseColumns._ID;
@@ -32,6 +39,7 @@ import static org.odk.collect.android.database.instances.DatabaseInstanceColumns
 import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.LAST_STATUS_CHANGE_DATE;
 import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.STATUS;
 import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.SUBMISSION_URI;
+import static org.odk.collect.shared.PathUtils.getAbsoluteFilePath;
 import static org.odk.collect.shared.PathUtils.getRelativeFilePath;
 
 /**
@@ -39,6 +47,31 @@ import static org.odk.collect.shared.PathUtils.getRelativeFilePath;
  */
 public final class DatabaseInstancesRepository implements InstancesRepository {
 
+    /**
+     * Results of {@link #getLastStatusChangeDatesByFormIdAndVersion()} keyed by database. This is
+     * shared so that changes made through any repository for a database invalidate it (and weak
+     * so that it goes away with the database if the file is deleted and a new one is opened).
+     */
+    private static final Map<SQLiteDatabase, Map<String, Map<String, Long>>> LAST_STATUS_CHANGE_DATES = new WeakHashMap<>();
+
+    /**
+     * SQLite's default limit on the number of variables in a statement is 999.
+     */
+    private static final int MAX_SQL_VARIABLES = 500;
+
+    /**
+     * Directory (inside the instances directory) that the files of instances deleted with
+     * {@link #deleteAll(List)} are moved to before being deleted in the background.
+     */
+    private static final String TRASH_DIR_NAME = ".trash";
+
+    private static final Executor TRASH_EMPTIER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "InstanceTrashEmptier");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
     private final DatabaseConnection databaseConnection;
     private final Supplier<Long> clock;
     private final String instancesPath;
@@ -49,7 +82,8 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
                 dbPath,
                 DatabaseConstants.INSTANCES_DATABASE_NAME,
                 new InstanceDatabaseMigrator(),
-                DatabaseConstants.INSTANCES_DATABASE_VERSION
+                DatabaseConstants.INSTANCES_DATABASE_VERSION,
+                true
         );
 
         this.clock = clock;
@@ -88,6 +122,18 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
         }
     }
 
+    @Override
+    public List<String> getAllInstanceFilePaths() {
+        try (Cursor cursor = query(new String[]{INSTANCE_FILE_PATH}, null, null, null)) {
+            List<String> instanceFilePaths = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                instanceFilePaths.add(getAbsoluteFilePath(instancesPath, cursor.getString(0)));
+            }
+
+            return instanceFilePaths;
+        }
+    }
+
     @Override
     public List<Instance> getAllNotDeleted() {
         try (Cursor cursor = query(null, DELETED_DATE + " IS NULL ", null, null)) {
@@ -103,12 +149,29 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
     }
 
     @Override
-    public int getCountByStatus(String... status) {
-        try (Cursor cursorForAllByStatus = getCursorForAllByStatus(status)) {
-            return cursorForAllByStatus.getCount();
+    public List<Instance> getPageByStatus(int offset, int limit, String... status) {
+        try (Cursor cursor = query(null, getStatusSelection(status), status, _ID, offset + "," + limit)) {
+            return getInstancesFromCursor(cursor, instancesPath);
         }
     }
 
+    @Override
+    public int getCountByStatus(String... status) {
+        return (int) DatabaseUtils.queryNumEntries(
+                databaseConnection.getReadableDatabase(),
+                INSTANCES_TABLE_NAME,
+                getStatusSelection(status),
+                status
+        );
+    }
+
+    @Override
+    public Long getLastStatusChangeDateByStatus(String... status) {
+        String[] projection = {"MAX(" + LAST_STATUS_CHANGE_DATE + ")"};
+        try (Cursor cursor = databaseConnection.getReadableDatabase().query(INSTANCES_TABLE_NAME, projection, getStatusSelection(status), status, null, null, null)) {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : null;
+        }
+    }
 
     @Override
     public List<Instance> getAllByFormId(String formId) {
@@ -130,6 +193,31 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
         }
     }
 
+    @Override
+    public int getCountNotDeletedByFormIdAndVersion(String jrFormId, String jrVersion) {
+        SQLiteDatabase readableDatabase = databaseConnection.getReadableDatabase();
+        if (jrVersion != null) {
+            return (int) DatabaseUtils.queryNumEntries(readableDatabase, INSTANCES_TABLE_NAME, JR_FORM_ID + " = ? AND " + JR_VERSION + " = ? AND " + DELETED_DATE + " IS NULL", new String[]{jrFormId, jrVersion});
+        } else {
+            return (int) DatabaseUtils.queryNumEntries(readableDatabase, INSTANCES_TABLE_NAME, JR_FORM_ID + " = ? AND " + JR_VERSION + " IS NULL AND " + DELETED_DATE + " IS NULL", new String[]{jrFormId});
+        }
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getLastStatusChangeDatesByFormIdAndVersion() {
+        SQLiteDatabase database = databaseConnection.getReadableDatabase();
+
+        synchronized (LAST_STATUS_CHANGE_DATES) {
+            Map<String, Map<String, Long>> dates = LAST_STATUS_CHANGE_DATES.get(database);
+            if (dates == null) {
+                dates = queryLastStatusChangeDates(database);
+                LAST_STATUS_CHANGE_DATES.put(database, dates);
+            }
+
+            return dates;
+        }
+    }
+
     @Override
     public void delete(Long id) {
         Instance instance = get(id);
@@ -139,6 +227,7 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
                 _ID + "=?",
                 new String[]{String.valueOf(id)}
         );
+        invalidateLastStatusChangeDates();
 
         deleteInstanceFiles(instance);
     }
@@ -152,12 +241,92 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
                 null,
                 null
         );
+        invalidateLastStatusChangeDates();
 
         for (Instance instance : instances) {
             deleteInstanceFiles(instance);
         }
     }
 
+    @Override
+    public List<Instance> deleteAll(List<Long> ids) {
+        List<Instance> deleted = new ArrayList<>();
+        SQLiteDatabase writeableDatabase = databaseConnection.getWriteableDatabase();
+
+        writeableDatabase.beginTransaction();
+        try {
+            for (int start = 0; start < ids.size(); start += MAX_SQL_VARIABLES) {
+                List<Long> batch = ids.subList(start, Math.min(start + MAX_SQL_VARIABLES, ids.size()));
+                String[] batchArgs = new String[batch.size()];
+                for (int i = 0; i < batch.size(); i++) {
+                    batchArgs[i] = String.valueOf(batch.get(i));
+                }
+
+                List<Instance> instances;
+                try (Cursor cursor = query(null, _ID + " IN (" + placeholders(batch.size()) + ")", batchArgs, null)) {
+                    instances = getInstancesFromCursor(cursor, instancesPath);
+                }
+
+                List<String> submittedIds = new ArrayList<>();
+                List<String> otherIds = new ArrayList<>();
+                for (Instance instance : instances) {
+                    if (Instance.STATUS_SUBMITTED.equals(instance.getStatus())) {
+                        submittedIds.add(instance.getDbId().toString());
+                    } else {
+                        otherIds.add(instance.getDbId().toString());
+                    }
+                }
+
+                if (!submittedIds.isEmpty()) {
+                    ContentValues values = new ContentValues();
+                    values.putNull(GEOMETRY);
+                    values.putNull(GEOMETRY_TYPE);
+                    values.put(DELETED_DATE, clock.get());
+                    writeableDatabase.update(
+                            INSTANCES_TABLE_NAME,
+                            values,
+                            _ID + " IN (" + placeholders(submittedIds.size()) + ")",
+                            submittedIds.toArray(new String[0])
+                    );
+                }
+
+                if (!otherIds.isEmpty()) {
+                    writeableDatabase.delete(
+                            INSTANCES_TABLE_NAME,
+                            _ID + " IN (" + placeholders(otherIds.size()) + ")",
+                            otherIds.toArray(new String[0])
+                    );
+                }
+
+                deleted.addAll(instances);
+            }
+
+            writeableDatabase.setTransactionSuccessful();
+        } finally {
+            writeableDatabase.endTransaction();
+        }
+        invalidateLastStatusChangeDates();
+
+        // Move the files out of the way straight away but leave actually deleting them (which
+        // can take a long time for a lot of instances) to happen in the background
+        File trashDir = new File(instancesPath, TRASH_DIR_NAME);
+        for (Instance instance : deleted) {
+            File instanceDir = new File(instance.getInstanceFilePath()).getParentFile();
+            if (instanceDir == null || !instanceDir.exists()) {
+                continue;
+            }
+
+            trashDir.mkdirs();
+            File trashedDir = new File(trashDir, instanceDir.getName() + "_" + instance.getDbId());
+            if (!instanceDir.renameTo(trashedDir)) {
+                deleteInstanceFiles(instance);
+            }
+        }
+        emptyTrash(trashDir);
+
+        return deleted;
+    }
+
     @Override
     public Instance save(Instance instance) {
         if (instance.getStatus() == null) {
@@ -174,6 +343,7 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
             }
 
             long insertId = insert(getValuesFromInstance(instance, instancesPath));
+            invalidateLastStatusChangeDates();
             return get(insertId);
         } else {
             if (instance.getDeletedDate() == null) {
@@ -183,6 +353,7 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
             }
 
             update(instance.getDbId(), getValuesFromInstance(instance, instancesPath));
+            invalidateLastStatusChangeDates();
             return get(instance.getDbId());
         }
     }
@@ -194,6 +365,7 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
         values.putNull(GEOMETRY_TYPE);
         values.put(DELETED_DATE, clock.get());
         update(id, values);
+        invalidateLastStatusChangeDates();
 
         Instance instance = get(id);
         deleteInstanceFiles(instance);
@@ -204,15 +376,23 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
     }
 
     private Cursor getCursorForAllByStatus(String[] status) {
+        return query(null, getStatusSelection(status), status, null);
+    }
+
+    private static String getStatusSelection(String[] status) {
         StringBuilder selection = new StringBuilder(STATUS + "=?");
         for (int i = 1; i < status.length; i++) {
             selection.append(" or ").append(STATUS).append("=?");
         }
 
-        return query(null, selection.toString(), status, null);
+        return selection.toString();
     }
 
     private Cursor query(String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        return query(projection, selection, selectionArgs, sortOrder, null);
+    }
+
+    private Cursor query(String[] projection, String selection, String[] selectionArgs, String sortOrder, String limit) {
         SQLiteDatabase readableDatabase = databaseConnection.getReadableDatabase();
         SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
         qb.setTables(INSTANCES_TABLE_NAME);
@@ -238,7 +418,38 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
             };
         }
 
-        return qb.query(readableDatabase, projection, selection, selectionArgs, null, null, sortOrder);
+        return qb.query(readableDatabase, projection, selection, selectionArgs, null, null, sortOrder, limit);
+    }
+
+    private static Map<String, Map<String, Long>> queryLastStatusChangeDates(SQLiteDatabase database) {
+        Map<String, Map<String, Long>> dates = new HashMap<>();
+
+        String[] projection = {JR_FORM_ID, JR_VERSION, "MAX(" + LAST_STATUS_CHANGE_DATE + ")"};
+        try (Cursor cursor = database.query(INSTANCES_TABLE_NAME, projection, null, null, JR_FORM_ID + ", " + JR_VERSION, null, null)) {
+            while (cursor.moveToNext()) {
+                Map<String, Long> versionDates = dates.get(cursor.getString(0));
+                if (versionDates == null) {
+                    versionDates = new HashMap<>();
+                    dates.put(cursor.getString(0), versionDates);
+                }
+
+                versionDates.put(cursor.isNull(1) ? null : cursor.getString(1), cursor.getLong(2));
+            }
+        }
+
+        for (Map.Entry<String, Map<String, Long>> entry : dates.entrySet()) {
+            entry.setValue(Collections.unmodifiableMap(entry.getValue()));
+        }
+
+        return Collections.unmodifiableMap(dates);
+    }
+
+    private void invalidateLastStatusChangeDates() {
+        SQLiteDatabase database = databaseConnection.getReadableDatabase();
+
+        synchronized (LAST_STATUS_CHANGE_DATES) {
+            LAST_STATUS_CHANGE_DATES.remove(database);
+        }
     }
 
     private long insert(ContentValues values) {
@@ -258,6 +469,26 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
         );
     }
 
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int i = 1; i < count; i++) {
+            placeholders.append(",?");
+        }
+
+        return placeholders.toString();
+    }
+
+    private static void emptyTrash(File trashDir) {
+        TRASH_EMPTIER.execute(() -> {
+            File[] trashedDirs = trashDir.listFiles();
+            if (trashedDirs != null) {
+                for (File trashedDir : trashedDirs) {
+                    DirectoryUtils.deleteDirectory(trashedDir);
+                }
+            }
+        });
+    }
+
     private void deleteInstanceFiles(Instance instance) {
         DirectoryUtils.deleteDirectory(new File(instance.getInstanceFilePath()).getParentFile());
     }
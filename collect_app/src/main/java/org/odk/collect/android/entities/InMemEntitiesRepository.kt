@@ -15,7 +15,15 @@ class InMemEntitiesRepository : EntitiesRepository {
         return entities.filter { it.dataset == dataset }
     }
 
-    override fun save(entity: Entity) {
-        entities.add(entity)
+    override fun getEntities(dataset: String, offset: Int, limit: Int): List<Entity> {
+        return getEntities(dataset).drop(offset).take(limit)
+    }
+
+    override fun getCount(dataset: String): Int {
+        return entities.count { it.dataset == dataset }
+    }
+
+    override fun save(vararg entities: Entity) {
+        this.entities.addAll(entities)
     }
 }
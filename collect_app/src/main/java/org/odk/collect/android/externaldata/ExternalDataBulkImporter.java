@@ -0,0 +1,221 @@
+package org.odk.collect.android.externaldata;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.opencsv.CSVReader;
+
+import org.odk.collect.android.application.Collect;
+import org.odk.collect.android.exception.ExternalDataException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import timber.log.Timber;
+
+import static org.odk.collect.strings.localization.LocalizedApplicationKt.getLocalizedString;
+
+/**
+ * Imports the rows of an external data CSV into a table. The mapping from CSV columns to (safe)
+ * table columns is worked out once from the header row and every row is then inserted with the
+ * same compiled {@link SQLiteStatement}. If the database isn't already in a transaction, rows
+ * are committed in batches of {@link #BATCH_SIZE}.
+ */
+public class ExternalDataBulkImporter {
+
+    static final int BATCH_SIZE = 10_000;
+    static final long PROGRESS_INTERVAL_MILLIS = 500;
+
+    private final Supplier<Long> clock;
+
+    // Indexes of the non blank CSV columns and their matching table columns
+    private final int[] csvColumnIndexes;
+    private final String[] safeColumnNames;
+    private final int sortColumnIndex;
+    private final List<String> indexedHeaders = new ArrayList<>();
+
+    public ExternalDataBulkImporter(String[] headerRow, Supplier<Long> clock) {
+        this.clock = clock;
+
+        Map<String, String> columnNamesCache = new HashMap<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int sortColumn = -1;
+
+        for (int i = 0; i < headerRow.length; i++) {
+            String columnName = headerRow[i].trim();
+            if (columnName.length() == 0) {
+                continue;
+            }
+
+            String safeColumnName = ExternalDataUtil.toSafeColumnName(columnName, columnNamesCache);
+            if (safeColumnName.equals(ExternalDataUtil.SORT_COLUMN_NAME)) {
+                sortColumn = names.size();
+            }
+
+            indexes.add(i);
+            names.add(safeColumnName);
+        }
+
+        for (String header : headerRow) {
+            if (header.endsWith("_key")) {
+                indexedHeaders.add(header);
+            }
+        }
+
+        csvColumnIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+        safeColumnNames = names.toArray(new String[0]);
+        sortColumnIndex = sortColumn;
+    }
+
+    public String getCreateTableSql(String tableName) {
+        StringBuilder sb = new StringBuilder("CREATE TABLE IF NOT EXISTS ")
+                .append(tableName)
+                .append(" ( ");
+
+        for (int i = 0; i < safeColumnNames.length; i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+
+            if (i == sortColumnIndex) {
+                sb.append(safeColumnNames[i]).append(" real ");
+            } else {
+                sb.append(safeColumnNames[i]).append(" text collate nocase ");
+            }
+        }
+
+        if (!hasSortColumn()) {
+            sb.append(", ").append(ExternalDataUtil.SORT_COLUMN_NAME).append(" real ");
+        }
+
+        return sb.append(" );").toString();
+    }
+
+    /**
+     * Indexes are created after the rows are inserted as inserts are much faster without them.
+     */
+    public List<String> getCreateIndexesSql(String tableName) {
+        Map<String, String> columnNamesCache = new HashMap<>();
+        List<String> createIndexesCommands = new ArrayList<>();
+        for (String header : indexedHeaders) {
+            createIndexesCommands.add("CREATE INDEX " + header + "_idx ON " + tableName + " ("
+                    + ExternalDataUtil.toSafeColumnName(header, columnNamesCache) + ");");
+        }
+
+        return createIndexesCommands;
+    }
+
+    /**
+     * Reads the rest of the rows from {@code reader} (the header row should already have been
+     * read) into {@code tableName}. {@code progressListener} is called at most once every
+     * {@link #PROGRESS_INTERVAL_MILLIS}.
+     *
+     * @return the number of rows imported
+     */
+    public int importRows(SQLiteDatabase db, String tableName, CSVReader reader,
+                          BooleanSupplier isCancelled, ProgressListener progressListener) throws Exception {
+        boolean batchTransactions = !db.inTransaction();
+        if (batchTransactions) {
+            db.beginTransaction();
+        }
+
+        int rowCount = 0;
+        try (SQLiteStatement insert = db.compileStatement(getInsertSql(tableName))) {
+            long lastProgress = clock.get();
+
+            String[] row = reader.readNext();
+            while (row != null && !isCancelled.getAsBoolean()) {
+                // SCTO-894 - first we should make sure that this is not an empty line
+                if (ExternalDataUtil.containsAnyData(row)) {
+                    bindRow(insert, row, rowCount);
+                    insert.executeInsert();
+                    rowCount++;
+
+                    if (batchTransactions && rowCount % BATCH_SIZE == 0) {
+                        db.setTransactionSuccessful();
+                        db.endTransaction();
+                        db.beginTransaction();
+                    }
+
+                    long now = clock.get();
+                    if (now - lastProgress >= PROGRESS_INTERVAL_MILLIS) {
+                        progressListener.onProgress(rowCount);
+                        lastProgress = now;
+                    }
+                }
+
+                row = reader.readNext();
+            }
+
+            if (batchTransactions) {
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            if (batchTransactions) {
+                db.endTransaction();
+            }
+        }
+
+        Timber.i("Imported %d rows into %s", rowCount, tableName);
+        return rowCount;
+    }
+
+    private void bindRow(SQLiteStatement insert, String[] row, int rowCount) {
+        insert.clearBindings();
+
+        for (int i = 0; i < csvColumnIndexes.length; i++) {
+            int csvColumnIndex = csvColumnIndexes[i];
+
+            // SCTO-894 - rows with less values than the header are filled up with empty strings
+            String value = csvColumnIndex < row.length && row[csvColumnIndex] != null ? row[csvColumnIndex] : "";
+
+            if (i == sortColumnIndex) {
+                try {
+                    insert.bindDouble(i + 1, Double.parseDouble(value));
+                } catch (NumberFormatException e) {
+                    throw new ExternalDataException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_sortBy_numeric_error, value));
+                }
+            } else {
+                insert.bindString(i + 1, value);
+            }
+        }
+
+        if (!hasSortColumn()) {
+            insert.bindLong(csvColumnIndexes.length + 1, rowCount + 1);
+        }
+    }
+
+    private String getInsertSql(String tableName) {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < safeColumnNames.length; i++) {
+            if (i != 0) {
+                columns.append(", ");
+                placeholders.append(", ");
+            }
+
+            columns.append(safeColumnNames[i]);
+            placeholders.append('?');
+        }
+
+        if (!hasSortColumn()) {
+            columns.append(", ").append(ExternalDataUtil.SORT_COLUMN_NAME);
+            placeholders.append(", ?");
+        }
+
+        return "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + placeholders + ");";
+    }
+
+    private boolean hasSortColumn() {
+        return sortColumnIndex != -1;
+    }
+
+    public interface ProgressListener {
+        void onProgress(int rowCount);
+    }
+}
@@ -0,0 +1,73 @@
+package org.odk.collect.android.externaldata;
+
+import org.odk.collect.android.application.Collect;
+import org.odk.collect.android.tasks.FormLoaderTask;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.odk.collect.strings.localization.LocalizedApplicationKt.getLocalizedString;
+
+/**
+ * Tracks the progress (and cancellation) of external data imports that may be running
+ * concurrently and reports it to the {@link FormLoaderTask} as a single message covering every
+ * dataset that is currently being imported.
+ */
+class ExternalDataImportProgress {
+
+    private final FormLoaderTask formLoaderTask;
+
+    // Rows imported so far for each data set file currently being imported
+    private final Map<String, Integer> importing = new LinkedHashMap<>();
+    private volatile boolean cancelled;
+
+    ExternalDataImportProgress(FormLoaderTask formLoaderTask) {
+        this.formLoaderTask = formLoaderTask;
+    }
+
+    boolean isCancelled() {
+        return cancelled || (formLoaderTask != null && formLoaderTask.isCancelled());
+    }
+
+    /**
+     * Stops any imports that are still running (for example when another one has failed).
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    synchronized void onStarted(String dataSetFileName) {
+        importing.put(dataSetFileName, 0);
+        publishProgress();
+    }
+
+    synchronized void onRowsImported(String dataSetFileName, int rowCount) {
+        importing.put(dataSetFileName, rowCount);
+        publishProgress();
+    }
+
+    synchronized void onFinished(String dataSetFileName) {
+        importing.remove(dataSetFileName);
+    }
+
+    void onMessage(String message) {
+        if (formLoaderTask != null) {
+            formLoaderTask.publishExternalDataLoadingProgress(message);
+        }
+    }
+
+    private void publishProgress() {
+        if (formLoaderTask == null) {
+            return;
+        }
+
+        int totalRows = 0;
+        for (int rowCount : importing.values()) {
+            totalRows += rowCount;
+        }
+
+        String rowsMessage = totalRows > 0 ? " (" + totalRows + " records so far)" : "";
+        onMessage(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_import_progress_message,
+                String.join(", ", importing.keySet()), rowsMessage));
+    }
+}
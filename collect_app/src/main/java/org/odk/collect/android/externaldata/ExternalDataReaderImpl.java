@@ -25,7 +25,13 @@ import org.odk.collect.android.tasks.FormLoaderTask;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import timber.log.Timber;
 
@@ -36,27 +42,85 @@ import timber.log.Timber;
  */
 public class ExternalDataReaderImpl implements ExternalDataReader {
 
+    private static final int MAX_CONCURRENT_IMPORTS = 4;
+
     private final FormLoaderTask formLoaderTask;
+    private final int maxConcurrentImports;
 
     public ExternalDataReaderImpl(FormLoaderTask formLoaderTask) {
+        this(formLoaderTask, Math.min(Runtime.getRuntime().availableProcessors(), MAX_CONCURRENT_IMPORTS));
+    }
+
+    public ExternalDataReaderImpl(FormLoaderTask formLoaderTask, int maxConcurrentImports) {
         this.formLoaderTask = formLoaderTask;
+        this.maxConcurrentImports = Math.max(1, maxConcurrentImports);
     }
 
+    /**
+     * Imports each data set into its own database. As the databases are independent, data sets are
+     * imported concurrently (up to {@link #maxConcurrentImports} at a time). If the import is
+     * cancelled (or one of the data sets fails) any data set that is part way through importing is
+     * rolled back and no more are started.
+     */
     @Override
     public void doImport(Map<String, File> externalDataMap) {
+        ExternalDataImportProgress progress = new ExternalDataImportProgress(formLoaderTask);
+
+        List<Map.Entry<String, File>> dataSets = new ArrayList<>();
         for (Map.Entry<String, File> stringFileEntry : externalDataMap.entrySet()) {
-            String dataSetName = stringFileEntry.getKey();
-            File dataSetFile = stringFileEntry.getValue();
-            if (!dataSetFile.exists()) {
-                continue;
+            if (stringFileEntry.getValue().exists()) {
+                dataSets.add(stringFileEntry);
+            }
+        }
+
+        int threads = Math.min(maxConcurrentImports, dataSets.size());
+        if (threads <= 1) {
+            for (Map.Entry<String, File> dataSet : dataSets) {
+                if (!doImportDataSetAndContinue(dataSet.getKey(), dataSet.getValue(), progress)) {
+                    return; // halt if import was cancelled
+                }
+            }
+
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> imports = new ArrayList<>();
+            for (Map.Entry<String, File> dataSet : dataSets) {
+                imports.add(executor.submit(() -> {
+                    if (!progress.isCancelled()) {
+                        doImportDataSetAndContinue(dataSet.getKey(), dataSet.getValue(), progress);
+                    }
+                }));
             }
-            if (!doImportDataSetAndContinue(dataSetName, dataSetFile)) {
-                return; // halt if import was cancelled
+
+            RuntimeException failure = null;
+            for (Future<?> dataSetImport : imports) {
+                try {
+                    dataSetImport.get();
+                } catch (ExecutionException e) {
+                    progress.cancel();
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException
+                                ? (RuntimeException) e.getCause()
+                                : new RuntimeException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    progress.cancel();
+                    Thread.currentThread().interrupt();
+                }
             }
+
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdown();
         }
     }
 
-    private boolean doImportDataSetAndContinue(String dataSetName, File dataSetFile) {
+    private boolean doImportDataSetAndContinue(String dataSetName, File dataSetFile, ExternalDataImportProgress progress) {
         File dbFile = new File(dataSetFile.getParentFile().getAbsolutePath(),
                 dataSetName + ".db");
         if (dbFile.exists()) {
@@ -73,9 +137,16 @@ public class ExternalDataReaderImpl implements ExternalDataReader {
         }
         ExternalSQLiteOpenHelper externalSQLiteOpenHelper = new ExternalSQLiteOpenHelper(
                 dbFile);
-        externalSQLiteOpenHelper.importFromCSV(dataSetFile, this, formLoaderTask);
 
-        if (formLoaderTask != null && formLoaderTask.isCancelled()) {
+        try {
+            externalSQLiteOpenHelper.importFromCSV(dataSetFile, this, progress);
+        } catch (RuntimeException e) {
+            // make sure other data sets being imported at the same time stop
+            progress.cancel();
+            throw e;
+        }
+
+        if (progress.isCancelled()) {
             Timber.w(
                     "The import was cancelled, so we need to rollback.");
 
@@ -30,19 +30,19 @@ import com.opencsv.CSVReaderBuilder;
 import org.odk.collect.android.application.Collect;
 import org.odk.collect.android.database.AltDatabasePathContext;
 import org.odk.collect.android.exception.ExternalDataException;
-import org.odk.collect.android.tasks.FormLoaderTask;
 import org.odk.collect.android.utilities.CustomSQLiteQueryBuilder;
 import org.odk.collect.android.utilities.CustomSQLiteQueryExecutor;
+import org.odk.collect.android.utilities.FileFingerprint;
 import org.odk.collect.android.utilities.SQLiteUtils;
 import org.odk.collect.shared.strings.Md5;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.security.DigestInputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import timber.log.Timber;
 
@@ -59,20 +59,25 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
     private static final char DELIMITING_CHAR = ",".charAt(0);
     private static final char QUOTE_CHAR = "\"".charAt(0);
     private static final char ESCAPE_CHAR = "\0".charAt(0);
+    private static final String[] FINGERPRINT_COLUMNS = {
+            ExternalDataUtil.COLUMN_FILE_SIZE,
+            ExternalDataUtil.COLUMN_LAST_MODIFIED,
+            ExternalDataUtil.COLUMN_INODE
+    };
 
     private File dataSetFile;
     private ExternalDataReader externalDataReader;
-    private FormLoaderTask formLoaderTask;
+    private ExternalDataImportProgress progress;
 
     ExternalSQLiteOpenHelper(File dbFile) {
         super(new AltDatabasePathContext(dbFile.getParentFile().getAbsolutePath(), Collect.getInstance()), dbFile.getName(), null, VERSION);
     }
 
     void importFromCSV(File dataSetFile, ExternalDataReader externalDataReader,
-                       FormLoaderTask formLoaderTask) {
+                       ExternalDataImportProgress progress) {
         this.dataSetFile = dataSetFile;
         this.externalDataReader = externalDataReader;
-        this.formLoaderTask = formLoaderTask;
+        this.progress = progress;
 
         SQLiteDatabase writableDatabase = null;
         try {
@@ -96,8 +101,10 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
 
         try {
             if (shouldUpdateDBforDataSet(db, ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME, ExternalDataUtil.EXTERNAL_METADATA_TABLE_NAME, dataSetFile)) {
-                onCreateNamed(db, ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME);
-                createAndPopulateMetadataTable(db, ExternalDataUtil.EXTERNAL_METADATA_TABLE_NAME, dataSetFile);
+                // Take the fingerprint before reading so a change during the import isn't missed
+                FileFingerprint fingerprint = FileFingerprint.of(dataSetFile);
+                String md5Hash = onCreateNamed(db, ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME);
+                createAndPopulateMetadataTable(db, ExternalDataUtil.EXTERNAL_METADATA_TABLE_NAME, dataSetFile, md5Hash, fingerprint);
             }
         } catch (Exception e) {
             throw new ExternalDataException(
@@ -106,15 +113,18 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
         }
     }
 
-    private void onCreateNamed(SQLiteDatabase db, String tableName) throws Exception {
+    /**
+     * @return the MD5 hash of the data set file (calculated while it is read)
+     */
+    private String onCreateNamed(SQLiteDatabase db, String tableName) throws Exception {
         Timber.w("Reading data from '%s", dataSetFile.toString());
 
-        onProgress(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_import_progress_message,
-                dataSetFile.getName(), ""));
+        progress.onStarted(dataSetFile.getName());
 
         CSVReader reader = null;
         try {
-            reader = new CSVReaderBuilder(new FileReader(dataSetFile))
+            DigestInputStream md5InputStream = Md5.getMd5InputStream(new FileInputStream(dataSetFile));
+            reader = new CSVReaderBuilder(new InputStreamReader(md5InputStream))
                     .withCSVParser(new CSVParserBuilder()
                             .withSeparator(DELIMITING_CHAR)
                             .withQuoteChar(QUOTE_CHAR)
@@ -142,107 +152,16 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
                                 conflictingColumns));
             }
 
-            Map<String, String> columnNamesCache = new HashMap<>();
-
-            StringBuilder sb = new StringBuilder();
-
-            boolean sortColumnAlreadyPresent = false;
-
-            sb
-                    .append("CREATE TABLE IF NOT EXISTS ")
-                    .append(tableName)
-                    .append(" ( ");
-
-            for (int i = 0; i < headerRow.length; i++) {
-                String columnName = headerRow[i].trim();
-                if (columnName.length() == 0) {
-                    continue;
-                }
-                if (i != 0) {
-                    sb.append(", ");
-                }
-                String safeColumnName = ExternalDataUtil.toSafeColumnName(columnName,
-                        columnNamesCache);
-                if (safeColumnName.equals(ExternalDataUtil.SORT_COLUMN_NAME)) {
-                    sortColumnAlreadyPresent = true;
-                    sb.append(safeColumnName).append(" real ");
-                } else {
-                    sb.append(safeColumnName).append(" text collate nocase ");
-                }
-            }
-            if (!sortColumnAlreadyPresent) {
-                sb.append(", ");
-                sb.append(ExternalDataUtil.SORT_COLUMN_NAME).append(" real ");
-            }
-
-            sb.append(" );");
-            String sql = sb.toString();
+            ExternalDataBulkImporter importer = new ExternalDataBulkImporter(headerRow, System::currentTimeMillis);
 
+            String sql = importer.getCreateTableSql(tableName);
             Timber.w("Creating database for %s with query: %s", dataSetFile, sql);
             db.execSQL(sql);
 
-            // create the indexes.
-            // save the sql for later because inserts will be much faster if we don't have
-            // indexes already.
-            List<String> createIndexesCommands = new ArrayList<>();
-            for (String header : headerRow) {
-                if (header.endsWith("_key")) {
-                    String indexSQL = "CREATE INDEX " + header + "_idx ON " + tableName + " ("
-                            + ExternalDataUtil.toSafeColumnName(header, columnNamesCache) + ");";
-                    createIndexesCommands.add(indexSQL);
-                    Timber.w("Will create an index on %s later.", header);
-                }
-            }
-
             // populate the database
-            String[] row = reader.readNext();
-            int rowCount = 0;
-            while (row != null && !isCancelled()) {
-                // SCTO-894 - first we should make sure that this is not an empty line
-                if (!ExternalDataUtil.containsAnyData(row)) {
-                    // yes, that is an empty row, ignore it
-                    row = reader.readNext();
-                    continue;
-                }
-
-                // SCTO-894 - then check if the row contains less values than the header
-                // we should not ignore the existing values in the row,
-                // we will just fill up the rest with empty strings
-                if (row.length < headerRow.length) {
-                    row = ExternalDataUtil.fillUpNullValues(row, headerRow);
-                }
-
-                ContentValues values = new ContentValues();
-                if (!sortColumnAlreadyPresent) {
-                    values.put(ExternalDataUtil.SORT_COLUMN_NAME, rowCount + 1);
-                }
-
-                for (int i = 0; i < row.length && i < headerRow.length; i++) {
-                    String columnName = headerRow[i].trim();
-                    String columnValue = row[i];
-                    if (columnName.length() == 0) {
-                        continue;
-                    }
-                    String safeColumnName = ExternalDataUtil.toSafeColumnName(columnName,
-                            columnNamesCache);
-                    if (safeColumnName.equals(ExternalDataUtil.SORT_COLUMN_NAME)) {
-                        try {
-                            values.put(safeColumnName, Double.parseDouble(columnValue));
-                        } catch (NumberFormatException e) {
-                            throw new ExternalDataException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_sortBy_numeric_error, columnValue));
-                        }
-                    } else {
-                        values.put(safeColumnName, columnValue);
-                    }
-                }
-                db.insertOrThrow(tableName, null, values);
-                row = reader.readNext();
-                rowCount++;
-                if (rowCount % 100 == 0) {
-                    onProgress(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_import_progress_message,
-                            dataSetFile.getName(), " (" + rowCount + " records so far)"));
-                }
-            }
+            importer.importRows(db, tableName, reader, this::isCancelled, rowCount ->
+                    progress.onRowsImported(dataSetFile.getName(), rowCount)
+            );
 
             if (isCancelled()) {
                 Timber.w("User canceled reading data from %s", dataSetFile.toString());
@@ -252,7 +171,7 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
                 onProgress(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_import_finalizing_message));
 
                 // now create the indexes
-                for (String createIndexCommand : createIndexesCommands) {
+                for (String createIndexCommand : importer.getCreateIndexesSql(tableName)) {
                     Timber.w(createIndexCommand);
                     db.execSQL(createIndexCommand);
                 }
@@ -260,7 +179,11 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
                 Timber.w("Read all data from %s", dataSetFile.toString());
                 onProgress(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_import_completed_message));
             }
+
+            return Md5.getMd5Hash(md5InputStream.getMessageDigest());
         } finally {
+            progress.onFinished(dataSetFile.getName());
+
             if (reader != null) {
                 try {
                     reader.close();
@@ -272,24 +195,33 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
     }
 
     protected boolean isCancelled() {
-        return formLoaderTask != null && formLoaderTask.isCancelled();
+        return progress != null && progress.isCancelled();
     }
 
     // Create a metadata table with a single column that keeps track of the date of the last import
     // of this data set.
     static void createAndPopulateMetadataTable(SQLiteDatabase db, String metadataTableName, File dataSetFile) {
+        createAndPopulateMetadataTable(db, metadataTableName, dataSetFile, Md5.getMd5Hash(dataSetFile), FileFingerprint.of(dataSetFile));
+    }
+
+    static void createAndPopulateMetadataTable(SQLiteDatabase db, String metadataTableName, File dataSetFile,
+                                               String md5Hash, FileFingerprint fingerprint) {
         final String dataSetFilenameColumn = CustomSQLiteQueryBuilder.quoteIdentifier(ExternalDataUtil.COLUMN_DATASET_FILENAME);
         final String md5HashColumn = CustomSQLiteQueryBuilder.quoteIdentifier(ExternalDataUtil.COLUMN_MD5_HASH);
 
         List<String> columnDefinitions = new ArrayList<>();
         columnDefinitions.add(CustomSQLiteQueryBuilder.formatColumnDefinition(dataSetFilenameColumn, "TEXT"));
         columnDefinitions.add(CustomSQLiteQueryBuilder.formatColumnDefinition(md5HashColumn, "TEXT NOT NULL"));
+        for (String fingerprintColumn : FINGERPRINT_COLUMNS) {
+            columnDefinitions.add(CustomSQLiteQueryBuilder.formatColumnDefinition(CustomSQLiteQueryBuilder.quoteIdentifier(fingerprintColumn), "INTEGER"));
+        }
 
         CustomSQLiteQueryExecutor.begin(db).createTable(metadataTableName).columnsForCreate(columnDefinitions).end();
 
         ContentValues metadata = new ContentValues();
         metadata.put(ExternalDataUtil.COLUMN_DATASET_FILENAME, dataSetFile.getName());
-        metadata.put(ExternalDataUtil.COLUMN_MD5_HASH, Md5.getMd5Hash(dataSetFile));
+        metadata.put(ExternalDataUtil.COLUMN_MD5_HASH, md5Hash);
+        putFingerprint(metadata, fingerprint);
         db.insertOrThrow(metadataTableName, null, metadata);
     }
 
@@ -311,9 +243,57 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
         return lastImportMd5;
     }
 
+    /**
+     * Returns the fingerprint of the data set file when it was last imported or {@code null} if
+     * one wasn't recorded (databases created before fingerprints were added for example).
+     */
+    static FileFingerprint getLastFingerprint(SQLiteDatabase db, String metadataTableName, File dataSetFile) {
+        for (String fingerprintColumn : FINGERPRINT_COLUMNS) {
+            if (!SQLiteUtils.doesColumnExist(db, metadataTableName, fingerprintColumn)) {
+                return null;
+            }
+        }
+
+        String selection = ExternalDataUtil.COLUMN_DATASET_FILENAME + "=?";
+        String[] selectionArgs = {dataSetFile.getName()};
+        try (Cursor cursor = db.query(metadataTableName, FINGERPRINT_COLUMNS, selection, selectionArgs, null, null, null)) {
+            if (cursor.getCount() != 1 || !cursor.moveToFirst() || cursor.isNull(0) || cursor.isNull(1) || cursor.isNull(2)) {
+                return null;
+            }
+
+            return new FileFingerprint(cursor.getLong(0), cursor.getLong(1), cursor.getLong(2));
+        }
+    }
+
+    private static void updateFingerprint(SQLiteDatabase db, String metadataTableName, File dataSetFile, FileFingerprint fingerprint) {
+        for (String fingerprintColumn : FINGERPRINT_COLUMNS) {
+            if (!SQLiteUtils.doesColumnExist(db, metadataTableName, fingerprintColumn)) {
+                SQLiteUtils.addColumn(db, metadataTableName, fingerprintColumn, "INTEGER");
+            }
+        }
+
+        ContentValues values = new ContentValues();
+        putFingerprint(values, fingerprint);
+        db.update(metadataTableName, values, ExternalDataUtil.COLUMN_DATASET_FILENAME + "=?", new String[]{dataSetFile.getName()});
+    }
+
+    private static void putFingerprint(ContentValues values, FileFingerprint fingerprint) {
+        if (fingerprint != null) {
+            values.put(ExternalDataUtil.COLUMN_FILE_SIZE, fingerprint.getSize());
+            values.put(ExternalDataUtil.COLUMN_LAST_MODIFIED, fingerprint.getLastModified());
+            values.put(ExternalDataUtil.COLUMN_INODE, fingerprint.getInode());
+        } else {
+            values.putNull(ExternalDataUtil.COLUMN_FILE_SIZE);
+            values.putNull(ExternalDataUtil.COLUMN_LAST_MODIFIED);
+            values.putNull(ExternalDataUtil.COLUMN_INODE);
+        }
+    }
+
     static boolean shouldUpdateDBforDataSet(File dbFile, File dataSetFile) {
-        SQLiteDatabase db = SQLiteDatabase.openDatabase(dbFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
-        return shouldUpdateDBforDataSet(db, ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME, ExternalDataUtil.EXTERNAL_METADATA_TABLE_NAME, dataSetFile);
+        // Opened writable so that the fingerprint can be recorded for databases that don't have one
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(dbFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE)) {
+            return shouldUpdateDBforDataSet(db, ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME, ExternalDataUtil.EXTERNAL_METADATA_TABLE_NAME, dataSetFile);
+        }
     }
 
     static boolean shouldUpdateDBforDataSet(SQLiteDatabase db, String dataTableName, String metadataTableName, File dataSetFile) {
@@ -323,10 +303,26 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
         if (!SQLiteUtils.doesTableExist(db, metadataTableName)) {
             return true;
         }
+
+        // Skip hashing the CSV if it hasn't been touched since the last import
+        FileFingerprint lastFingerprint = getLastFingerprint(db, metadataTableName, dataSetFile);
+        if (lastFingerprint != null && lastFingerprint.matches(dataSetFile)) {
+            return false;
+        }
+
+        // Take the fingerprint before hashing so a change during hashing isn't missed
+        FileFingerprint fingerprint = FileFingerprint.of(dataSetFile);
+
         // Import if the CSV file has been updated
         String priorImportMd5 = getLastMd5Hash(db, metadataTableName, dataSetFile);
         String newFileMd5 = Md5.getMd5Hash(dataSetFile);
-        return newFileMd5 == null || !newFileMd5.equals(priorImportMd5);
+        boolean updated = newFileMd5 == null || !newFileMd5.equals(priorImportMd5);
+
+        if (!updated && !db.isReadOnly()) {
+            updateFingerprint(db, metadataTableName, dataSetFile, fingerprint);
+        }
+
+        return updated;
     }
 
     @Override
@@ -334,8 +330,8 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
     }
 
     private void onProgress(String message) {
-        if (formLoaderTask != null) {
-            formLoaderTask.publishExternalDataLoadingProgress(message);
+        if (progress != null) {
+            progress.onMessage(message);
         }
     }
 
@@ -10,6 +10,8 @@ import org.odk.collect.android.application.Collect;
 import org.odk.collect.android.database.AltDatabasePathContext;
 import org.odk.collect.android.storage.StoragePathProvider;
 import org.odk.collect.android.storage.StorageSubdirectory;
+import org.odk.collect.android.utilities.FileFingerprint;
+import org.odk.collect.android.utilities.SQLiteUtils;
 import org.odk.collect.shared.PathUtils;
 
 import java.io.Closeable;
@@ -26,16 +28,22 @@ public class ItemsetDbAdapter implements Closeable {
 
     public static final String DATABASE_NAME = "itemsets.db";
     private static final String DATABASE_TABLE = "itemset_";
-    private static final int DATABASE_VERSION = 3;
+    private static final int DATABASE_VERSION = 4;
 
     private static final String ITEMSET_TABLE = "itemsets";
     public static final String KEY_ITEMSET_HASH = "hash";
     public static final String KEY_PATH = "path";
+    public static final String KEY_FILE_SIZE = "fileSize";
+    public static final String KEY_LAST_MODIFIED = "lastModified";
+    public static final String KEY_INODE = "inode";
 
     private static final String CREATE_ITEMSET_TABLE =
             "CREATE TABLE IF NOT EXISTS " + ITEMSET_TABLE + " (_id integer primary key autoincrement, "
                     + KEY_ITEMSET_HASH + " text, "
-                    + KEY_PATH + " text "
+                    + KEY_PATH + " text, "
+                    + KEY_FILE_SIZE + " integer, "
+                    + KEY_LAST_MODIFIED + " integer, "
+                    + KEY_INODE + " integer "
                     + ");";
 
     /**
@@ -55,6 +63,14 @@ public class ItemsetDbAdapter implements Closeable {
 
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            if (oldVersion == 3) {
+                // Fingerprint columns are empty until each itemsets.csv is next checked
+                SQLiteUtils.addColumn(db, ITEMSET_TABLE, KEY_FILE_SIZE, "integer");
+                SQLiteUtils.addColumn(db, ITEMSET_TABLE, KEY_LAST_MODIFIED, "integer");
+                SQLiteUtils.addColumn(db, ITEMSET_TABLE, KEY_INODE, "integer");
+                return;
+            }
+
             Timber.w("Upgrading database from version %d to %d, which will destroy all old data", oldVersion, newVersion);
             // first drop all of our generated itemset tables
             Cursor c = db.query(ITEMSET_TABLE, null, null, null, null, null, null);
@@ -183,6 +199,46 @@ public class ItemsetDbAdapter implements Closeable {
         db.update(ITEMSET_TABLE, values, where, whereArgs);
     }
 
+    /**
+     * Records the hash and fingerprint of the itemsets.csv at {@code path} after it has been
+     * imported or checked so that it doesn't need to be hashed again until it changes.
+     */
+    public void updateHashAndFingerprint(String path, String hash, FileFingerprint fingerprint) {
+        ContentValues values = new ContentValues();
+        values.put(KEY_ITEMSET_HASH, hash);
+        if (fingerprint != null) {
+            values.put(KEY_FILE_SIZE, fingerprint.getSize());
+            values.put(KEY_LAST_MODIFIED, fingerprint.getLastModified());
+            values.put(KEY_INODE, fingerprint.getInode());
+        } else {
+            values.putNull(KEY_FILE_SIZE);
+            values.putNull(KEY_LAST_MODIFIED);
+            values.putNull(KEY_INODE);
+        }
+
+        String where = KEY_PATH + "=?";
+        String[] whereArgs = {
+                PathUtils.getRelativeFilePath(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS), path)
+        };
+        update(values, where, whereArgs);
+    }
+
+    /**
+     * Returns the fingerprint recorded for the itemsets at the cursor's current position or
+     * {@code null} if one hasn't been recorded.
+     */
+    public static FileFingerprint getFingerprint(Cursor cursor) {
+        int sizeIndex = cursor.getColumnIndex(KEY_FILE_SIZE);
+        int lastModifiedIndex = cursor.getColumnIndex(KEY_LAST_MODIFIED);
+        int inodeIndex = cursor.getColumnIndex(KEY_INODE);
+        if (sizeIndex == -1 || lastModifiedIndex == -1 || inodeIndex == -1
+                || cursor.isNull(sizeIndex) || cursor.isNull(lastModifiedIndex) || cursor.isNull(inodeIndex)) {
+            return null;
+        }
+
+        return new FileFingerprint(cursor.getLong(sizeIndex), cursor.getLong(lastModifiedIndex), cursor.getLong(inodeIndex));
+    }
+
     public void delete(String path) {
         StoragePathProvider storagePathProvider = new StoragePathProvider();
         Cursor c = getItemsets(path);
@@ -17,17 +17,22 @@ data class BlankFormListItem(
     val contentUri: Uri
 )
 
-fun Form.toBlankFormListItem(projectId: String, instancesRepository: InstancesRepository) = BlankFormListItem(
+fun Form.toBlankFormListItem(projectId: String, instancesRepository: InstancesRepository) =
+    toBlankFormListItem(projectId, instancesRepository.lastStatusChangeDatesByFormIdAndVersion)
+
+/**
+ * @param lastStatusChangeDates the result of
+ * [InstancesRepository.getLastStatusChangeDatesByFormIdAndVersion] so that it can be shared
+ * when converting a whole list of forms
+ */
+fun Form.toBlankFormListItem(projectId: String, lastStatusChangeDates: Map<String, Map<String?, Long>>) = BlankFormListItem(
     databaseId = this.dbId,
     formId = this.formId,
     formName = this.displayName,
     formVersion = this.version ?: "",
     geometryPath = this.geometryXpath ?: "",
     dateOfCreation = this.date,
-    dateOfLastUsage = instancesRepository
-        .getAllByFormId(this.formId)
-        .filter { it.formVersion == this.version }
-        .maxByOrNull { it.lastStatusChangeDate }?.lastStatusChangeDate ?: 0L,
+    dateOfLastUsage = lastStatusChangeDates[this.formId]?.get(this.version) ?: 0L,
     dateOfLastDetectedAttachmentsUpdate = this.lastDetectedAttachmentsUpdateDate,
     contentUri = FormsContract.getUri(projectId, this.dbId)
 )
@@ -2,6 +2,7 @@ package org.odk.collect.android.formlists.blankformlist
 
 import android.app.Application
 import androidx.lifecycle.LiveData
+import androidx.lifecycle.MediatorLiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
@@ -31,9 +32,14 @@ class BlankFormListViewModel(
     private val _filterText = MutableLiveData("")
     private val _sortingOrder = MutableLiveData(generalSettings.getInt("formChooserListSortingOrder"))
     private val filteredForms = LiveDataUtils.zip3(formsDataService.getForms(projectId), _filterText, _sortingOrder)
-    val formsToDisplay: LiveData<List<BlankFormListItem>> = filteredForms.map { (forms, filter, sort) ->
-        filterAndSortForms(forms, sort, filter)
-    }
+    private val _formsToDisplay = MediatorLiveData<List<BlankFormListItem>>()
+    val formsToDisplay: LiveData<List<BlankFormListItem>> = _formsToDisplay
+
+    /**
+     * Incremented for every change to the forms, filter or sort order so that results of
+     * filtering that finish after a newer change has been made can be ignored.
+     */
+    private var filterGeneration = 0
 
     val syncResult: LiveData<String?> = formsDataService.getDiskError(projectId)
     val isLoading: LiveData<Boolean> = formsDataService.isSyncing(projectId)
@@ -54,6 +60,21 @@ class BlankFormListViewModel(
         }
 
     init {
+        _formsToDisplay.addSource(filteredForms) { (forms, filter, sort) ->
+            val generation = ++filterGeneration
+
+            scheduler.immediate(
+                background = {
+                    filterAndSortForms(forms, sort, filter)
+                },
+                foreground = {
+                    if (generation == filterGeneration) {
+                        _formsToDisplay.value = it
+                    }
+                }
+            )
+        }
+
         scheduler.immediate(
             background = {
                 formsDataService.update(projectId)
@@ -112,11 +133,12 @@ class BlankFormListViewModel(
         sort: Int?,
         filter: String
     ): List<BlankFormListItem> {
+        val lastStatusChangeDates = instancesRepository.lastStatusChangeDatesByFormIdAndVersion
         var newListOfForms = forms
             .filter {
                 !it.isDeleted
             }.map { form ->
-                form.toBlankFormListItem(projectId, instancesRepository)
+                form.toBlankFormListItem(projectId, lastStatusChangeDates)
             }
 
         if (!showAllVersions) {
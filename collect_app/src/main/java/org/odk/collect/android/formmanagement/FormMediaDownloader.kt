@@ -1,22 +1,64 @@
 package org.odk.collect.android.formmanagement
 
+import org.odk.collect.android.utilities.FileUtils
 import org.odk.collect.android.utilities.FileUtils.copyFile
-import org.odk.collect.android.utilities.FileUtils.interuptablyWriteFile
 import org.odk.collect.async.OngoingWorkListener
-import org.odk.collect.forms.Form
 import org.odk.collect.forms.FormSource
 import org.odk.collect.forms.FormSourceException
 import org.odk.collect.forms.FormsRepository
 import org.odk.collect.forms.MediaFile
+import org.odk.collect.shared.strings.Md5
 import org.odk.collect.shared.strings.Md5.getMd5Hash
+import timber.log.Timber
+import java.io.Closeable
 import java.io.File
+import java.io.FileOutputStream
 import java.io.IOException
+import java.io.InputStream
+import java.io.RandomAccessFile
+import java.nio.channels.FileLock
+import java.nio.channels.OverlappingFileLockException
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import kotlin.math.min
 
-class FormMediaDownloader(
+/**
+ * Downloads the media files for a form (up to [maxConcurrentDownloads] at a time). Files are
+ * downloaded into [partialDownloadsDir] first so that a download that fails or is cancelled can
+ * be resumed (using a HTTP Range request) rather than started again.
+ *
+ * What needs to happen to each media file (and the hashes of existing versions of them) is
+ * worked out up front so that nothing is hashed more than once. Downloaded files are hashed as
+ * they are written.
+ *
+ * Unchanged media files are shared with earlier versions of the form (and other forms) through
+ * [mediaStore] rather than being copied or downloaded again.
+ *
+ * @param partialDownloadsDir where partially downloaded files are kept. If this is `null`,
+ * partial downloads are only kept (and resumed) for the duration of a call to [download].
+ * @param mediaStore where downloaded media files are shared from. If this is `null`, existing
+ * media files are still linked (or copied) but nothing is looked up from or added to a store.
+ */
+class FormMediaDownloader @JvmOverloads constructor(
     private val formsRepository: FormsRepository,
-    private val formSource: FormSource
+    private val formSource: FormSource,
+    private val partialDownloadsDir: File? = null,
+    private val mediaStore: FormMediaStore? = null,
+    private val maxConcurrentDownloads: Int = DEFAULT_MAX_CONCURRENT_DOWNLOADS
 ) {
 
+    private val _storedMediaFiles = ConcurrentHashMap<String, String>()
+
+    /**
+     * The names (and hashes) of the media files from the last download that are in [mediaStore]
+     * and so can be linked from there rather than moved.
+     */
+    val storedMediaFiles: Map<String, String>
+        get() = _storedMediaFiles
+
     @JvmOverloads
     @Throws(IOException::class, FormSourceException::class, InterruptedException::class)
     fun download(
@@ -26,56 +68,434 @@ class FormMediaDownloader(
         stateListener: OngoingWorkListener,
         test: Boolean = false
     ): Boolean {
-        var atLeastOneNewMediaFileDetected = false
         val tempMediaDir = File(tempMediaPath).also { it.mkdir() }
+        val partialsRootDir = partialDownloadsDir ?: File(tempDir, "partial")
+        val partialsDir = File(partialsRootDir, sanitizeFileName(formToDownload.formId ?: "_")).also { it.mkdirs() }
+        val mediaFiles = planDownload(formToDownload)
+        _storedMediaFiles.clear()
+
+        try {
+            return downloadMediaFiles(mediaFiles, tempMediaDir, partialsDir, stateListener, test)
+        } finally {
+            prunePartialDownloads(partialsRootDir, partialsDir, mediaFiles)
+        }
+    }
+
+    private fun downloadMediaFiles(
+        mediaFiles: List<PlannedMediaFile>,
+        tempMediaDir: File,
+        partialsDir: File,
+        stateListener: OngoingWorkListener,
+        test: Boolean
+    ): Boolean {
+        var started = 0
+        val downloadMediaFile = { plannedMediaFile: PlannedMediaFile ->
+            synchronized(stateListener) {
+                started++
+                stateListener.progressUpdate(started)
+            }
+
+            downloadMediaFile(plannedMediaFile, tempMediaDir, partialsDir, stateListener, test)
+        }
+
+        if (mediaFiles.size <= 1 || maxConcurrentDownloads <= 1) {
+            return mediaFiles.fold(false) { newMediaFileDetected, mediaFile ->
+                downloadMediaFile(mediaFile) || newMediaFileDetected
+            }
+        }
 
-        formToDownload.manifest!!.mediaFiles.forEachIndexed { i, mediaFile ->
-            stateListener.progressUpdate(i + 1)
-
-            val tempMediaFile = File(tempMediaDir, mediaFile.filename)
-
-            val existingFile = searchForExistingMediaFile(formToDownload, mediaFile)
-            existingFile.let {
-                if (it != null) {
-                    if (getMd5Hash(it).contentEquals(mediaFile.hash)) {
-                        copyFile(it, tempMediaFile)
-                    } else {
-                        val existingFileHash = getMd5Hash(it)
-                        val file = formSource.fetchMediaFile(mediaFile.downloadUrl)
-                        interuptablyWriteFile(file, tempMediaFile, tempDir, stateListener)
-
-                        if (!getMd5Hash(tempMediaFile).contentEquals(existingFileHash)) {
-                            if (test) {
-                                throw Exception("Content does not equal")
-                            }
-                            atLeastOneNewMediaFileDetected = true
-                        }
+        val executor = Executors.newFixedThreadPool(min(maxConcurrentDownloads, mediaFiles.size))
+        try {
+            // Shutting down the executor when one download fails interrupts the others
+            return mediaFiles
+                .map { executor.submit(Callable { downloadMediaFile(it) }) }
+                .fold(false) { newMediaFileDetected, future ->
+                    val result = try {
+                        future.get()
+                    } catch (e: ExecutionException) {
+                        throw e.cause ?: e
                     }
-                } else {
+
+                    result || newMediaFileDetected
+                }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    /**
+     * Removes partial downloads for this form that can't be resumed any more (because the media
+     * file is no longer in the manifest or has changed) and partial downloads for any form that
+     * haven't been touched for [PARTIAL_DOWNLOAD_MAX_AGE_MILLIS]. Partial downloads that are in
+     * use are left alone.
+     */
+    private fun prunePartialDownloads(partialsRootDir: File, partialsDir: File, mediaFiles: List<PlannedMediaFile>) {
+        val resumableNames = mediaFiles.map { getPartialFileName(it.mediaFile) }.toSet()
+        partialsDir.listFiles()
+            ?.filter { it.isFile && !resumableNames.contains(it.name) }
+            ?.forEach { deleteIfUnclaimed(it) }
+
+        val cutoff = System.currentTimeMillis() - PARTIAL_DOWNLOAD_MAX_AGE_MILLIS
+        val (formPartialsDirs, otherFiles) = (partialsRootDir.listFiles() ?: emptyArray()).partition { it.isDirectory }
+        (otherFiles + formPartialsDirs.flatMap { it.listFiles()?.toList() ?: emptyList() })
+            .filter { it.isFile && it.lastModified() < cutoff }
+            .forEach { deleteIfUnclaimed(it) }
+
+        formPartialsDirs
+            .filter { it != partialsDir }
+            .forEach { it.delete() } // Only succeeds if the directory is empty
+    }
+
+    private fun deleteIfUnclaimed(partialFile: File) {
+        PartialFileClaim.tryClaim(partialFile)?.use {
+            FileUtils.deleteAndReport(partialFile)
+        }
+    }
+
+    /**
+     * Finds the latest existing version of each media file (and its hash) without doing any
+     * network I/O.
+     */
+    private fun planDownload(formToDownload: ServerFormDetails): List<PlannedMediaFile> {
+        val mediaDirs = formsRepository.getAllByFormId(formToDownload.formId)
+            .sortedByDescending { it.date }
+            .map { File(it.formMediaPath) }
+
+        return formToDownload.manifest!!.mediaFiles.map { mediaFile ->
+            val existingFile = mediaDirs
+                .map { File(it, mediaFile.filename) }
+                .firstOrNull { it.exists() }
+
+            PlannedMediaFile(mediaFile, existingFile, existingFile?.let { getMd5Hash(it) })
+        }
+    }
+
+    /**
+     * @return whether the media file is new (or has changed) compared to the latest existing
+     * version of it
+     */
+    private fun downloadMediaFile(
+        plannedMediaFile: PlannedMediaFile,
+        tempMediaDir: File,
+        partialsDir: File,
+        stateListener: OngoingWorkListener,
+        test: Boolean
+    ): Boolean {
+        val mediaFile = plannedMediaFile.mediaFile
+        val tempMediaFile = File(tempMediaDir, mediaFile.filename)
+
+        val existingFile = plannedMediaFile.existingFile
+        return if (existingFile != null) {
+            if (plannedMediaFile.existingFileHash.contentEquals(mediaFile.hash)) {
+                if (!getFromStore(mediaFile, tempMediaFile, existingFile)) {
+                    FormMediaStore.linkOrCopy(existingFile, tempMediaFile)
+                }
+
+                false
+            } else {
+                val hash = getMediaFile(mediaFile, tempMediaFile, partialsDir, stateListener)
+
+                if (!hash.contentEquals(plannedMediaFile.existingFileHash)) {
                     if (test) {
-                        throw Exception("File does not exist")
+                        throw Exception("Content does not equal")
                     }
-                    val file = formSource.fetchMediaFile(mediaFile.downloadUrl)
-                    interuptablyWriteFile(file, tempMediaFile, tempDir, stateListener)
-                    atLeastOneNewMediaFileDetected = true
+
+                    true
+                } else {
+                    false
                 }
             }
+        } else {
+            if (test) {
+                throw Exception("File does not exist")
+            }
+
+            getMediaFile(mediaFile, tempMediaFile, partialsDir, stateListener)
+            true
+        }
+    }
+
+    /**
+     * Links [mediaFile] from the media store if it's there and downloads it otherwise.
+     *
+     * @return the hash of the file
+     */
+    private fun getMediaFile(
+        mediaFile: MediaFile,
+        destinationFile: File,
+        partialsDir: File,
+        stateListener: OngoingWorkListener
+    ): String? {
+        if (getFromStore(mediaFile, destinationFile)) {
+            return mediaFile.hash
         }
 
-        return atLeastOneNewMediaFileDetected
+        val hash = resumablyDownloadMediaFile(mediaFile, destinationFile, partialsDir, stateListener)
+
+        // Only store files we know have the hash they'll be looked up by
+        if (mediaStore != null && hash.contentEquals(mediaFile.hash)) {
+            if (mediaStore.put(destinationFile, mediaFile.hash)) {
+                _storedMediaFiles[mediaFile.filename] = mediaFile.hash
+            }
+        }
+
+        return hash
     }
 
-    private fun searchForExistingMediaFile(
-        formToDownload: ServerFormDetails,
-        mediaFile: MediaFile
-    ): File? {
-        val allFormVersions = formsRepository.getAllByFormId(formToDownload.formId)
-        return allFormVersions.sortedByDescending {
-            it.date
-        }.map { form: Form ->
-            File(form.formMediaPath, mediaFile.filename)
-        }.firstOrNull { file: File ->
-            file.exists()
+    /**
+     * Links [mediaFile] from the media store (adding [knownFile] to the store first if it's
+     * passed) to [destinationFile].
+     */
+    private fun getFromStore(mediaFile: MediaFile, destinationFile: File, knownFile: File? = null): Boolean {
+        if (mediaStore == null || (knownFile != null && !mediaStore.put(knownFile, mediaFile.hash))) {
+            return false
+        }
+
+        return mediaStore.get(mediaFile.hash, destinationFile).also {
+            if (it) {
+                _storedMediaFiles[mediaFile.filename] = mediaFile.hash
+            }
+        }
+    }
+
+    /**
+     * Downloads [mediaFile] to [destinationFile] via a partial file. If the partial file already
+     * exists (from an earlier failed or cancelled download), the download carries on from the
+     * end of it. Failures are retried (from where the failed attempt got to) up to
+     * [MAX_ATTEMPTS] times.
+     *
+     * The partial file is claimed for the length of the download. If another download (the
+     * auto-update worker running at the same time as a manual download for example) already has
+     * it, the file is downloaded from scratch into a partial file of its own that isn't kept.
+     *
+     * @return the hash of the downloaded file
+     */
+    private fun resumablyDownloadMediaFile(
+        mediaFile: MediaFile,
+        destinationFile: File,
+        partialsDir: File,
+        stateListener: OngoingWorkListener
+    ): String? {
+        val resumableFile = File(partialsDir, getPartialFileName(mediaFile))
+        val resumableClaim = PartialFileClaim.tryClaim(resumableFile)
+        if (resumableClaim != null) {
+            return resumableClaim.use {
+                resumablyDownloadMediaFile(mediaFile, destinationFile, it, stateListener)
+            }
+        }
+
+        val sessionFile = File.createTempFile(getPartialFileName(mediaFile) + "-", ".session", partialsDir)
+        try {
+            val sessionClaim = PartialFileClaim.tryClaim(sessionFile)
+                ?: throw IOException("Failed to claim ${sessionFile.absolutePath}")
+
+            return sessionClaim.use {
+                resumablyDownloadMediaFile(mediaFile, destinationFile, it, stateListener)
+            }
+        } finally {
+            // Nothing else will resume this so don't keep it if the download didn't finish
+            if (sessionFile.exists()) {
+                FileUtils.deleteAndReport(sessionFile)
+            }
+        }
+    }
+
+    private fun resumablyDownloadMediaFile(
+        mediaFile: MediaFile,
+        destinationFile: File,
+        partialFileClaim: PartialFileClaim,
+        stateListener: OngoingWorkListener
+    ): String? {
+        val partialFile = partialFileClaim.file
+        var resumed = false
+        var hash: String? = null
+
+        var attempt = 1
+        while (true) {
+            val offset = partialFile.length()
+            resumed = resumed || offset > 0
+
+            try {
+                fetchMediaFile(mediaFile, offset).use { inputStream ->
+                    FileOutputStream(partialFile, true).use { outputStream ->
+                        hash = writeUntilCancelled(inputStream, outputStream, stateListener)
+                    }
+                }
+
+                break
+            } catch (e: Exception) {
+                if (e !is IOException && e !is FormSourceException) {
+                    throw e
+                }
+
+                if (isCancelled(stateListener) || attempt == MAX_ATTEMPTS) {
+                    throw e
+                }
+
+                if (e is FormSourceException && offset > 0) {
+                    // The server couldn't give us the rest of the file (the partial file might
+                    // already be complete for instance) so start again
+                    partialFileClaim.truncate()
+                }
+
+                Timber.w(e)
+                attempt++
+            }
+        }
+
+        if (isCancelled(stateListener)) {
+            // Keep the partial file so the download can be resumed later
+            throw InterruptedException()
+        }
+
+        if (resumed) {
+            // Only the resumed part of the file has been hashed so far
+            hash = getMd5Hash(partialFile)
+        }
+
+        if (resumed && !hash.contentEquals(mediaFile.hash)) {
+            // What we resumed doesn't match the file on the server so download the whole file
+            partialFileClaim.truncate()
+            fetchMediaFile(mediaFile, 0).use { inputStream ->
+                FileOutputStream(partialFile, true).use { outputStream ->
+                    hash = writeUntilCancelled(inputStream, outputStream, stateListener)
+                }
+            }
+
+            if (isCancelled(stateListener)) {
+                throw InterruptedException()
+            }
+        }
+
+        FileUtils.deleteAndReport(destinationFile)
+        if (!partialFile.renameTo(destinationFile)) {
+            val errorMessage = copyFile(partialFile, destinationFile)
+            FileUtils.deleteAndReport(partialFile)
+
+            if (!destinationFile.exists()) {
+                throw IOException(errorMessage ?: "Failed to move ${partialFile.absolutePath}")
+            }
+        }
+
+        return hash
+    }
+
+    private fun fetchMediaFile(mediaFile: MediaFile, offset: Long): InputStream {
+        return if (offset > 0) {
+            formSource.fetchMediaFile(mediaFile.downloadUrl, offset)
+        } else {
+            formSource.fetchMediaFile(mediaFile.downloadUrl)
+        }
+    }
+
+    /**
+     * @return the hash of what was written
+     */
+    private fun writeUntilCancelled(
+        inputStream: InputStream,
+        outputStream: FileOutputStream,
+        stateListener: OngoingWorkListener
+    ): String {
+        val md5InputStream = Md5.getMd5InputStream(inputStream)
+
+        val buffer = ByteArray(BUFFER_SIZE)
+        var length = md5InputStream.read(buffer)
+        while (length >= 0 && !isCancelled(stateListener)) {
+            outputStream.write(buffer, 0, length)
+            length = md5InputStream.read(buffer)
+        }
+
+        outputStream.flush()
+        return Md5.getMd5Hash(md5InputStream.messageDigest)
+    }
+
+    private fun isCancelled(stateListener: OngoingWorkListener): Boolean {
+        return stateListener.isCancelled || Thread.currentThread().isInterrupted
+    }
+
+    companion object {
+        const val DEFAULT_MAX_CONCURRENT_DOWNLOADS = 4
+
+        private const val MAX_ATTEMPTS = 2
+        private const val BUFFER_SIZE = 8192
+        private val PARTIAL_DOWNLOAD_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7)
+
+        /**
+         * Partial files are named using the media file's hash as well as its name so that a
+         * partial download is never resumed against a different version of the file.
+         */
+        private fun getPartialFileName(mediaFile: MediaFile): String {
+            return sanitizeFileName("${mediaFile.filename}-${mediaFile.hash}")
+        }
+
+        private fun sanitizeFileName(name: String): String {
+            return name.replace(Regex("[^A-Za-z0-9._-]"), "_")
         }
     }
 }
+
+/**
+ * Exclusive use of a partial download. Claims are tracked in memory (for downloads in this
+ * process) and with a [FileLock] (for downloads in other processes).
+ */
+private class PartialFileClaim private constructor(
+    val file: File,
+    private val randomAccessFile: RandomAccessFile,
+    private val lock: FileLock
+) : Closeable {
+
+    fun truncate() {
+        randomAccessFile.setLength(0)
+    }
+
+    override fun close() {
+        try {
+            lock.release()
+        } finally {
+            randomAccessFile.close()
+            CLAIMED_FILES.remove(file.absolutePath)
+        }
+    }
+
+    companion object {
+        private val CLAIMED_FILES: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+        /**
+         * Claims [file] (creating it if it doesn't exist).
+         *
+         * @return null if the file is already claimed
+         */
+        fun tryClaim(file: File): PartialFileClaim? {
+            if (!CLAIMED_FILES.add(file.absolutePath)) {
+                return null
+            }
+
+            var randomAccessFile: RandomAccessFile? = null
+            try {
+                randomAccessFile = RandomAccessFile(file, "rw")
+                val lock = randomAccessFile.channel.tryLock()
+                if (lock != null) {
+                    return PartialFileClaim(file, randomAccessFile, lock)
+                }
+            } catch (e: IOException) {
+                Timber.w(e)
+            } catch (e: OverlappingFileLockException) {
+                Timber.w(e)
+            }
+
+            randomAccessFile?.close()
+            CLAIMED_FILES.remove(file.absolutePath)
+            return null
+        }
+    }
+}
+
+/**
+ * A media file along with the latest existing version of it (if there is one) and that
+ * version's hash.
+ */
+private class PlannedMediaFile(
+    val mediaFile: MediaFile,
+    val existingFile: File?,
+    val existingFileHash: String?
+)
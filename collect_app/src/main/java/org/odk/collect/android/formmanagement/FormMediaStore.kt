@@ -0,0 +1,165 @@
+package org.odk.collect.android.formmanagement
+
+import android.system.ErrnoException
+import android.system.Os
+import org.odk.collect.android.utilities.FileUtils
+import timber.log.Timber
+import java.io.File
+import java.io.IOException
+import java.util.UUID
+
+/**
+ * A content addressed store of form media files (keyed by their MD5 hash) that allows the media
+ * directories of different forms (and form versions) to share a single copy of each file using
+ * hard links. The store should be on the same file system as the media directories. If that file
+ * system doesn't support hard links, the store is disabled and media files are copied as they
+ * were before.
+ *
+ * Media files must be replaced (rather than written to) once they are in a media directory as
+ * writing to one would change every linked copy.
+ */
+class FormMediaStore @JvmOverloads constructor(
+    private val storeDir: File,
+    private val linker: Linker = OsLinker
+) {
+
+    private val linksSupported: Boolean by lazy { checkLinksSupported() }
+
+    /**
+     * Links the stored file with [hash] to [destination].
+     *
+     * @return `false` if there is no file with [hash] in the store
+     */
+    @Throws(IOException::class)
+    fun get(hash: String, destination: File): Boolean {
+        val storedFile = getStoredFile(hash)
+        if (!linksSupported || !storedFile.exists()) {
+            return false
+        }
+
+        linkOrCopy(storedFile, destination, linker)
+        return true
+    }
+
+    /**
+     * Adds [file] (which must have the MD5 hash [hash]) to the store. If [file] is on another
+     * file system it is copied into the store.
+     *
+     * @return `false` if the file couldn't be stored
+     */
+    fun put(file: File, hash: String): Boolean {
+        val storedFile = getStoredFile(hash)
+        if (!linksSupported) {
+            return false
+        } else if (storedFile.exists() || link(file, storedFile, linker)) {
+            return true
+        }
+
+        // Copy to a temp file first so a half copied file is never used
+        val tempFile = File(storeDir, ".${storedFile.name}-${UUID.randomUUID()}")
+        val errorMessage = FileUtils.copyFile(file, tempFile)
+        if (errorMessage != null || !tempFile.renameTo(storedFile)) {
+            Timber.w("Could not add %s to media store: %s", file.absolutePath, errorMessage)
+            FileUtils.deleteAndReport(tempFile)
+        }
+
+        return storedFile.exists()
+    }
+
+    /**
+     * Removes files that are no longer linked to from any media directory.
+     */
+    fun prune() {
+        storeDir.listFiles { file -> !file.name.startsWith(".") }?.forEach { storedFile ->
+            try {
+                if (linker.getLinkCount(storedFile.absolutePath) <= 1) {
+                    FileUtils.deleteAndReport(storedFile)
+                }
+            } catch (e: ErrnoException) {
+                Timber.w(e)
+            }
+        }
+    }
+
+    private fun getStoredFile(hash: String): File {
+        return File(storeDir, hash.replace(Regex("[^A-Za-z0-9]"), "_"))
+    }
+
+    private fun checkLinksSupported(): Boolean {
+        storeDir.mkdirs()
+
+        val probe = File(storeDir, ".probe-${UUID.randomUUID()}")
+        val probeLink = File(storeDir, "${probe.name}-link")
+        return try {
+            probe.createNewFile() && link(probe, probeLink, linker)
+        } catch (e: IOException) {
+            false
+        } finally {
+            probe.delete()
+            probeLink.delete()
+        }
+    }
+
+    /**
+     * Creates and counts hard links.
+     */
+    interface Linker {
+
+        @Throws(ErrnoException::class)
+        fun link(oldPath: String, newPath: String)
+
+        @Throws(ErrnoException::class)
+        fun getLinkCount(path: String): Long
+    }
+
+    object OsLinker : Linker {
+
+        override fun link(oldPath: String, newPath: String) {
+            Os.link(oldPath, newPath)
+        }
+
+        override fun getLinkCount(path: String): Long {
+            return Os.stat(path).st_nlink
+        }
+    }
+
+    companion object {
+
+        /**
+         * Replaces [destination] with a hard link to [source] or a copy of it if hard links
+         * aren't supported.
+         */
+        @JvmStatic
+        @JvmOverloads
+        @Throws(IOException::class)
+        fun linkOrCopy(source: File, destination: File, linker: Linker = OsLinker) {
+            destination.parentFile?.mkdirs()
+
+            // Remove the destination first so we never write through a link to another copy
+            if (destination.exists() && !destination.delete()) {
+                throw IOException("Could not replace ${destination.absolutePath}")
+            }
+
+            if (!link(source, destination, linker)) {
+                val errorMessage = FileUtils.copyFile(source, destination)
+                if (errorMessage != null) {
+                    throw IOException(errorMessage)
+                }
+            }
+        }
+
+        private fun link(source: File, destination: File, linker: Linker): Boolean {
+            return try {
+                linker.link(source.absolutePath, destination.absolutePath)
+                destination.exists()
+            } catch (e: ErrnoException) {
+                // Not supported by the file system, across file systems or the destination exists
+                false
+            } catch (e: IOException) {
+                false
+            } catch (e: RuntimeException) {
+                false
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.odk.collect.android.formmanagement.matchexactly.ServerFormsSynchroniz
 import org.odk.collect.android.notifications.Notifier
 import org.odk.collect.android.projects.ProjectDependencyProvider
 import org.odk.collect.android.projects.ProjectDependencyProviderFactory
+import org.odk.collect.android.utilities.FormDefCacheWarmer
 import org.odk.collect.androidshared.data.AppState
 import org.odk.collect.forms.Form
 import org.odk.collect.forms.FormSourceException
@@ -18,7 +19,8 @@ class FormsDataService(
     private val appState: AppState,
     private val notifier: Notifier,
     private val projectDependencyProviderFactory: ProjectDependencyProviderFactory,
-    private val clock: Supplier<Long>
+    private val clock: Supplier<Long>,
+    private val formDefCacheWarmer: FormDefCacheWarmer
 ) {
 
     fun getForms(projectId: String): LiveData<List<Form>> {
@@ -52,7 +54,7 @@ class FormsDataService(
                 syncWithStorage(projectId)
 
                 val serverFormsDetailsFetcher = serverFormsDetailsFetcher(projectDependencies)
-                val formDownloader = formDownloader(projectDependencies, clock)
+                val formDownloader = formDownloader(projectDependencies, clock, formDefCacheWarmer)
 
                 try {
                     val serverForms: List<ServerFormDetails> =
@@ -96,7 +98,7 @@ class FormsDataService(
                 syncWithStorage(projectId)
 
                 val serverFormsDetailsFetcher = serverFormsDetailsFetcher(projectDependencies)
-                val formDownloader = formDownloader(projectDependencies, clock)
+                val formDownloader = formDownloader(projectDependencies, clock, formDefCacheWarmer)
 
                 val serverFormsSynchronizer = ServerFormsSynchronizer(
                     serverFormsDetailsFetcher,
@@ -155,7 +157,9 @@ class FormsDataService(
         val projectDependencies = projectDependencyProviderFactory.create(projectId)
         val error = LocalFormUseCases.synchronizeWithDisk(
             projectDependencies.formsRepository,
-            projectDependencies.formsDir
+            projectDependencies.formsDir,
+            projectDependencies.cacheDir,
+            formDefCacheWarmer
         )
 
         getDiskErrorLiveData(projectId).postValue(error)
@@ -197,7 +201,8 @@ class FormsDataService(
 
 private fun formDownloader(
     projectDependencyProvider: ProjectDependencyProvider,
-    clock: Supplier<Long>
+    clock: Supplier<Long>,
+    formDefCacheWarmer: FormDefCacheWarmer
 ): ServerFormDownloader {
     return ServerFormDownloader(
         projectDependencyProvider.formSource,
@@ -205,7 +210,8 @@ private fun formDownloader(
         File(projectDependencyProvider.cacheDir),
         projectDependencyProvider.formsDir,
         FormMetadataParser(),
-        clock
+        clock,
+        formDefCacheWarmer
     )
 }
 
@@ -5,16 +5,21 @@ import org.javarosa.xform.parse.XFormParser
 import org.odk.collect.android.R
 import org.odk.collect.android.application.Collect
 import org.odk.collect.android.utilities.FileUtils
+import org.odk.collect.android.utilities.FormDefCacheWarmer
 import org.odk.collect.androidshared.utils.Validator
 import org.odk.collect.forms.Form
 import org.odk.collect.forms.FormsRepository
 import org.odk.collect.forms.instances.InstancesRepository
+import org.odk.collect.shared.files.FileStats
 import org.odk.collect.shared.strings.Md5
 import org.odk.collect.strings.localization.getLocalizedString
 import timber.log.Timber
 import java.io.File
-import java.util.Collections
 import java.util.LinkedList
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import kotlin.math.min
 
 object LocalFormUseCases {
 
@@ -27,7 +32,7 @@ object LocalFormUseCases {
         id: Long
     ) {
         val form = formsRepository[id]
-        val instancesForVersion = instancesRepository.getAllNotDeletedByFormIdAndVersion(
+        val instancesForVersion = instancesRepository.getCountNotDeletedByFormIdAndVersion(
             form!!.formId,
             form.version
         )
@@ -39,14 +44,22 @@ object LocalFormUseCases {
             form.version
         )
 
-        if (instancesForVersion.isEmpty() || formsWithSameFormIdVersion.size > 1) {
+        if (instancesForVersion == 0 || formsWithSameFormIdVersion.size > 1) {
             formsRepository.delete(id)
         } else {
             formsRepository.softDelete(form.dbId)
         }
     }
 
-    fun synchronizeWithDisk(formsRepository: FormsRepository, formsDir: String?): String {
+    /**
+     * @param cacheDir the cache directory of the project the forms dir belongs to
+     */
+    fun synchronizeWithDisk(
+        formsRepository: FormsRepository,
+        formsDir: String?,
+        cacheDir: String,
+        formDefCacheWarmer: FormDefCacheWarmer
+    ): String {
         var statusMessage = ""
         val instance = ++counter
         Timber.i("[%d] doInBackground begins!", instance)
@@ -64,6 +77,7 @@ object LocalFormUseCases {
 
                 // Step 2: quickly run through and figure out what files we need to
                 // parse and update; this is quick, as we only calculate the md5
+                // (and only for files whose size or modification time has changed)
                 // and see if it has changed.
                 val uriToUpdate: MutableList<IdFile?> = ArrayList()
                 val forms = formsRepository.all
@@ -76,12 +90,27 @@ object LocalFormUseCases {
                         // remove it from the list of forms (we only want forms
                         // we haven't added at the end)
                         formsToAdd.remove(sqlFile)
+                        if (md5 != null && FileStats.isUnchanged(sqlFile, form.fileSize, form.fileLastModified)) {
+                            continue
+                        }
+
+                        val fileSize = sqlFile.length()
+                        val fileLastModified = sqlFile.lastModified()
                         val md5Computed = Md5.getMd5Hash(sqlFile)
                         if (md5Computed == null || md5 == null || md5Computed != md5) {
                             // Probably someone overwrite the file on the sdcard
                             // So re-parse it and update it's information
                             val id = form.dbId
-                            uriToUpdate.add(IdFile(id, sqlFile))
+                            uriToUpdate.add(IdFile(id, sqlFile, md5Computed, fileSize, fileLastModified))
+                        } else {
+                            // The file was touched but its contents are the same so we just
+                            // need to record its new size and modification time
+                            formsRepository.save(
+                                Form.Builder(form)
+                                    .fileSize(fileSize)
+                                    .fileLastModified(fileLastModified)
+                                    .build()
+                            )
                         }
                     } else {
                         // File not found in sdcard but file path found in database
@@ -97,59 +126,46 @@ object LocalFormUseCases {
                     formsRepository.delete(id)
                 }
 
-                // Step3: go through uriToUpdate to parse and update each in turn.
-                // Note: buildContentValues calls getMetadataFromFormDefinition which parses the
-                // form XML. This takes time for large forms and/or slow devices.
-                Collections.shuffle(uriToUpdate) // Big win if multiple DiskSyncTasks running
-                for (entry in uriToUpdate) {
-                    val formDefFile = entry!!.file
-                    // Probably someone overwrite the file on the sdcard
-                    // So re-parse it and update it's information
-                    var form: Form
-                    form = try {
-                        parseForm(formDefFile)
-                    } catch (e: IllegalArgumentException) {
-                        errors.append(e.message).append("\r\n")
-                        val badFile = File(
-                            formDefFile.parentFile,
-                            formDefFile.name + ".bad"
-                        )
-                        badFile.delete()
-                        formDefFile.renameTo(badFile)
-                        continue
-                    }
-                    formsRepository.save(
-                        Form.Builder(form)
-                            .dbId(entry.id)
-                            .build()
-                    )
-                }
-                uriToUpdate.clear()
-
-                // Step 4: go through the newly-discovered files in xFormsToAdd and add them.
-                // This is slow because buildContentValues(...) is slow.
-                //
-                Collections.shuffle(formsToAdd) // Big win if multiple DiskSyncTasks running
-                while (!formsToAdd.isEmpty()) {
-                    val formDefFile = formsToAdd.removeAt(0)
-
-                    // Since parsing is so slow, if there are multiple tasks,
-                    // they may have already updated the database.
-                    // Skip this file if that is the case.
-                    if (formsRepository.getOneByPath(formDefFile!!.absolutePath) != null) {
+                // Step 3: work out which of the newly-discovered files in formsToAdd still
+                // need to be added. If there are multiple tasks, they may have already
+                // updated the database. Skip a file if that is the case.
+                val newFormDefFiles = formsToAdd.filterNotNull().filter { formDefFile ->
+                    if (formsRepository.getOneByPath(formDefFile.absolutePath) != null) {
                         Timber.i(
                             "[%d] skipping -- definition already recorded: %s",
                             instance,
                             formDefFile.absolutePath
                         )
-                        continue
+                        false
+                    } else {
+                        true
                     }
+                }
 
-                    // Parse it for the first time...
-                    var form: Form
-                    form = try {
-                        parseForm(formDefFile)
-                    } catch (e: IllegalArgumentException) {
+                // Step 4: parse the changed and newly-discovered files. This calls
+                // getMetadataFromFormDefinition which parses the form XML. This takes time for
+                // large forms and/or slow devices so files are parsed in parallel.
+                val formDefFiles = uriToUpdate.map { it!!.file } + newFormDefFiles
+                val formsToSave = mutableListOf<Form>()
+                parseForms(formDefFiles).forEachIndexed { index, result ->
+                    val formDefFile = formDefFiles[index]
+                    result.onSuccess { form ->
+                        if (index < uriToUpdate.size) {
+                            // Pass on the hash we've already calculated so it doesn't need to be
+                            // calculated again when saving
+                            val entry = uriToUpdate[index]!!
+                            formsToSave.add(
+                                Form.Builder(form)
+                                    .dbId(entry.id)
+                                    .md5Hash(entry.md5Hash)
+                                    .fileSize(entry.fileSize)
+                                    .fileLastModified(entry.fileLastModified)
+                                    .build()
+                            )
+                        } else {
+                            formsToSave.add(form)
+                        }
+                    }.onFailure { e ->
                         errors.append(e.message).append("\r\n")
                         val badFile = File(
                             formDefFile.parentFile,
@@ -157,18 +173,15 @@ object LocalFormUseCases {
                         )
                         badFile.delete()
                         formDefFile.renameTo(badFile)
-                        continue
-                    }
-
-                    // insert into content provider
-                    try {
-                        // insert failures are OK and expected if multiple
-                        // DiskSync scanners are active.
-                        formsRepository.save(form)
-                    } catch (e: SQLException) {
-                        Timber.i("[%d] %s", instance, e.toString())
                     }
                 }
+                uriToUpdate.clear()
+
+                // Step 5: save all the parsed forms together
+                saveForms(formsRepository, formsToSave, instance)
+
+                // Step 6: cache the parsed forms in the background so they open quickly
+                formsToSave.forEach { formDefCacheWarmer.warm(File(it.formFilePath), File(cacheDir)) }
             }
             if (errors.length != 0) {
                 statusMessage = errors.toString()
@@ -209,6 +222,67 @@ object LocalFormUseCases {
         return !ignoredFile && (xmlFile || xhtmlFile)
     }
 
+    /**
+     * Parses [formDefFiles] in parallel (on a pool sized to the number of cores) and returns the
+     * results in the same order as the files. Files that can't be parsed have a failed result
+     * with an [IllegalArgumentException] describing the problem.
+     */
+    private fun parseForms(formDefFiles: List<File>): List<Result<Form>> {
+        if (formDefFiles.isEmpty()) {
+            return emptyList()
+        } else if (formDefFiles.size == 1) {
+            return listOf(parseFormCatching(formDefFiles[0]))
+        }
+
+        val threads = min(formDefFiles.size, Runtime.getRuntime().availableProcessors())
+        val executor = Executors.newFixedThreadPool(threads)
+        return try {
+            formDefFiles
+                .map { executor.submit(Callable { parseFormCatching(it) }) }
+                .map {
+                    try {
+                        it.get()
+                    } catch (e: ExecutionException) {
+                        throw e.cause ?: e
+                    }
+                }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    private fun parseFormCatching(formDefFile: File): Result<Form> {
+        return try {
+            Result.success(parseForm(formDefFile))
+        } catch (e: IllegalArgumentException) {
+            Result.failure(e)
+        }
+    }
+
+    /**
+     * Saves [forms] in one batch. Insert failures are OK and expected if multiple DiskSync
+     * scanners are active so if the batch fails the forms are saved one at a time instead.
+     */
+    private fun saveForms(formsRepository: FormsRepository, forms: List<Form>, instance: Int) {
+        if (forms.isEmpty()) {
+            return
+        }
+
+        try {
+            formsRepository.saveAll(forms)
+        } catch (e: SQLException) {
+            Timber.i("[%d] %s", instance, e.toString())
+
+            for (form in forms) {
+                try {
+                    formsRepository.save(form)
+                } catch (e: SQLException) {
+                    Timber.i("[%d] %s", instance, e.toString())
+                }
+            }
+        }
+    }
+
     @Throws(IllegalArgumentException::class)
     private fun parseForm(formDefFile: File?): Form {
         // Probably someone overwrite the file on the sdcard
@@ -289,5 +363,11 @@ object LocalFormUseCases {
         return builder.build()
     }
 
-    private class IdFile(val id: Long, val file: File)
+    private class IdFile(
+        val id: Long,
+        val file: File,
+        val md5Hash: String?,
+        val fileSize: Long,
+        val fileLastModified: Long
+    )
 }
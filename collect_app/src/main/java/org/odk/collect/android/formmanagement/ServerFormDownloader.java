@@ -5,6 +5,7 @@ import static org.odk.collect.android.utilities.FileUtils.interuptablyWriteFile;
 import org.javarosa.xform.parse.XFormParser;
 import org.jetbrains.annotations.NotNull;
 import org.odk.collect.android.utilities.FileUtils;
+import org.odk.collect.android.utilities.FormDefCacheWarmer;
 import org.odk.collect.android.utilities.FormNameUtils;
 import org.odk.collect.androidshared.utils.Validator;
 import org.odk.collect.async.OngoingWorkListener;
@@ -19,6 +20,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -36,14 +38,20 @@ public class ServerFormDownloader implements FormDownloader {
     private final String formsDirPath;
     private final FormMetadataParser formMetadataParser;
     private final Supplier<Long> clock;
+    private final FormMediaStore mediaStore;
+    private final FormDefCacheWarmer formDefCacheWarmer;
 
-    public ServerFormDownloader(FormSource formSource, FormsRepository formsRepository, File cacheDir, String formsDirPath, FormMetadataParser formMetadataParser, Supplier<Long> clock) {
+    public ServerFormDownloader(FormSource formSource, FormsRepository formsRepository, File cacheDir, String formsDirPath, FormMetadataParser formMetadataParser, Supplier<Long> clock, FormDefCacheWarmer formDefCacheWarmer) {
         this.formSource = formSource;
         this.cacheDir = cacheDir;
         this.formsDirPath = formsDirPath;
         this.formsRepository = formsRepository;
         this.formMetadataParser = formMetadataParser;
         this.clock = clock;
+        this.formDefCacheWarmer = formDefCacheWarmer;
+
+        // The store needs to be on the same file system as the media dirs to be able to link them
+        this.mediaStore = new FormMediaStore(new File(formsDirPath, ".media-store"));
     }
 
     @Override
@@ -77,6 +85,8 @@ public class ServerFormDownloader implements FormDownloader {
             for (Form formToDelete : preExistingFormsWithSameIdAndVersion) {
                 formsRepository.delete(formToDelete.getDbId());
             }
+
+            mediaStore.prune();
         }
     }
 
@@ -85,6 +95,7 @@ public class ServerFormDownloader implements FormDownloader {
         String tempMediaPath = new File(tempDir, "media").getAbsolutePath();
         FileResult fileResult = null;
         boolean newAttachmentsDetected = false;
+        Map<String, String> storedMediaFiles = Collections.emptyMap();
 
         try {
             // get the xml file
@@ -93,8 +104,11 @@ public class ServerFormDownloader implements FormDownloader {
 
             // download media files if there are any
             if (fd.getManifest() != null && !fd.getManifest().getMediaFiles().isEmpty()) {
-                FormMediaDownloader mediaDownloader = new FormMediaDownloader(formsRepository, formSource);
+                // Partial downloads are kept outside of tempDir so they can be resumed next time
+                File partialDownloadsDir = new File(cacheDir, "partial-media-downloads");
+                FormMediaDownloader mediaDownloader = new FormMediaDownloader(formsRepository, formSource, partialDownloadsDir, mediaStore);
                 newAttachmentsDetected = mediaDownloader.download(fd, tempMediaPath, tempDir, stateListener);
+                storedMediaFiles = mediaDownloader.getStoredMediaFiles();
             }
         } catch (FormDownloadException.DownloadingInterrupted | InterruptedException e) {
             Timber.i(e);
@@ -133,7 +147,7 @@ public class ServerFormDownloader implements FormDownloader {
         }
 
         try {
-            installEverything(tempMediaPath, fileResult, parsedFields, formsDirPath, newAttachmentsDetected);
+            installEverything(tempMediaPath, fileResult, parsedFields, formsDirPath, newAttachmentsDetected, storedMediaFiles);
         } catch (FormDownloadException.DiskError e) {
             cleanUp(fileResult, tempMediaPath);
             throw e;
@@ -145,7 +159,7 @@ public class ServerFormDownloader implements FormDownloader {
         return submission == null || Validator.isUrlValid(submission);
     }
 
-    private void installEverything(String tempMediaPath, FileResult fileResult, Map<String, String> parsedFields, String formsDirPath, boolean newAttachmentsDetected) throws FormDownloadException.DiskError {
+    private void installEverything(String tempMediaPath, FileResult fileResult, Map<String, String> parsedFields, String formsDirPath, boolean newAttachmentsDetected, Map<String, String> storedMediaFiles) throws FormDownloadException.DiskError {
         FormResult formResult;
 
         File formFile;
@@ -173,7 +187,7 @@ public class ServerFormDownloader implements FormDownloader {
             File formMediaDir = new File(formResult.form.getFormMediaPath());
 
             try {
-                moveMediaFiles(tempMediaPath, formMediaDir);
+                moveMediaFiles(tempMediaPath, formMediaDir, storedMediaFiles);
             } catch (IOException e) {
                 Timber.e(e);
 
@@ -185,6 +199,11 @@ public class ServerFormDownloader implements FormDownloader {
                 throw new FormDownloadException.DiskError();
             }
         }
+
+        if (fileResult.isNew()) {
+            // So that opening the form for the first time doesn't need to parse it
+            formDefCacheWarmer.warm(formFile, cacheDir);
+        }
     }
 
     private void cleanUp(FileResult fileResult, String tempMediaPath) {
@@ -275,19 +294,26 @@ public class ServerFormDownloader implements FormDownloader {
         return hash == null || hash.isEmpty() ? null : hash;
     }
 
-    private static void moveMediaFiles(String tempMediaPath, File formMediaPath) throws IOException {
+    /**
+     * Files that are in the media store ({@code storedMediaFiles}) are linked from there so
+     * they are shared with other forms rather than copied from the temp dir.
+     */
+    private void moveMediaFiles(String tempMediaPath, File formMediaPath, Map<String, String> storedMediaFiles) throws IOException {
         File tempMediaFolder = new File(tempMediaPath);
         File[] mediaFiles = tempMediaFolder.listFiles();
 
         if (mediaFiles != null && mediaFiles.length != 0) {
+            if (formMediaPath.isFile()) {
+                throw new IOException(formMediaPath.getAbsolutePath() + " is not a directory");
+            }
+
             for (File mediaFile : mediaFiles) {
-                try {
-                    org.apache.commons.io.FileUtils.copyFileToDirectory(mediaFile, formMediaPath);
-                } catch (IllegalArgumentException e) {
-                    // This can happen if copyFileToDirectory is pointed at a file instead of a dir
-                    throw new IOException(e);
-                }
+                File destination = new File(formMediaPath, mediaFile.getName());
+                String hash = storedMediaFiles.get(mediaFile.getName());
 
+                if (hash == null || !mediaStore.get(hash, destination)) {
+                    FormMediaStore.linkOrCopy(mediaFile, destination);
+                }
             }
         }
     }
@@ -45,6 +45,7 @@ import org.odk.collect.android.utilities.FormsRepositoryProvider;
 import org.odk.collect.android.utilities.InstanceUploaderUtils;
 import org.odk.collect.android.utilities.InstancesRepositoryProvider;
 import org.odk.collect.androidshared.ui.ToastUtils;
+import org.odk.collect.async.Scheduler;
 import org.odk.collect.permissions.PermissionListener;
 import org.odk.collect.permissions.PermissionsProvider;
 import org.odk.collect.settings.SettingsProvider;
@@ -91,6 +92,9 @@ public class GoogleSheetsUploaderActivity extends LocalizedActivity implements I
     @Inject
     SettingsProvider settingsProvider;
 
+    @Inject
+    Scheduler scheduler;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -137,7 +141,7 @@ public class GoogleSheetsUploaderActivity extends LocalizedActivity implements I
     }
 
     private void runTask() {
-        instanceGoogleSheetsUploaderTask = new InstanceGoogleSheetsUploaderTask(googleApiProvider);
+        instanceGoogleSheetsUploaderTask = new InstanceGoogleSheetsUploaderTask(googleApiProvider, scheduler);
         instanceGoogleSheetsUploaderTask.setRepositories(instancesRepositoryProvider.get(), formsRepositoryProvider.get(), settingsProvider);
 
         // ensure we have a google account selected
@@ -281,6 +285,11 @@ public class GoogleSheetsUploaderActivity extends LocalizedActivity implements I
         }
     }
 
+    @Override
+    public void progressUpdate(int progress, int total, int percentSent) {
+        progressUpdate(progress, total);
+    }
+
     @Override
     protected Dialog onCreateDialog(int id) {
         if (id == GOOGLE_USER_DIALOG) {
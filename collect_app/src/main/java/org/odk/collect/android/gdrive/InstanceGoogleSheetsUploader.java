@@ -22,7 +22,7 @@ import androidx.annotation.NonNull;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.services.sheets.v4.model.Sheet;
 import com.google.api.services.sheets.v4.model.Spreadsheet;
-import com.google.api.services.sheets.v4.model.ValueRange;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import org.javarosa.core.model.Constants;
 import org.javarosa.core.model.FormDef;
@@ -37,6 +37,7 @@ import org.javarosa.xform.util.XFormUtils;
 import org.odk.collect.android.application.Collect;
 import org.odk.collect.android.exception.BadUrlException;
 import org.odk.collect.android.exception.MultipleFoldersFoundException;
+import org.odk.collect.android.gdrive.sheets.BatchSheetsWriter;
 import org.odk.collect.android.gdrive.sheets.DriveApi;
 import org.odk.collect.android.gdrive.sheets.DriveHelper;
 import org.odk.collect.android.gdrive.sheets.SheetsApi;
@@ -49,6 +50,7 @@ import org.odk.collect.android.upload.FormUploadException;
 import org.odk.collect.android.utilities.FileUtils;
 import org.odk.collect.android.utilities.FormsRepositoryProvider;
 import org.odk.collect.android.utilities.UrlUtils;
+import org.odk.collect.async.Scheduler;
 import org.odk.collect.forms.Form;
 import org.odk.collect.forms.instances.Instance;
 import org.odk.collect.shared.PathUtils;
@@ -57,12 +59,18 @@ import org.odk.collect.shared.strings.StringUtils;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
 import timber.log.Timber;
@@ -76,14 +84,22 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
     private static final String ALTITUDE_TITLE_POSTFIX = "-altitude";
     private static final String ACCURACY_TITLE_POSTFIX = "-accuracy";
 
+    private static final int MAX_CONCURRENT_MEDIA_UPLOADS = 4;
+
     private final DriveHelper driveHelper;
     private final SheetsHelper sheetsHelper;
+    private final BatchSheetsWriter sheetsWriter;
+
+    private final Scheduler scheduler;
 
     private Spreadsheet spreadsheet;
+    private String submissionsFolderId;
 
-    public InstanceGoogleSheetsUploader(DriveApi driveApi, SheetsApi sheetsApi) {
+    public InstanceGoogleSheetsUploader(DriveApi driveApi, SheetsApi sheetsApi, Scheduler scheduler) {
+        this.scheduler = scheduler;
         driveHelper = new DriveHelper(driveApi);
         sheetsHelper = new SheetsHelper(sheetsApi);
+        sheetsWriter = new BatchSheetsWriter(sheetsHelper);
     }
 
     @Override
@@ -111,7 +127,10 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
 
             TreeElement instanceElement = getInstanceElement(formFilePath, instanceFile);
             setUpSpreadsheet(spreadsheetUrl);
-            sheetsHelper.updateSpreadsheetLocaleForNewSpreadsheet(spreadsheet.getSpreadsheetId(), spreadsheet.getSheets().get(0).getProperties().getTitle());
+            String mainSheetTitle = spreadsheet.getSheets().get(0).getProperties().getTitle();
+            if (isNewSheet(StringUtils.ellipsizeBeginning(mainSheetTitle))) {
+                sheetsHelper.updateSpreadsheetLocaleForNewSpreadsheet(spreadsheet.getSpreadsheetId(), mainSheetTitle);
+            }
             if (hasRepeatableGroups(instanceElement)) {
                 createSheetsIfNeeded(instanceElement);
             }
@@ -119,10 +138,17 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
             if (key == null) {
                 key = PropertyUtils.genUUID();
             }
-            insertRows(instance, instanceElement, null, key, instanceFile, spreadsheet.getSheets().get(0).getProperties().getTitle());
+
+            // Build every row for the instance first so they can be written in one go
+            List<PendingRow> rows = new ArrayList<>();
+            Set<String> mediaFileNames = new LinkedHashSet<>();
+            addRows(instanceElement, null, key, instanceFile, mainSheetTitle, rows, mediaFileNames);
+            writeRows(rows, uploadMediaFiles(instance, mediaFileNames));
         } catch (GoogleJsonResponseException e) {
             markSubmissionFailed(instance);
             throw new FormUploadException(getErrorMessageFromGoogleJsonResponseException(e));
+        } finally {
+            sheetsWriter.discardPendingRows();
         }
 
         markSubmissionComplete(instance);
@@ -156,14 +182,14 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
                 : urlString;
     }
 
-    private void insertRows(Instance instance, TreeElement element, String parentKey, String key, File instanceFile, String sheetTitle)
-            throws FormUploadException {
-        insertRow(instance, element, parentKey, key, instanceFile, StringUtils.ellipsizeBeginning(sheetTitle));
+    private void addRows(TreeElement element, String parentKey, String key, File instanceFile, String sheetTitle,
+                         List<PendingRow> rows, Set<String> mediaFileNames) throws FormUploadException {
+        addRow(element, parentKey, key, instanceFile, StringUtils.ellipsizeBeginning(sheetTitle), rows, mediaFileNames);
 
         int repeatIndex = 0;
         for (TreeElement child : getChildElements(element, true)) {
             if (child.isRepeatable() && child.getMultiplicity() != TreeReference.INDEX_TEMPLATE) {
-                insertRows(instance, child, key, getKeyBasedOnParentKey(key, child.getName(), repeatIndex++), instanceFile, getElementTitle(child));
+                addRows(child, key, getKeyBasedOnParentKey(key, child.getName(), repeatIndex++), instanceFile, getElementTitle(child), rows, mediaFileNames);
             }
             if (child.getMultiplicity() == TreeReference.INDEX_TEMPLATE) {
                 repeatIndex = 0;
@@ -178,23 +204,27 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
                 + "[" + (repeatIndex + 1) + "]";
     }
 
-    private void insertRow(Instance instance, TreeElement element, String parentKey, String key, File instanceFile, String sheetTitle)
-            throws FormUploadException {
+    /**
+     * Makes sure the sheet's header row is in place and then adds the row for {@code element} to
+     * {@code rows}. Media files the row refers to are added to {@code mediaFileNames} so they can
+     * be uploaded before the rows are written.
+     */
+    private void addRow(TreeElement element, String parentKey, String key, File instanceFile, String sheetTitle,
+                        List<PendingRow> rows, Set<String> mediaFileNames) throws FormUploadException {
         try {
-            List<List<Object>> sheetCells = getSheetCells(sheetTitle);
-            boolean newSheet = sheetCells == null || sheetCells.isEmpty();
+            List<Object> sheetHeaders = sheetsWriter.getHeaders(sheetTitle);
+            boolean newSheet = sheetHeaders.isEmpty();
             List<Object> columnTitles = getColumnTitles(element, newSheet);
             ensureNumberOfColumnsIsValid(columnTitles.size());
 
             if (!newSheet) { // we are editing an existed sheet
-                if (isAnyColumnHeaderEmpty(sheetCells.get(0))) {
+                if (isAnyColumnHeaderEmpty(sheetHeaders)) {
                     // Insert a header row again to fill empty headers
-                    sheetsHelper.updateRow(spreadsheet.getSpreadsheetId(), sheetTitle + "!A1",
-                            new ValueRange().setValues(Collections.singletonList(columnTitles)));
-                    sheetCells = getSheetCells(sheetTitle); // read sheet cells again to update
+                    sheetsWriter.writeHeaders(sheetTitle, columnTitles);
+                    sheetHeaders = sheetsWriter.getHeaders(sheetTitle);
                 }
-                disallowMissingColumns(sheetCells.get(0), columnTitles);
-                addAltitudeAndAccuracyTitles(sheetCells.get(0), columnTitles);
+                disallowMissingColumns(sheetHeaders, columnTitles);
+                addAltitudeAndAccuracyTitles(sheetHeaders, columnTitles);
                 ensureNumberOfColumnsIsValid(columnTitles.size());  // Call again to ensure valid number of columns
 
             } else { // new sheet
@@ -202,17 +232,39 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
                 if (sheetId != null) {
                     sheetsHelper.resizeSpreadSheet(spreadsheet.getSpreadsheetId(), sheetId, columnTitles.size());
                 }
-                sheetsHelper.insertRow(spreadsheet.getSpreadsheetId(), sheetTitle,
-                        new ValueRange().setValues(Collections.singletonList(columnTitles)));
-                sheetCells = getSheetCells(sheetTitle); // read sheet cells again to update
+                sheetsWriter.writeHeaders(sheetTitle, columnTitles);
+                sheetHeaders = sheetsWriter.getHeaders(sheetTitle);
             }
 
-            HashMap<String, String> answers = getAnswers(instance, element, columnTitles, instanceFile, parentKey, key);
+            Set<String> mediaColumns = new HashSet<>();
+            HashMap<String, String> answers = getAnswers(element, columnTitles, instanceFile, parentKey, key, mediaColumns);
 
             if (shouldRowBeInserted(answers)) {
-                sheetsHelper.insertRow(spreadsheet.getSpreadsheetId(), sheetTitle,
-                        new ValueRange().setValues(Collections.singletonList(prepareListOfValues(sheetCells.get(0), columnTitles, answers))));
+                for (String mediaColumn : mediaColumns) {
+                    mediaFileNames.add(answers.get(mediaColumn));
+                }
+
+                rows.add(new PendingRow(sheetTitle, sheetHeaders, columnTitles, answers, mediaColumns));
+            }
+        } catch (GoogleJsonResponseException e) {
+            throw new FormUploadException(getErrorMessageFromGoogleJsonResponseException(e));
+        } catch (IOException e) {
+            throw new FormUploadException(e);
+        }
+    }
+
+    private void writeRows(List<PendingRow> rows, Map<String, String> mediaUrls) throws FormUploadException {
+        for (PendingRow row : rows) {
+            HashMap<String, String> answers = new HashMap<>(row.answers);
+            for (String mediaColumn : row.mediaColumns) {
+                answers.put(mediaColumn, mediaUrls.get(answers.get(mediaColumn)));
             }
+
+            sheetsWriter.addRow(row.sheetTitle, prepareListOfValues(row.sheetHeaders, row.columnTitles, answers));
+        }
+
+        try {
+            sheetsWriter.flush();
         } catch (GoogleJsonResponseException e) {
             throw new FormUploadException(getErrorMessageFromGoogleJsonResponseException(e));
         } catch (IOException e) {
@@ -251,7 +303,79 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
         return false;
     }
 
-    private String uploadMediaFile(Instance instance, String fileName) throws FormUploadException {
+    /**
+     * Uploads media files (up to {@link #MAX_CONCURRENT_MEDIA_UPLOADS} at a time) on the
+     * scheduler's background threads. No more files are uploaded once one of them fails.
+     *
+     * @return the URL of each uploaded file by its name
+     */
+    private Map<String, String> uploadMediaFiles(Instance instance, Set<String> fileNames) throws FormUploadException {
+        Map<String, String> mediaUrls = new ConcurrentHashMap<>();
+        if (fileNames.isEmpty()) {
+            return mediaUrls;
+        }
+
+        String folderId = getSubmissionsFolderId();
+        if (fileNames.size() == 1) {
+            String fileName = fileNames.iterator().next();
+            mediaUrls.put(fileName, uploadMediaFile(instance, fileName, folderId));
+            return mediaUrls;
+        }
+
+        Queue<String> toUpload = new ConcurrentLinkedQueue<>(fileNames);
+        AtomicBoolean failed = new AtomicBoolean();
+
+        List<Future<Void>> uploads = new ArrayList<>();
+        for (int i = 0; i < Math.min(fileNames.size(), MAX_CONCURRENT_MEDIA_UPLOADS); i++) {
+            uploads.add(scheduler.immediateInBackground(() -> {
+                String fileName;
+                while (!failed.get() && (fileName = toUpload.poll()) != null) {
+                    try {
+                        mediaUrls.put(fileName, uploadMediaFile(instance, fileName, folderId));
+                    } catch (FormUploadException | RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }
+
+                return null;
+            }));
+        }
+
+        FormUploadException failure = null;
+        for (Future<Void> upload : uploads) {
+            try {
+                Uninterruptibles.getUninterruptibly(upload);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof FormUploadException
+                            ? (FormUploadException) e.getCause()
+                            : new FormUploadException(e.getCause());
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        return mediaUrls;
+    }
+
+    private String getSubmissionsFolderId() throws FormUploadException {
+        if (submissionsFolderId == null) {
+            try {
+                submissionsFolderId = driveHelper.createOrGetIDOfSubmissionsFolder();
+            } catch (IOException | MultipleFoldersFoundException e) {
+                Timber.e(e);
+                throw new FormUploadException(e);
+            }
+        }
+
+        return submissionsFolderId;
+    }
+
+    private String uploadMediaFile(Instance instance, String fileName, String folderId) throws FormUploadException {
         File instanceFile = new File(instance.getInstanceFilePath());
         String filePath = instanceFile.getParentFile() + "/" + fileName;
         File toUpload = new File(filePath);
@@ -261,14 +385,6 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
                     .getString(org.odk.collect.strings.R.string.media_upload_error, filePath));
         }
 
-        String folderId;
-        try {
-            folderId = driveHelper.createOrGetIDOfSubmissionsFolder();
-        } catch (IOException | MultipleFoldersFoundException e) {
-            Timber.e(e);
-            throw new FormUploadException(e);
-        }
-
         String uploadedFileId;
 
         // file is ready to be uploaded
@@ -314,12 +430,17 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
         Set<String> sheetTitles = getSheetTitles(element);
 
         try {
+            boolean sheetAdded = false;
             for (String sheetTitle : sheetTitles) {
                 if (!doesSheetExist(sheetTitle)) {
                     sheetsHelper.addSheet(spreadsheet.getSpreadsheetId(), sheetTitle);
+                    sheetAdded = true;
                 }
             }
-            spreadsheet = sheetsHelper.getSpreadsheet(spreadsheet.getSpreadsheetId());
+
+            if (sheetAdded) {
+                spreadsheet = sheetsHelper.getSpreadsheet(spreadsheet.getSpreadsheetId());
+            }
         } catch (IOException e) {
             throw new FormUploadException(e);
         }
@@ -336,8 +457,12 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
         return sheetTitles;
     }
 
-    private HashMap<String, String> getAnswers(Instance instance, TreeElement element, List<Object> columnTitles, File instanceFile, String parentKey, String key)
-            throws FormUploadException {
+    /**
+     * Media answers are left as file names (and their titles are added to
+     * {@code mediaColumns}) so that the files can be uploaded later.
+     */
+    private HashMap<String, String> getAnswers(TreeElement element, List<Object> columnTitles, File instanceFile, String parentKey, String key,
+                                               Set<String> mediaColumns) {
         HashMap<String, String> answers = new HashMap<>();
         for (TreeElement childElement : getChildElements(element, false)) {
             String elementTitle = getElementTitle(childElement);
@@ -347,8 +472,8 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
                 String answer = getFormattingResistantAnswer(childElement);
 
                 if (new File(instanceFile.getParentFile() + "/" + answer).isFile()) {
-                    String mediaUrl = uploadMediaFile(instance, answer);
-                    answers.put(elementTitle, mediaUrl);
+                    answers.put(elementTitle, answer);
+                    mediaColumns.add(elementTitle);
                 } else {
                     if (isLocationValid(answer)) {
                         answers.putAll(parseGeopoint(columnTitles, elementTitle, answer));
@@ -539,8 +664,12 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
         return list;
     }
 
-    private List<List<Object>> getSheetCells(String sheetTitle) throws IOException {
-        return sheetsHelper.getSheetCells(spreadsheet.getSpreadsheetId(), sheetTitle);
+    private boolean isNewSheet(String sheetTitle) throws FormUploadException {
+        try {
+            return sheetsWriter.getHeaders(sheetTitle).isEmpty();
+        } catch (IOException e) {
+            throw new FormUploadException(e);
+        }
     }
 
     private boolean isAnyColumnHeaderEmpty(List<Object> columnHeaders) {
@@ -557,6 +686,7 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
             try {
                 spreadsheet = sheetsHelper.getSpreadsheet(UrlUtils.getSpreadsheetID(urlString));
                 spreadsheet.setSpreadsheetUrl(urlString);
+                sheetsWriter.setSpreadsheet(spreadsheet.getSpreadsheetId());
             } catch (GoogleJsonResponseException e) {
                 Timber.i(e);
                 throw e;
@@ -600,4 +730,20 @@ public class InstanceGoogleSheetsUploader extends InstanceUploader {
                 .matcher(answer)
                 .matches();
     }
+
+    private static class PendingRow {
+        final String sheetTitle;
+        final List<Object> sheetHeaders;
+        final List<Object> columnTitles;
+        final HashMap<String, String> answers;
+        final Set<String> mediaColumns;
+
+        PendingRow(String sheetTitle, List<Object> sheetHeaders, List<Object> columnTitles, HashMap<String, String> answers, Set<String> mediaColumns) {
+            this.sheetTitle = sheetTitle;
+            this.sheetHeaders = sheetHeaders;
+            this.columnTitles = columnTitles;
+            this.answers = answers;
+            this.mediaColumns = mediaColumns;
+        }
+    }
 }
@@ -26,6 +26,7 @@ import org.odk.collect.android.tasks.InstanceUploaderTask;
 import org.odk.collect.android.upload.FormUploadException;
 import org.odk.collect.android.utilities.FormsRepositoryProvider;
 import org.odk.collect.android.utilities.InstanceUploaderUtils;
+import org.odk.collect.async.Scheduler;
 import org.odk.collect.forms.Form;
 import org.odk.collect.forms.instances.Instance;
 import org.odk.collect.settings.keys.ProjectKeys;
@@ -37,9 +38,11 @@ import timber.log.Timber;
 public class InstanceGoogleSheetsUploaderTask extends InstanceUploaderTask {
 
     private final GoogleApiProvider googleApiProvider;
+    private final Scheduler scheduler;
 
-    public InstanceGoogleSheetsUploaderTask(GoogleApiProvider googleApiProvider) {
+    public InstanceGoogleSheetsUploaderTask(GoogleApiProvider googleApiProvider, Scheduler scheduler) {
         this.googleApiProvider = googleApiProvider;
+        this.scheduler = scheduler;
     }
 
     @Override
@@ -48,7 +51,7 @@ public class InstanceGoogleSheetsUploaderTask extends InstanceUploaderTask {
                 .getUnprotectedSettings()
                 .getString(ProjectKeys.KEY_SELECTED_GOOGLE_ACCOUNT);
 
-        InstanceGoogleSheetsUploader uploader = new InstanceGoogleSheetsUploader(googleApiProvider.getDriveApi(account), googleApiProvider.getSheetsApi(account));
+        InstanceGoogleSheetsUploader uploader = new InstanceGoogleSheetsUploader(googleApiProvider.getDriveApi(account), googleApiProvider.getSheetsApi(account), scheduler);
         final Outcome outcome = new Outcome();
 
         List<Instance> instancesToUpload = uploader.getInstancesFromIds(instanceIdsToUpload);
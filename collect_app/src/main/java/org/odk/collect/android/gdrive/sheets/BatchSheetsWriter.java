@@ -0,0 +1,105 @@
+package org.odk.collect.android.gdrive.sheets;
+
+import androidx.annotation.NonNull;
+
+import com.google.api.services.sheets.v4.model.ValueRange;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes rows to the sheets of a spreadsheet in batches: rows are queued with
+ * {@link #addRow(String, List)} and then written with a single append per sheet by
+ * {@link #flush()}. The header row of each sheet is read (only the header row rather than the
+ * whole sheet) once and then cached until the spreadsheet changes.
+ */
+public class BatchSheetsWriter {
+
+    private final SheetsHelper sheetsHelper;
+
+    private String spreadsheetId;
+    private final Map<String, List<Object>> headers = new HashMap<>();
+    private final Map<String, List<List<Object>>> pendingRows = new LinkedHashMap<>();
+
+    public BatchSheetsWriter(@NonNull SheetsHelper sheetsHelper) {
+        this.sheetsHelper = sheetsHelper;
+    }
+
+    /**
+     * Sets the spreadsheet rows are written to. Cached headers are discarded if this is a
+     * different spreadsheet to the current one.
+     */
+    public void setSpreadsheet(@NonNull String spreadsheetId) {
+        if (!spreadsheetId.equals(this.spreadsheetId)) {
+            this.spreadsheetId = spreadsheetId;
+            headers.clear();
+            pendingRows.clear();
+        }
+    }
+
+    /**
+     * @return the header row of the sheet or an empty list if the sheet has no rows
+     */
+    @NonNull
+    public List<Object> getHeaders(@NonNull String sheetTitle) throws IOException {
+        List<Object> sheetHeaders = headers.get(sheetTitle);
+        if (sheetHeaders == null) {
+            List<List<Object>> cells = sheetsHelper.getSheetCells(spreadsheetId, sheetTitle + "!1:1");
+            sheetHeaders = cells == null || cells.isEmpty() ? new ArrayList<>() : cells.get(0);
+            headers.put(sheetTitle, sheetHeaders);
+        }
+
+        return Collections.unmodifiableList(sheetHeaders);
+    }
+
+    /**
+     * Writes the header row of a sheet straight away (so that it is in place before any rows
+     * are appended).
+     */
+    public void writeHeaders(@NonNull String sheetTitle, @NonNull List<Object> sheetHeaders) throws IOException {
+        ValueRange row = new ValueRange().setValues(Collections.singletonList(sheetHeaders));
+
+        if (getHeaders(sheetTitle).isEmpty()) {
+            sheetsHelper.insertRow(spreadsheetId, sheetTitle, row);
+            headers.put(sheetTitle, new ArrayList<>(sheetHeaders));
+        } else {
+            sheetsHelper.updateRow(spreadsheetId, sheetTitle + "!A1", row);
+
+            // Existing headers past the ones written are kept so read them again
+            headers.remove(sheetTitle);
+        }
+    }
+
+    public void addRow(@NonNull String sheetTitle, @NonNull List<Object> row) {
+        List<List<Object>> rows = pendingRows.get(sheetTitle);
+        if (rows == null) {
+            rows = new ArrayList<>();
+            pendingRows.put(sheetTitle, rows);
+        }
+
+        rows.add(row);
+    }
+
+    /**
+     * Appends the rows added since the last flush to their sheets (in the order the sheets were
+     * first added to).
+     */
+    public void flush() throws IOException {
+        try {
+            for (Map.Entry<String, List<List<Object>>> sheetRows : pendingRows.entrySet()) {
+                sheetsHelper.insertRow(spreadsheetId, sheetRows.getKey(), new ValueRange().setValues(sheetRows.getValue()));
+            }
+        } finally {
+            pendingRows.clear();
+        }
+    }
+
+    public void discardPendingRows() {
+        pendingRows.clear();
+    }
+}
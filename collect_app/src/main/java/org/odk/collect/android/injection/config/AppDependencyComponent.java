@@ -80,6 +80,7 @@ import org.odk.collect.android.tasks.InstanceServerUploaderTask;
 import org.odk.collect.android.tasks.MediaLoadingTask;
 import org.odk.collect.android.upload.InstanceUploader;
 import org.odk.collect.android.utilities.AuthDialogUtility;
+import org.odk.collect.android.utilities.FormDefCacheWarmer;
 import org.odk.collect.android.utilities.FormsRepositoryProvider;
 import org.odk.collect.android.utilities.InstancesRepositoryProvider;
 import org.odk.collect.android.utilities.ProjectResetter;
@@ -315,6 +316,8 @@ public interface AppDependencyComponent {
 
     Scheduler scheduler();
 
+    FormDefCacheWarmer formDefCacheWarmer();
+
     LocationClient locationClient();
 
     PermissionsProvider permissionsProvider();
@@ -18,14 +18,36 @@ class InstanceDeleter(
             val form =
                 formsRepository.getLatestByFormIdAndVersion(instance.formId, instance.formVersion)
             if (form != null && form.isDeleted) {
-                val otherInstances = instancesRepository.getAllNotDeletedByFormIdAndVersion(
+                val otherInstanceCount = instancesRepository.getCountNotDeletedByFormIdAndVersion(
                     form.formId,
                     form.version
                 )
-                if (otherInstances.isEmpty()) {
+                if (otherInstanceCount == 0) {
                     formsRepository.delete(form.dbId)
                 }
             }
         }
     }
+
+    /**
+     * Deletes instances in the same way as [delete] but in bulk: the instances are deleted
+     * together and forms that are left without instances are only looked up once.
+     *
+     * @return the number of instances deleted
+     */
+    fun delete(ids: List<Long>): Int {
+        val deletedInstances = instancesRepository.deleteAll(ids)
+
+        val deletedForms = deletedInstances
+            .map { Pair(it.formId, it.formVersion) }
+            .distinct()
+            .mapNotNull { formsRepository.getLatestByFormIdAndVersion(it.first, it.second) }
+            .filter { it.isDeleted }
+
+        deletedForms
+            .filter { instancesRepository.getCountNotDeletedByFormIdAndVersion(it.formId, it.version) == 0 }
+            .forEach { formsRepository.delete(it.dbId) }
+
+        return deletedInstances.size
+    }
 }
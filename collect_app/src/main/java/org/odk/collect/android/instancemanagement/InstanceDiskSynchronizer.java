@@ -17,6 +17,7 @@ package org.odk.collect.android.instancemanagement;
 import android.net.Uri;
 
 import org.apache.commons.io.FileUtils;
+import org.kxml2.io.KXmlParser;
 import org.odk.collect.android.analytics.AnalyticsEvents;
 import org.odk.collect.android.analytics.AnalyticsUtils;
 import org.odk.collect.android.application.Collect;
@@ -33,20 +34,24 @@ import org.odk.collect.android.utilities.EncryptionUtils;
 import org.odk.collect.android.utilities.FormsRepositoryProvider;
 import org.odk.collect.android.utilities.InstancesRepositoryProvider;
 import org.odk.collect.forms.Form;
+import org.odk.collect.forms.FormsRepository;
 import org.odk.collect.forms.instances.Instance;
 import org.odk.collect.forms.instances.InstancesRepository;
 import org.odk.collect.settings.SettingsProvider;
 import org.odk.collect.settings.keys.ProjectKeys;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.xmlpull.v1.XmlPullParser;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.Map;
+import java.util.Set;
 
 import timber.log.Timber;
 
@@ -106,9 +111,14 @@ public class InstanceDiskSynchronizer {
 
                 final boolean instanceSyncFlag = settingsProvider.getUnprotectedSettings().getBoolean(ProjectKeys.KEY_INSTANCE_SYNC);
 
+                Set<String> knownInstancePaths = new HashSet<>(instancesRepository.getAllInstanceFilePaths());
+
+                FormsRepository formsRepository = new FormsRepositoryProvider(Collect.getInstance()).get();
+                Map<String, Form> formsById = new HashMap<>();
+
                 int counter = 0;
                 for (String instancePath : instancePaths) {
-                    if (instancesRepository.getOneByPath(instancePath) != null) {
+                    if (knownInstancePaths.contains(instancePath)) {
                         continue; // Skip instances that are already stored in repo
                     }
 
@@ -116,12 +126,14 @@ public class InstanceDiskSynchronizer {
                     // only process if we can find the id from the instance file
                     if (instanceFormId != null) {
                         try {
-                            // TODO: optimize this by caching the previously found form definition
-                            // TODO: optimize this by caching unavailable form definition to skip
-                            List<Form> forms = new FormsRepositoryProvider(Collect.getInstance()).get().getAllByFormId(instanceFormId);
+                            // Forms (and forms that aren't there) are looked up once per scan
+                            if (!formsById.containsKey(instanceFormId)) {
+                                List<Form> forms = formsRepository.getAllByFormId(instanceFormId);
+                                formsById.put(instanceFormId, forms.isEmpty() ? null : forms.get(0));
+                            }
 
-                            if (!forms.isEmpty()) {
-                                Form form = forms.get(0);
+                            Form form = formsById.get(instanceFormId);
+                            if (form != null) {
                                 String jrFormId = form.getFormId();
                                 String jrVersion = form.getVersion();
                                 String formName = form.getDisplayName();
@@ -157,33 +169,49 @@ public class InstanceDiskSynchronizer {
     }
 
     private String getFormIdFromInstance(final String instancePath) {
-        String instanceFormId = null;
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        try {
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(new File(instancePath));
-            Element element = document.getDocumentElement();
-            instanceFormId = element.getAttribute("id");
-        } catch (Exception | Error e) {
+        String instanceFormId = readRootAttribute(instancePath, "id");
+        if (instanceFormId == null) {
             Timber.w("Unable to read form id from %s", instancePath);
         }
         return instanceFormId;
     }
 
     private String getInstanceIdFromInstance(final String instancePath) {
-        String instanceId = null;
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        try {
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(new File(instancePath));
-            Element element = document.getDocumentElement();
-            instanceId = element.getAttribute("instanceID");
-        } catch (Exception | Error e) {
+        String instanceId = readRootAttribute(instancePath, "instanceID");
+        if (instanceId == null) {
             Timber.w("Unable to read form instanceID from %s", instancePath);
         }
         return instanceId;
     }
 
+    /**
+     * Reads an attribute of the root element without building a document for the file. The rest
+     * of the file is still pulled through the parser so that truncated or badly formed instances
+     * aren't treated as valid.
+     *
+     * @return the attribute's value, an empty string if the root element doesn't have it or
+     * null if the file can't be read or isn't well formed
+     */
+    static String readRootAttribute(String instancePath, String name) {
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(instancePath))) {
+            KXmlParser parser = new KXmlParser();
+            parser.setInput(inputStream, null);
+
+            if (parser.nextTag() != XmlPullParser.START_TAG) {
+                return null;
+            }
+
+            String value = parser.getAttributeValue(null, name);
+            while (parser.next() != XmlPullParser.END_DOCUMENT) {
+                // Keep going so the parser checks the whole file is well formed
+            }
+
+            return value != null ? value : "";
+        } catch (Exception | Error e) {
+            return null;
+        }
+    }
+
     private void encryptInstanceIfNeeded(Form form, Instance instance) throws EncryptionException, IOException {
         if (instance != null) {
             if (shouldInstanceBeEncrypted(form)) {
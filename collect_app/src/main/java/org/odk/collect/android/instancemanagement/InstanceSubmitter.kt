@@ -1,5 +1,6 @@
 package org.odk.collect.android.instancemanagement
 
+import android.net.Uri
 import org.odk.collect.analytics.Analytics
 import org.odk.collect.android.analytics.AnalyticsEvents
 import org.odk.collect.android.application.Collect
@@ -14,6 +15,7 @@ import org.odk.collect.android.utilities.InstanceAutoDeleteChecker
 import org.odk.collect.android.utilities.InstanceUploaderUtils
 import org.odk.collect.android.utilities.InstancesRepositoryProvider
 import org.odk.collect.android.utilities.WebCredentialsUtils
+import org.odk.collect.async.Scheduler
 import org.odk.collect.forms.FormsRepository
 import org.odk.collect.forms.instances.Instance
 import org.odk.collect.metadata.PropertyManager
@@ -29,7 +31,9 @@ class InstanceSubmitter(
     private val googleApiProvider: GoogleApiProvider,
     private val permissionsProvider: PermissionsProvider,
     private val generalSettings: Settings,
-    private val propertyManager: PropertyManager
+    private val propertyManager: PropertyManager,
+    private val scheduler: Scheduler,
+    private val maxConcurrentUploadsPerServer: Int = DEFAULT_MAX_CONCURRENT_UPLOADS_PER_SERVER
 ) {
 
     @Throws(SubmitException::class)
@@ -46,36 +50,60 @@ class InstanceSubmitter(
             setUpODKUploader()
         }
 
-        for (instance in toUpload) {
-            try {
-                var destinationUrl: String
-                if (isGoogleSheetsProtocol()) {
-                    destinationUrl = uploader.getUrlToSubmitTo(
-                        instance,
-                        null,
-                        null,
-                        generalSettings.getString(ProjectKeys.KEY_GOOGLE_SHEETS_URL)
-                    )
-                    if (!InstanceUploaderUtils.doesUrlRefersToGoogleSheetsFile(destinationUrl)) {
-                        result[instance] = FormUploadException(InstanceUploaderUtils.SPREADSHEET_UPLOADED_TO_GOOGLE_DRIVE)
-                        continue
-                    }
-                } else {
-                    destinationUrl = uploader.getUrlToSubmitTo(instance, deviceId, null, null)
-                }
-                uploader.uploadOneSubmission(instance, destinationUrl)
-                result[instance] = null
+        // Google Sheets uploads append to shared spreadsheets so they are still done one at a time
+        val scheduler = SubmissionScheduler(
+            if (isGoogleSheetsProtocol()) 1 else maxConcurrentUploadsPerServer
+        )
 
+        scheduler.submit(
+            toUpload,
+            { instance -> getServer(uploader, instance, deviceId) },
+            { instance -> submitInstance(uploader, instance, deviceId) }
+        ) { instance, exception ->
+            result[instance] = exception
+            if (exception == null) {
                 deleteInstance(instance)
                 logUploadedForm(instance)
-            } catch (e: FormUploadException) {
-                Timber.d(e)
-                result[instance] = e
             }
         }
         return result
     }
 
+    /**
+     * @return null if the instance was submitted or the reason it wasn't
+     */
+    private fun submitInstance(uploader: InstanceUploader, instance: Instance, deviceId: String?): FormUploadException? {
+        return try {
+            val destinationUrl: String
+            if (isGoogleSheetsProtocol()) {
+                destinationUrl = uploader.getUrlToSubmitTo(
+                    instance,
+                    null,
+                    null,
+                    generalSettings.getString(ProjectKeys.KEY_GOOGLE_SHEETS_URL)
+                )
+                if (!InstanceUploaderUtils.doesUrlRefersToGoogleSheetsFile(destinationUrl)) {
+                    return FormUploadException(InstanceUploaderUtils.SPREADSHEET_UPLOADED_TO_GOOGLE_DRIVE)
+                }
+            } else {
+                destinationUrl = uploader.getUrlToSubmitTo(instance, deviceId, null, null)
+            }
+            uploader.uploadOneSubmission(instance, destinationUrl)
+            null
+        } catch (e: FormUploadException) {
+            Timber.d(e)
+            e
+        }
+    }
+
+    private fun getServer(uploader: InstanceUploader, instance: Instance, deviceId: String?): String {
+        return if (isGoogleSheetsProtocol()) {
+            ""
+        } else {
+            Uri.parse(uploader.getUrlToSubmitTo(instance, deviceId, null, null)).authority ?: ""
+        }
+    }
+
     @Throws(SubmitException::class)
     private fun setUpGoogleSheetsUploader(): InstanceUploader {
         if (permissionsProvider.isGetAccountsPermissionGranted) {
@@ -86,7 +114,8 @@ class InstanceSubmitter(
             googleAccountsManager.selectAccount(googleUsername)
             return InstanceGoogleSheetsUploader(
                 googleApiProvider.getDriveApi(googleUsername),
-                googleApiProvider.getSheetsApi(googleUsername)
+                googleApiProvider.getSheetsApi(googleUsername),
+                scheduler
             )
         } else {
             throw SubmitException(SubmitException.Type.GOOGLE_ACCOUNT_NOT_PERMITTED)
@@ -125,4 +154,8 @@ class InstanceSubmitter(
 
         Analytics.log(AnalyticsEvents.SUBMISSION, key, value)
     }
+
+    companion object {
+        const val DEFAULT_MAX_CONCURRENT_UPLOADS_PER_SERVER = 4
+    }
 }
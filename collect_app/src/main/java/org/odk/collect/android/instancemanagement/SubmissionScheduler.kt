@@ -0,0 +1,48 @@
+package org.odk.collect.android.instancemanagement
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import kotlin.math.min
+
+/**
+ * Runs uploads concurrently with at most [maxConcurrentUploadsPerServer] uploads to the same
+ * server at a time. Results are passed to `onResult` on the calling thread in the same order as
+ * the items (whatever order the uploads finish in) so that anything done with them (updating
+ * statuses, deleting instances or reporting results) happens in a predictable order.
+ */
+class SubmissionScheduler(private val maxConcurrentUploadsPerServer: Int) {
+
+    fun <T, R> submit(
+        items: List<T>,
+        serverOf: (T) -> String,
+        upload: (T) -> R,
+        onResult: (T, R) -> Unit
+    ) {
+        if (items.size <= 1 || maxConcurrentUploadsPerServer <= 1) {
+            items.forEach { onResult(it, upload(it)) }
+            return
+        }
+
+        val servers = items.map(serverOf)
+        val executors: Map<String, ExecutorService> = servers.groupingBy { it }.eachCount()
+            .mapValues { (_, count) -> Executors.newFixedThreadPool(min(maxConcurrentUploadsPerServer, count)) }
+
+        try {
+            // Shutting down the executors when an upload throws interrupts the others
+            items.mapIndexed { index, item -> item to executors[servers[index]]!!.submit(Callable { upload(item) }) }
+                .forEach { (item, future) ->
+                    val result = try {
+                        future.get()
+                    } catch (e: ExecutionException) {
+                        throw e.cause ?: e
+                    }
+
+                    onResult(item, result)
+                }
+        } finally {
+            executors.values.forEach { it.shutdownNow() }
+        }
+    }
+}
@@ -7,13 +7,28 @@ import org.odk.collect.forms.instances.InstancesRepository
 class InstanceAutoSendFetcher(private val autoSendSettingsProvider: AutoSendSettingsProvider) {
 
     fun getInstancesToAutoSend(projectId: String, instancesRepository: InstancesRepository, formsRepository: FormsRepository): List<Instance> {
-        val allFinalizedForms = instancesRepository.getAllByStatus(Instance.STATUS_COMPLETE, Instance.STATUS_SUBMISSION_FAILED)
-
         val isAutoSendEnabledInSettings = autoSendSettingsProvider.isAutoSendEnabledInSettings(projectId)
-        return allFinalizedForms.filter {
-            formsRepository.getLatestByFormIdAndVersion(it.formId, it.formVersion)?.let { form ->
-                form.shouldFormBeSentAutomatically(isAutoSendEnabledInSettings)
-            } ?: false
-        }
+        val shouldFormBeSentAutomatically = mutableMapOf<Pair<String, String?>, Boolean>()
+
+        val instancesToAutoSend = mutableListOf<Instance>()
+        var offset = 0
+        do {
+            val page = instancesRepository.getPageByStatus(offset, PAGE_SIZE, Instance.STATUS_COMPLETE, Instance.STATUS_SUBMISSION_FAILED)
+            page.filterTo(instancesToAutoSend) {
+                shouldFormBeSentAutomatically.getOrPut(Pair(it.formId, it.formVersion)) {
+                    formsRepository.getLatestByFormIdAndVersion(it.formId, it.formVersion)?.let { form ->
+                        form.shouldFormBeSentAutomatically(isAutoSendEnabledInSettings)
+                    } ?: false
+                }
+            }
+
+            offset += page.size
+        } while (page.size == PAGE_SIZE)
+
+        return instancesToAutoSend
+    }
+
+    companion object {
+        private const val PAGE_SIZE = 100
     }
 }
@@ -10,6 +10,7 @@ import org.odk.collect.android.instancemanagement.SubmitException
 import org.odk.collect.android.notifications.Notifier
 import org.odk.collect.android.projects.ProjectDependencyProvider
 import org.odk.collect.android.upload.FormUploadException
+import org.odk.collect.async.Scheduler
 import org.odk.collect.forms.instances.Instance
 import org.odk.collect.metadata.PropertyManager
 import org.odk.collect.permissions.PermissionsProvider
@@ -22,7 +23,8 @@ class InstanceAutoSender(
     private val googleApiProvider: GoogleApiProvider,
     private val permissionsProvider: PermissionsProvider,
     private val instancesAppState: InstancesAppState,
-    private val propertyManager: PropertyManager
+    private val propertyManager: PropertyManager,
+    private val scheduler: Scheduler
 ) {
     fun autoSendInstances(projectDependencyProvider: ProjectDependencyProvider): Boolean {
         val instanceSubmitter = InstanceSubmitter(
@@ -31,7 +33,8 @@ class InstanceAutoSender(
             googleApiProvider,
             permissionsProvider,
             projectDependencyProvider.generalSettings,
-            propertyManager
+            propertyManager,
+            scheduler
         )
         return projectDependencyProvider.changeLockProvider.getInstanceLock(projectDependencyProvider.projectId).withLock { acquiredLock: Boolean ->
             if (acquiredLock) {
@@ -274,6 +274,12 @@ public class InstanceUploaderActivity extends LocalizedActivity implements Insta
         progressDialog.setMessage(alertMsg);
     }
 
+    @Override
+    public void progressUpdate(int progress, int total, int percentSent) {
+        alertMsg = getString(org.odk.collect.strings.R.string.sending_items_progress, String.valueOf(progress), String.valueOf(total), String.valueOf(percentSent));
+        progressDialog.setMessage(alertMsg);
+    }
+
     @Override
     protected Dialog onCreateDialog(int id) {
         switch (id) {
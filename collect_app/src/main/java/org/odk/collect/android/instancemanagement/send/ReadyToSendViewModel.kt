@@ -20,18 +20,15 @@ class ReadyToSendViewModel(
     fun update() {
         scheduler.immediate(
             background = {
-                val sentInstances = instancesRepository.getAllByStatus(Instance.STATUS_SUBMITTED)
-                val numberOfSentInstances = sentInstances.size
+                val numberOfSentInstances = instancesRepository.getCountByStatus(Instance.STATUS_SUBMITTED)
                 val numberOfInstancesReadyToSend = instancesRepository.getCountByStatus(
                     Instance.STATUS_COMPLETE,
                     Instance.STATUS_SUBMISSION_FAILED
                 )
-                val lastInstanceSentTimeMillis = if (sentInstances.isNotEmpty()) {
-                    val lastSentInstance = sentInstances.maxBy { instance -> instance.lastStatusChangeDate }
-                    clock.get() - lastSentInstance.lastStatusChangeDate
-                } else {
-                    0
-                }
+                val lastInstanceSentTimeMillis = instancesRepository
+                    .getLastStatusChangeDateByStatus(Instance.STATUS_SUBMITTED)
+                    ?.let { clock.get() - it }
+                    ?: 0
                 Data(numberOfInstancesReadyToSend, numberOfSentInstances, lastInstanceSentTimeMillis)
             },
             foreground = {
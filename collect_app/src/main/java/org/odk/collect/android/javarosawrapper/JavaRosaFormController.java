@@ -62,6 +62,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import timber.log.Timber;
@@ -103,6 +104,18 @@ public class JavaRosaFormController implements FormController {
     private final FormEntryController formEntryController;
     private FormIndex indexWaitingForData;
 
+    /**
+     * Lookup table for {@link #getIndexFromXPath(String)}. Null when it needs to be (re)built.
+     */
+    @Nullable
+    private Map<String, FormIndex> xpathIndexes;
+
+    /**
+     * The number of elements in the main instance when {@link #xpathIndexes} was built. Adding or
+     * removing repeats changes this so it tells us whether the table is still current.
+     */
+    private int xpathIndexesInstanceSize;
+
     public JavaRosaFormController(File mediaFolder, FormEntryController fec, File instanceFile) {
         this.mediaFolder = mediaFolder;
         formEntryController = fec;
@@ -206,28 +219,89 @@ public class JavaRosaFormController implements FormController {
                 Timber.e(new Error("Unexpected string from XPath"));
                 return null;
             default:
-                FormIndex returned = null;
-                FormIndex saved = getFormIndex();
-                // the only way I know how to do this is to step through the entire form
-                // until the XPath of a form entry matches that of the supplied XPath
-                try {
-                    jumpToIndex(FormIndex.createBeginningOfFormIndex());
-                    int event = stepToNextEvent(true);
-                    while (event != FormEntryController.EVENT_END_OF_FORM) {
-                        String candidateXPath = getXPath(getFormIndex());
-                        if (candidateXPath.equals(xpath)) {
-                            returned = getFormIndex();
-                            break;
-                        }
-                        event = stepToNextEvent(true);
+                FormIndex index = getXPathIndexes().get(xpath);
+                if (index != null && xpath.equals(getXPath(index))) {
+                    if (formEntryController.getModel().isIndexRelevant(index)) {
+                        return index;
+                    } else if (getInstanceSize() == xpathIndexesInstanceSize) {
+                        // Stepping through the form would skip the element as well
+                        return null;
                     }
-                } finally {
-                    jumpToIndex(saved);
                 }
-                return returned;
+
+                // Stepping through the form can create repeats (for a jr:count for example) that
+                // the lookup table doesn't know about yet
+                return findIndexFromXPath(xpath);
         }
     }
 
+    /**
+     * Steps through the entire form until the XPath of a form entry matches that of the supplied
+     * XPath.
+     */
+    @Nullable
+    FormIndex findIndexFromXPath(String xpath) {
+        FormIndex returned = null;
+        FormIndex saved = getFormIndex();
+        try {
+            jumpToIndex(FormIndex.createBeginningOfFormIndex());
+            int event = stepToNextEvent(true);
+            while (event != FormEntryController.EVENT_END_OF_FORM) {
+                String candidateXPath = getXPath(getFormIndex());
+                if (candidateXPath.equals(xpath)) {
+                    returned = getFormIndex();
+                    break;
+                }
+                event = stepToNextEvent(true);
+            }
+        } finally {
+            jumpToIndex(saved);
+        }
+
+        // Only rebuild the lookup table if the structure of the form has changed since it was built
+        if (xpathIndexes != null && getInstanceSize() != xpathIndexesInstanceSize) {
+            xpathIndexes = null;
+        }
+
+        return returned;
+    }
+
+    /**
+     * Builds the lookup table used by {@link #getIndexFromXPath(String)} if it isn't already
+     * built. Every index in the form is included (whether it's relevant or not) so that the table
+     * only needs to be rebuilt when the structure of the form changes.
+     */
+    private Map<String, FormIndex> getXPathIndexes() {
+        if (xpathIndexes == null) {
+            FormEntryModel model = formEntryController.getModel();
+            Map<String, FormIndex> indexes = new HashMap<>();
+
+            FormIndex index = model.incrementIndex(FormIndex.createBeginningOfFormIndex());
+            while (index.isInForm()) {
+                indexes.putIfAbsent(getXPath(index), index);
+                index = model.incrementIndex(index);
+            }
+
+            xpathIndexes = indexes;
+            xpathIndexesInstanceSize = getInstanceSize();
+        }
+
+        return xpathIndexes;
+    }
+
+    private int getInstanceSize() {
+        return countElements(getFormDef().getMainInstance().getRoot());
+    }
+
+    private static int countElements(TreeElement element) {
+        int count = 1;
+        for (int i = 0; i < element.getNumChildren(); i++) {
+            count += countElements(element.getChildAt(i));
+        }
+
+        return count;
+    }
+
     public int getEvent() {
         return formEntryController.getModel().getEvent();
     }
@@ -716,10 +790,12 @@ public class JavaRosaFormController implements FormController {
 
     public void newRepeat() {
         formEntryController.newRepeat();
+        xpathIndexes = null;
     }
 
     public void deleteRepeat() {
         FormIndex fi = formEntryController.deleteRepeat();
+        xpathIndexes = null;
         formEntryController.jumpToIndex(fi);
     }
 
@@ -26,5 +26,10 @@ public interface InstanceUploaderListener {
 
     void progressUpdate(int progress, int total);
 
+    /**
+     * @param percentSent how much of the current form (including its attachments) has been sent
+     */
+    void progressUpdate(int progress, int total, int percentSent);
+
     void authRequest(Uri url, HashMap<String, String> doneSoFar);
 }
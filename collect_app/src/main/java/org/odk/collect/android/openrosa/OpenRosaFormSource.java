@@ -3,6 +3,7 @@ package org.odk.collect.android.openrosa;
 import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 
+import org.apache.commons.io.IOUtils;
 import org.jetbrains.annotations.NotNull;
 import org.odk.collect.android.utilities.DocumentFetchResult;
 import org.odk.collect.android.utilities.WebCredentialsUtils;
@@ -12,6 +13,7 @@ import org.odk.collect.forms.FormSourceException;
 import org.odk.collect.forms.ManifestFile;
 import org.odk.collect.forms.MediaFile;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.UnknownHostException;
@@ -114,6 +116,29 @@ public class OpenRosaFormSource implements FormSource {
         }
     }
 
+    @Override
+    @NotNull
+    public InputStream fetchMediaFile(String mediaFileURL, long offset) throws FormSourceException {
+        HttpGetResult result = mapException(() -> openRosaXMLFetcher.fetch(mediaFileURL, null, offset));
+
+        if (result.getInputStream() == null) {
+            throw new FormSourceException.ServerError(result.getStatusCode(), serverURL);
+        }
+
+        InputStream inputStream = result.getInputStream();
+        if (offset > 0 && result.getStatusCode() != HttpURLConnection.HTTP_PARTIAL) {
+            // The server doesn't support ranges so skip the part we already have
+            try {
+                IOUtils.skipFully(inputStream, offset);
+            } catch (IOException e) {
+                IOUtils.closeQuietly(inputStream);
+                throw new FormSourceException.FetchError();
+            }
+        }
+
+        return inputStream;
+    }
+
     public void updateUrl(String url) {
         this.serverURL = url;
     }
@@ -38,6 +38,18 @@ public interface OpenRosaHttpInterface {
     @NonNull
     HttpGetResult executeGetRequest(@NonNull URI uri, @Nullable String contentType, @NonNull HttpCredentialsInterface credentials) throws Exception;
 
+    /**
+     * Creates a http connection and sets up an input stream for the content from {@code offset}
+     * bytes onwards (using a HTTP Range request). A status code of 206 (Partial Content) means the
+     * stream starts at {@code offset}. Servers that don't support ranges will return the whole
+     * content with a 200 status code instead.
+     *
+     * @param offset the number of bytes to skip at the start of the content
+     * @see #executeGetRequest(URI, String, HttpCredentialsInterface)
+     */
+    @NonNull
+    HttpGetResult executeGetRequest(@NonNull URI uri, @Nullable String contentType, @NonNull HttpCredentialsInterface credentials, long offset) throws Exception;
+
     /**
      * Performs a Http Head request.
      *
@@ -66,6 +78,21 @@ public interface OpenRosaHttpInterface {
                                             @NonNull HttpCredentialsInterface credentials,
                                             @NonNull long contentLength) throws Exception;
 
+    /**
+     * Uploads submission files and then list of other files to server, notifying
+     * {@code listener} of progress and of which files the server has accepted.
+     *
+     * @param listener notified as the submission is uploaded (can be null)
+     * @see #uploadSubmissionAndFiles(File, List, URI, HttpCredentialsInterface, long)
+     */
+    @NonNull
+    HttpPostResult uploadSubmissionAndFiles(@NonNull File submissionFile,
+                                            @NonNull List<File> fileList,
+                                            @NonNull URI uri,
+                                            @NonNull HttpCredentialsInterface credentials,
+                                            @NonNull long contentLength,
+                                            @Nullable SubmissionUploadListener listener) throws Exception;
+
     interface FileToContentTypeMapper {
 
         @NonNull
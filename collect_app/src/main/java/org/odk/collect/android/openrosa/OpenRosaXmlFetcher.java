@@ -86,6 +86,25 @@ class OpenRosaXmlFetcher {
 
     @NonNull
     public HttpGetResult fetch(@NonNull String downloadUrl, @Nullable final String contentType) throws Exception {
+        URI uri = getUri(downloadUrl);
+        return httpInterface.executeGetRequest(uri, contentType, webCredentialsUtils.getCredentials(uri));
+    }
+
+    /**
+     * Creates a Http connection and input stream for the content at a url from {@code offset}
+     * bytes onwards. The server might ignore the offset so callers should check for a 206
+     * (Partial Content) status code.
+     *
+     * @see #fetch(String, String)
+     */
+    @NonNull
+    public HttpGetResult fetch(@NonNull String downloadUrl, @Nullable final String contentType, long offset) throws Exception {
+        URI uri = getUri(downloadUrl);
+        return httpInterface.executeGetRequest(uri, contentType, webCredentialsUtils.getCredentials(uri), offset);
+    }
+
+    @NonNull
+    private URI getUri(@NonNull String downloadUrl) throws Exception {
         URI uri;
         try {
             // assume the downloadUrl is escaped properly
@@ -101,7 +120,7 @@ class OpenRosaXmlFetcher {
             throw new Exception("Invalid server URL (no hostname): " + downloadUrl);
         }
 
-        return httpInterface.executeGetRequest(uri, contentType, webCredentialsUtils.getCredentials(uri));
+        return uri;
     }
 
     public WebCredentialsUtils getWebCredentialsUtils() {
@@ -0,0 +1,24 @@
+package org.odk.collect.android.openrosa;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Notified as a submission (that might be split over several requests) is uploaded.
+ */
+public interface SubmissionUploadListener {
+
+    /**
+     * @param bytesSent  the number of bytes of the submission and its attachments sent so far
+     * @param totalBytes the number of bytes that will be sent in total
+     */
+    void onProgress(long bytesSent, long totalBytes);
+
+    /**
+     * Called when the server has accepted a request containing {@code files} so they don't
+     * need to be sent again if a later request fails.
+     */
+    void onFilesUploaded(@NonNull List<File> files);
+}
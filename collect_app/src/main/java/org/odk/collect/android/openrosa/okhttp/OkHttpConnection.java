@@ -12,6 +12,7 @@ import org.odk.collect.android.openrosa.HttpHeadResult;
 import org.odk.collect.android.openrosa.HttpPostResult;
 import org.odk.collect.android.openrosa.OpenRosaHttpInterface;
 import org.odk.collect.android.openrosa.OpenRosaServerClient;
+import org.odk.collect.android.openrosa.SubmissionUploadListener;
 import org.odk.collect.shared.strings.Md5;
 
 import java.io.ByteArrayInputStream;
@@ -19,6 +20,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -55,16 +57,26 @@ public class OkHttpConnection implements OpenRosaHttpInterface {
     @NonNull
     @Override
     public HttpGetResult executeGetRequest(@NonNull URI uri, @Nullable String contentType, @Nullable HttpCredentialsInterface credentials) throws Exception {
+        return executeGetRequest(uri, contentType, credentials, 0);
+    }
+
+    @NonNull
+    @Override
+    public HttpGetResult executeGetRequest(@NonNull URI uri, @Nullable String contentType, @Nullable HttpCredentialsInterface credentials, long offset) throws Exception {
         OpenRosaServerClient httpClient = clientFactory.get(uri.getScheme(), userAgent, credentials);
-        Request request = new Request.Builder()
+        Request.Builder requestBuilder = new Request.Builder()
                 .url(uri.toURL())
-                .get()
-                .build();
+                .get();
 
-        Response response = httpClient.makeRequest(request, new Date());
+        if (offset > 0) {
+            requestBuilder.header("Range", "bytes=" + offset + "-");
+        }
+
+        Response response = httpClient.makeRequest(requestBuilder.build(), new Date());
         int statusCode = response.code();
 
-        if (statusCode != HttpURLConnection.HTTP_OK) {
+        boolean isPartialContent = offset > 0 && statusCode == HttpURLConnection.HTTP_PARTIAL;
+        if (statusCode != HttpURLConnection.HTTP_OK && !isPartialContent) {
             discardEntityBytes(response);
             Timber.i("Error: %s (%s at %s", response.message(), String.valueOf(statusCode), uri.toString());
 
@@ -139,47 +151,41 @@ public class OkHttpConnection implements OpenRosaHttpInterface {
     @NonNull
     @Override
     public HttpPostResult uploadSubmissionAndFiles(@NonNull File submissionFile, @NonNull List<File> fileList, @NonNull URI uri, @Nullable HttpCredentialsInterface credentials, @NonNull long contentLength) throws Exception {
+        return uploadSubmissionAndFiles(submissionFile, fileList, uri, credentials, contentLength, null);
+    }
+
+    @NonNull
+    @Override
+    public HttpPostResult uploadSubmissionAndFiles(@NonNull File submissionFile, @NonNull List<File> fileList, @NonNull URI uri, @Nullable HttpCredentialsInterface credentials, @NonNull long contentLength, @Nullable SubmissionUploadListener listener) throws Exception {
         HttpPostResult postResult = null;
 
-        boolean first = true;
-        int fileIndex = 0;
-        int lastFileIndex;
-        while (fileIndex < fileList.size() || first) {
-            lastFileIndex = fileIndex;
-            first = false;
-            long byteCount = 0L;
+        List<List<File>> requests = splitIntoRequests(fileList, contentLength);
+        UploadProgress progress = new UploadProgress(listener, getTotalBytes(submissionFile, requests));
 
-            RequestBody requestBody = RequestBody.create(MediaType.parse(HTTP_CONTENT_TYPE_TEXT_XML), submissionFile);
+        for (int i = 0; i < requests.size(); i++) {
+            List<File> requestFiles = requests.get(i);
+
+            // Every request needs the submission so the server knows which instance the files are for
+            RequestBody requestBody = new ProgressRequestBody(RequestBody.create(MediaType.parse(HTTP_CONTENT_TYPE_TEXT_XML), submissionFile), progress);
 
             MultipartBody.Builder multipartBuilder = new MultipartBody.Builder()
                     .setType(MultipartBody.FORM)
                     .addPart(MultipartBody.Part.createFormData("xml_submission_file", submissionFile.getName(), requestBody));
 
             Timber.i("added xml_submission_file: %s", submissionFile.getName());
-            byteCount += submissionFile.length();
-
-            for (; fileIndex < fileList.size(); fileIndex++) {
-                File file = fileList.get(fileIndex);
 
+            for (File file : requestFiles) {
                 String contentType = fileToContentTypeMapper.map(file.getName());
 
-                RequestBody fileRequestBody = RequestBody.create(MediaType.parse(contentType), file);
+                RequestBody fileRequestBody = new ProgressRequestBody(RequestBody.create(MediaType.parse(contentType), file), progress);
                 multipartBuilder.addPart(MultipartBody.Part.createFormData(file.getName(), file.getName(), fileRequestBody));
 
-                byteCount += file.length();
                 Timber.i("added file of type '%s' %s", contentType, file.getName());
+            }
 
-                // we've added at least one attachment to the request...
-                if (fileIndex + 1 < fileList.size()) {
-                    if ((fileIndex - lastFileIndex + 1 > 100) || (byteCount + fileList.get(fileIndex + 1).length()
-                            > contentLength)) {
-                        // the next file would exceed the 10MB threshold...
-                        Timber.i("Extremely long post is being split into multiple posts");
-                        multipartBuilder.addPart(MultipartBody.Part.createFormData("*isIncomplete*", "yes"));
-                        ++fileIndex; // advance over the last attachment added...
-                        break;
-                    }
-                }
+            if (i < requests.size() - 1) {
+                Timber.i("Extremely long post is being split into multiple posts");
+                multipartBuilder.addPart(MultipartBody.Part.createFormData("*isIncomplete*", "yes"));
             }
 
             MultipartBody multipartBody = multipartBuilder.build();
@@ -190,11 +196,57 @@ public class OkHttpConnection implements OpenRosaHttpInterface {
                 return postResult;
             }
 
+            if (listener != null && !requestFiles.isEmpty()) {
+                listener.onFilesUploaded(requestFiles);
+            }
         }
 
         return postResult;
     }
 
+    /**
+     * Splits attachments into groups that will each be sent in one request. A new request is
+     * started when adding the next file would make the request larger than
+     * {@code contentLength} or when the request already has more than 100 files. There is
+     * always at least one request (which will have no files if {@code fileList} is empty).
+     */
+    private static List<List<File>> splitIntoRequests(List<File> fileList, long contentLength) {
+        List<List<File>> requests = new ArrayList<>();
+
+        List<File> requestFiles = new ArrayList<>();
+        long byteCount = 0L;
+        for (int fileIndex = 0; fileIndex < fileList.size(); fileIndex++) {
+            File file = fileList.get(fileIndex);
+            requestFiles.add(file);
+            byteCount += file.length();
+
+            // we've added at least one attachment to the request...
+            if (fileIndex + 1 < fileList.size()) {
+                if (requestFiles.size() > 100 || byteCount + fileList.get(fileIndex + 1).length() > contentLength) {
+                    // the next file would exceed the 10MB threshold...
+                    requests.add(requestFiles);
+                    requestFiles = new ArrayList<>();
+                    byteCount = 0L;
+                }
+            }
+        }
+
+        requests.add(requestFiles);
+        return requests;
+    }
+
+    private static long getTotalBytes(File submissionFile, List<List<File>> requests) {
+        long totalBytes = 0;
+        for (List<File> requestFiles : requests) {
+            totalBytes += submissionFile.length();
+            for (File file : requestFiles) {
+                totalBytes += file.length();
+            }
+        }
+
+        return totalBytes;
+    }
+
     @NonNull
     private HttpPostResult executePostRequest(@NonNull URI uri, @Nullable HttpCredentialsInterface credentials, MultipartBody multipartBody) throws Exception {
         OpenRosaServerClient httpClient = clientFactory.get(uri.getScheme(), userAgent, credentials);
@@ -238,4 +290,26 @@ public class OkHttpConnection implements OpenRosaHttpInterface {
             }
         }
     }
+
+    private static class UploadProgress implements ProgressRequestBody.Listener {
+
+        @Nullable
+        private final SubmissionUploadListener listener;
+        private final long totalBytes;
+        private long bytesSent;
+
+        UploadProgress(@Nullable SubmissionUploadListener listener, long totalBytes) {
+            this.listener = listener;
+            this.totalBytes = totalBytes;
+        }
+
+        @Override
+        public void onBytesWritten(long byteCount) {
+            if (listener != null) {
+                // Bodies can be written more than once (if a request is retried for instance)
+                bytesSent = Math.min(bytesSent + byteCount, totalBytes);
+                listener.onProgress(bytesSent, totalBytes);
+            }
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package org.odk.collect.android.openrosa.okhttp;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+
+/**
+ * Wraps a {@link RequestBody} and reports how many bytes of it have been written as they
+ * are written.
+ */
+class ProgressRequestBody extends RequestBody {
+
+    private final RequestBody requestBody;
+    private final Listener listener;
+
+    ProgressRequestBody(RequestBody requestBody, Listener listener) {
+        this.requestBody = requestBody;
+        this.listener = listener;
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return requestBody.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return requestBody.contentLength();
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        BufferedSink countingSink = Okio.buffer(new ForwardingSink(sink) {
+            @Override
+            public void write(@NonNull Buffer source, long byteCount) throws IOException {
+                super.write(source, byteCount);
+                listener.onBytesWritten(byteCount);
+            }
+        });
+
+        requestBody.writeTo(countingSink);
+        countingSink.flush();
+    }
+
+    interface Listener {
+        void onBytesWritten(long byteCount);
+    }
+}
@@ -31,11 +31,11 @@ class ProjectDeleter(
     }
 
     private fun unsentInstancesDetected(projectId: String): Boolean {
-        return instancesRepositoryProvider.get(projectId).getAllByStatus(
+        return instancesRepositoryProvider.get(projectId).getCountByStatus(
             Instance.STATUS_INCOMPLETE,
             Instance.STATUS_COMPLETE,
             Instance.STATUS_SUBMISSION_FAILED
-        ).isNotEmpty()
+        ) > 0
     }
 
     private fun runningBackgroundJobsDetected(projectId: String): Boolean {
@@ -21,6 +21,9 @@ import org.odk.collect.forms.instances.InstancesRepository;
 import org.odk.collect.android.listeners.DeleteInstancesListener;
 import org.odk.collect.forms.FormsRepository;
 
+import java.util.Arrays;
+import java.util.List;
+
 import timber.log.Timber;
 
 /**
@@ -31,6 +34,8 @@ import timber.log.Timber;
  */
 public class DeleteInstancesTask extends AsyncTask<Long, Integer, Integer> {
 
+    private static final int BATCH_SIZE = 100;
+
     private DeleteInstancesListener deleteInstancesListener;
 
     private int successCount;
@@ -55,20 +60,20 @@ public class DeleteInstancesTask extends AsyncTask<Long, Integer, Integer> {
         toDeleteCount = params.length;
 
         InstanceDeleter instanceDeleter = new InstanceDeleter(instancesRepository, formsRepository);
-        // delete files from database and then from file system
-        for (Long param : params) {
+        // delete in batches so that progress can be shown and the task can be cancelled
+        for (int start = 0; start < params.length; start += BATCH_SIZE) {
             if (isCancelled()) {
                 break;
             }
+
+            List<Long> batch = Arrays.asList(params).subList(start, Math.min(start + BATCH_SIZE, params.length));
             try {
-                instanceDeleter.delete(param);
-                deleted++;
+                deleted += instanceDeleter.delete(batch);
 
-                successCount++;
+                successCount = deleted;
                 publishProgress(successCount, toDeleteCount);
-
             } catch (Exception ex) {
-                Timber.e(new Error("Exception during delete of: " + param.toString() + " exception: " + ex));
+                Timber.e(new Error("Exception during delete of: " + batch + " exception: " + ex));
             }
         }
         successCount = deleted;
@@ -49,17 +49,22 @@ import org.odk.collect.android.fastexternalitemset.ItemsetDbAdapter;
 import org.odk.collect.android.javarosawrapper.FormController;
 import org.odk.collect.android.javarosawrapper.JavaRosaFormController;
 import org.odk.collect.android.listeners.FormLoaderListener;
+import org.odk.collect.android.utilities.FileFingerprint;
 import org.odk.collect.android.utilities.FileUtils;
 import org.odk.collect.android.utilities.FormDefCache;
+import org.odk.collect.android.utilities.FormsRepositoryProvider;
 import org.odk.collect.android.utilities.ZipUtils;
 import org.odk.collect.async.Scheduler;
 import org.odk.collect.async.SchedulerAsyncTaskMimic;
+import org.odk.collect.forms.Form;
 import org.odk.collect.shared.strings.Md5;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.security.DigestInputStream;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -235,7 +240,9 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
         publishProgress(
                 getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.survey_loading_reading_form_message));
 
-        final FormDef formDefFromCache = FormDefCache.readCache(formXml);
+        // The form's stored hash saves reading the whole file to find its cache file
+        final Form form = new FormsRepositoryProvider(Collect.getInstance()).get().getOneByPath(formPath);
+        final FormDef formDefFromCache = FormDefCache.readCache(formXml, form);
         if (formDefFromCache != null) {
             return formDefFromCache;
         }
@@ -254,7 +261,7 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
             formDef = formDefFromXml;
 
             try {
-                FormDefCache.writeCache(formDef, formXml.getPath());
+                FormDefCache.writeCache(formDef, formXml, form);
             } catch (IOException e) {
                 Timber.e(e);
             }
@@ -269,9 +276,9 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
         // for itemsets.csv, we only check to see if the itemset file has been
         // updated
         final File csv = new File(formMediaDir.getAbsolutePath() + "/" + ITEMSETS_CSV);
-        String csvmd5;
         if (csv.exists()) {
-            csvmd5 = Md5.getMd5Hash(csv);
+            // take the fingerprint before the file is read so that changes while reading aren't missed
+            final FileFingerprint fingerprint = FileFingerprint.of(csv);
             boolean readFile = false;
             final ItemsetDbAdapter ida = new ItemsetDbAdapter();
             ida.open();
@@ -281,15 +288,22 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
             if (c != null) {
                 if (c.getCount() == 1) {
                     c.moveToFirst(); // should be only one, ever, if any
-                    final String oldmd5 = c.getString(c.getColumnIndex("hash"));
-                    if (oldmd5.equals(csvmd5)) {
-                        // they're equal, do nothing
-                    } else {
-                        // the csv has been updated, delete the old entries
-                        ida.dropTable(ItemsetDbAdapter.getMd5FromString(csv.getAbsolutePath()),
-                                csv.getAbsolutePath());
-                        // and read the new
-                        readFile = true;
+
+                    // only hash the csv if it has been touched since it was last read
+                    FileFingerprint lastFingerprint = ItemsetDbAdapter.getFingerprint(c);
+                    if (lastFingerprint == null || !lastFingerprint.matches(csv)) {
+                        final String oldmd5 = c.getString(c.getColumnIndex("hash"));
+                        final String csvmd5 = Md5.getMd5Hash(csv);
+                        if (oldmd5 != null && oldmd5.equals(csvmd5)) {
+                            // they're equal, so just remember the new fingerprint
+                            ida.updateHashAndFingerprint(csv.getAbsolutePath(), csvmd5, fingerprint);
+                        } else {
+                            // the csv has been updated, delete the old entries
+                            ida.dropTable(ItemsetDbAdapter.getMd5FromString(csv.getAbsolutePath()),
+                                    csv.getAbsolutePath());
+                            // and read the new
+                            readFile = true;
+                        }
                     }
                 } else {
                     // new csv, add it
@@ -299,7 +313,7 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
             }
             ida.close();
             if (readFile) {
-                readCSV(csv, csvmd5, ItemsetDbAdapter.getMd5FromString(csv.getAbsolutePath()));
+                readCSV(csv, fingerprint, ItemsetDbAdapter.getMd5FromString(csv.getAbsolutePath()));
             }
         }
     }
@@ -326,7 +340,7 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
                 try {
                     Timber.i("Importing data");
                     publishProgress(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.survey_loading_reading_data_message));
-                    importData(instanceXml, fec);
+                    importData(instanceXml, usedSavepoint, fec);
                     formDef.initialize(false, instanceInit);
                 } catch (IOException | RuntimeException e) {
                     // Skip a savepoint file that is corrupted or 0-sized
@@ -418,11 +432,22 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
 
     // Copied from XFormParser.loadXmlInstance in order to set ExternalAnswerResolver for search()
     public static void importData(File instanceFile, FormEntryController fec) throws IOException, RuntimeException {
+        importData(instanceFile, false, fec);
+    }
+
+    /**
+     * @param isSavepoint whether the instance file is a savepoint in which case any answers that
+     *                    have been journaled since it was written are applied as well
+     */
+    static void importData(File instanceFile, boolean isSavepoint, FormEntryController fec) throws IOException, RuntimeException {
         // convert files into a byte array
         byte[] fileBytes = org.apache.commons.io.FileUtils.readFileToByteArray(instanceFile);
 
         // get the root of the saved and template instances
         TreeElement savedRoot = XFormParser.restoreDataModel(fileBytes, null).getRoot();
+        if (isSavepoint) {
+            SavepointJournal.replay(instanceFile, savedRoot);
+        }
         TreeElement templateRoot = fec.getModel().getForm().getInstance().getRoot().deepCopy(true);
 
         // weak check for matching forms
@@ -532,7 +557,11 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
         this.intent = intent;
     }
 
-    private void readCSV(File csv, String formHash, String pathHash) {
+    /**
+     * Reads the itemsets.csv into the itemsets database. The hash of the csv is calculated while
+     * it is read rather than with a separate pass over the file.
+     */
+    private void readCSV(File csv, FileFingerprint fingerprint, String pathHash) {
 
         CSVReader reader;
         ItemsetDbAdapter ida = new ItemsetDbAdapter();
@@ -540,7 +569,8 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
         boolean withinTransaction = false;
 
         try {
-            reader = new CSVReader(new FileReader(csv));
+            DigestInputStream md5InputStream = Md5.getMd5InputStream(new FileInputStream(csv));
+            reader = new CSVReader(new InputStreamReader(md5InputStream));
 
             String[] nextLine;
             String[] columnHeaders = null;
@@ -550,7 +580,7 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
                 if (lineNumber == 1) {
                     // first line of csv is column headers
                     columnHeaders = nextLine;
-                    ida.createTable(formHash, pathHash, columnHeaders,
+                    ida.createTable(null, pathHash, columnHeaders,
                             csv.getAbsolutePath());
                     continue;
                 }
@@ -565,6 +595,9 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<String, String, Form
                 ida.addRow(pathHash, columnHeaders, nextLine);
 
             }
+
+            reader.close();
+            ida.updateHashAndFingerprint(csv.getAbsolutePath(), Md5.getMd5Hash(md5InputStream.getMessageDigest()), fingerprint);
         } catch (IOException | SQLException | CsvValidationException e) {
             warningMsg = e.getMessage();
         } finally {
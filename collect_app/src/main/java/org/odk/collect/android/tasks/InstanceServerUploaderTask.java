@@ -71,11 +71,23 @@ public class InstanceServerUploaderTask extends InstanceUploaderTask {
             }
             Instance instance = instancesToUpload.get(i);
 
-            publishProgress(i + 1, instancesToUpload.size());
+            int progress = i + 1;
+            publishProgress(progress, instancesToUpload.size());
 
             try {
                 String destinationUrl = uploader.getUrlToSubmitTo(instance, deviceId, completeDestinationUrl, null);
-                String customMessage = uploader.uploadOneSubmission(instance, destinationUrl);
+                String customMessage = uploader.uploadOneSubmission(instance, destinationUrl, new InstanceServerUploader.ProgressListener() {
+                    private int lastPercentSent = -1;
+
+                    @Override
+                    public void onProgress(long bytesSent, long totalBytes) {
+                        int percentSent = totalBytes > 0 ? (int) (bytesSent * 100 / totalBytes) : 100;
+                        if (percentSent != lastPercentSent) {
+                            lastPercentSent = percentSent;
+                            publishProgress(progress, instancesToUpload.size(), percentSent);
+                        }
+                    }
+                });
                 outcome.messagesByInstanceId.put(instance.getDbId().toString(),
                         customMessage != null ? customMessage : getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.success));
 
@@ -19,6 +19,8 @@ import static org.odk.collect.strings.localization.LocalizedApplicationKt.getLoc
 
 import android.content.ContentValues;
 import android.net.Uri;
+import android.system.ErrnoException;
+import android.system.Os;
 import android.util.Pair;
 
 import androidx.annotation.NonNull;
@@ -56,14 +58,15 @@ import org.odk.collect.android.utilities.FileUtils;
 import org.odk.collect.android.utilities.FormsRepositoryProvider;
 import org.odk.collect.android.utilities.MediaUtils;
 import org.odk.collect.entities.EntitiesRepository;
+import org.odk.collect.entities.Entity;
 import org.odk.collect.forms.Form;
 import org.odk.collect.forms.instances.Instance;
 import org.odk.collect.forms.instances.InstancesRepository;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
 import java.util.ArrayList;
 
 import timber.log.Timber;
@@ -76,6 +79,8 @@ import timber.log.Timber;
  */
 public class SaveFormToDisk {
 
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
     private final boolean saveAndExit;
     private final boolean shouldFinalize;
     private final FormController formController;
@@ -128,7 +133,7 @@ public class SaveFormToDisk {
 
         if (shouldFinalize) {
             formController.finalizeForm();
-            formController.getEntities().forEach(entitiesRepository::save);
+            entitiesRepository.save(formController.getEntities().toArray(Entity[]::new));
         }
 
         // close all open databases of external data.
@@ -323,6 +328,7 @@ public class SaveFormToDisk {
     public static void removeSavepointFiles(String instanceName) {
         File savepointFile = getSavepointFile(instanceName);
         File formIndexFile = getFormIndexFile(instanceName);
+        FileUtils.deleteAndReport(SavepointJournal.getJournalFile(savepointFile));
         FileUtils.deleteAndReport(savepointFile);
         FileUtils.deleteAndReport(formIndexFile);
     }
@@ -347,9 +353,9 @@ public class SaveFormToDisk {
 
         writeFile(payload, instancePath);
 
-        // Write last-saved instance
+        // Write last-saved instance. It has the same contents so there's no need to write it again
         String lastSavedPath = formController.getLastSavedPath();
-        writeFile(payload, lastSavedPath);
+        linkOrCopyFile(new File(instancePath), new File(lastSavedPath));
 
         // update the uri. We have exported the reloadable instance, so update status...
         // Since we saved a reloadable instance, it is flagged as re-openable so that if any error
@@ -370,17 +376,14 @@ public class SaveFormToDisk {
             File instanceXml = formController.getInstanceFile();
             File submissionXml = new File(instanceXml.getParentFile(), "submission.xml");
 
-            payload = formController.getSubmissionXml();
-
-            // write out submission.xml -- the data to actually submit to aggregate
-
             progressListener.onProgressUpdate(
                     getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.survey_saving_finalizing_message));
 
-            writeFile(payload, submissionXml.getAbsolutePath());
-
             // see if the form is encrypted and we can encrypt it...
             EncryptedFormInformation formInfo = EncryptionUtils.getEncryptedFormInformation(uri, formController.getSubmissionMetadata());
+
+            writeSubmissionXml(formController, submissionXml, canEditAfterCompleted, formInfo);
+
             if (formInfo != null) {
                 // if we are encrypting, the form cannot be reopened afterward
                 canEditAfterCompleted = false;
@@ -410,15 +413,6 @@ public class SaveFormToDisk {
 
             if (!canEditAfterCompleted) {
                 manageFilesAfterSavingEncryptedForm(instanceXml, submissionXml);
-            } else {
-                // try to delete the submissionXml file, since it is
-                // identical to the existing instanceXml file
-                // (we don't need to delete and rename anything).
-                if (!submissionXml.delete()) {
-                    String msg = "Error deleting " + submissionXml.getAbsolutePath()
-                            + " (instance is re-openable)";
-                    Timber.w(msg);
-                }
             }
 
             // if encrypted, delete all plaintext files
@@ -488,7 +482,23 @@ public class SaveFormToDisk {
     }
 
     /**
-     * Writes payload contents to the disk.
+     * Writes out submission.xml -- the data to actually submit to aggregate. If the entire form is
+     * submitted unencrypted the instanceXml that has just been written is what gets submitted so
+     * there's no need to build a submission.xml and any leftover one is deleted instead (it would
+     * be uploaded instead of the instanceXml).
+     */
+    static void writeSubmissionXml(FormController formController, File submissionXml, boolean canEditAfterCompleted,
+                                   @Nullable EncryptedFormInformation formInfo) throws IOException {
+        if (!canEditAfterCompleted || formInfo != null) {
+            writeFile(formController.getSubmissionXml(), submissionXml.getAbsolutePath());
+        } else if (submissionXml.exists() && !submissionXml.delete()) {
+            Timber.w("Error deleting %s (instance is re-openable)", submissionXml.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Writes payload contents to the disk. The contents are synced to the storage device once
+     * they have all been written.
      */
     static void writeFile(ByteArrayPayload payload, String path) throws IOException {
         File file = new File(path);
@@ -496,30 +506,57 @@ public class SaveFormToDisk {
             throw new IOException("Cannot overwrite " + path + ". Perhaps the file is locked?");
         }
 
-        // create data stream
-        InputStream is = payload.getPayloadStream();
-        int len = (int) payload.getLength();
-
-        // read from data stream
-        byte[] data = new byte[len];
-        int read = is.read(data, 0, len);
-        if (read > 0) {
-            // Make sure the directory path to this file exists.
-            file.getParentFile().mkdirs();
-            // write xml file
-            RandomAccessFile randomAccessFile = null;
-            try {
-                randomAccessFile = new RandomAccessFile(file, "rws");
-                randomAccessFile.write(data);
-            } finally {
-                if (randomAccessFile != null) {
-                    try {
-                        randomAccessFile.close();
-                    } catch (IOException e) {
-                        Timber.e(e, "Error closing RandomAccessFile: %s", path);
-                    }
-                }
+        if (payload.getLength() <= 0) {
+            return;
+        }
+
+        // Make sure the directory path to this file exists.
+        file.getParentFile().mkdirs();
+
+        // write xml file
+        try (InputStream is = payload.getPayloadStream(); FileOutputStream outputStream = new FileOutputStream(file)) {
+            byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
             }
+
+            outputStream.getFD().sync();
+        }
+    }
+
+    /**
+     * Makes target a hard link to source (so the contents are only stored once) or a copy of
+     * it if the file system doesn't support links. Files written by {@link #writeFile} are always
+     * replaced rather than changed in place so the two never affect each other.
+     */
+    static void linkOrCopyFile(File source, File target) throws IOException {
+        linkOrCopyFile(source, target, Os::link);
+    }
+
+    static void linkOrCopyFile(File source, File target, Linker linker) throws IOException {
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Cannot overwrite " + target + ". Perhaps the file is locked?");
+        }
+
+        if (!source.exists()) {
+            return;
+        }
+
+        target.getParentFile().mkdirs();
+
+        try {
+            linker.link(source.getAbsolutePath(), target.getAbsolutePath());
+        } catch (ErrnoException | RuntimeException e) {
+            Timber.d("Could not link %s to %s (%s). Copying instead.", target.getName(), source.getName(), e.getMessage());
         }
+
+        if (!target.exists()) {
+            org.apache.commons.io.FileUtils.copyFile(source, target);
+        }
+    }
+
+    interface Linker {
+        void link(String oldPath, String newPath) throws ErrnoException;
     }
 }
@@ -25,6 +25,7 @@ import org.odk.collect.android.javarosawrapper.FormController;
 import org.odk.collect.android.listeners.SavePointListener;
 
 import java.io.File;
+import java.util.Map;
 
 import timber.log.Timber;
 
@@ -60,6 +61,15 @@ public class SavePointTask extends AsyncTask<Void, Void, String> {
 
             try {
                 File temp = SaveFormToDisk.getSavepointFile(formController.getInstanceFile().getName());
+
+                // Only write the answers that have changed if there is already a savepoint
+                if (SavepointJournal.append(formController, temp)) {
+                    long end = System.currentTimeMillis();
+                    Timber.i("Savepoint journal ms: %s to %s", Long.toString(end - start), temp.toString());
+                    return null;
+                }
+
+                Map<String, String> values = SavepointJournal.readValues(formController);
                 ByteArrayPayload payload = formController.getFilledInFormXml();
 
                 if (priority < lastPriorityUsed) {
@@ -68,7 +78,7 @@ public class SavePointTask extends AsyncTask<Void, Void, String> {
                 }
 
                 // write out xml
-                SaveFormToDisk.writeFile(payload, temp.getAbsolutePath());
+                SavepointJournal.writeSavepoint(formController, values, payload, temp);
 
                 long end = System.currentTimeMillis();
                 Timber.i("Savepoint ms: %s to %s", Long.toString(end - start), temp.toString());
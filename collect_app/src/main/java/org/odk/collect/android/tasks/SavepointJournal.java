@@ -0,0 +1,394 @@
+package org.odk.collect.android.tasks;
+
+import androidx.annotation.Nullable;
+
+import org.javarosa.core.model.FormDef;
+import org.javarosa.core.model.data.IAnswerData;
+import org.javarosa.core.model.data.StringData;
+import org.javarosa.core.model.instance.TreeElement;
+import org.javarosa.core.model.instance.TreeReference;
+import org.javarosa.core.services.transport.payload.ByteArrayPayload;
+import org.javarosa.xform.util.XFormAnswerDataSerializer;
+import org.odk.collect.android.javarosawrapper.FormController;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.zip.CRC32;
+
+import timber.log.Timber;
+
+/**
+ * An append-only journal of changed answers that sits next to a savepoint. Writing the whole
+ * instance for every savepoint is slow for big forms, so once a full savepoint has been written
+ * only the values that have changed since are appended (and synced) to the journal. The journal
+ * is folded into a new full savepoint when the structure of the instance changes (a repeat is
+ * added or removed for example), when it has grown too long or when the values can't be
+ * represented as text.
+ *
+ * Values are recorded exactly as they are written to the savepoint XML so replaying the journal
+ * over the savepoint's data model before it is imported gives the same result as a full
+ * savepoint would have.
+ */
+final class SavepointJournal {
+
+    private static final int MAGIC = 0x534A524E; // "SJRN"
+    private static final int VERSION = 1;
+    private static final int MAX_RECORDS = 50;
+
+    private static final Map<FormController, State> STATES = new WeakHashMap<>();
+
+    private SavepointJournal() {
+    }
+
+    static File getJournalFile(File savepointFile) {
+        return new File(savepointFile.getPath() + ".journal");
+    }
+
+    /**
+     * Appends the answers that have changed since the last savepoint to the journal.
+     *
+     * @return false if a full savepoint needs to be written instead
+     */
+    static synchronized boolean append(FormController formController, File savepointFile) {
+        State state = STATES.get(formController);
+        if (state == null
+                || !state.savepointFile.equals(savepointFile)
+                || savepointFile.length() != state.savepointLength
+                || savepointFile.lastModified() != state.savepointLastModified
+                || state.records >= MAX_RECORDS) {
+            return false;
+        }
+
+        File journalFile = getJournalFile(savepointFile);
+        if (state.records > 0 && (!journalFile.exists() || journalFile.length() > state.savepointLength)) {
+            return false;
+        }
+
+        Map<String, String> values = readValues(formController.getFormDef());
+        if (values == null || !values.keySet().equals(state.values.keySet())) {
+            return false;
+        }
+
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String previous = state.values.get(entry.getKey());
+            if (!equals(previous, entry.getValue())) {
+                if (isAttribute(entry.getKey())) {
+                    return false;
+                }
+
+                changes.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (changes.isEmpty()) {
+            return true;
+        }
+
+        try {
+            writeRecord(journalFile, state, changes);
+        } catch (IOException e) {
+            Timber.w(e);
+            return false;
+        }
+
+        state.values = values;
+        state.records++;
+        return true;
+    }
+
+    /**
+     * Reads the answers to pass to {@link #writeSavepoint}. This needs to happen before the
+     * savepoint's payload is created: answers that change in between are then journaled by the
+     * next {@link #append} rather than being treated as already saved.
+     */
+    @Nullable
+    static Map<String, String> readValues(FormController formController) {
+        return readValues(formController.getFormDef());
+    }
+
+    /**
+     * Writes a full savepoint (removing any journal) so that later changes can be journaled.
+     *
+     * @param values the answers read with {@link #readValues(FormController)} before the payload
+     *               was created
+     */
+    static synchronized void writeSavepoint(FormController formController, @Nullable Map<String, String> values, ByteArrayPayload payload, File savepointFile) throws IOException {
+        // Remove the journal first so it can never be replayed over a newer savepoint
+        File journalFile = getJournalFile(savepointFile);
+        if (journalFile.exists() && !journalFile.delete()) {
+            STATES.remove(formController);
+            throw new IOException("Cannot delete " + journalFile);
+        }
+
+        SaveFormToDisk.writeFile(payload, savepointFile.getAbsolutePath());
+
+        if (values != null && savepointFile.exists()) {
+            STATES.put(formController, new State(savepointFile, values));
+        } else {
+            STATES.remove(formController);
+        }
+    }
+
+    /**
+     * Applies the journal for a savepoint to the data model read from that savepoint. Stops at
+     * the first record that is incomplete or damaged (the app was killed during a write for
+     * example) so the model ends up as it was at the last complete record.
+     */
+    static void replay(File savepointFile, TreeElement savedRoot) {
+        File journalFile = getJournalFile(savepointFile);
+        if (!journalFile.exists()) {
+            return;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION
+                    || input.readLong() != savepointFile.length()
+                    || input.readLong() != savepointFile.lastModified()) {
+                Timber.w("Ignoring journal %s as it's for a different savepoint", journalFile.getName());
+                return;
+            }
+
+            int applied = 0;
+            while (true) {
+                Map<String, String> changes = readRecord(input);
+                if (changes == null) {
+                    break;
+                }
+
+                // Find all the nodes first so that a record is applied completely or not at all
+                List<TreeElement> nodes = new ArrayList<>();
+                for (String path : changes.keySet()) {
+                    TreeElement node = findNode(savedRoot, path);
+                    if (node == null) {
+                        Timber.w("Stopping journal replay as %s is not in the savepoint", path);
+                        return;
+                    }
+
+                    nodes.add(node);
+                }
+
+                int i = 0;
+                for (String value : changes.values()) {
+                    // This is how values that have been read from XML look before they're imported
+                    nodes.get(i++).setValue(value != null ? new StringData(value) : null);
+                }
+
+                applied++;
+            }
+
+            Timber.i("Replayed %d journal records for %s", applied, savepointFile.getName());
+        } catch (IOException e) {
+            Timber.w(e, "Could not read journal %s", journalFile.getName());
+        }
+    }
+
+    private static void writeRecord(File journalFile, State state, Map<String, String> changes) throws IOException {
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        record.writeInt(changes.size());
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            record.writeUTF(change.getKey());
+            if (change.getValue() == null) {
+                record.writeInt(-1);
+            } else {
+                byte[] value = change.getValue().getBytes(StandardCharsets.UTF_8);
+                record.writeInt(value.length);
+                record.write(value);
+            }
+        }
+        record.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(recordBytes.toByteArray());
+
+        boolean isNew = state.records == 0;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(recordBytes.size() + 40);
+        DataOutputStream output = new DataOutputStream(bytes);
+        if (isNew) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(state.savepointLength);
+            output.writeLong(state.savepointLastModified);
+        }
+        output.writeInt(recordBytes.size());
+        recordBytes.writeTo(output);
+        output.writeLong(crc.getValue());
+        output.flush();
+
+        try (FileOutputStream fileOutputStream = new FileOutputStream(journalFile, !isNew)) {
+            bytes.writeTo(fileOutputStream);
+
+            // Only the data (and the file length) needs to be synced, not the rest of the metadata
+            fileOutputStream.getChannel().force(false);
+        }
+    }
+
+    @Nullable
+    private static Map<String, String> readRecord(DataInputStream input) throws IOException {
+        byte[] recordBytes;
+        long expectedCrc;
+        try {
+            int length = input.readInt();
+            if (length < 0) {
+                return null;
+            }
+
+            recordBytes = new byte[length];
+            input.readFully(recordBytes);
+            expectedCrc = input.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(recordBytes);
+        if (crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(recordBytes));
+        int count = record.readInt();
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = record.readUTF();
+            int length = record.readInt();
+            if (length < 0) {
+                changes.put(key, null);
+            } else {
+                byte[] value = new byte[length];
+                record.readFully(value);
+                changes.put(key, new String(value, StandardCharsets.UTF_8));
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * @return every node (and attribute) in the main instance with its value as it would be
+     * written to the savepoint XML or null if a value can't be represented as text
+     */
+    @Nullable
+    private static Map<String, String> readValues(@Nullable FormDef formDef) {
+        if (formDef == null || formDef.getMainInstance() == null) {
+            return null;
+        }
+
+        Map<String, String> values = new LinkedHashMap<>();
+        XFormAnswerDataSerializer serializer = new XFormAnswerDataSerializer();
+        if (!readValues(formDef.getMainInstance().getRoot(), "", serializer, values)) {
+            return null;
+        }
+
+        return values;
+    }
+
+    private static boolean readValues(TreeElement node, String parentPath, XFormAnswerDataSerializer serializer, Map<String, String> values) {
+        if (node.getMult() == TreeReference.INDEX_TEMPLATE) {
+            return true;
+        }
+
+        String path = parentPath + "/" + node.getName() + "[" + node.getMult() + "]";
+
+        String value = null;
+        IAnswerData answer = node.getValue();
+        if (answer != null) {
+            Object serialized = serializer.serializeAnswerData(answer, node.getDataType());
+            if (!(serialized instanceof String)) {
+                return false;
+            }
+
+            // Whitespace only text is read back as no value
+            value = ((String) serialized).trim().isEmpty() ? null : (String) serialized;
+        }
+        values.put(path, value);
+
+        for (int i = 0; i < node.getAttributeCount(); i++) {
+            values.put(path + "/@" + node.getAttributeName(i), node.getAttributeValue(i));
+        }
+
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            if (!readValues(node.getChildAt(i), path, serializer, values)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Nullable
+    private static TreeElement findNode(TreeElement root, String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+
+        if (segments.isEmpty() || !matches(root, segments.get(0))) {
+            return null;
+        }
+
+        TreeElement node = root;
+        for (String segment : segments.subList(1, segments.size())) {
+            int bracket = segment.lastIndexOf('[');
+            if (bracket < 0 || !segment.endsWith("]")) {
+                return null;
+            }
+
+            try {
+                node = node.getChild(segment.substring(0, bracket), Integer.parseInt(segment.substring(bracket + 1, segment.length() - 1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            if (node == null) {
+                return null;
+            }
+        }
+
+        return node;
+    }
+
+    private static boolean matches(TreeElement node, String segment) {
+        return segment.equals(node.getName() + "[" + node.getMult() + "]");
+    }
+
+    private static boolean isAttribute(String path) {
+        return path.contains("/@");
+    }
+
+    private static boolean equals(@Nullable String a, @Nullable String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static class State {
+        final File savepointFile;
+        final long savepointLength;
+        final long savepointLastModified;
+        Map<String, String> values;
+        int records;
+
+        State(File savepointFile, Map<String, String> values) {
+            this.savepointFile = savepointFile;
+            this.savepointLength = savepointFile.length();
+            this.savepointLastModified = savepointFile.lastModified();
+            this.values = values;
+        }
+    }
+}
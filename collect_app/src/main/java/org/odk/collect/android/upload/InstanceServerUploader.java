@@ -17,6 +17,7 @@ package org.odk.collect.android.upload;
 import android.net.Uri;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import org.odk.collect.android.application.Collect;
 import org.odk.collect.android.openrosa.CaseInsensitiveHeaders;
@@ -24,6 +25,7 @@ import org.odk.collect.android.openrosa.HttpHeadResult;
 import org.odk.collect.android.openrosa.HttpPostResult;
 import org.odk.collect.android.openrosa.OpenRosaConstants;
 import org.odk.collect.android.openrosa.OpenRosaHttpInterface;
+import org.odk.collect.android.openrosa.SubmissionUploadListener;
 import org.odk.collect.android.utilities.ResponseMessageParser;
 import org.odk.collect.android.utilities.WebCredentialsUtils;
 import org.odk.collect.forms.instances.Instance;
@@ -36,9 +38,9 @@ import java.net.URI;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.net.ssl.HttpsURLConnection;
 
@@ -48,11 +50,13 @@ import static org.odk.collect.strings.localization.LocalizedApplicationKt.getLoc
 
 public class InstanceServerUploader extends InstanceUploader {
     private static final String URL_PATH_SEP = "/";
+    private static final long DEFAULT_CONTENT_LENGTH = 10000000L;
 
     private final OpenRosaHttpInterface httpInterface;
     private final WebCredentialsUtils webCredentialsUtils;
     private final Settings generalSettings;
-    private final Map<Uri, Uri> uriRemap = new HashMap<>();
+    private final Map<Uri, SubmissionEndpoint> submissionEndpoints = new ConcurrentHashMap<>();
+    private final Map<Uri, Object> headRequestLocks = new ConcurrentHashMap<>();
 
     public InstanceServerUploader(OpenRosaHttpInterface httpInterface,
                                   WebCredentialsUtils webCredentialsUtils,
@@ -70,95 +74,26 @@ public class InstanceServerUploader extends InstanceUploader {
      */
     @Override
     public String uploadOneSubmission(Instance instance, String urlString) throws FormUploadException {
-        Uri submissionUri = Uri.parse(urlString);
+        return uploadOneSubmission(instance, urlString, null);
+    }
 
-        long contentLength = 10000000L;
+    /**
+     * Uploads all files associated with an instance to the specified URL, reporting progress to
+     * {@code progressListener}. Attachments accepted by the server in an earlier failed attempt
+     * are not sent again.
+     *
+     * @see #uploadOneSubmission(Instance, String)
+     */
+    public String uploadOneSubmission(Instance instance, String urlString, @Nullable ProgressListener progressListener) throws FormUploadException {
+        Uri submissionUri = Uri.parse(urlString);
 
-        // We already issued a head request and got a response, so we know it was an
-        // OpenRosa-compliant server. We also know the proper URL to send the submission to and
-        // the proper scheme.
-        if (uriRemap.containsKey(submissionUri)) {
-            submissionUri = uriRemap.get(submissionUri);
+        SubmissionEndpoint endpoint = getSubmissionEndpoint(instance, submissionUri, urlString);
+        if (!endpoint.uri.equals(submissionUri)) {
             Timber.i("Using Uri remap for submission %s. Now: %s", instance.getDbId(),
-                    submissionUri.toString());
-        } else {
-            if (submissionUri.getHost() == null) {
-                markSubmissionFailed(instance);
-                throw new FormUploadException(FAIL + "Host name may not be null");
-            }
-
-            URI uri;
-            try {
-                uri = URI.create(submissionUri.toString());
-            } catch (IllegalArgumentException e) {
-                markSubmissionFailed(instance);
-                Timber.d(e.getMessage() != null ? e.getMessage() : e.toString());
-                throw new FormUploadException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.url_error));
-            }
-
-            HttpHeadResult headResult;
-            CaseInsensitiveHeaders responseHeaders;
-            try {
-                headResult = httpInterface.executeHeadRequest(uri, webCredentialsUtils.getCredentials(uri));
-                responseHeaders = headResult.getHeaders();
-
-                if (responseHeaders.containsHeader(OpenRosaConstants.ACCEPT_CONTENT_LENGTH_HEADER)) {
-                    String contentLengthString = responseHeaders.getAnyValue(OpenRosaConstants.ACCEPT_CONTENT_LENGTH_HEADER);
-                    try {
-                        contentLength = Long.parseLong(contentLengthString);
-                    } catch (Exception e) {
-                        Timber.e(e, "Exception thrown parsing contentLength %s", contentLengthString);
-                    }
-                }
-
-            } catch (Exception e) {
-                markSubmissionFailed(instance);
-                throw new FormUploadException(FAIL
-                        + (e.getMessage() != null ? e.getMessage() : e.toString()));
-            }
-
-            if (headResult.getStatusCode() == HttpsURLConnection.HTTP_UNAUTHORIZED) {
-                markSubmissionFailed(instance);
-                throw new FormUploadAuthRequestedException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.server_auth_credentials, submissionUri.getHost()),
-                        submissionUri);
-            } else if (headResult.getStatusCode() == HttpsURLConnection.HTTP_NO_CONTENT) {
-                // Redirect header received
-                if (responseHeaders.containsHeader("Location")) {
-                    try {
-                        Uri newURI = Uri.parse(URLDecoder.decode(responseHeaders.getAnyValue("Location"), "utf-8"));
-                        // Allow redirects within same host. This could be redirecting to HTTPS.
-                        if (submissionUri.getHost().equalsIgnoreCase(newURI.getHost())) {
-                            // Re-add params if server didn't respond with params
-                            if (newURI.getQuery() == null) {
-                                newURI = newURI.buildUpon()
-                                        .encodedQuery(submissionUri.getEncodedQuery())
-                                        .build();
-                            }
-                            uriRemap.put(submissionUri, newURI);
-                            submissionUri = newURI;
-                        } else {
-                            // Don't follow a redirection attempt to a different host.
-                            // We can't tell if this is a spoof or not.
-                            markSubmissionFailed(instance);
-                            throw new FormUploadException(FAIL
-                                    + "Unexpected redirection attempt to a different host: "
-                                    + newURI.toString());
-                        }
-                    } catch (Exception e) {
-                        markSubmissionFailed(instance);
-                        throw new FormUploadException(FAIL + urlString + " " + e.toString());
-                    }
-                }
-            } else {
-                if (headResult.getStatusCode() >= HttpsURLConnection.HTTP_OK
-                        && headResult.getStatusCode() < HttpsURLConnection.HTTP_MULT_CHOICE) {
-                    markSubmissionFailed(instance);
-                    throw new FormUploadException("Failed to send to " + uri + ". Is this an OpenRosa " +
-                            "submission endpoint? If you have a web proxy you may need to log in to " +
-                            "your network.\n\nHEAD request result status code: " + headResult.getStatusCode());
-                }
-            }
+                    endpoint.uri.toString());
+            submissionUri = endpoint.uri;
         }
+        long contentLength = endpoint.contentLength;
 
         // When encrypting submissions, there is a failure window that may mark the submission as
         // complete but leave the file-to-be-uploaded with the name "submission.xml" and the plaintext
@@ -187,12 +122,30 @@ public class InstanceServerUploader extends InstanceUploader {
 
         HttpPostResult postResult;
         ResponseMessageParser messageParser = new ResponseMessageParser();
+        UploadedAttachments uploadedAttachments = new UploadedAttachments(submissionFile, submissionUri.toString());
 
         try {
             URI uri = URI.create(submissionUri.toString());
 
-            postResult = httpInterface.uploadSubmissionAndFiles(submissionFile, files, uri,
-                    webCredentialsUtils.getCredentials(uri), contentLength);
+            List<File> remainingFiles = uploadedAttachments.getRemaining(files);
+            if (remainingFiles.size() < files.size()) {
+                Timber.i("Skipping %d attachments that have already been uploaded", files.size() - remainingFiles.size());
+            }
+
+            postResult = httpInterface.uploadSubmissionAndFiles(submissionFile, remainingFiles, uri,
+                    webCredentialsUtils.getCredentials(uri), contentLength, new SubmissionUploadListener() {
+                        @Override
+                        public void onProgress(long bytesSent, long totalBytes) {
+                            if (progressListener != null) {
+                                progressListener.onProgress(bytesSent, totalBytes);
+                            }
+                        }
+
+                        @Override
+                        public void onFilesUploaded(@NonNull List<File> uploadedFiles) {
+                            uploadedAttachments.add(uploadedFiles);
+                        }
+                    });
 
             int responseCode = postResult.getResponseCode();
             messageParser.setMessageResponse(postResult.getHttpResponse());
@@ -225,6 +178,7 @@ public class InstanceServerUploader extends InstanceUploader {
                     + (e.getMessage() != null ? e.getMessage() : e.toString()));
         }
 
+        uploadedAttachments.clear();
         markSubmissionComplete(instance);
 
         if (messageParser.isValid()) {
@@ -234,6 +188,114 @@ public class InstanceServerUploader extends InstanceUploader {
         return null;
     }
 
+    /**
+     * Returns where (and how much) to send for submissions to {@code submissionUri}. This is found
+     * out with a HEAD request the first time and then cached for the lifetime of the uploader so
+     * later (and concurrent) uploads to the same URL don't need their own. Only one HEAD request is
+     * made for a URL at a time. Failed requests aren't cached, but a request for credentials is so
+     * that the rest of the uploads to that URL fail straight away.
+     */
+    private SubmissionEndpoint getSubmissionEndpoint(Instance instance, Uri submissionUri, String urlString) throws FormUploadException {
+        SubmissionEndpoint endpoint = submissionEndpoints.get(submissionUri);
+        if (endpoint == null) {
+            synchronized (headRequestLocks.computeIfAbsent(submissionUri, uri -> new Object())) {
+                endpoint = submissionEndpoints.get(submissionUri);
+                if (endpoint == null) {
+                    endpoint = executeHeadRequest(instance, submissionUri, urlString);
+                    submissionEndpoints.put(submissionUri, endpoint);
+                }
+            }
+        }
+
+        if (endpoint.authRequested) {
+            markSubmissionFailed(instance);
+            throw new FormUploadAuthRequestedException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.server_auth_credentials, submissionUri.getHost()),
+                    submissionUri);
+        }
+
+        return endpoint;
+    }
+
+    private SubmissionEndpoint executeHeadRequest(Instance instance, Uri submissionUri, String urlString) throws FormUploadException {
+        long contentLength = DEFAULT_CONTENT_LENGTH;
+
+        if (submissionUri.getHost() == null) {
+            markSubmissionFailed(instance);
+            throw new FormUploadException(FAIL + "Host name may not be null");
+        }
+
+        URI uri;
+        try {
+            uri = URI.create(submissionUri.toString());
+        } catch (IllegalArgumentException e) {
+            markSubmissionFailed(instance);
+            Timber.d(e.getMessage() != null ? e.getMessage() : e.toString());
+            throw new FormUploadException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.url_error));
+        }
+
+        HttpHeadResult headResult;
+        CaseInsensitiveHeaders responseHeaders;
+        try {
+            headResult = httpInterface.executeHeadRequest(uri, webCredentialsUtils.getCredentials(uri));
+            responseHeaders = headResult.getHeaders();
+
+            if (responseHeaders.containsHeader(OpenRosaConstants.ACCEPT_CONTENT_LENGTH_HEADER)) {
+                String contentLengthString = responseHeaders.getAnyValue(OpenRosaConstants.ACCEPT_CONTENT_LENGTH_HEADER);
+                try {
+                    contentLength = Long.parseLong(contentLengthString);
+                } catch (Exception e) {
+                    Timber.e(e, "Exception thrown parsing contentLength %s", contentLengthString);
+                }
+            }
+
+        } catch (Exception e) {
+            markSubmissionFailed(instance);
+            throw new FormUploadException(FAIL
+                    + (e.getMessage() != null ? e.getMessage() : e.toString()));
+        }
+
+        if (headResult.getStatusCode() == HttpsURLConnection.HTTP_UNAUTHORIZED) {
+            return new SubmissionEndpoint(submissionUri, contentLength, true);
+        } else if (headResult.getStatusCode() == HttpsURLConnection.HTTP_NO_CONTENT) {
+            // Redirect header received
+            if (responseHeaders.containsHeader("Location")) {
+                try {
+                    Uri newURI = Uri.parse(URLDecoder.decode(responseHeaders.getAnyValue("Location"), "utf-8"));
+                    // Allow redirects within same host. This could be redirecting to HTTPS.
+                    if (submissionUri.getHost().equalsIgnoreCase(newURI.getHost())) {
+                        // Re-add params if server didn't respond with params
+                        if (newURI.getQuery() == null) {
+                            newURI = newURI.buildUpon()
+                                    .encodedQuery(submissionUri.getEncodedQuery())
+                                    .build();
+                        }
+                        return new SubmissionEndpoint(newURI, contentLength, false);
+                    } else {
+                        // Don't follow a redirection attempt to a different host.
+                        // We can't tell if this is a spoof or not.
+                        markSubmissionFailed(instance);
+                        throw new FormUploadException(FAIL
+                                + "Unexpected redirection attempt to a different host: "
+                                + newURI.toString());
+                    }
+                } catch (Exception e) {
+                    markSubmissionFailed(instance);
+                    throw new FormUploadException(FAIL + urlString + " " + e.toString());
+                }
+            }
+        } else {
+            if (headResult.getStatusCode() >= HttpsURLConnection.HTTP_OK
+                    && headResult.getStatusCode() < HttpsURLConnection.HTTP_MULT_CHOICE) {
+                markSubmissionFailed(instance);
+                throw new FormUploadException("Failed to send to " + uri + ". Is this an OpenRosa " +
+                        "submission endpoint? If you have a web proxy you may need to log in to " +
+                        "your network.\n\nHEAD request result status code: " + headResult.getStatusCode());
+            }
+        }
+
+        return new SubmissionEndpoint(submissionUri, contentLength, false);
+    }
+
     private List<File> getFilesInParentDirectory(File instanceFile, File submissionFile) {
         List<File> files = new ArrayList<>();
 
@@ -301,4 +363,20 @@ public class InstanceServerUploader extends InstanceUploader {
 
         return serverBase + OpenRosaConstants.SUBMISSION;
     }
+
+    public interface ProgressListener {
+        void onProgress(long bytesSent, long totalBytes);
+    }
+
+    private static class SubmissionEndpoint {
+        final Uri uri;
+        final long contentLength;
+        final boolean authRequested;
+
+        SubmissionEndpoint(Uri uri, long contentLength, boolean authRequested) {
+            this.uri = uri;
+            this.contentLength = contentLength;
+            this.authRequested = authRequested;
+        }
+    }
 }
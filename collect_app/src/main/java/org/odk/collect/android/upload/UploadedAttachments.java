@@ -0,0 +1,97 @@
+package org.odk.collect.android.upload;
+
+import androidx.annotation.NonNull;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * Records which of an instance's attachments a server has accepted as part of a submission that
+ * was split into several requests so that they aren't sent again if the submission needs to be
+ * retried. The record is kept in a hidden file in the instance's directory (which means it isn't
+ * uploaded itself) and is ignored if the submission file or the server has changed since it was
+ * written.
+ */
+class UploadedAttachments {
+
+    static final String FILE_NAME = ".uploaded-attachments";
+
+    private final File recordFile;
+    private final String submissionKey;
+    private final Set<String> uploaded = new HashSet<>();
+
+    UploadedAttachments(File submissionFile, String url) {
+        this.recordFile = new File(submissionFile.getParentFile(), FILE_NAME);
+        this.submissionKey = url + "\t" + getKey(submissionFile);
+
+        read();
+    }
+
+    /**
+     * @return the files in {@code files} that haven't been uploaded yet
+     */
+    List<File> getRemaining(List<File> files) {
+        List<File> remaining = new ArrayList<>();
+        for (File file : files) {
+            if (!uploaded.contains(getKey(file))) {
+                remaining.add(file);
+            }
+        }
+
+        return remaining;
+    }
+
+    synchronized void add(List<File> files) {
+        for (File file : files) {
+            uploaded.add(getKey(file));
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(submissionKey);
+        lines.addAll(uploaded);
+
+        try {
+            FileUtils.writeLines(recordFile, StandardCharsets.UTF_8.name(), lines);
+        } catch (IOException e) {
+            // Without the record the attachments will just be sent again
+            Timber.w(e);
+        }
+    }
+
+    void clear() {
+        uploaded.clear();
+        org.odk.collect.android.utilities.FileUtils.deleteAndReport(recordFile);
+    }
+
+    private void read() {
+        if (!recordFile.exists()) {
+            return;
+        }
+
+        try {
+            List<String> lines = FileUtils.readLines(recordFile, StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && lines.get(0).equals(submissionKey)) {
+                uploaded.addAll(lines.subList(1, lines.size()));
+            }
+        } catch (IOException e) {
+            Timber.w(e);
+        }
+    }
+
+    /**
+     * Identifies a version of a file without reading it.
+     */
+    @NonNull
+    private static String getKey(File file) {
+        return file.getName() + "\t" + file.length() + "\t" + file.lastModified();
+    }
+}
@@ -19,6 +19,8 @@ import android.util.Base64;
 
 import androidx.annotation.Nullable;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+
 import org.apache.commons.io.IOUtils;
 import org.kxml2.io.KXmlSerializer;
 import org.kxml2.kdom.Document;
@@ -33,15 +35,14 @@ import org.odk.collect.forms.Form;
 import org.odk.collect.forms.instances.Instance;
 import org.odk.collect.shared.strings.Md5;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStreamWriter;
-import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
+import java.security.DigestInputStream;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
@@ -54,10 +55,15 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.IvParameterSpec;
@@ -100,6 +106,22 @@ public class EncryptionUtils {
             "base64EncryptedElementSignature";
     private static final String NEW_LINE = "\n";
     private static final String ENCRYPTION_PROVIDER = "BC";
+    private static final int ENCRYPTION_BUFFER_SIZE = 64 * 1024;
+    private static final int ENCRYPTION_THREADS = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+
+    // Each file has its own cipher so attachments can be encrypted at the same time
+    private static final ThreadPoolExecutor ENCRYPTION_EXECUTOR = new ThreadPoolExecutor(
+            ENCRYPTION_THREADS, ENCRYPTION_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "EncryptionUtils");
+                thread.setDaemon(true);
+                return thread;
+            }
+    );
+
+    static {
+        ENCRYPTION_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
 
     private EncryptionUtils() {
     }
@@ -176,8 +198,7 @@ public class EncryptionUtils {
             elementSignatureSource.append(value).append('\n');
         }
 
-        public void appendFileSignatureSource(File file) {
-            String md5Hash = Md5.getMd5Hash(file);
+        public void appendFileSignatureSource(File file, String md5Hash) {
             appendElementSignatureSource(file.getName() + "::" + md5Hash);
         }
 
@@ -348,55 +369,114 @@ public class EncryptionUtils {
         return new EncryptedFormInformation(formId, formVersion, instanceMetadata, pk);
     }
 
-    private static void encryptFile(File file, EncryptedFormInformation formInfo)
-            throws IOException, EncryptionException {
-        File encryptedFile = new File(file.getParentFile(), file.getName()
-                + ".enc");
+    /**
+     * Encrypts a file to {@code <name>.enc} next to it. The file is streamed through the cipher
+     * straight to disk so only the buffers are ever held in memory however big the file is.
+     *
+     * @return the MD5 hash of the unencrypted file which is calculated as it's read
+     */
+    static String encryptFile(File file, Cipher cipher) throws IOException, EncryptionException {
+        File encryptedFile = getEncryptedFile(file);
 
         if (encryptedFile.exists() && !encryptedFile.delete()) {
             throw new IOException("Cannot overwrite " + encryptedFile.getAbsolutePath()
                     + ". Perhaps the file is locked?");
         }
 
-        // add elementSignatureSource for this file...
-        formInfo.appendFileSignatureSource(file);
-
-        RandomAccessFile randomAccessFile = null;
-        CipherOutputStream cipherOutputStream = null;
-        try {
-            Cipher c = formInfo.getCipher();
-
-            randomAccessFile = new RandomAccessFile(encryptedFile, "rws");
-            ByteArrayOutputStream encryptedData = new ByteArrayOutputStream();
-            cipherOutputStream = new CipherOutputStream(encryptedData, c);
-            InputStream fin = new FileInputStream(file);
-            byte[] buffer = new byte[2048];
+        try (DigestInputStream fin = Md5.getMd5InputStream(new FileInputStream(file));
+             FileOutputStream fout = new FileOutputStream(encryptedFile)) {
+            byte[] buffer = new byte[ENCRYPTION_BUFFER_SIZE];
+            byte[] encrypted = new byte[cipher.getOutputSize(ENCRYPTION_BUFFER_SIZE)];
             int len = fin.read(buffer);
             while (len != -1) {
-                cipherOutputStream.write(buffer, 0, len);
+                fout.write(encrypted, 0, cipher.update(buffer, 0, len, encrypted));
                 len = fin.read(buffer);
             }
-            fin.close();
-            cipherOutputStream.flush();
-            cipherOutputStream.close();
-
-            randomAccessFile.write(encryptedData.toByteArray());
+            fout.write(cipher.doFinal());
+            fout.getFD().sync();
 
             Timber.i("Encrpyted:%s -> %s", file.getName(), encryptedFile.getName());
+            return Md5.getMd5Hash(fin.getMessageDigest());
         } catch (Exception e) {
+            encryptedFile.delete();
+
             String msg = "Error encrypting: " + file.getName() + " -> "
                     + encryptedFile.getName();
             Timber.e(e, "%s due to %s ", msg, e.getMessage());
             throw new EncryptionException(msg, e);
+        }
+    }
+
+    /**
+     * Encrypts files in parallel with the cipher at the same position in {@code ciphers}. If any
+     * of them fail, none of the encrypted files are left behind.
+     *
+     * @return the MD5 hashes of the unencrypted files in the same order as {@code files}
+     */
+    static List<String> encryptFiles(List<File> files, List<Cipher> ciphers) throws IOException, EncryptionException {
+        List<String> md5Hashes = new ArrayList<>();
+        if (files.size() == 1) {
+            md5Hashes.add(encryptFile(files.get(0), ciphers.get(0)));
+            return md5Hashes;
+        }
+
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            Cipher cipher = ciphers.get(i);
+            futures.add(ENCRYPTION_EXECUTOR.submit(() -> failed.get() ? null : encryptFile(file, cipher)));
+        }
+
+        try {
+            for (Future<String> future : futures) {
+                md5Hashes.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EncryptionException) {
+                throw (EncryptionException) e.getCause();
+            } else if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else {
+                throw new EncryptionException("Error encrypting submission", e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncryptionException("Interrupted encrypting submission", e);
         } finally {
-            IOUtils.closeQuietly(cipherOutputStream);
+            if (md5Hashes.size() < futures.size()) {
+                failed.set(true);
+                deleteEncryptedFiles(files, futures);
+            }
+        }
 
-            if (randomAccessFile != null) {
-                randomAccessFile.close();
+        return md5Hashes;
+    }
+
+    /**
+     * Waits for encryptions that have already started to finish (ones that haven't started yet
+     * are skipped) and deletes the files written by the ones that succeeded. Ones that failed
+     * have already deleted their own files.
+     */
+    private static void deleteEncryptedFiles(List<File> files, List<Future<String>> futures) {
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                if (Uninterruptibles.getUninterruptibly(futures.get(i)) != null) {
+                    File encryptedFile = getEncryptedFile(files.get(i));
+                    if (!encryptedFile.delete()) {
+                        Timber.w("Error deleting %s", encryptedFile.getAbsolutePath());
+                    }
+                }
+            } catch (ExecutionException e) {
+                // Nothing to delete
             }
         }
     }
 
+    private static File getEncryptedFile(File file) {
+        return new File(file.getParentFile(), file.getName() + ".enc");
+    }
+
     public static boolean deletePlaintextFiles(File instanceXml, @Nullable File lastSaved) {
         // NOTE: assume the directory containing the instanceXml contains ONLY
         // files related to this one instance.
@@ -459,13 +539,29 @@ public class EncryptionUtils {
                 filesToProcess.add(f);
             }
         }
-        // encrypt here...
-        for (File f : filesToProcess) {
-            encryptFile(f, formInfo);
+        // the submission.xml is the last file...
+        List<File> filesToEncrypt = new ArrayList<>(filesToProcess);
+        filesToEncrypt.add(submissionXml);
+
+        // ciphers (and so IVs) are assigned in file order before encrypting in parallel
+        List<Cipher> ciphers = new ArrayList<>();
+        try {
+            for (int i = 0; i < filesToEncrypt.size(); i++) {
+                ciphers.add(formInfo.getCipher());
+            }
+        } catch (GeneralSecurityException e) {
+            String msg = "Error creating cipher for: " + instanceDir.getName();
+            Timber.e(e, "%s due to %s ", msg, e.getMessage());
+            throw new EncryptionException(msg, e);
         }
 
-        // encrypt the submission.xml as the last file...
-        encryptFile(submissionXml, formInfo);
+        // encrypt here...
+        List<String> md5Hashes = encryptFiles(filesToEncrypt, ciphers);
+
+        // add elementSignatureSource for each file in the same order...
+        for (int i = 0; i < filesToEncrypt.size(); i++) {
+            formInfo.appendFileSignatureSource(filesToEncrypt.get(i), md5Hashes.get(i));
+        }
 
         return filesToProcess;
     }
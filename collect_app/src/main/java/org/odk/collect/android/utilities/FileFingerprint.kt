@@ -0,0 +1,46 @@
+package org.odk.collect.android.utilities
+
+import android.system.ErrnoException
+import android.system.Os
+import org.odk.collect.shared.files.FileStats
+import java.io.File
+
+/**
+ * A cheap (`stat` based) way of telling whether a file has changed since it was last seen
+ * without having to read it. If a file still matches its fingerprint we assume its contents
+ * (and so its hash) are unchanged. The inode catches files that are replaced (by a move for
+ * instance) with one of the same size and modification time.
+ */
+data class FileFingerprint(val size: Long, val lastModified: Long, val inode: Long) {
+
+    fun matches(file: File): Boolean {
+        return FileStats.canRecord(file.lastModified()) &&
+            FileStats.isUnchanged(file, size, lastModified) &&
+            getInode(file) == inode
+    }
+
+    companion object {
+
+        /**
+         * @return the file's fingerprint or null if it can't be read or the file was modified too
+         * recently for its modification time to be relied on (see [FileStats.canRecord])
+         */
+        @JvmStatic
+        fun of(file: File): FileFingerprint? {
+            val lastModified = file.lastModified()
+            if (!FileStats.canRecord(lastModified)) {
+                return null
+            }
+
+            return getInode(file)?.let { FileFingerprint(file.length(), lastModified, it) }
+        }
+
+        private fun getInode(file: File): Long? {
+            return try {
+                Os.stat(file.absolutePath).st_ino
+            } catch (e: ErrnoException) {
+                null
+            }
+        }
+    }
+}
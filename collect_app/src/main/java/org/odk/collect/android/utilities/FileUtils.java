@@ -168,8 +168,24 @@ public final class FileUtils {
      * by the specification and will always be included. Title and version are optionally included.
      * If the form definition contains a submission block, any or all of submission URI, base 64 RSA
      * public key, auto-delete and auto-send may be included.
+     *
+     * The metadata is read by streaming through the file with {@link FormMetadataReader} and
+     * the form is only fully parsed if that isn't possible.
      */
     public static HashMap<String, String> getMetadataFromFormDefinition(File formDefinitionXml) throws XFormParser.ParseException {
+        HashMap<String, String> fields = FormMetadataReader.read(formDefinitionXml);
+        if (fields != null) {
+            return fields;
+        } else {
+            return parseMetadataFromFormDefinition(formDefinitionXml);
+        }
+    }
+
+    /**
+     * Reads the metadata described in {@link #getMetadataFromFormDefinition(File)} from a
+     * {@link FormDef} built from the form definition.
+     */
+    static HashMap<String, String> parseMetadataFromFormDefinition(File formDefinitionXml) throws XFormParser.ParseException {
         FormDef formDef = XFormUtils.getFormFromFormXml(formDefinitionXml.getAbsolutePath(), "jr://file/" + LAST_SAVED_FILENAME);
 
         final HashMap<String, String> fields = new HashMap<>();
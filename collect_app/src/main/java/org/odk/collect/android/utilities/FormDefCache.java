@@ -1,23 +1,49 @@
 package org.odk.collect.android.utilities;
 
+import androidx.annotation.Nullable;
+
 import org.javarosa.core.model.FormDef;
 import org.javarosa.core.util.externalizable.ExtUtil;
+import org.odk.collect.android.BuildConfig;
 import org.odk.collect.android.storage.StoragePathProvider;
 import org.odk.collect.android.storage.StorageSubdirectory;
+import org.odk.collect.forms.Form;
+import org.odk.collect.shared.files.FileStats;
 import org.odk.collect.shared.strings.Md5;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import timber.log.Timber;
 
 /** Methods for reading from and writing to the FormDef cache */
 public final class FormDefCache {
 
+    private static final int MAGIC = 0x46444546; // "FDEF"
+
+    /**
+     * Bump this when the layout of cache files changes. Cache files are also tied to the app
+     * version as JavaRosa's serialization can change between releases.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int COMPRESSION_NONE = 0;
+    private static final int COMPRESSION_DEFLATE = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private FormDefCache() {
         // Private constructor
     }
@@ -31,18 +57,32 @@ public final class FormDefCache {
      * @param formPath - The form XML file
      */
     public static void writeCache(FormDef formDef, String formPath) throws IOException {
+        writeCache(formDef, new File(formPath), null);
+    }
+
+    /**
+     * Like {@link #writeCache(FormDef, String)} but uses the hash stored for the form (if it is
+     * still valid for the file) rather than hashing the whole file again.
+     */
+    public static void writeCache(FormDef formDef, File formXml, @Nullable Form form) throws IOException {
+        writeCache(formDef, formXml, form, getCacheDir());
+    }
+
+    /**
+     * Like {@link #writeCache(FormDef, File, Form)} but writes to the cache in {@code cacheDir}
+     * rather than the current project's.
+     */
+    public static void writeCache(FormDef formDef, File formXml, @Nullable Form form, File cacheDir) throws IOException {
         final long formSaveStart = System.currentTimeMillis();
-        File cachedFormDefFile = FormDefCache.getCacheFile(new File(formPath));
-        final File tempCacheFile = File.createTempFile("cache", null,
-                new File(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.CACHE)));
+        String formHash = getFormHash(formXml, form);
+        File cachedFormDefFile = getCacheFile(formHash, cacheDir);
+        final File tempCacheFile = File.createTempFile("cache", null, cacheDir);
         Timber.i("Started saving %s to the cache via temp file %s",
                 formDef.getTitle(), tempCacheFile.getName());
 
         Exception caughtException = null;
         try {
-            DataOutputStream dos = new DataOutputStream(new FileOutputStream(tempCacheFile));
-            formDef.writeExternal(dos);
-            dos.close();
+            serializeFormDef(formDef, formHash, tempCacheFile, true);
         } catch (IOException exception) {
             caughtException = exception;
         }
@@ -78,16 +118,30 @@ public final class FormDefCache {
      * @return a FormDef, or null if the form is not present in the cache
      */
     public static FormDef readCache(File formXml) {
-        final File cachedForm = getCacheFile(formXml);
+        return readCache(formXml, null);
+    }
+
+    /**
+     * Like {@link #readCache(File)} but uses the hash stored for the form (if it is still valid
+     * for the file) rather than hashing the whole file again.
+     *
+     * @param form the form's record from the repository (if there is one)
+     */
+    public static FormDef readCache(File formXml, @Nullable Form form) {
+        final String formHash = getFormHash(formXml, form);
+        final File cachedForm = getCacheFile(formHash, getCacheDir());
         if (cachedForm.exists()) {
             Timber.i("Attempting to load %s from cached file: %s.", formXml.getName(), cachedForm.getName());
             final long start = System.currentTimeMillis();
 
             try {
-                final FormDef deserializedFormDef = deserializeFormDef(cachedForm);
+                final FormDef deserializedFormDef = deserializeFormDef(cachedForm, formHash);
                 if (deserializedFormDef != null) {
                     Timber.i("Loaded in %.3f seconds.", (System.currentTimeMillis() - start) / 1000F);
                     return deserializedFormDef;
+                } else {
+                    Timber.i("Cache file %s is stale or incompatible. Deleting it.", cachedForm.getName());
+                    cachedForm.delete();
                 }
             } catch (Exception e) {
                 // New .formdef will be created from XML
@@ -99,23 +153,128 @@ public final class FormDefCache {
         return null;
     }
 
+    /**
+     * @return true if there is a cached version of the form
+     */
+    public static boolean isCached(File formXml) {
+        return isCached(formXml, getCacheDir());
+    }
+
+    /**
+     * @return true if there is a cached version of the form in {@code cacheDir}
+     */
+    public static boolean isCached(File formXml, File cacheDir) {
+        return getCacheFile(getFormHash(formXml, null), cacheDir).exists();
+    }
+
+    /**
+     * The stored hash can only be trusted if the file's size and modification time still match
+     * the ones recorded with it. Otherwise the file has to be hashed.
+     */
+    private static String getFormHash(File formXml, @Nullable Form form) {
+        if (form != null && form.getMD5Hash() != null
+                && FileStats.isUnchanged(formXml, form.getFileSize(), form.getFileLastModified())) {
+            return form.getMD5Hash();
+        } else {
+            return Md5.getMd5Hash(formXml);
+        }
+    }
+
+    private static File getCacheDir() {
+        return new File(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.CACHE));
+    }
+
     /**
      * Builds and returns a File object for the cached version of a form.
-     * @param formXml the File containing the XML form
+     * @param formHash the MD5 hash of the XML form
+     * @param cacheDir the cache directory of the form's project
      * @return a File object
      */
-    private static File getCacheFile(File formXml) {
-        return new File(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.CACHE) + File.separator +
-                Md5.getMd5Hash(formXml) + ".formdef");
+    private static File getCacheFile(String formHash, File cacheDir) {
+        return new File(cacheDir, formHash + ".formdef");
+    }
+
+    /**
+     * Writes a header followed by the serialized FormDef. The FormDef is written through a buffer
+     * (JavaRosa writes it a few bytes at a time) and optionally compressed: the serialized form
+     * repeats the same XPath expressions, references and labels many times over so it shrinks a
+     * lot even at the fastest compression level.
+     */
+    static void serializeFormDef(FormDef formDef, String formHash, File file, boolean compress) throws IOException {
+        try (OutputStream fileOutputStream = new FileOutputStream(file)) {
+            DataOutputStream headerOutputStream = new DataOutputStream(fileOutputStream);
+            writeHeader(headerOutputStream, formHash, compress ? COMPRESSION_DEFLATE : COMPRESSION_NONE);
+            headerOutputStream.flush();
+
+            Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            try {
+                OutputStream bodyOutputStream = compress
+                        ? new DeflaterOutputStream(fileOutputStream, deflater, BUFFER_SIZE)
+                        : fileOutputStream;
+
+                DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(bodyOutputStream, BUFFER_SIZE));
+                formDef.writeExternal(dos);
+                dos.flush();
+
+                if (compress) {
+                    ((DeflaterOutputStream) bodyOutputStream).finish();
+                }
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
     }
 
-    private static FormDef deserializeFormDef(File serializedFormDef) throws Exception {
-        FormDef fd;
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(serializedFormDef))) {
-            fd = new FormDef();
-            fd.readExternal(dis, ExtUtil.defaultPrototypes());
+    /**
+     * @return the deserialized FormDef or null if the cache file was written by a different
+     * version of the app (or in a different format) or for a different form
+     */
+    @Nullable
+    static FormDef deserializeFormDef(File serializedFormDef, String formHash) throws Exception {
+        try (InputStream fileInputStream = new BufferedInputStream(new FileInputStream(serializedFormDef), BUFFER_SIZE)) {
+            // DataInputStream doesn't buffer so this doesn't read past the header
+            DataInputStream headerInputStream = new DataInputStream(fileInputStream);
+            if (!hasValidHeader(headerInputStream, formHash)) {
+                return null;
+            }
+
+            int compression = headerInputStream.readInt();
+            if (compression == COMPRESSION_NONE) {
+                return readFormDef(new DataInputStream(fileInputStream));
+            } else if (compression == COMPRESSION_DEFLATE) {
+                Inflater inflater = new Inflater();
+                try {
+                    InputStream bodyInputStream = new InflaterInputStream(fileInputStream, inflater, BUFFER_SIZE);
+                    return readFormDef(new DataInputStream(new BufferedInputStream(bodyInputStream, BUFFER_SIZE)));
+                } finally {
+                    inflater.end();
+                }
+            } else {
+                return null;
+            }
         }
+    }
 
+    private static FormDef readFormDef(DataInputStream dis) throws Exception {
+        FormDef fd = new FormDef();
+        fd.readExternal(dis, ExtUtil.defaultPrototypes());
         return fd;
     }
+
+    private static void writeHeader(DataOutputStream dos, String formHash, int compression) throws IOException {
+        dos.writeInt(MAGIC);
+        dos.writeInt(FORMAT_VERSION);
+        dos.writeInt(BuildConfig.VERSION_CODE);
+        dos.writeUTF(formHash);
+        dos.writeInt(compression);
+    }
+
+    private static boolean hasValidHeader(DataInputStream dis, String formHash) throws IOException {
+        return dis.readInt() == MAGIC
+                && dis.readInt() == FORMAT_VERSION
+                && dis.readInt() == BuildConfig.VERSION_CODE
+                && dis.readUTF().equals(formHash);
+    }
 }
@@ -0,0 +1,145 @@
+package org.odk.collect.android.utilities;
+
+import android.os.Process;
+
+import org.javarosa.core.model.FormDef;
+import org.javarosa.xform.util.XFormUtils;
+import org.kxml2.io.KXmlParser;
+import org.odk.collect.async.Scheduler;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import timber.log.Timber;
+
+/**
+ * Parses newly downloaded (or added) forms and writes them to the {@link FormDefCache} in the
+ * background so that opening them for the first time doesn't need to parse the XML. Forms are
+ * warmed one at a time at a low priority.
+ *
+ * Forms with external secondary instances are skipped: parsing them needs the global
+ * {@link org.javarosa.core.reference.ReferenceManager} to be set up for the form which would
+ * break a form that is being filled at the same time. They are cached when first opened instead.
+ */
+public class FormDefCacheWarmer {
+
+    private final Scheduler scheduler;
+
+    private final Queue<FormToWarm> queue = new ConcurrentLinkedQueue<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean warming = new AtomicBoolean();
+
+    public FormDefCacheWarmer(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Queues a form to be parsed and cached. Does nothing if the form is already queued.
+     *
+     * @param cacheDir the cache directory of the form's project (which might not be the current
+     *                 one)
+     */
+    public void warm(File formXml, File cacheDir) {
+        if (!queued.add(formXml.getAbsolutePath())) {
+            return;
+        }
+
+        queue.add(new FormToWarm(formXml, cacheDir));
+        if (warming.compareAndSet(false, true)) {
+            scheduler.immediateInBackground(this::warmQueued);
+        }
+    }
+
+    private Void warmQueued() {
+        int priority = Process.getThreadPriority(Process.myTid());
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+        try {
+            do {
+                FormToWarm form;
+                while ((form = queue.poll()) != null) {
+                    try {
+                        warmNow(form.formXml, form.cacheDir);
+                    } finally {
+                        queued.remove(form.formXml.getAbsolutePath());
+                    }
+                }
+
+                warming.set(false);
+            } while (!queue.isEmpty() && warming.compareAndSet(false, true));
+        } finally {
+            Process.setThreadPriority(priority);
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses and caches a form straight away.
+     *
+     * @return true if the form was cached
+     */
+    static boolean warmNow(File formXml, File cacheDir) {
+        try {
+            if (!formXml.exists() || FormDefCache.isCached(formXml, cacheDir) || hasExternalInstances(formXml)) {
+                return false;
+            }
+
+            final long start = System.currentTimeMillis();
+            FormDef formDef = XFormUtils.getFormFromFormXml(formXml.getAbsolutePath(), FileUtils.getOrCreateLastSavedSrc(formXml));
+            FormDefCache.writeCache(formDef, formXml, null, cacheDir);
+
+            Timber.i("Warmed cache for %s in %.3f seconds.", formXml.getName(), (System.currentTimeMillis() - start) / 1000F);
+            return true;
+        } catch (Exception | Error e) {
+            // The form will be parsed (and any problem reported) when it is opened
+            Timber.w(e);
+            return false;
+        }
+    }
+
+    private static boolean hasExternalInstances(File formXml) {
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(formXml))) {
+            KXmlParser parser = new KXmlParser();
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+            parser.setInput(inputStream, null);
+
+            int eventType = parser.next();
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                if (eventType == XmlPullParser.START_TAG) {
+                    if (parser.getName().equals("body")) {
+                        return false;
+                    } else if (parser.getName().equals("instance") && parser.getAttributeValue(null, "src") != null) {
+                        return true;
+                    }
+                }
+
+                eventType = parser.next();
+            }
+
+            return false;
+        } catch (IOException | XmlPullParserException e) {
+            return true;
+        }
+    }
+
+    private static class FormToWarm {
+        final File formXml;
+        final File cacheDir;
+
+        FormToWarm(File formXml, File cacheDir) {
+            this.formXml = formXml;
+            this.cacheDir = cacheDir;
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package org.odk.collect.android.utilities;
+
+import static org.odk.collect.android.utilities.FileUtils.AUTO_DELETE;
+import static org.odk.collect.android.utilities.FileUtils.AUTO_SEND;
+import static org.odk.collect.android.utilities.FileUtils.BASE64_RSA_PUBLIC_KEY;
+import static org.odk.collect.android.utilities.FileUtils.FORMID;
+import static org.odk.collect.android.utilities.FileUtils.GEOMETRY_XPATH;
+import static org.odk.collect.android.utilities.FileUtils.SUBMISSIONURI;
+import static org.odk.collect.android.utilities.FileUtils.TITLE;
+import static org.odk.collect.android.utilities.FileUtils.VERSION;
+import static java.util.Arrays.asList;
+
+import androidx.annotation.Nullable;
+
+import org.kxml2.io.KXmlParser;
+import org.odk.collect.shared.strings.StringUtils;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import timber.log.Timber;
+
+/**
+ * Reads the same metadata as {@link FileUtils#getMetadataFromFormDefinition(File)} by streaming
+ * through the form definition with a pull parser instead of building a {@link org.javarosa.core.model.FormDef}.
+ * Only the title, the main instance, binds, the submission element and the structure of the body
+ * are looked at (secondary instances are skipped over).
+ *
+ * Forms that use something this doesn't understand (relative references that can't be resolved,
+ * setgeopoint actions in the body etc) are left to the full parse: {@link #read(File)} returns
+ * null for them.
+ */
+final class FormMetadataReader {
+
+    private static final Set<String> CONTROLS = new HashSet<>(asList(
+            "input", "secret", "select", "select1", "upload", "trigger", "range", "rank"
+    ));
+
+    private static final Pattern PATH_STEP = Pattern.compile("[\\p{L}_][\\p{L}\\p{N}._\\-]*(:[\\p{L}_][\\p{L}\\p{N}._\\-]*)?");
+
+    private String title;
+    private String formId;
+    private String version;
+    private String rootPath;
+
+    /**
+     * Paths of the elements in the main instance in document order.
+     */
+    private final Set<String> instancePaths = new LinkedHashSet<>();
+    private final Map<String, String> bindTypes = new HashMap<>();
+    private final Map<String, String> bindNodesets = new HashMap<>();
+
+    private Map<String, String> submission;
+    private boolean hasSetGeopoint;
+
+    private String firstBodyGeoPoint;
+    private final List<String> repeatPaths = new ArrayList<>();
+
+    private FormMetadataReader() {
+    }
+
+    /**
+     * @return the form's metadata or null if the form needs to be fully parsed to work it out
+     */
+    @Nullable
+    static HashMap<String, String> read(File formDefinitionXml) {
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(formDefinitionXml))) {
+            KXmlParser parser = new KXmlParser();
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+            parser.setInput(inputStream, null);
+
+            return new FormMetadataReader().read(parser);
+        } catch (IOException | XmlPullParserException | UnsupportedFormException e) {
+            Timber.d("Falling back to full parse for %s: %s", formDefinitionXml.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private HashMap<String, String> read(XmlPullParser parser) throws IOException, XmlPullParserException, UnsupportedFormException {
+        if (parser.nextTag() != XmlPullParser.START_TAG) {
+            throw new UnsupportedFormException("No root element");
+        }
+
+        int depth = parser.getDepth();
+        while (nextChild(parser, depth)) {
+            if (parser.getName().equals("head")) {
+                readHead(parser);
+            } else if (parser.getName().equals("body")) {
+                readBody(parser, parser.getDepth(), rootPath, false);
+            } else {
+                skip(parser);
+            }
+        }
+
+        if (rootPath == null) {
+            throw new UnsupportedFormException("No main instance");
+        }
+
+        HashMap<String, String> fields = new HashMap<>();
+        fields.put(TITLE, title);
+        fields.put(FORMID, formId);
+        fields.put(VERSION, version != null && StringUtils.isBlank(version) ? null : version);
+
+        if (submission != null) {
+            fields.put(SUBMISSIONURI, submission.get("action"));
+
+            String key = submission.get("base64RsaPublicKey");
+            if (key != null && key.trim().length() > 0) {
+                fields.put(BASE64_RSA_PUBLIC_KEY, key.trim());
+            }
+
+            fields.put(AUTO_DELETE, submission.get("auto-delete"));
+            fields.put(AUTO_SEND, submission.get("auto-send"));
+        }
+
+        fields.put(GEOMETRY_XPATH, getOverallFirstGeoPoint());
+        return fields;
+    }
+
+    private void readHead(XmlPullParser parser) throws IOException, XmlPullParserException, UnsupportedFormException {
+        int depth = parser.getDepth();
+        while (nextChild(parser, depth)) {
+            if (parser.getName().equals("title")) {
+                title = readText(parser);
+            } else if (parser.getName().equals("model")) {
+                readModel(parser);
+            } else {
+                skip(parser);
+            }
+        }
+    }
+
+    private void readModel(XmlPullParser parser) throws IOException, XmlPullParserException, UnsupportedFormException {
+        int depth = parser.getDepth();
+        while (nextChild(parser, depth)) {
+            switch (parser.getName()) {
+                case "instance":
+                    if (rootPath == null) {
+                        readMainInstance(parser);
+                    } else {
+                        skip(parser);
+                    }
+                    break;
+                case "bind":
+                    readBind(parser);
+                    skip(parser);
+                    break;
+                case "submission":
+                    readSubmission(parser);
+                    skip(parser);
+                    break;
+                case "setgeopoint":
+                    hasSetGeopoint = true;
+                    skip(parser);
+                    break;
+                default:
+                    if (skip(parser)) {
+                        throw new UnsupportedFormException("Nested setgeopoint in model");
+                    }
+            }
+        }
+    }
+
+    private void readMainInstance(XmlPullParser parser) throws IOException, XmlPullParserException, UnsupportedFormException {
+        if (parser.getAttributeValue(null, "id") != null) {
+            throw new UnsupportedFormException("First instance has an id");
+        }
+
+        int depth = parser.getDepth();
+        if (!nextChild(parser, depth)) {
+            throw new UnsupportedFormException("Main instance is empty");
+        }
+
+        formId = getAttributeByName(parser, "id");
+        version = getAttributeByName(parser, "version");
+        rootPath = "/" + getQualifiedName(parser);
+        readInstanceElement(parser, "");
+
+        while (nextChild(parser, depth)) {
+            skip(parser);
+        }
+    }
+
+    private void readInstanceElement(XmlPullParser parser, String parentPath) throws IOException, XmlPullParserException {
+        String path = parentPath + "/" + getQualifiedName(parser);
+        instancePaths.add(path);
+
+        int depth = parser.getDepth();
+        while (nextChild(parser, depth)) {
+            readInstanceElement(parser, path);
+        }
+    }
+
+    private void readBind(XmlPullParser parser) throws UnsupportedFormException {
+        String nodeset = parser.getAttributeValue(null, "nodeset");
+        String type = parser.getAttributeValue(null, "type");
+        String id = parser.getAttributeValue(null, "id");
+
+        // Relative nodesets are relative to the main instance's root
+        String path = resolve(nodeset, rootPath);
+        if (path == null) {
+            if (type != null) {
+                throw new UnsupportedFormException("Typed bind with complex nodeset " + nodeset);
+            }
+        } else if (type != null) {
+            String localType = type.substring(type.indexOf(':') + 1);
+            if (localType.equals("geopoint") && path.contains(":")) {
+                throw new UnsupportedFormException("Geopoint with namespaced path " + path);
+            }
+
+            bindTypes.put(path, localType);
+        }
+
+        if (id != null) {
+            bindNodesets.put(id, path);
+        }
+    }
+
+    private void readSubmission(XmlPullParser parser) throws UnsupportedFormException {
+        if (submission != null || parser.getAttributeValue(null, "id") != null) {
+            throw new UnsupportedFormException("Multiple or named submissions");
+        }
+
+        submission = new HashMap<>();
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            submission.put(parser.getAttributeName(i), parser.getAttributeValue(i));
+        }
+    }
+
+    /**
+     * Looks through the controls of a group (or the body) for the first geopoint question that
+     * isn't in a repeat and collects the paths of repeats.
+     */
+    private void readBody(XmlPullParser parser, int depth, @Nullable String context, boolean inRepeat) throws IOException, XmlPullParserException, UnsupportedFormException {
+        while (nextChild(parser, depth)) {
+            String name = parser.getName();
+
+            if (name.equals("group")) {
+                String ref = getReference(parser, "ref");
+                readBody(parser, parser.getDepth(), ref != null ? resolve(ref, context) : context, inRepeat);
+            } else if (name.equals("repeat")) {
+                String path = resolve(getReference(parser, "nodeset"), context);
+                if (path == null) {
+                    if (hasSetGeopoint) {
+                        throw new UnsupportedFormException("Unresolvable repeat");
+                    }
+                } else {
+                    repeatPaths.add(path);
+                }
+
+                readBody(parser, parser.getDepth(), path, true);
+            } else if (CONTROLS.contains(name)) {
+                if (!inRepeat && firstBodyGeoPoint == null) {
+                    String path = resolve(getReference(parser, "ref"), context);
+                    if (path == null) {
+                        throw new UnsupportedFormException("Unresolvable question reference");
+                    } else if ("geopoint".equals(bindTypes.get(path))) {
+                        firstBodyGeoPoint = path;
+                    }
+                }
+
+                if (skip(parser)) {
+                    throw new UnsupportedFormException("setgeopoint in body");
+                }
+            } else if (name.equals("setgeopoint") || skip(parser)) {
+                throw new UnsupportedFormException("setgeopoint in body");
+            }
+        }
+    }
+
+    /**
+     * Mirrors the rules used for the full parse: the first geopoint in the body that isn't in a
+     * repeat or, if the form has a setgeopoint action, the first geopoint in the main instance.
+     */
+    @Nullable
+    private String getOverallFirstGeoPoint() throws UnsupportedFormException {
+        if (!hasSetGeopoint) {
+            return firstBodyGeoPoint;
+        }
+
+        for (String path : instancePaths) {
+            if ("geopoint".equals(bindTypes.get(path)) && !isInRepeat(path)) {
+                if (path.equals(firstBodyGeoPoint)) {
+                    // The full parse compares references with multiplicities here so leave it to that
+                    throw new UnsupportedFormException("Instance geopoint is body geopoint");
+                }
+
+                return path;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isInRepeat(String path) {
+        for (String repeatPath : repeatPaths) {
+            if (path.equals(repeatPath) || path.startsWith(repeatPath + "/")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the value of {@code attribute} or the nodeset of the bind referenced by the
+     * element's "bind" attribute
+     */
+    @Nullable
+    private String getReference(XmlPullParser parser, String attribute) throws UnsupportedFormException {
+        String bind = parser.getAttributeValue(null, "bind");
+        if (bind == null) {
+            return parser.getAttributeValue(null, attribute);
+        }
+
+        String nodeset = bindNodesets.get(bind);
+        if (nodeset == null) {
+            throw new UnsupportedFormException("Unknown bind " + bind);
+        }
+
+        return nodeset;
+    }
+
+    /**
+     * @return the absolute path for a simple (absolute or relative to {@code context}) path or
+     * null if it is anything more complicated
+     */
+    @Nullable
+    private static String resolve(@Nullable String reference, @Nullable String context) {
+        if (reference == null) {
+            return null;
+        }
+
+        String trimmed = reference.trim();
+        boolean absolute = trimmed.startsWith("/");
+        String relativePath = absolute ? trimmed.substring(1) : trimmed;
+
+        if (relativePath.isEmpty()) {
+            return null;
+        }
+
+        for (String step : relativePath.split("/", -1)) {
+            if (!PATH_STEP.matcher(step).matches()) {
+                return null;
+            }
+        }
+
+        if (absolute) {
+            return trimmed;
+        } else if (context != null) {
+            return context + "/" + relativePath;
+        } else {
+            return null;
+        }
+    }
+
+    private static String getQualifiedName(XmlPullParser parser) {
+        String prefix = parser.getPrefix();
+        return prefix == null ? parser.getName() : prefix + ":" + parser.getName();
+    }
+
+    /**
+     * @return the value of the first attribute called {@code name} in any namespace
+     */
+    @Nullable
+    private static String getAttributeByName(XmlPullParser parser, String name) {
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            if (parser.getAttributeName(i).equals(name)) {
+                return parser.getAttributeValue(i);
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private static String readText(XmlPullParser parser) throws IOException, XmlPullParserException, UnsupportedFormException {
+        StringBuilder text = null;
+
+        int eventType = parser.next();
+        while (eventType != XmlPullParser.END_TAG) {
+            if (eventType == XmlPullParser.START_TAG) {
+                throw new UnsupportedFormException("Element in text");
+            } else if (eventType == XmlPullParser.TEXT) {
+                if (text == null) {
+                    text = new StringBuilder();
+                }
+
+                text.append(parser.getText());
+            }
+
+            eventType = parser.next();
+        }
+
+        return text == null ? null : text.toString().trim();
+    }
+
+    /**
+     * Moves to the next child element of the element at {@code depth} (skipping over anything
+     * else).
+     *
+     * @return false if the end of the element at {@code depth} has been reached instead
+     */
+    private static boolean nextChild(XmlPullParser parser, int depth) throws IOException, XmlPullParserException {
+        while (true) {
+            int eventType = parser.next();
+
+            if (eventType == XmlPullParser.START_TAG && parser.getDepth() == depth + 1) {
+                return true;
+            } else if (eventType == XmlPullParser.END_TAG && parser.getDepth() == depth) {
+                return false;
+            } else if (eventType == XmlPullParser.END_DOCUMENT) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Skips to the end of the current element.
+     *
+     * @return true if there was a setgeopoint element inside it
+     */
+    private static boolean skip(XmlPullParser parser) throws IOException, XmlPullParserException {
+        boolean setGeopoint = false;
+        int depth = parser.getDepth();
+
+        int eventType = parser.next();
+        while (!(eventType == XmlPullParser.END_TAG && parser.getDepth() == depth) && eventType != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG && parser.getName().equals("setgeopoint")) {
+                setGeopoint = true;
+            }
+
+            eventType = parser.next();
+        }
+
+        return setGeopoint;
+    }
+
+    private static class UnsupportedFormException extends Exception {
+
+        UnsupportedFormException(String message) {
+            super(message);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.odk.collect.android.support.CollectHelpers
 import org.odk.collect.android.utilities.ChangeLockProvider
 import org.odk.collect.android.utilities.FormsRepositoryProvider
 import org.odk.collect.android.utilities.InstancesRepositoryProvider
+import org.odk.collect.async.Scheduler
 import org.odk.collect.metadata.PropertyManager
 import org.odk.collect.permissions.PermissionsProvider
 import org.odk.collect.settings.SettingsProvider
@@ -54,7 +55,8 @@ class AutoSendTaskSpecTest {
                 googleApiProvider: GoogleApiProvider?,
                 permissionsProvider: PermissionsProvider?,
                 instancesAppState: InstancesAppState?,
-                propertyManager: PropertyManager?
+                propertyManager: PropertyManager?,
+                scheduler: Scheduler?
             ): InstanceAutoSender {
                 return instanceAutoSender
             }
@@ -16,6 +16,7 @@ import org.odk.collect.android.injection.config.AppDependencyModule
 import org.odk.collect.android.notifications.Notifier
 import org.odk.collect.android.projects.ProjectDependencyProviderFactory
 import org.odk.collect.android.support.CollectHelpers
+import org.odk.collect.android.utilities.FormDefCacheWarmer
 
 @RunWith(AndroidJUnit4::class)
 class AutoUpdateTaskSpecTest {
@@ -29,7 +30,8 @@ class AutoUpdateTaskSpecTest {
             override fun providesFormsUpdater(
                 application: Application,
                 notifier: Notifier,
-                projectDependencyProviderFactory: ProjectDependencyProviderFactory
+                projectDependencyProviderFactory: ProjectDependencyProviderFactory,
+                formDefCacheWarmer: FormDefCacheWarmer
             ): FormsDataService {
                 return formUpdateChecker
             }
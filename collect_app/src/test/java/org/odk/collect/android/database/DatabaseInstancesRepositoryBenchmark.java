@@ -0,0 +1,151 @@
+package org.odk.collect.android.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.odk.collect.android.database.instances.DatabaseInstancesRepository;
+import org.odk.collect.android.database.instances.InstanceDatabaseMigrator;
+import org.odk.collect.forms.instances.Instance;
+import org.odk.collect.shared.TempFiles;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.odk.collect.android.database.DatabaseConstants.INSTANCES_TABLE_NAME;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.DELETED_DATE;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.DISPLAY_NAME;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.INSTANCE_FILE_PATH;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.JR_FORM_ID;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.JR_VERSION;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.LAST_STATUS_CHANGE_DATE;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.STATUS;
+
+/**
+ * Times the queries {@link DatabaseInstancesRepository} makes for common lookups against 50,000
+ * instances without and then with the indexes the instances database has from version 7.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseInstancesRepositoryBenchmark {
+
+    private static final int FORMS = 50;
+    private static final int INSTANCES_PER_FORM = 1000;
+    private static final int ITERATIONS = 50;
+
+    private final File dbDir = TempFiles.createTempDir();
+    private final File instancesDir = TempFiles.createTempDir();
+
+    @Test
+    public void compareQueriesWithAndWithoutIndexes() {
+        DatabaseInstancesRepository repository = new DatabaseInstancesRepository(ApplicationProvider.getApplicationContext(), dbDir.getAbsolutePath(), instancesDir.getAbsolutePath(), System::currentTimeMillis);
+        SQLiteDatabase database = new DatabaseConnection(
+                ApplicationProvider.getApplicationContext(),
+                dbDir.getAbsolutePath(),
+                DatabaseConstants.INSTANCES_DATABASE_NAME,
+                new InstanceDatabaseMigrator(),
+                DatabaseConstants.INSTANCES_DATABASE_VERSION,
+                true
+        ).getWriteableDatabase();
+
+        insertInstances(database);
+
+        List<String> indexes = dropIndexes(database);
+        System.out.printf(Locale.US, "Without indexes (dropped %s):%n", indexes);
+        runQueries(repository);
+
+        new InstanceDatabaseMigrator().onUpgrade(database, 6);
+        System.out.printf(Locale.US, "With indexes:%n");
+        runQueries(repository);
+    }
+
+    private void runQueries(DatabaseInstancesRepository repository) {
+        Random random = new Random(0);
+
+        time("getOneByPath", () -> {
+            int form = random.nextInt(FORMS);
+            int instance = random.nextInt(INSTANCES_PER_FORM);
+            repository.getOneByPath(new File(instancesDir, getRelativePath(form, instance)).getAbsolutePath());
+        });
+        time("getAllByFormId", () -> repository.getAllByFormId("form" + random.nextInt(FORMS)));
+        time("getAllNotDeletedByFormIdAndVersion", () -> repository.getAllNotDeletedByFormIdAndVersion("form" + random.nextInt(FORMS), "1"));
+        time("getCountByStatus(sendable)", () -> repository.getCountByStatus(Instance.STATUS_COMPLETE, Instance.STATUS_SUBMISSION_FAILED));
+        time("getAllByStatus(incomplete)", () -> repository.getAllByStatus(Instance.STATUS_INCOMPLETE));
+        time("getAllByStatus(submitted)", () -> repository.getAllByStatus(Instance.STATUS_SUBMITTED));
+        time("getCountNotDeletedByFormIdAndVersion", () -> repository.getCountNotDeletedByFormIdAndVersion("form" + random.nextInt(FORMS), "1"));
+        time("getCountByStatus(submitted)", () -> repository.getCountByStatus(Instance.STATUS_SUBMITTED));
+        time("getLastStatusChangeDateByStatus(submitted)", () -> repository.getLastStatusChangeDateByStatus(Instance.STATUS_SUBMITTED));
+        time("getPageByStatus(submitted)", () -> repository.getPageByStatus(random.nextInt(FORMS) * 100, 100, Instance.STATUS_SUBMITTED));
+    }
+
+    private static void time(String name, Runnable query) {
+        // Warm up
+        query.run();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.run();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf(Locale.US, "  %-45s %8.3fms%n", name, elapsed / 1e6 / ITERATIONS);
+    }
+
+    private static void insertInstances(SQLiteDatabase database) {
+        String[] statuses = {Instance.STATUS_SUBMITTED, Instance.STATUS_SUBMITTED, Instance.STATUS_SUBMITTED,
+                Instance.STATUS_SUBMITTED, Instance.STATUS_SUBMITTED, Instance.STATUS_SUBMITTED,
+                Instance.STATUS_SUBMITTED, Instance.STATUS_COMPLETE, Instance.STATUS_SUBMISSION_FAILED,
+                Instance.STATUS_INCOMPLETE};
+
+        database.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int form = 0; form < FORMS; form++) {
+                for (int instance = 0; instance < INSTANCES_PER_FORM; instance++) {
+                    values.clear();
+                    values.put(DISPLAY_NAME, "Instance " + instance);
+                    values.put(INSTANCE_FILE_PATH, getRelativePath(form, instance));
+                    values.put(JR_FORM_ID, "form" + form);
+                    values.put(JR_VERSION, "1");
+                    values.put(STATUS, statuses[instance % statuses.length]);
+                    values.put(LAST_STATUS_CHANGE_DATE, instance);
+                    if (instance % 10 == 0) {
+                        values.put(DELETED_DATE, instance);
+                    }
+
+                    database.insert(INSTANCES_TABLE_NAME, null, values);
+                }
+            }
+
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private static List<String> dropIndexes(SQLiteDatabase database) {
+        List<String> indexes = new ArrayList<>();
+        try (Cursor cursor = database.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ? AND sql IS NOT NULL", new String[]{INSTANCES_TABLE_NAME})) {
+            while (cursor.moveToNext()) {
+                indexes.add(cursor.getString(0));
+            }
+        }
+
+        for (String index : indexes) {
+            database.execSQL("DROP INDEX " + index);
+        }
+
+        return indexes;
+    }
+
+    private static String getRelativePath(int form, int instance) {
+        return "form" + form + "_" + instance + File.separator + "form" + form + "_" + instance + ".xml";
+    }
+}
@@ -13,10 +13,12 @@ import org.junit.runner.RunWith;
 import org.odk.collect.android.database.forms.FormDatabaseMigrator;
 import org.odk.collect.android.utilities.SQLiteUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertTrue;
@@ -28,6 +30,8 @@ import static org.odk.collect.android.database.forms.DatabaseFormColumns.DATE;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DELETED_DATE;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DESCRIPTION;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DISPLAY_NAME;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FILE_LAST_MODIFIED;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FILE_SIZE;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_PATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_MEDIA_PATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.GEOMETRY_XPATH;
@@ -47,13 +51,16 @@ public class FormDatabaseMigratorTest {
     public static final List<String> CURRENT_VERSION_COLUMNS = asList(_ID, DISPLAY_NAME, DESCRIPTION,
             JR_FORM_ID, JR_VERSION, MD5_HASH, DATE, FORM_MEDIA_PATH, FORM_FILE_PATH, LANGUAGE,
             SUBMISSION_URI, BASE64_RSA_PUBLIC_KEY, JRCACHE_FILE_PATH, AUTO_SEND, AUTO_DELETE,
-            GEOMETRY_XPATH, DELETED_DATE, LAST_DETECTED_ATTACHMENTS_UPDATE_DATE);
+            GEOMETRY_XPATH, DELETED_DATE, LAST_DETECTED_ATTACHMENTS_UPDATE_DATE, FILE_SIZE, FILE_LAST_MODIFIED);
+
+    public static final List<String> CURRENT_VERSION_INDEXES = asList(
+            FORMS_TABLE_NAME + "_" + JR_FORM_ID + "_" + JR_VERSION, FORMS_TABLE_NAME + "_" + FORM_FILE_PATH);
 
     private SQLiteDatabase database;
 
     @Before
     public void setup() {
-        assertThat("Test expects different Forms DB version", DatabaseConstants.FORMS_DATABASE_VERSION, is(12));
+        assertThat("Test expects different Forms DB version", DatabaseConstants.FORMS_DATABASE_VERSION, is(14));
         database = SQLiteDatabase.create(null);
     }
 
@@ -62,6 +69,62 @@ public class FormDatabaseMigratorTest {
         database.close();
     }
 
+    @Test
+    public void onUpgrade_fromVersion13() {
+        int oldVersion = 13;
+        assertTrue(oldVersion < DatabaseConstants.FORMS_DATABASE_VERSION);
+        database.setVersion(oldVersion);
+
+        createVersion13Database(database);
+        ContentValues contentValues = createVersion13Form();
+        database.insert(FORMS_TABLE_NAME, null, contentValues);
+
+        new FormDatabaseMigrator().onUpgrade(database, oldVersion);
+
+        try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
+            assertThat(cursor.getColumnCount(), is(20));
+            assertThat(cursor.getCount(), is(1));
+
+            cursor.moveToFirst();
+            assertThat(cursor.getString(cursor.getColumnIndex(MD5_HASH)), is(contentValues.getAsString(MD5_HASH)));
+            assertThat(cursor.getLong(cursor.getColumnIndex(FILE_SIZE)), is(contentValues.getAsLong(FILE_SIZE)));
+        }
+
+        assertThat(getIndexes(database), containsInAnyOrder(CURRENT_VERSION_INDEXES.toArray(new String[0])));
+    }
+
+    @Test
+    public void onCreate_createsIndexes() {
+        new FormDatabaseMigrator().onCreate(database);
+        assertThat(getIndexes(database), containsInAnyOrder(CURRENT_VERSION_INDEXES.toArray(new String[0])));
+    }
+
+    @Test
+    public void onUpgrade_fromVersion12() {
+        int oldVersion = 12;
+        assertTrue(oldVersion < DatabaseConstants.FORMS_DATABASE_VERSION);
+        database.setVersion(oldVersion);
+
+        createVersion12Database(database);
+        ContentValues contentValues = createVersion12Form();
+        database.insert(FORMS_TABLE_NAME, null, contentValues);
+
+        new FormDatabaseMigrator().onUpgrade(database, oldVersion);
+
+        try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
+            assertThat(cursor.getColumnCount(), is(20));
+            assertThat(cursor.getCount(), is(1));
+
+            cursor.moveToFirst();
+            assertThat(cursor.getString(cursor.getColumnIndex(DISPLAY_NAME)), is(contentValues.getAsString(DISPLAY_NAME)));
+            assertThat(cursor.getString(cursor.getColumnIndex(MD5_HASH)), is(contentValues.getAsString(MD5_HASH)));
+            assertThat(cursor.getString(cursor.getColumnIndex(FORM_FILE_PATH)), is(contentValues.getAsString(FORM_FILE_PATH)));
+            assertThat(cursor.getLong(cursor.getColumnIndex(LAST_DETECTED_ATTACHMENTS_UPDATE_DATE)), is(contentValues.getAsLong(LAST_DETECTED_ATTACHMENTS_UPDATE_DATE)));
+            assertThat(cursor.isNull(cursor.getColumnIndex(FILE_SIZE)), is(true));
+            assertThat(cursor.isNull(cursor.getColumnIndex(FILE_LAST_MODIFIED)), is(true));
+        }
+    }
+
     @Test
     public void onUpgrade_fromVersion11() {
         int oldVersion = 11;
@@ -75,7 +138,7 @@ public class FormDatabaseMigratorTest {
         new FormDatabaseMigrator().onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(18));
+            assertThat(cursor.getColumnCount(), is(20));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -112,7 +175,7 @@ public class FormDatabaseMigratorTest {
         new FormDatabaseMigrator().onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(18));
+            assertThat(cursor.getColumnCount(), is(20));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -149,7 +212,7 @@ public class FormDatabaseMigratorTest {
         new FormDatabaseMigrator().onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(18));
+            assertThat(cursor.getColumnCount(), is(20));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -187,7 +250,7 @@ public class FormDatabaseMigratorTest {
         new FormDatabaseMigrator().onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(18));
+            assertThat(cursor.getColumnCount(), is(20));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -224,7 +287,7 @@ public class FormDatabaseMigratorTest {
         new FormDatabaseMigrator().onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(18));
+            assertThat(cursor.getColumnCount(), is(20));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -260,10 +323,12 @@ public class FormDatabaseMigratorTest {
         formDatabaseMigrator.onDowngrade(database);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(18));
+            assertThat(cursor.getColumnCount(), is(20));
             assertThat(cursor.getCount(), is(0));
             assertThat(asList(cursor.getColumnNames()), is(CURRENT_VERSION_COLUMNS));
         }
+
+        assertThat(getIndexes(database), containsInAnyOrder(CURRENT_VERSION_INDEXES.toArray(new String[0])));
     }
 
     @Test
@@ -295,7 +360,7 @@ public class FormDatabaseMigratorTest {
         formDatabaseMigrator.onDowngrade(database);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(18));
+            assertThat(cursor.getColumnCount(), is(20));
             assertThat(cursor.getCount(), is(0));
             assertThat(asList(cursor.getColumnNames()), is(CURRENT_VERSION_COLUMNS));
         }
@@ -488,6 +553,45 @@ public class FormDatabaseMigratorTest {
                 + DELETED_DATE + " integer);");
     }
 
+    private ContentValues createVersion12Form() {
+        ContentValues contentValues = createVersion11Form();
+        contentValues.put(LAST_DETECTED_ATTACHMENTS_UPDATE_DATE, 123L);
+        return contentValues;
+    }
+
+    private ContentValues createVersion13Form() {
+        ContentValues contentValues = createVersion12Form();
+        contentValues.put(FILE_SIZE, 456L);
+        contentValues.put(FILE_LAST_MODIFIED, 789L);
+        return contentValues;
+    }
+
+    private void createVersion13Database(SQLiteDatabase db) {
+        createVersion12Database(db);
+        SQLiteUtils.addColumn(db, FORMS_TABLE_NAME, FILE_SIZE, "integer");
+        SQLiteUtils.addColumn(db, FORMS_TABLE_NAME, FILE_LAST_MODIFIED, "integer");
+    }
+
+    /**
+     * Returns the indexes that have been explicitly created (not those SQLite creates for
+     * constraints).
+     */
+    private static List<String> getIndexes(SQLiteDatabase db) {
+        List<String> indexes = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ? AND sql IS NOT NULL", new String[]{FORMS_TABLE_NAME})) {
+            while (cursor.moveToNext()) {
+                indexes.add(cursor.getString(0));
+            }
+        }
+
+        return indexes;
+    }
+
+    private void createVersion12Database(SQLiteDatabase db) {
+        createVersion11Database(db);
+        SQLiteUtils.addColumn(db, FORMS_TABLE_NAME, LAST_DETECTED_ATTACHMENTS_UPDATE_DATE, "integer");
+    }
+
     private void createVersion11Database(SQLiteDatabase db) {
         db.execSQL("CREATE TABLE IF NOT EXISTS " + FORMS_TABLE_NAME + " ("
                 + _ID + " integer primary key, "
@@ -0,0 +1,133 @@
+package org.odk.collect.android.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.odk.collect.android.database.instances.InstanceDatabaseMigrator;
+import org.odk.collect.forms.instances.Instance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.odk.collect.android.database.DatabaseConstants.INSTANCES_TABLE_NAME;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.CAN_EDIT_WHEN_COMPLETE;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.DELETED_DATE;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.DISPLAY_NAME;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.GEOMETRY;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.GEOMETRY_TYPE;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.INSTANCE_FILE_PATH;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.JR_FORM_ID;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.JR_VERSION;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.LAST_STATUS_CHANGE_DATE;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.STATUS;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns.SUBMISSION_URI;
+import static org.odk.collect.android.database.instances.DatabaseInstanceColumns._ID;
+
+@RunWith(AndroidJUnit4.class)
+public class InstanceDatabaseMigratorTest {
+
+    private static final List<String> CURRENT_VERSION_INDEXES = asList(
+            INSTANCES_TABLE_NAME + "_" + JR_FORM_ID + "_" + JR_VERSION,
+            INSTANCES_TABLE_NAME + "_" + STATUS,
+            INSTANCES_TABLE_NAME + "_" + INSTANCE_FILE_PATH);
+
+    private SQLiteDatabase database;
+
+    @Before
+    public void setup() {
+        assertThat("Test expects different Instances DB version", DatabaseConstants.INSTANCES_DATABASE_VERSION, is(7));
+        database = SQLiteDatabase.create(null);
+    }
+
+    @After
+    public void teardown() {
+        database.close();
+    }
+
+    @Test
+    public void onUpgrade_fromVersion6() {
+        createVersion6Database(database);
+        ContentValues contentValues = createVersion6Instance();
+        database.insert(INSTANCES_TABLE_NAME, null, contentValues);
+
+        new InstanceDatabaseMigrator().onUpgrade(database, 6);
+
+        try (Cursor cursor = database.rawQuery("SELECT * FROM " + INSTANCES_TABLE_NAME + ";", new String[]{})) {
+            assertThat(asList(cursor.getColumnNames()), is(asList(InstanceDatabaseMigrator.CURRENT_VERSION_COLUMN_NAMES)));
+            assertThat(cursor.getCount(), is(1));
+
+            cursor.moveToFirst();
+            assertThat(cursor.getString(cursor.getColumnIndex(INSTANCE_FILE_PATH)), is(contentValues.getAsString(INSTANCE_FILE_PATH)));
+            assertThat(cursor.getString(cursor.getColumnIndex(STATUS)), is(contentValues.getAsString(STATUS)));
+        }
+
+        assertThat(getIndexes(database), containsInAnyOrder(CURRENT_VERSION_INDEXES.toArray(new String[0])));
+    }
+
+    @Test
+    public void onCreate_createsIndexes() {
+        new InstanceDatabaseMigrator().onCreate(database);
+        assertThat(getIndexes(database), containsInAnyOrder(CURRENT_VERSION_INDEXES.toArray(new String[0])));
+    }
+
+    @Test
+    public void onDowngrade_keepsIndexes() {
+        InstanceDatabaseMigrator instanceDatabaseMigrator = new InstanceDatabaseMigrator();
+        instanceDatabaseMigrator.onCreate(database);
+        database.execSQL("ALTER TABLE " + INSTANCES_TABLE_NAME + " ADD COLUMN new_column text");
+
+        instanceDatabaseMigrator.onDowngrade(database);
+
+        assertThat(getIndexes(database), containsInAnyOrder(CURRENT_VERSION_INDEXES.toArray(new String[0])));
+    }
+
+    private static List<String> getIndexes(SQLiteDatabase db) {
+        List<String> indexes = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ? AND sql IS NOT NULL", new String[]{INSTANCES_TABLE_NAME})) {
+            while (cursor.moveToNext()) {
+                indexes.add(cursor.getString(0));
+            }
+        }
+
+        return indexes;
+    }
+
+    private static ContentValues createVersion6Instance() {
+        ContentValues contentValues = new ContentValues();
+        contentValues.put(DISPLAY_NAME, "DisplayName");
+        contentValues.put(INSTANCE_FILE_PATH, "instance/instance.xml");
+        contentValues.put(JR_FORM_ID, "FormId");
+        contentValues.put(JR_VERSION, "FormVersion");
+        contentValues.put(STATUS, Instance.STATUS_COMPLETE);
+        contentValues.put(LAST_STATUS_CHANGE_DATE, 0);
+        return contentValues;
+    }
+
+    private static void createVersion6Database(SQLiteDatabase db) {
+        db.setVersion(6);
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + INSTANCES_TABLE_NAME + " ("
+                + _ID + " integer primary key, "
+                + DISPLAY_NAME + " text not null, "
+                + SUBMISSION_URI + " text, "
+                + CAN_EDIT_WHEN_COMPLETE + " text, "
+                + INSTANCE_FILE_PATH + " text not null, "
+                + JR_FORM_ID + " text not null, "
+                + JR_VERSION + " text, "
+                + STATUS + " text not null, "
+                + LAST_STATUS_CHANGE_DATE + " date not null, "
+                + DELETED_DATE + " date, "
+                + GEOMETRY + " text, "
+                + GEOMETRY_TYPE + " text);");
+    }
+}
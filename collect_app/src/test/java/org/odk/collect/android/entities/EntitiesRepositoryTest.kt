@@ -1,6 +1,8 @@
 package org.odk.collect.android.entities
 
 import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.contains
+import org.hamcrest.Matchers.containsInAnyOrder
 import org.hamcrest.Matchers.equalTo
 import org.junit.Test
 import org.odk.collect.entities.EntitiesRepository
@@ -27,4 +29,69 @@ abstract class EntitiesRepositoryTest {
         assertThat(whiskys.size, equalTo(1))
         assertThat(whiskys[0], equalTo(whisky))
     }
+
+    @Test
+    fun `getEntities returns properties in the order they were saved`() {
+        val repository = buildSubject()
+
+        val wine = Entity("wines", listOf(Pair("name", "Léoville Barton 2008"), Pair("grape", "Cabernet")))
+        repository.save(wine)
+
+        assertThat(repository.getEntities("wines"), contains(wine))
+    }
+
+    @Test
+    fun `save can save multiple entities at once`() {
+        val repository = buildSubject()
+
+        val wine = Entity("wines", listOf(Pair("name", "Léoville Barton 2008")))
+        val otherWine = Entity("wines", listOf(Pair("name", "Chateau Pontet Canet 2014")))
+        val whisky = Entity("whiskys", listOf(Pair("name", "Lagavulin 16")))
+        repository.save(wine, otherWine, whisky)
+
+        assertThat(repository.getEntities("wines"), contains(wine, otherWine))
+        assertThat(repository.getEntities("whiskys"), contains(whisky))
+    }
+
+    @Test
+    fun `getDatasets returns each dataset once`() {
+        val repository = buildSubject()
+
+        repository.save(
+            Entity("wines", emptyList()),
+            Entity("wines", emptyList()),
+            Entity("whiskys", emptyList())
+        )
+
+        assertThat(repository.getDatasets(), containsInAnyOrder("wines", "whiskys"))
+    }
+
+    @Test
+    fun `getEntities with offset and limit returns page of entities for dataset`() {
+        val repository = buildSubject()
+
+        val wines = (0 until 5).map { Entity("wines", listOf(Pair("number", it.toString()))) }
+        repository.save(*wines.toTypedArray())
+        repository.save(Entity("whiskys", listOf(Pair("number", "0"))))
+
+        assertThat(repository.getEntities("wines", 0, 2), contains(wines[0], wines[1]))
+        assertThat(repository.getEntities("wines", 2, 2), contains(wines[2], wines[3]))
+        assertThat(repository.getEntities("wines", 4, 2), contains(wines[4]))
+        assertThat(repository.getEntities("wines", 6, 2).isEmpty(), equalTo(true))
+    }
+
+    @Test
+    fun `getCount returns number of entities in dataset`() {
+        val repository = buildSubject()
+
+        repository.save(
+            Entity("wines", emptyList()),
+            Entity("wines", emptyList()),
+            Entity("whiskys", emptyList())
+        )
+
+        assertThat(repository.getCount("wines"), equalTo(2))
+        assertThat(repository.getCount("whiskys"), equalTo(1))
+        assertThat(repository.getCount("beers"), equalTo(0))
+    }
 }
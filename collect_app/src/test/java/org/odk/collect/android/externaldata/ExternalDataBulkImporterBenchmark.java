@@ -0,0 +1,128 @@
+package org.odk.collect.android.externaldata;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.opencsv.CSVReader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.odk.collect.shared.TempFiles;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares the rows/sec of {@link ExternalDataBulkImporter} with the previous import path (a new
+ * {@link ContentValues} and {@link SQLiteDatabase#insertOrThrow} per row) on generated CSVs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ExternalDataBulkImporterBenchmark {
+
+    private static final int[] ROW_COUNTS = {10_000, 50_000, 200_000};
+    private static final int COLUMNS = 8;
+    private static final String TABLE_NAME = ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME;
+
+    @Test
+    public void compareImportPaths() throws Exception {
+        for (int rowCount : ROW_COUNTS) {
+            File csv = generateCsv(rowCount);
+
+            long legacyMillis = time(csv, this::legacyImport);
+            long bulkMillis = time(csv, this::bulkImport);
+
+            System.out.printf(Locale.US, "%,d rows: legacy %,.0f rows/sec, bulk %,.0f rows/sec (%.1fx)%n",
+                    rowCount,
+                    rowCount * 1000.0 / legacyMillis,
+                    rowCount * 1000.0 / bulkMillis,
+                    (double) legacyMillis / bulkMillis);
+        }
+    }
+
+    private long time(File csv, Importer importer) throws Exception {
+        File dbFile = new File(TempFiles.createTempDir(), "benchmark.db");
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(dbFile, null);
+
+        try (CSVReader reader = new CSVReader(new FileReader(csv))) {
+            String[] headerRow = reader.readNext();
+            ExternalDataBulkImporter bulkImporter = new ExternalDataBulkImporter(headerRow, System::currentTimeMillis);
+            db.execSQL(bulkImporter.getCreateTableSql(TABLE_NAME));
+
+            long start = System.currentTimeMillis();
+            db.beginTransaction();
+            try {
+                importer.importRows(db, headerRow, reader);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            return Math.max(1, System.currentTimeMillis() - start);
+        } finally {
+            db.close();
+        }
+    }
+
+    private void bulkImport(SQLiteDatabase db, String[] headerRow, CSVReader reader) throws Exception {
+        new ExternalDataBulkImporter(headerRow, System::currentTimeMillis)
+                .importRows(db, TABLE_NAME, reader, () -> false, rowCount -> { });
+    }
+
+    /**
+     * The per row import used by {@link ExternalSQLiteOpenHelper} before
+     * {@link ExternalDataBulkImporter} was introduced.
+     */
+    private void legacyImport(SQLiteDatabase db, String[] headerRow, CSVReader reader) throws Exception {
+        Map<String, String> columnNamesCache = new HashMap<>();
+
+        String[] row = reader.readNext();
+        int rowCount = 0;
+        while (row != null) {
+            if (row.length < headerRow.length) {
+                row = ExternalDataUtil.fillUpNullValues(row, headerRow);
+            }
+
+            ContentValues values = new ContentValues();
+            values.put(ExternalDataUtil.SORT_COLUMN_NAME, rowCount + 1);
+            for (int i = 0; i < row.length && i < headerRow.length; i++) {
+                String columnName = headerRow[i].trim();
+                values.put(ExternalDataUtil.toSafeColumnName(columnName, columnNamesCache), row[i]);
+            }
+
+            db.insertOrThrow(TABLE_NAME, null, values);
+            row = reader.readNext();
+            rowCount++;
+        }
+    }
+
+    private static File generateCsv(int rowCount) throws IOException {
+        File csv = TempFiles.createTempFile("benchmark", ".csv");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csv))) {
+            for (int column = 0; column < COLUMNS; column++) {
+                writer.write((column == 0 ? "" : ",") + "column_" + column + (column == 0 ? "_key" : ""));
+            }
+            writer.newLine();
+
+            for (int row = 0; row < rowCount; row++) {
+                for (int column = 0; column < COLUMNS; column++) {
+                    writer.write((column == 0 ? "" : ",") + "value " + row + "-" + column);
+                }
+                writer.newLine();
+            }
+        }
+
+        return csv;
+    }
+
+    private interface Importer {
+        void importRows(SQLiteDatabase db, String[] headerRow, CSVReader reader) throws Exception;
+    }
+}
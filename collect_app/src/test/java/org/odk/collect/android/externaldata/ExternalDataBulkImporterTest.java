@@ -0,0 +1,94 @@
+package org.odk.collect.android.externaldata;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.opencsv.CSVReader;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+@RunWith(AndroidJUnit4.class)
+public class ExternalDataBulkImporterTest {
+
+    private final SQLiteDatabase db = SQLiteDatabase.create(null);
+
+    @After
+    public void teardown() {
+        db.close();
+    }
+
+    @Test
+    public void importRows_insertsEveryNonEmptyRowWithSortColumn() throws Exception {
+        int rowCount = importCsv("name,label\napple,Apple\n\nbanana,Banana\n", () -> 0L, rows -> { });
+
+        assertThat(rowCount, equalTo(2));
+        assertThat(queryColumn("c_name"), contains("apple", "banana"));
+        assertThat(queryColumn("c_sortby"), contains("1.0", "2.0"));
+    }
+
+    @Test
+    public void importRows_fillsUpRowsWithLessValuesThanHeader() throws Exception {
+        importCsv("name,label\napple\n", () -> 0L, rows -> { });
+
+        assertThat(queryColumn("c_label"), contains(""));
+    }
+
+    @Test
+    public void importRows_usesSortByColumnFromCsvWhenPresent() throws Exception {
+        importCsv("name,sortby\napple,2\nbanana,1\n", () -> 0L, rows -> { });
+
+        assertThat(queryColumn("c_name"), contains("banana", "apple"));
+    }
+
+    @Test
+    public void importRows_skipsBlankHeaderColumns() throws Exception {
+        importCsv("name,,label\napple,ignored,Apple\n", () -> 0L, rows -> { });
+
+        assertThat(queryColumn("c_label"), contains("Apple"));
+    }
+
+    @Test
+    public void importRows_reportsProgressBasedOnTimeRatherThanRows() throws Exception {
+        long[] time = {0};
+        List<Integer> progress = new ArrayList<>();
+
+        importCsv("name\na\nb\nc\nd\n", () -> {
+            time[0] += ExternalDataBulkImporter.PROGRESS_INTERVAL_MILLIS / 2;
+            return time[0];
+        }, progress::add);
+
+        assertThat(progress, contains(2, 4));
+    }
+
+    private int importCsv(String csv, Supplier<Long> clock, ExternalDataBulkImporter.ProgressListener listener) throws Exception {
+        try (CSVReader reader = new CSVReader(new StringReader(csv))) {
+            ExternalDataBulkImporter importer = new ExternalDataBulkImporter(reader.readNext(), clock);
+            db.execSQL(importer.getCreateTableSql("data"));
+            return importer.importRows(db, "data", reader, () -> false, listener);
+        }
+    }
+
+    private List<String> queryColumn(String column) {
+        List<String> values = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT " + column + " FROM data ORDER BY c_sortby", null)) {
+            while (cursor.moveToNext()) {
+                values.add(cursor.getString(0));
+            }
+        }
+
+        return values;
+    }
+}
@@ -1,5 +1,6 @@
 package org.odk.collect.android.externaldata;
 
+import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
@@ -214,6 +215,71 @@ public class ExternalDataReaderTest {
         assertThat("expected zero rows of data after reimporting unchanged file", cursor.getCount(), is(0));
     }
 
+    @Test
+    public void doImport_skipsHashingIfFileFingerprintIsUnchanged() {
+        csvFile.setLastModified(System.currentTimeMillis() - 60_000);
+        ExternalDataReader externalDataReader = new ExternalDataReaderImpl(null);
+        externalDataReader.doImport(formDefToCsvMedia);
+
+        // Change the recorded hash so that the file would be reimported if it was hashed
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(dbFile.getAbsolutePath(), null, SQLiteDatabase.OPEN_READWRITE);
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_MD5_HASH, "not the hash");
+        db.update(EXTERNAL_METADATA_TABLE_NAME, values, null, null);
+        db.delete(EXTERNAL_DATA_TABLE_NAME, null, null);
+        db.close();
+
+        externalDataReader = new ExternalDataReaderImpl(null);
+        externalDataReader.doImport(formDefToCsvMedia);
+
+        db = SQLiteDatabase.openDatabase(dbFile.getAbsolutePath(), null, SQLiteDatabase.OPEN_READONLY);
+        assertThat(db.rawQuery(SELECT_ALL_DATA_QUERY, null).getCount(), is(0));
+        db.close();
+    }
+
+    @Test
+    public void doImport_whenFileWasJustModified_hashesFileAgainNextTime() {
+        csvFile.setLastModified(System.currentTimeMillis());
+        ExternalDataReader externalDataReader = new ExternalDataReaderImpl(null);
+        externalDataReader.doImport(formDefToCsvMedia);
+
+        // The file could be rewritten without its size or modification time changing so the
+        // changed hash should be noticed
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(dbFile.getAbsolutePath(), null, SQLiteDatabase.OPEN_READWRITE);
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_MD5_HASH, "not the hash");
+        db.update(EXTERNAL_METADATA_TABLE_NAME, values, null, null);
+        db.delete(EXTERNAL_DATA_TABLE_NAME, null, null);
+        db.close();
+
+        externalDataReader = new ExternalDataReaderImpl(null);
+        externalDataReader.doImport(formDefToCsvMedia);
+
+        db = SQLiteDatabase.openDatabase(dbFile.getAbsolutePath(), null, SQLiteDatabase.OPEN_READONLY);
+        assertThat(db.rawQuery(SELECT_ALL_DATA_QUERY, null).getCount(), is(3));
+        db.close();
+    }
+
+    @Test
+    public void doImport_withMultipleDataSets_importsEachIntoItsOwnDatabase() throws IOException {
+        File otherCsvFile = new File(csvFile.getParentFile(), "other-fruits.csv");
+        org.apache.commons.io.FileUtils.copyFile(csvFile, otherCsvFile);
+        File otherDbFile = new File(csvFile.getParentFile(), "other-fruits.db");
+
+        Map<String, File> externalDataMap = makeExternalDataMap();
+        externalDataMap.put("other-fruits", otherCsvFile);
+
+        ExternalDataReader externalDataReader = new ExternalDataReaderImpl(null, 2);
+        externalDataReader.doImport(externalDataMap);
+
+        for (File file : new File[]{dbFile, otherDbFile}) {
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getAbsolutePath(), null, SQLiteDatabase.OPEN_READONLY);
+            assertThat(db.rawQuery(SELECT_ALL_DATA_QUERY, null).getCount(), is(3));
+            assertThat(SQLiteUtils.doesTableExist(db, EXTERNAL_METADATA_TABLE_NAME), is(true));
+            db.close();
+        }
+    }
+
     private static Map<String, File> makeExternalDataMap() {
         Map<String, File> externalDataMap = new HashMap<>();
         externalDataMap.put(SIMPLE_SEARCH_EXTERNAL_CSV_NAME, csvFile);
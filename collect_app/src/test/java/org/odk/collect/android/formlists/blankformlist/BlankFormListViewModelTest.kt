@@ -130,8 +130,8 @@ class BlankFormListViewModelTest {
 
         createViewModel()
 
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 1, formId = "1"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 2, formId = "2"))
+        assertFormItem(formsToDisplay()[0], form(dbId = 1, formId = "1"))
+        assertFormItem(formsToDisplay()[1], form(dbId = 2, formId = "2"))
     }
 
     @Test
@@ -143,8 +143,8 @@ class BlankFormListViewModelTest {
 
         createViewModel()
 
-        assertThat(viewModel.formsToDisplay.getOrAwaitValue().size, `is`(1))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 1, formId = "1"))
+        assertThat(formsToDisplay().size, `is`(1))
+        assertFormItem(formsToDisplay()[0], form(dbId = 1, formId = "1"))
     }
 
     @Test
@@ -156,8 +156,8 @@ class BlankFormListViewModelTest {
 
         createViewModel(showAllVersions = false)
 
-        assertThat(viewModel.formsToDisplay.getOrAwaitValue().size, `is`(1))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 2, formId = "1", version = "1"))
+        assertThat(formsToDisplay().size, `is`(1))
+        assertFormItem(formsToDisplay()[0], form(dbId = 2, formId = "1", version = "1"))
     }
 
     @Test
@@ -169,9 +169,9 @@ class BlankFormListViewModelTest {
 
         createViewModel(showAllVersions = true)
 
-        assertThat(viewModel.formsToDisplay.getOrAwaitValue().size, `is`(2))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 1, formId = "1", version = "2"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 2, formId = "1", version = "1"))
+        assertThat(formsToDisplay().size, `is`(2))
+        assertFormItem(formsToDisplay()[0], form(dbId = 1, formId = "1", version = "2"))
+        assertFormItem(formsToDisplay()[1], form(dbId = 2, formId = "1", version = "1"))
     }
 
     @Test
@@ -188,11 +188,11 @@ class BlankFormListViewModelTest {
 
         viewModel.sortingOrder = 0
 
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 1, formId = "1", formName = "1Form"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 5, formId = "5", formName = "2Form"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[2], form(dbId = 3, formId = "3", formName = "aForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[3], form(dbId = 4, formId = "4", formName = "AForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[4], form(dbId = 2, formId = "2", formName = "BForm"))
+        assertFormItem(formsToDisplay()[0], form(dbId = 1, formId = "1", formName = "1Form"))
+        assertFormItem(formsToDisplay()[1], form(dbId = 5, formId = "5", formName = "2Form"))
+        assertFormItem(formsToDisplay()[2], form(dbId = 3, formId = "3", formName = "aForm"))
+        assertFormItem(formsToDisplay()[3], form(dbId = 4, formId = "4", formName = "AForm"))
+        assertFormItem(formsToDisplay()[4], form(dbId = 2, formId = "2", formName = "BForm"))
     }
 
     @Test
@@ -209,11 +209,11 @@ class BlankFormListViewModelTest {
 
         viewModel.sortingOrder = 1
 
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 2, formId = "2", formName = "BForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 3, formId = "3", formName = "aForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[2], form(dbId = 4, formId = "4", formName = "AForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[3], form(dbId = 5, formId = "5", formName = "2Form"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[4], form(dbId = 1, formId = "1", formName = "1Form"))
+        assertFormItem(formsToDisplay()[0], form(dbId = 2, formId = "2", formName = "BForm"))
+        assertFormItem(formsToDisplay()[1], form(dbId = 3, formId = "3", formName = "aForm"))
+        assertFormItem(formsToDisplay()[2], form(dbId = 4, formId = "4", formName = "AForm"))
+        assertFormItem(formsToDisplay()[3], form(dbId = 5, formId = "5", formName = "2Form"))
+        assertFormItem(formsToDisplay()[4], form(dbId = 1, formId = "1", formName = "1Form"))
     }
 
     @Test
@@ -230,11 +230,11 @@ class BlankFormListViewModelTest {
 
         viewModel.sortingOrder = 2
 
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 4, formId = "4", formName = "AForm", lastDetectedAttachmentsUpdateDate = 7))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 2, formId = "2", formName = "BForm", lastDetectedAttachmentsUpdateDate = 6))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[2], form(dbId = 5, formId = "5", formName = "2Form"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[3], form(dbId = 3, formId = "3", formName = "aForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[4], form(dbId = 1, formId = "1", formName = "1Form"))
+        assertFormItem(formsToDisplay()[0], form(dbId = 4, formId = "4", formName = "AForm", lastDetectedAttachmentsUpdateDate = 7))
+        assertFormItem(formsToDisplay()[1], form(dbId = 2, formId = "2", formName = "BForm", lastDetectedAttachmentsUpdateDate = 6))
+        assertFormItem(formsToDisplay()[2], form(dbId = 5, formId = "5", formName = "2Form"))
+        assertFormItem(formsToDisplay()[3], form(dbId = 3, formId = "3", formName = "aForm"))
+        assertFormItem(formsToDisplay()[4], form(dbId = 1, formId = "1", formName = "1Form"))
     }
 
     @Test
@@ -251,11 +251,11 @@ class BlankFormListViewModelTest {
 
         viewModel.sortingOrder = 3
 
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 1, formId = "1", formName = "1Form"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 3, formId = "3", formName = "aForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[2], form(dbId = 5, formId = "5", formName = "2Form"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[3], form(dbId = 2, formId = "2", formName = "BForm", lastDetectedAttachmentsUpdateDate = 6))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[4], form(dbId = 4, formId = "4", formName = "AForm", lastDetectedAttachmentsUpdateDate = 7))
+        assertFormItem(formsToDisplay()[0], form(dbId = 1, formId = "1", formName = "1Form"))
+        assertFormItem(formsToDisplay()[1], form(dbId = 3, formId = "3", formName = "aForm"))
+        assertFormItem(formsToDisplay()[2], form(dbId = 5, formId = "5", formName = "2Form"))
+        assertFormItem(formsToDisplay()[3], form(dbId = 2, formId = "2", formName = "BForm", lastDetectedAttachmentsUpdateDate = 6))
+        assertFormItem(formsToDisplay()[4], form(dbId = 4, formId = "4", formName = "AForm", lastDetectedAttachmentsUpdateDate = 7))
     }
 
     @Test
@@ -280,11 +280,11 @@ class BlankFormListViewModelTest {
 
         viewModel.sortingOrder = 4
 
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 2, formId = "2", formName = "BForm"), 5L)
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 4, formId = "4", formName = "AForm"), 4L)
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[2], form(dbId = 5, formId = "5", formName = "2Form"), 3L)
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[3], form(dbId = 3, formId = "3", formName = "aForm"), 2L)
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[4], form(dbId = 1, formId = "1", formName = "1Form"), 1L)
+        assertFormItem(formsToDisplay()[0], form(dbId = 2, formId = "2", formName = "BForm"), 5L)
+        assertFormItem(formsToDisplay()[1], form(dbId = 4, formId = "4", formName = "AForm"), 4L)
+        assertFormItem(formsToDisplay()[2], form(dbId = 5, formId = "5", formName = "2Form"), 3L)
+        assertFormItem(formsToDisplay()[3], form(dbId = 3, formId = "3", formName = "aForm"), 2L)
+        assertFormItem(formsToDisplay()[4], form(dbId = 1, formId = "1", formName = "1Form"), 1L)
     }
 
     @Test
@@ -301,11 +301,11 @@ class BlankFormListViewModelTest {
 
         viewModel.sortingOrder = 4
 
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 1, formId = "1", formName = "1Form"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 2, formId = "2", formName = "BForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[2], form(dbId = 3, formId = "3", formName = "aForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[3], form(dbId = 4, formId = "4", formName = "AForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[4], form(dbId = 5, formId = "5", formName = "2Form"))
+        assertFormItem(formsToDisplay()[0], form(dbId = 1, formId = "1", formName = "1Form"))
+        assertFormItem(formsToDisplay()[1], form(dbId = 2, formId = "2", formName = "BForm"))
+        assertFormItem(formsToDisplay()[2], form(dbId = 3, formId = "3", formName = "aForm"))
+        assertFormItem(formsToDisplay()[3], form(dbId = 4, formId = "4", formName = "AForm"))
+        assertFormItem(formsToDisplay()[4], form(dbId = 5, formId = "5", formName = "2Form"))
     }
 
     @Test
@@ -327,11 +327,11 @@ class BlankFormListViewModelTest {
 
         viewModel.sortingOrder = 4
 
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 3, formId = "3", formName = "aForm"), 2L)
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 1, formId = "1", formName = "1Form"), 1L)
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[2], form(dbId = 2, formId = "2", formName = "BForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[3], form(dbId = 4, formId = "4", formName = "AForm"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[4], form(dbId = 5, formId = "5", formName = "2Form"))
+        assertFormItem(formsToDisplay()[0], form(dbId = 3, formId = "3", formName = "aForm"), 2L)
+        assertFormItem(formsToDisplay()[1], form(dbId = 1, formId = "1", formName = "1Form"), 1L)
+        assertFormItem(formsToDisplay()[2], form(dbId = 2, formId = "2", formName = "BForm"))
+        assertFormItem(formsToDisplay()[3], form(dbId = 4, formId = "4", formName = "AForm"))
+        assertFormItem(formsToDisplay()[4], form(dbId = 5, formId = "5", formName = "2Form"))
     }
 
     @Test
@@ -352,9 +352,9 @@ class BlankFormListViewModelTest {
 
         viewModel.sortingOrder = 4
 
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 2, formId = "1", formName = "AForm v2", version = "2"), 3L)
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 3, formId = "2", formName = "BForm"), 2L)
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[2], form(dbId = 1, formId = "1", formName = "AForm v1", version = "1"), 1L)
+        assertFormItem(formsToDisplay()[0], form(dbId = 2, formId = "1", formName = "AForm v2", version = "2"), 3L)
+        assertFormItem(formsToDisplay()[1], form(dbId = 3, formId = "2", formName = "BForm"), 2L)
+        assertFormItem(formsToDisplay()[2], form(dbId = 1, formId = "1", formName = "AForm v1", version = "1"), 1L)
     }
 
     @Test
@@ -369,28 +369,28 @@ class BlankFormListViewModelTest {
 
         viewModel.filterText = "2"
 
-        assertThat(viewModel.formsToDisplay.getOrAwaitValue().size, `is`(2))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 2, formId = "2"))
+        assertThat(formsToDisplay().size, `is`(2))
+        assertFormItem(formsToDisplay()[0], form(dbId = 2, formId = "2"))
         assertFormItem(
-            viewModel.formsToDisplay.getOrAwaitValue()[1],
+            formsToDisplay()[1],
             form(dbId = 3, formId = "3", formName = "Form 2x")
         )
 
         viewModel.filterText = "2x"
 
-        assertThat(viewModel.formsToDisplay.getOrAwaitValue().size, `is`(1))
+        assertThat(formsToDisplay().size, `is`(1))
         assertFormItem(
-            viewModel.formsToDisplay.getOrAwaitValue()[0],
+            formsToDisplay()[0],
             form(dbId = 3, formId = "3", formName = "Form 2x")
         )
 
         viewModel.filterText = ""
 
-        assertThat(viewModel.formsToDisplay.getOrAwaitValue().size, `is`(3))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 1, formId = "1"))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 2, formId = "2"))
+        assertThat(formsToDisplay().size, `is`(3))
+        assertFormItem(formsToDisplay()[0], form(dbId = 1, formId = "1"))
+        assertFormItem(formsToDisplay()[1], form(dbId = 2, formId = "2"))
         assertFormItem(
-            viewModel.formsToDisplay.getOrAwaitValue()[2],
+            formsToDisplay()[2],
             form(dbId = 3, formId = "3", formName = "Form 2x")
         )
     }
@@ -406,21 +406,41 @@ class BlankFormListViewModelTest {
 
         viewModel.filterText = "2"
 
-        assertThat(viewModel.formsToDisplay.getOrAwaitValue().size, `is`(2))
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[0], form(dbId = 2, formId = "2"))
+        assertThat(formsToDisplay().size, `is`(2))
+        assertFormItem(formsToDisplay()[0], form(dbId = 2, formId = "2"))
         assertFormItem(
-            viewModel.formsToDisplay.getOrAwaitValue()[1],
+            formsToDisplay()[1],
             form(dbId = 3, formId = "3", formName = "Form 2x")
         )
 
         viewModel.sortingOrder = 1
 
-        assertThat(viewModel.formsToDisplay.getOrAwaitValue().size, `is`(2))
+        assertThat(formsToDisplay().size, `is`(2))
         assertFormItem(
-            viewModel.formsToDisplay.getOrAwaitValue()[0],
+            formsToDisplay()[0],
             form(dbId = 3, formId = "3", formName = "Form 2x")
         )
-        assertFormItem(viewModel.formsToDisplay.getOrAwaitValue()[1], form(dbId = 2, formId = "2"))
+        assertFormItem(formsToDisplay()[1], form(dbId = 2, formId = "2"))
+    }
+
+    @Test
+    fun `list of forms is filtered in the background and only the latest result is used`() {
+        saveForms(
+            form(dbId = 1, formId = "1", formName = "Form 1"),
+            form(dbId = 2, formId = "2", formName = "Form 2")
+        )
+        createViewModel()
+
+        viewModel.filterText = "1"
+        viewModel.filterText = "2"
+        assertThat(viewModel.formsToDisplay.value!!.size, `is`(2))
+
+        scheduler.runBackground()
+        assertThat(viewModel.formsToDisplay.value!!.size, `is`(2))
+
+        scheduler.runBackground()
+        assertThat(viewModel.formsToDisplay.value!!.size, `is`(1))
+        assertFormItem(viewModel.formsToDisplay.value!![0], form(dbId = 2, formId = "2", formName = "Form 2"))
     }
 
     private fun saveForms(vararg forms: Form) {
@@ -451,6 +471,7 @@ class BlankFormListViewModelTest {
             projectId,
             showAllVersions
         )
+        viewModel.formsToDisplay.observeForever { }
 
         if (runAllBackgroundTasks) {
             scheduler.runBackground()
@@ -458,6 +479,15 @@ class BlankFormListViewModelTest {
         }
     }
 
+    /**
+     * Forms are filtered and sorted in the background whenever they, the filter or the sort order
+     * change so run that before checking them.
+     */
+    private fun formsToDisplay(): List<BlankFormListItem> {
+        scheduler.runBackground()
+        return viewModel.formsToDisplay.value!!
+    }
+
     private fun assertFormItem(blankFormListItem: BlankFormListItem, form: Form, lastStatusChangeDate: Long = 0) {
         assertThat(
             blankFormListItem,
@@ -1,10 +1,30 @@
 package org.odk.collect.android.formmanagement
 
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okhttp3.mockwebserver.SocketPolicy
 import org.hamcrest.MatcherAssert.assertThat
 import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.greaterThan
+import org.hamcrest.Matchers.lessThanOrEqualTo
+import org.hamcrest.Matchers.startsWith
+import org.junit.Rule
 import org.junit.Test
 import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.spy
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.odk.collect.android.openrosa.OpenRosaFormSource
+import org.odk.collect.android.openrosa.OpenRosaHttpInterface
+import org.odk.collect.android.openrosa.OpenRosaResponseParser
+import org.odk.collect.android.openrosa.okhttp.OkHttpConnection
+import org.odk.collect.android.openrosa.okhttp.OkHttpOpenRosaServerClientProvider
+import org.odk.collect.android.rules.MockWebServerRule
+import org.odk.collect.android.utilities.WebCredentialsUtils
 import org.odk.collect.forms.FormSource
 import org.odk.collect.forms.ManifestFile
 import org.odk.collect.forms.MediaFile
@@ -13,9 +33,14 @@ import org.odk.collect.formstest.InMemFormsRepository
 import org.odk.collect.shared.TempFiles
 import org.odk.collect.shared.strings.Md5
 import java.io.File
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 class FormMediaDownloaderTest {
 
+    @get:Rule
+    val mockWebServerRule = MockWebServerRule()
+
     @Test
     fun `returns false when there is an existing copy of a media file and an older one`() {
         var date: Long = 0
@@ -99,4 +124,201 @@ class FormMediaDownloaderTest {
 
         assertThat(result, equalTo(false))
     }
+
+    @Test
+    fun `only looks up existing versions of the form once for all media files`() {
+        val formsRepository = spy(InMemFormsRepository())
+        formsRepository.save(
+            FormFixtures.form(
+                version = "1",
+                mediaFiles = listOf(Pair("file1", "existing1"), Pair("file2", "existing2"))
+            )
+        )
+
+        val mediaFiles = listOf(
+            MediaFile("file1", Md5.getMd5Hash("existing1".byteInputStream())!!, "url1"),
+            MediaFile("file2", "changed", "url2")
+        )
+        val serverFormDetails =
+            ServerFormDetails(null, null, "formId", "2", null, false, true, ManifestFile(null, mediaFiles))
+        val formSource = mock<FormSource> {
+            on { fetchMediaFile("url2") } doReturn "changed".toByteArray().inputStream()
+        }
+
+        val result = FormMediaDownloader(formsRepository, formSource).download(
+            serverFormDetails,
+            File(TempFiles.createTempDir(), "temp").absolutePath,
+            TempFiles.createTempDir(),
+            mock()
+        )
+
+        assertThat(result, equalTo(true))
+        verify(formsRepository, times(1)).getAllByFormId("formId")
+    }
+
+    @Test
+    fun `downloads all media files from the server concurrently`() {
+        val server = mockWebServerRule.start()
+        val contents = (1..10).associate { "/file$it" to "contents of file $it" }
+        val inFlight = AtomicInteger()
+        val maxInFlight = AtomicInteger()
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet()) { a, b -> maxOf(a, b) }
+                Thread.sleep(50)
+                inFlight.decrementAndGet()
+                return MockResponse().setBody(contents[request.path]!!)
+            }
+        }
+
+        val mediaFiles = contents.map { (path, content) ->
+            MediaFile(path.drop(1), Md5.getMd5Hash(content.byteInputStream())!!, server.url(path).toString())
+        }
+        val serverFormDetails = ServerFormDetails(
+            null, null, "formId", "1", null, true, false, ManifestFile(null, mediaFiles)
+        )
+
+        val tempMediaPath = File(TempFiles.createTempDir(), "temp").absolutePath
+        val formMediaDownloader = FormMediaDownloader(InMemFormsRepository(), buildFormSource(server), null, null, 4)
+        val result = formMediaDownloader.download(serverFormDetails, tempMediaPath, TempFiles.createTempDir(), mock())
+
+        assertThat(result, equalTo(true))
+        assertThat(server.requestCount, equalTo(10))
+        assertThat(maxInFlight.get(), greaterThan(1))
+        assertThat(maxInFlight.get(), lessThanOrEqualTo(4))
+        contents.forEach { (path, content) ->
+            assertThat(File(tempMediaPath, path.drop(1)).readText(), equalTo(content))
+        }
+    }
+
+    @Test
+    fun `downloads of the same media file at the same time do not share a partial download`() {
+        val server = mockWebServerRule.start()
+        val content = "blah".repeat(16 * 1024)
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                Thread.sleep(100)
+                return MockResponse().setBody(content)
+            }
+        }
+
+        val partialDownloadsDir = TempFiles.createTempDir()
+        val tempMediaPaths = (1..2).map { File(TempFiles.createTempDir(), "temp").absolutePath }
+        val threads = tempMediaPaths.map {
+            Thread { downloadMediaFile(server, content, it, partialDownloadsDir) }.also { thread -> thread.start() }
+        }
+        threads.forEach { it.join() }
+
+        tempMediaPaths.forEach {
+            assertThat(File(it, "file").readText(), equalTo(content))
+        }
+        assertThat(server.requestCount, equalTo(2))
+    }
+
+    @Test
+    fun `removes partial downloads that can not be resumed`() {
+        val server = mockWebServerRule.start()
+        val content = "blah"
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                return MockResponse().setBody(content)
+            }
+        }
+
+        val partialDownloadsDir = TempFiles.createTempDir()
+        val changedFile = File(partialDownloadsDir, "formId/file-oldhash").also { it.parentFile!!.mkdirs(); it.writeText("old") }
+        val oldFile = File(partialDownloadsDir, "otherFormId/file-hash").also { it.parentFile!!.mkdirs(); it.writeText("old") }
+        oldFile.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8))
+        val recentFile = File(partialDownloadsDir, "otherFormId/other-hash").also { it.writeText("recent") }
+
+        downloadMediaFile(server, content, File(TempFiles.createTempDir(), "temp").absolutePath, partialDownloadsDir)
+
+        assertThat(changedFile.exists(), equalTo(false))
+        assertThat(oldFile.exists(), equalTo(false))
+        assertThat(recentFile.exists(), equalTo(true))
+    }
+
+    @Test
+    fun `resumes media file download with a range request when the connection drops`() {
+        val server = mockWebServerRule.start()
+        val content = "blah".repeat(16 * 1024)
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                val range = request.getHeader("Range")
+                return if (range == null) {
+                    MockResponse()
+                        .setBody(content)
+                        .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY)
+                } else {
+                    val offset = range.removePrefix("bytes=").removeSuffix("-").toInt()
+                    MockResponse()
+                        .setResponseCode(206)
+                        .setBody(content.substring(offset))
+                }
+            }
+        }
+
+        val tempMediaPath = File(TempFiles.createTempDir(), "temp").absolutePath
+        downloadMediaFile(server, content, tempMediaPath)
+
+        assertThat(server.requestCount, equalTo(2))
+        server.takeRequest()
+        assertThat(server.takeRequest().getHeader("Range")!!, startsWith("bytes="))
+        assertThat(File(tempMediaPath, "file").readText(), equalTo(content))
+    }
+
+    @Test
+    fun `downloads the rest of a media file when the server ignores the range request`() {
+        val server = mockWebServerRule.start()
+        val content = "blah".repeat(16 * 1024)
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                return if (request.getHeader("Range") == null) {
+                    MockResponse()
+                        .setBody(content)
+                        .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY)
+                } else {
+                    MockResponse().setBody(content)
+                }
+            }
+        }
+
+        val tempMediaPath = File(TempFiles.createTempDir(), "temp").absolutePath
+        downloadMediaFile(server, content, tempMediaPath)
+
+        assertThat(File(tempMediaPath, "file").readText(), equalTo(content))
+    }
+
+    private fun downloadMediaFile(server: MockWebServer, content: String, tempMediaPath: String, partialDownloadsDir: File? = null) {
+        val mediaFile = MediaFile(
+            "file",
+            Md5.getMd5Hash(content.byteInputStream())!!,
+            server.url("/file").toString()
+        )
+        val serverFormDetails = ServerFormDetails(
+            null, null, "formId", "1", null, true, false, ManifestFile(null, listOf(mediaFile))
+        )
+
+        FormMediaDownloader(InMemFormsRepository(), buildFormSource(server), partialDownloadsDir).download(
+            serverFormDetails,
+            tempMediaPath,
+            TempFiles.createTempDir(),
+            mock()
+        )
+    }
+
+    private fun buildFormSource(server: MockWebServer): OpenRosaFormSource {
+        val httpInterface = OkHttpConnection(
+            OkHttpOpenRosaServerClientProvider(OkHttpClient()),
+            OpenRosaHttpInterface.FileToContentTypeMapper { "application/octet-stream" },
+            "Test Agent"
+        )
+
+        return OpenRosaFormSource(
+            server.url("/").toString(),
+            httpInterface,
+            mock<WebCredentialsUtils>(),
+            mock<OpenRosaResponseParser>()
+        )
+    }
 }
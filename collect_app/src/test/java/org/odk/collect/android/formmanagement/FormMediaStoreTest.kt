@@ -0,0 +1,117 @@
+package org.odk.collect.android.formmanagement
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import org.odk.collect.shared.TempFiles
+import org.odk.collect.shared.strings.Md5
+import java.io.File
+import java.nio.file.Files
+
+class FormMediaStoreTest {
+
+    private val storeDir = File(TempFiles.createTempDir(), ".media-store")
+    private val mediaStore = FormMediaStore(storeDir, JavaLinker())
+
+    @Test
+    fun `linkOrCopy creates destination with the contents of source`() {
+        val source = File(TempFiles.createTempDir(), "file").also { it.writeText("contents") }
+        val destination = File(TempFiles.createTempDir(), "media/file")
+
+        FormMediaStore.linkOrCopy(source, destination)
+        assertThat(destination.readText(), equalTo("contents"))
+    }
+
+    @Test
+    fun `linkOrCopy replaces destination without changing what it was linked to`() {
+        val original = File(TempFiles.createTempDir(), "file").also { it.writeText("original") }
+        val destination = File(TempFiles.createTempDir(), "file")
+        FormMediaStore.linkOrCopy(original, destination)
+
+        val updated = File(TempFiles.createTempDir(), "file").also { it.writeText("updated") }
+        FormMediaStore.linkOrCopy(updated, destination)
+
+        assertThat(destination.readText(), equalTo("updated"))
+        assertThat(original.readText(), equalTo("original"))
+    }
+
+    @Test
+    fun `get returns false when there is no file with the hash in the store`() {
+        val destination = File(TempFiles.createTempDir(), "file")
+
+        assertThat(mediaStore.get("unknown", destination), equalTo(false))
+        assertThat(destination.exists(), equalTo(false))
+    }
+
+    @Test
+    fun `get links files that have been put in the store`() {
+        val file = File(TempFiles.createTempDir(), "file").also { it.writeText("contents") }
+        val hash = Md5.getMd5Hash(file)!!
+        assertThat(mediaStore.put(file, hash), equalTo(true))
+
+        val destination = File(TempFiles.createTempDir(), "file")
+        assertThat(mediaStore.get(hash, destination), equalTo(true))
+        assertThat(Files.isSameFile(file.toPath(), destination.toPath()), equalTo(true))
+        assertThat(destination.readText(), equalTo("contents"))
+    }
+
+    @Test
+    fun `put and get return false when hard links are not supported`() {
+        val mediaStore = FormMediaStore(storeDir, object : FormMediaStore.Linker {
+            override fun link(oldPath: String, newPath: String) {
+                throw UnsupportedOperationException()
+            }
+
+            override fun getLinkCount(path: String): Long {
+                return 1
+            }
+        })
+
+        val file = File(TempFiles.createTempDir(), "file").also { it.writeText("contents") }
+        val hash = Md5.getMd5Hash(file)!!
+        assertThat(mediaStore.put(file, hash), equalTo(false))
+
+        val destination = File(TempFiles.createTempDir(), "file")
+        assertThat(mediaStore.get(hash, destination), equalTo(false))
+        assertThat(destination.exists(), equalTo(false))
+    }
+
+    @Test
+    fun `prune removes files that are not linked to from anywhere else`() {
+        val file = File(TempFiles.createTempDir(), "file").also { it.writeText("contents") }
+        val hash = Md5.getMd5Hash(file)!!
+        mediaStore.put(file, hash)
+
+        file.delete()
+        mediaStore.prune()
+
+        assertThat(mediaStore.get(hash, File(TempFiles.createTempDir(), "file")), equalTo(false))
+    }
+
+    @Test
+    fun `prune keeps files that are linked to from elsewhere`() {
+        val file = File(TempFiles.createTempDir(), "file").also { it.writeText("contents") }
+        val hash = Md5.getMd5Hash(file)!!
+        mediaStore.put(file, hash)
+
+        mediaStore.prune()
+
+        val destination = File(TempFiles.createTempDir(), "file")
+        assertThat(mediaStore.get(hash, destination), equalTo(true))
+        assertThat(destination.readText(), equalTo("contents"))
+    }
+
+    /**
+     * Uses java.nio as [android.system.Os] isn't available in JVM tests.
+     */
+    private class JavaLinker : FormMediaStore.Linker {
+
+        override fun link(oldPath: String, newPath: String) {
+            Files.createLink(File(newPath).toPath(), File(oldPath).toPath())
+        }
+
+        override fun getLinkCount(path: String): Long {
+            return (Files.getAttribute(File(path).toPath(), "unix:nlink") as Int).toLong()
+        }
+    }
+}
@@ -85,8 +85,10 @@ class FormsDataServiceTest {
         formsDataService = FormsDataService(
             appState = AppState(),
             notifier = notifier,
-            projectDependencyProviderFactory = projectDependencyProviderFactory
-        ) { 0 }
+            projectDependencyProviderFactory = projectDependencyProviderFactory,
+            clock = { 0 },
+            formDefCacheWarmer = mock()
+        )
     }
 
     @Test
@@ -0,0 +1,81 @@
+package org.odk.collect.android.formmanagement;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.odk.collect.android.utilities.FormDefCacheWarmer;
+import org.odk.collect.forms.Form;
+import org.odk.collect.formstest.FormUtils;
+import org.odk.collect.formstest.InMemFormsRepository;
+import org.odk.collect.shared.TempFiles;
+import org.odk.collect.shared.strings.Md5;
+import org.odk.collect.testshared.FakeScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Compares {@link LocalFormUseCases#synchronizeWithDisk} on an unchanged forms directory with
+ * hashing every form file (what every sync used to do) on generated forms directories.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LocalFormUseCasesBenchmark {
+
+    private static final int[] FORM_COUNTS = {100, 500};
+    private static final int FORM_SIZE_BYTES = 256 * 1024;
+
+    @Test
+    public void compareResyncWithHashingEveryForm() throws Exception {
+        for (int formCount : FORM_COUNTS) {
+            File formsDir = generateFormsDir(formCount);
+            InMemFormsRepository formsRepository = new InMemFormsRepository();
+            File cacheDir = TempFiles.createTempDir();
+            FormDefCacheWarmer formDefCacheWarmer = new FormDefCacheWarmer(new FakeScheduler());
+
+            long start = System.currentTimeMillis();
+            LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+            long firstSyncMillis = System.currentTimeMillis() - start;
+
+            start = System.currentTimeMillis();
+            for (Form form : formsRepository.getAll()) {
+                Md5.getMd5Hash(new File(form.getFormFilePath()));
+            }
+            long hashAllMillis = Math.max(1, System.currentTimeMillis() - start);
+
+            start = System.currentTimeMillis();
+            LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+            long resyncMillis = Math.max(1, System.currentTimeMillis() - start);
+
+            System.out.printf(Locale.US, "%,d forms: first sync %,d ms, hashing every form %,d ms, unchanged resync %,d ms (%.1fx)%n",
+                    formCount,
+                    firstSyncMillis,
+                    hashAllMillis,
+                    resyncMillis,
+                    (double) hashAllMillis / resyncMillis);
+        }
+    }
+
+    private File generateFormsDir(int formCount) throws IOException {
+        File formsDir = TempFiles.createTempDir();
+        for (int i = 0; i < formCount; i++) {
+            String body = FormUtils.createXFormBody("form" + i, "1", "Form " + i);
+
+            // Pad the form out to a realistic size with a comment
+            StringBuilder padding = new StringBuilder("<!--");
+            while (padding.length() < FORM_SIZE_BYTES) {
+                padding.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit. ");
+            }
+            padding.append("-->\n");
+
+            File formFile = new File(formsDir, "form" + i + ".xml");
+            FileUtils.writeStringToFile(formFile, body + padding, StandardCharsets.UTF_8);
+            formFile.setLastModified(System.currentTimeMillis() - 60_000);
+        }
+
+        return formsDir;
+    }
+}
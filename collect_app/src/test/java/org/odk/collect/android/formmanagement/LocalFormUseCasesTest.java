@@ -1,23 +1,41 @@
 package org.odk.collect.android.formmanagement;
 
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.odk.collect.android.utilities.FormDefCacheWarmer;
 import org.odk.collect.forms.Form;
 import org.odk.collect.forms.instances.Instance;
 import org.odk.collect.formstest.FormUtils;
 import org.odk.collect.formstest.InMemFormsRepository;
 import org.odk.collect.formstest.InMemInstancesRepository;
 import org.odk.collect.shared.TempFiles;
+import org.odk.collect.shared.strings.Md5;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.odk.collect.formstest.InstanceUtils.buildInstance;
 
+@RunWith(AndroidJUnit4.class)
 public class LocalFormUseCasesTest {
 
     private final InMemFormsRepository formsRepository = new InMemFormsRepository();
     private final InMemInstancesRepository instancesRepository = new InMemInstancesRepository();
+    private final File cacheDir = TempFiles.createTempDir();
+    private final FormDefCacheWarmer formDefCacheWarmer = mock(FormDefCacheWarmer.class);
 
     @Test
     public void whenFormHasDeletedInstances_deletesForm() {
@@ -127,4 +145,108 @@ public class LocalFormUseCasesTest {
         assertThat(forms.size(), is(1));
         assertThat(forms.get(0).getDbId(), is(2L));
     }
+
+    @Test
+    public void synchronizeWithDisk_addsFormsInFormsDir() throws IOException {
+        File formsDir = TempFiles.createTempDir();
+        File formFile = new File(formsDir, "form.xml");
+        FileUtils.writeStringToFile(formFile, FormUtils.createXFormBody("id", "1", "Form"), StandardCharsets.UTF_8);
+        formFile.setLastModified(System.currentTimeMillis() - 60_000);
+
+        LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+
+        List<Form> forms = formsRepository.getAll();
+        assertThat(forms.size(), is(1));
+        assertThat(forms.get(0).getFormId(), is("id"));
+        assertThat(forms.get(0).getFileSize(), is(formFile.length()));
+        assertThat(forms.get(0).getFileLastModified(), is(formFile.lastModified()));
+    }
+
+    @Test
+    public void synchronizeWithDisk_whenFormFileIsUnchanged_doesNotUpdateForm() throws IOException {
+        File formsDir = TempFiles.createTempDir();
+        File formFile = new File(formsDir, "form.xml");
+        FileUtils.writeStringToFile(formFile, FormUtils.createXFormBody("id", "1", "Form"), StandardCharsets.UTF_8);
+        formFile.setLastModified(System.currentTimeMillis() - 60_000);
+        LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+
+        InMemFormsRepository spiedFormsRepository = spy(formsRepository);
+        LocalFormUseCases.INSTANCE.synchronizeWithDisk(spiedFormsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+
+        verify(spiedFormsRepository, never()).save(any());
+    }
+
+    @Test
+    public void synchronizeWithDisk_queuesAddedFormsToBeCached() throws IOException {
+        File formsDir = TempFiles.createTempDir();
+        File formFile = new File(formsDir, "form.xml");
+        FileUtils.writeStringToFile(formFile, FormUtils.createXFormBody("id", "1", "Form"), StandardCharsets.UTF_8);
+        formFile.setLastModified(System.currentTimeMillis() - 60_000);
+
+        LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+        verify(formDefCacheWarmer).warm(formFile, cacheDir);
+    }
+
+    @Test
+    public void synchronizeWithDisk_whenFormFileIsUnchanged_doesNotQueueFormToBeCachedAgain() throws IOException {
+        File formsDir = TempFiles.createTempDir();
+        File formFile = new File(formsDir, "form.xml");
+        FileUtils.writeStringToFile(formFile, FormUtils.createXFormBody("id", "1", "Form"), StandardCharsets.UTF_8);
+        formFile.setLastModified(System.currentTimeMillis() - 60_000);
+
+        LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+        LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+        verify(formDefCacheWarmer, times(1)).warm(any(), any());
+    }
+
+    @Test
+    public void synchronizeWithDisk_whenFormFileIsChanged_updatesForm() throws IOException {
+        File formsDir = TempFiles.createTempDir();
+        File formFile = new File(formsDir, "form.xml");
+        FileUtils.writeStringToFile(formFile, FormUtils.createXFormBody("id", "1", "Form"), StandardCharsets.UTF_8);
+        LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+
+        FileUtils.writeStringToFile(formFile, FormUtils.createXFormBody("id", "1", "Changed form"), StandardCharsets.UTF_8);
+        formFile.setLastModified(System.currentTimeMillis() - 60_000);
+        LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+
+        List<Form> forms = formsRepository.getAll();
+        assertThat(forms.size(), is(1));
+        assertThat(forms.get(0).getDisplayName(), is("Changed form"));
+        assertThat(forms.get(0).getMD5Hash(), is(Md5.getMd5Hash(formFile)));
+        assertThat(forms.get(0).getFileSize(), is(formFile.length()));
+    }
+
+    @Test
+    public void synchronizeWithDisk_whenFormFileIsTouchedButUnchanged_recordsNewModificationTime() throws IOException {
+        File formsDir = TempFiles.createTempDir();
+        File formFile = new File(formsDir, "form.xml");
+        FileUtils.writeStringToFile(formFile, FormUtils.createXFormBody("id", "1", "Form"), StandardCharsets.UTF_8);
+        LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+        String originalHash = formsRepository.getAll().get(0).getMD5Hash();
+
+        formFile.setLastModified(formFile.lastModified() - 60_000);
+        LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+
+        List<Form> forms = formsRepository.getAll();
+        assertThat(forms.size(), is(1));
+        assertThat(forms.get(0).getMD5Hash(), is(originalHash));
+        assertThat(forms.get(0).getFileLastModified(), is(formFile.lastModified()));
+    }
+
+    @Test
+    public void synchronizeWithDisk_addsAllValidForms_andRenamesInvalidOnes() throws IOException {
+        File formsDir = TempFiles.createTempDir();
+        for (int i = 0; i < 10; i++) {
+            FileUtils.writeStringToFile(new File(formsDir, "form" + i + ".xml"), FormUtils.createXFormBody("id" + i, "1", "Form " + i), StandardCharsets.UTF_8);
+        }
+        FileUtils.writeStringToFile(new File(formsDir, "invalid.xml"), "not a form", StandardCharsets.UTF_8);
+
+        String result = LocalFormUseCases.INSTANCE.synchronizeWithDisk(formsRepository, formsDir.getAbsolutePath(), cacheDir.getAbsolutePath(), formDefCacheWarmer);
+
+        assertThat(result.contains("invalid.xml"), is(true));
+        assertThat(formsRepository.getAll().size(), is(10));
+        assertThat(new File(formsDir, "invalid.xml").exists(), is(false));
+        assertThat(new File(formsDir, "invalid.xml.bad").exists(), is(true));
+    }
 }
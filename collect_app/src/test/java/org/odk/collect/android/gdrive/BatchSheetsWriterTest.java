@@ -0,0 +1,134 @@
+package org.odk.collect.android.gdrive;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+import com.google.api.services.sheets.v4.model.Request;
+import com.google.api.services.sheets.v4.model.Spreadsheet;
+import com.google.api.services.sheets.v4.model.ValueRange;
+
+import org.junit.Test;
+import org.odk.collect.android.gdrive.sheets.BatchSheetsWriter;
+import org.odk.collect.android.gdrive.sheets.SheetsApi;
+import org.odk.collect.android.gdrive.sheets.SheetsHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BatchSheetsWriterTest {
+
+    private final FakeSheetsApi sheetsApi = new FakeSheetsApi();
+    private final BatchSheetsWriter writer = new BatchSheetsWriter(new SheetsHelper(sheetsApi));
+
+    @Test
+    public void flush_appendsAllRowsForASheetInOneRequest() throws Exception {
+        writer.setSpreadsheet("spreadsheet");
+        writer.addRow("main", asList("1", "2"));
+        writer.addRow("repeat", asList("a"));
+        writer.addRow("main", asList("3", "4"));
+        writer.flush();
+
+        assertThat(sheetsApi.appendCount, equalTo(2));
+        assertThat(sheetsApi.sheets.get("main"), equalTo(asList(asList("1", "2"), asList("3", "4"))));
+        assertThat(sheetsApi.sheets.get("repeat"), equalTo(singletonList(asList("a"))));
+    }
+
+    @Test
+    public void flush_doesNotWriteRowsAgain() throws Exception {
+        writer.setSpreadsheet("spreadsheet");
+        writer.addRow("main", asList("1", "2"));
+        writer.flush();
+        writer.flush();
+
+        assertThat(sheetsApi.appendCount, equalTo(1));
+    }
+
+    @Test
+    public void getHeaders_onlyReadsHeaderRowOnce() throws Exception {
+        sheetsApi.sheets.put("main", new ArrayList<>(singletonList(asList("name", "age"))));
+
+        writer.setSpreadsheet("spreadsheet");
+        assertThat(writer.getHeaders("main"), equalTo(asList("name", "age")));
+        assertThat(writer.getHeaders("main"), equalTo(asList("name", "age")));
+
+        assertThat(sheetsApi.readRanges, equalTo(singletonList("main!1:1")));
+    }
+
+    @Test
+    public void getHeaders_readsHeadersAgain_whenSpreadsheetChanges() throws Exception {
+        writer.setSpreadsheet("spreadsheet");
+        writer.getHeaders("main");
+        writer.setSpreadsheet("other");
+        writer.getHeaders("main");
+
+        assertThat(sheetsApi.readRanges.size(), equalTo(2));
+    }
+
+    @Test
+    public void writeHeaders_forNewSheet_appendsHeadersAndCachesThem() throws Exception {
+        writer.setSpreadsheet("spreadsheet");
+        writer.writeHeaders("main", asList("name", "age"));
+
+        assertThat(writer.getHeaders("main"), equalTo(asList("name", "age")));
+        assertThat(sheetsApi.sheets.get("main"), equalTo(singletonList(asList("name", "age"))));
+        assertThat(sheetsApi.readRanges.size(), equalTo(1));
+    }
+
+    @Test
+    public void discardPendingRows_meansRowsAreNotWritten() throws Exception {
+        writer.setSpreadsheet("spreadsheet");
+        writer.addRow("main", asList("1", "2"));
+        writer.discardPendingRows();
+        writer.flush();
+
+        assertThat(sheetsApi.appendCount, equalTo(0));
+    }
+
+    private static class FakeSheetsApi implements SheetsApi {
+
+        final Map<String, List<List<Object>>> sheets = new HashMap<>();
+        final List<String> readRanges = new ArrayList<>();
+        int appendCount;
+
+        @Override
+        public void batchUpdate(String spreadsheetId, List<Request> requests) {
+        }
+
+        @Override
+        public void insertRow(String spreadsheetId, String sheetName, ValueRange row) {
+            appendCount++;
+
+            List<List<Object>> sheet = sheets.get(sheetName);
+            if (sheet == null) {
+                sheet = new ArrayList<>();
+                sheets.put(sheetName, sheet);
+            }
+
+            sheet.addAll(row.getValues());
+        }
+
+        @Override
+        public void updateRow(String spreadsheetId, String sheetName, ValueRange row) {
+            String sheetTitle = sheetName.substring(0, sheetName.indexOf('!'));
+            sheets.get(sheetTitle).set(0, row.getValues().get(0));
+        }
+
+        @Override
+        public ValueRange getSpreadsheet(String spreadsheetId, String sheetName) {
+            readRanges.add(sheetName);
+
+            String sheetTitle = sheetName.substring(0, sheetName.indexOf('!'));
+            List<List<Object>> sheet = sheets.get(sheetTitle);
+            return new ValueRange().setValues(sheet == null || sheet.isEmpty() ? null : singletonList(sheet.get(0)));
+        }
+
+        @Override
+        public Spreadsheet getSpreadsheet(String spreadsheetId) {
+            return new Spreadsheet();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package org.odk.collect.android.gdrive;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.api.client.http.FileContent;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.Permission;
+import com.google.api.services.sheets.v4.model.Request;
+import com.google.api.services.sheets.v4.model.Sheet;
+import com.google.api.services.sheets.v4.model.SheetProperties;
+import com.google.api.services.sheets.v4.model.Spreadsheet;
+import com.google.api.services.sheets.v4.model.SpreadsheetProperties;
+import com.google.api.services.sheets.v4.model.ValueRange;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.odk.collect.android.gdrive.sheets.DriveApi;
+import org.odk.collect.android.gdrive.sheets.SheetsApi;
+import org.odk.collect.android.injection.DaggerUtils;
+import org.odk.collect.android.injection.config.AppDependencyComponent;
+import org.odk.collect.android.storage.StoragePathProvider;
+import org.odk.collect.android.storage.StorageSubdirectory;
+import org.odk.collect.android.support.CollectHelpers;
+import org.odk.collect.android.upload.FormUploadException;
+import org.odk.collect.async.CoroutineScheduler;
+import org.odk.collect.forms.instances.Instance;
+import org.odk.collect.forms.instances.InstancesRepository;
+import org.odk.collect.formstest.FormUtils;
+import org.odk.collect.formstest.InstanceUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kotlin.coroutines.EmptyCoroutineContext;
+
+@RunWith(AndroidJUnit4.class)
+public class InstanceGoogleSheetsUploaderTest {
+
+    private static final String SPREADSHEET_URL = "https://docs.google.com/spreadsheets/d/spreadsheet/edit";
+    private static final String MEDIA_URL = "https://drive.google.com/open?id=";
+
+    private static final String FORM = "<?xml version=\"1.0\"?>\n"
+            + "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\" xmlns:orx=\"http://openrosa.org/xforms\">\n"
+            + "    <h:head>\n"
+            + "        <h:title>Sheets Form</h:title>\n"
+            + "        <model>\n"
+            + "            <instance>\n"
+            + "                <data id=\"sheets_form\" orx:version=\"1\">\n"
+            + "                    <name/>\n"
+            + "                    <image1/>\n"
+            + "                    <image2/>\n"
+            + "                    <image3/>\n"
+            + "                    <meta>\n"
+            + "                        <instanceID/>\n"
+            + "                    </meta>\n"
+            + "                </data>\n"
+            + "            </instance>\n"
+            + "            <bind nodeset=\"/data/name\" type=\"string\"/>\n"
+            + "            <bind nodeset=\"/data/image1\" type=\"binary\"/>\n"
+            + "            <bind nodeset=\"/data/image2\" type=\"binary\"/>\n"
+            + "            <bind nodeset=\"/data/image3\" type=\"binary\"/>\n"
+            + "            <bind nodeset=\"/data/meta/instanceID\" type=\"string\"/>\n"
+            + "        </model>\n"
+            + "    </h:head>\n"
+            + "    <h:body>\n"
+            + "        <input ref=\"/data/name\"/>\n"
+            + "        <upload ref=\"/data/image1\" mediatype=\"image/*\"/>\n"
+            + "        <upload ref=\"/data/image2\" mediatype=\"image/*\"/>\n"
+            + "        <upload ref=\"/data/image3\" mediatype=\"image/*\"/>\n"
+            + "    </h:body>\n"
+            + "</h:html>";
+
+    private final FakeDriveApi driveApi = new FakeDriveApi();
+    private final FakeSheetsApi sheetsApi = new FakeSheetsApi();
+
+    private InstancesRepository instancesRepository;
+    private String instancesDir;
+    private InstanceGoogleSheetsUploader uploader;
+
+    @Before
+    public void setup() {
+        CollectHelpers.setupDemoProject();
+
+        AppDependencyComponent component = DaggerUtils.getComponent(ApplicationProvider.<Application>getApplicationContext());
+        StoragePathProvider storagePathProvider = component.storagePathProvider();
+        instancesRepository = component.instancesRepositoryProvider().get();
+        instancesDir = storagePathProvider.getOdkDirPath(StorageSubdirectory.INSTANCES);
+
+        String formsDir = storagePathProvider.getOdkDirPath(StorageSubdirectory.FORMS);
+        component.formsRepositoryProvider().get().save(FormUtils.buildForm("sheets_form", "1", formsDir, FORM).build());
+
+        uploader = new InstanceGoogleSheetsUploader(driveApi, sheetsApi,
+                new CoroutineScheduler(EmptyCoroutineContext.INSTANCE, EmptyCoroutineContext.INSTANCE));
+    }
+
+    @Test
+    public void uploadOneSubmission_writesRowWithUrlsOfUploadedMediaFiles() throws Exception {
+        Instance instance = createInstance("uuid:1", "1.jpg", "2.jpg", "3.jpg");
+
+        uploader.uploadOneSubmission(instance, SPREADSHEET_URL);
+        assertThat(sheetsApi.getRows("data").size(), is(2));
+        assertThat(sheetsApi.getRows("data").get(1), contains(
+                "'Alice",
+                MEDIA_URL + "1.jpg",
+                MEDIA_URL + "2.jpg",
+                MEDIA_URL + "3.jpg",
+                "'uuid:1"
+        ));
+    }
+
+    @Test
+    public void uploadOneSubmission_uploadsMediaFilesInParallel() throws Exception {
+        // Uploads wait for each other so this would time out if they were uploaded one at a time
+        driveApi.uploadsStarted = new CountDownLatch(2);
+        Instance instance = createInstance("uuid:1", "1.jpg", "2.jpg", "3.jpg");
+
+        uploader.uploadOneSubmission(instance, SPREADSHEET_URL);
+        assertThat(driveApi.uploads.get(), is(3));
+    }
+
+    @Test
+    public void uploadOneSubmission_whenAMediaFileFailsToUpload_throwsExceptionAndDoesNotWriteRow() throws Exception {
+        driveApi.failingFile = "2.jpg";
+        Instance instance = createInstance("uuid:1", "1.jpg", "2.jpg", "3.jpg");
+
+        try {
+            uploader.uploadOneSubmission(instance, SPREADSHEET_URL);
+            fail();
+        } catch (FormUploadException e) {
+            assertThat(e.getCause() instanceof IOException, is(true));
+        }
+
+        assertThat(sheetsApi.getRows("data").size(), is(1)); // Just the header row
+    }
+
+    @Test
+    public void uploadOneSubmission_onlyGetsSubmissionsFolderOnce() throws Exception {
+        uploader.uploadOneSubmission(createInstance("uuid:1", "1.jpg", "2.jpg", "3.jpg"), SPREADSHEET_URL);
+        uploader.uploadOneSubmission(createInstance("uuid:2", "4.jpg", "5.jpg", "6.jpg"), SPREADSHEET_URL);
+
+        assertThat(driveApi.createdFolders.get(), is(2)); // The root folder and the submissions folder
+        assertThat(sheetsApi.getRows("data").size(), is(3));
+    }
+
+    @Test
+    public void uploadOneSubmission_writesRowsForEachSheetInOneInsert() throws Exception {
+        uploader.uploadOneSubmission(createInstance("uuid:1", "1.jpg", "2.jpg", "3.jpg"), SPREADSHEET_URL);
+
+        // One insert for the header row and then one for the submission's rows
+        assertThat(sheetsApi.inserts.get(), is(2));
+    }
+
+    private Instance createInstance(String instanceId, String... mediaFileNames) throws IOException {
+        File instanceFile = InstanceUtils.createInstanceDirAndFile(instancesDir);
+        for (String mediaFileName : mediaFileNames) {
+            FileUtils.writeStringToFile(new File(instanceFile.getParentFile(), mediaFileName), mediaFileName, StandardCharsets.UTF_8);
+        }
+
+        FileUtils.writeStringToFile(instanceFile, "<data id=\"sheets_form\" version=\"1\">"
+                + "<name>Alice</name>"
+                + "<image1>" + mediaFileNames[0] + "</image1>"
+                + "<image2>" + mediaFileNames[1] + "</image2>"
+                + "<image3>" + mediaFileNames[2] + "</image3>"
+                + "<meta><instanceID>" + instanceId + "</instanceID></meta>"
+                + "</data>", StandardCharsets.UTF_8);
+
+        return instancesRepository.save(new Instance.Builder()
+                .formId("sheets_form")
+                .formVersion("1")
+                .instanceFilePath(instanceFile.getAbsolutePath())
+                .status(Instance.STATUS_COMPLETE)
+                .build());
+    }
+
+    private static class FakeDriveApi implements DriveApi {
+
+        final AtomicInteger createdFolders = new AtomicInteger();
+        final AtomicInteger uploads = new AtomicInteger();
+
+        CountDownLatch uploadsStarted;
+        String failingFile;
+
+        @Override
+        public String getFileId(String fileId, String fields) {
+            return null;
+        }
+
+        @Override
+        public Drive.Files.List generateRequest(String query, String fields) {
+            return null;
+        }
+
+        @Override
+        public void downloadFile(String fileId, File file) {
+        }
+
+        @Override
+        public String uploadFile(com.google.api.services.drive.model.File metadata, FileContent fileContent, String fields) throws IOException {
+            String fileName = new File(metadata.getName()).getName();
+
+            if (uploadsStarted != null) {
+                uploadsStarted.countDown();
+
+                try {
+                    if (!uploadsStarted.await(5, TimeUnit.SECONDS)) {
+                        throw new IOException("Uploads were not run in parallel");
+                    }
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            if (fileName.equals(failingFile)) {
+                throw new IOException("Upload failed");
+            }
+
+            uploads.incrementAndGet();
+            return fileName;
+        }
+
+        @Override
+        public String createFile(com.google.api.services.drive.model.File file, String fields) {
+            return "folder" + createdFolders.incrementAndGet();
+        }
+
+        @Override
+        public void setPermission(String folderId, String fields, Permission permission) {
+        }
+
+        @Override
+        public void fetchAllFiles(Drive.Files.List request, List<com.google.api.services.drive.model.File> files) {
+        }
+
+        @Override
+        public void fetchFilesForCurrentPage(Drive.Files.List request, List<com.google.api.services.drive.model.File> files) {
+        }
+    }
+
+    private static class FakeSheetsApi implements SheetsApi {
+
+        final AtomicInteger inserts = new AtomicInteger();
+
+        private final Map<String, List<List<Object>>> sheets = new HashMap<>();
+
+        List<List<Object>> getRows(String sheetName) {
+            List<List<Object>> rows = sheets.get(sheetName);
+            return rows != null ? rows : new ArrayList<>();
+        }
+
+        @Override
+        public void batchUpdate(String spreadsheetId, List<Request> requests) {
+        }
+
+        @Override
+        public void insertRow(String spreadsheetId, String sheetName, ValueRange row) {
+            inserts.incrementAndGet();
+
+            if (!sheets.containsKey(sheetName)) {
+                sheets.put(sheetName, new ArrayList<>());
+            }
+
+            sheets.get(sheetName).addAll(row.getValues());
+        }
+
+        @Override
+        public void updateRow(String spreadsheetId, String sheetName, ValueRange row) {
+            getRows(sheetName.split("!")[0]).set(0, row.getValues().get(0));
+        }
+
+        @Override
+        public ValueRange getSpreadsheet(String spreadsheetId, String sheetName) {
+            String[] range = sheetName.split("!");
+            List<List<Object>> rows = getRows(range[0]);
+
+            if (rows.isEmpty()) {
+                return new ValueRange();
+            } else if (range.length > 1) {
+                return new ValueRange().setValues(Collections.singletonList(rows.get(0)));
+            } else {
+                return new ValueRange().setValues(rows);
+            }
+        }
+
+        @Override
+        public Spreadsheet getSpreadsheet(String spreadsheetId) {
+            return new Spreadsheet()
+                    .setSpreadsheetId(spreadsheetId)
+                    .setProperties(new SpreadsheetProperties().setTitle("Submissions"))
+                    .setSheets(Collections.singletonList(new Sheet().setProperties(new SheetProperties().setTitle("data").setSheetId(0))));
+        }
+    }
+}
@@ -214,4 +214,61 @@ class InstanceDeleterTest {
         instanceDeleter.delete(instanceToDelete.dbId)
         assertThat(formsRepository.all.size, equalTo(2))
     }
+
+    @Test
+    fun `Deleting several instances deletes and soft-deletes them`() {
+        val incomplete = instancesRepository.save(
+            buildInstance("1", "version", createTempDir().absolutePath).build()
+        )
+        val submitted = instancesRepository.save(
+            buildInstance("1", "version", createTempDir().absolutePath)
+                .status(Instance.STATUS_SUBMITTED)
+                .build()
+        )
+
+        val deleted = instanceDeleter.delete(listOf(incomplete.dbId, submitted.dbId))
+
+        assertThat(deleted, equalTo(2))
+        assertThat(instancesRepository[incomplete.dbId], equalTo(null))
+        assertNotNull(instancesRepository[submitted.dbId]!!.deletedDate)
+    }
+
+    @Test
+    fun `Deleting several instances deletes soft-deleted forms that no longer have instances`() {
+        formsRepository.save(
+            Form.Builder()
+                .formId("1")
+                .version("1")
+                .deleted(true)
+                .formFilePath(createXFormFile("1", "1").absolutePath)
+                .build()
+        )
+
+        formsRepository.save(
+            Form.Builder()
+                .formId("2")
+                .version("1")
+                .deleted(true)
+                .formFilePath(createXFormFile("2", "1").absolutePath)
+                .build()
+        )
+
+        val instance1 = instancesRepository.save(
+            buildInstance("1", "1", createTempDir().absolutePath).build()
+        )
+        val instance2 = instancesRepository.save(
+            buildInstance("1", "1", createTempDir().absolutePath).build()
+        )
+        val instance3 = instancesRepository.save(
+            buildInstance("2", "1", createTempDir().absolutePath).build()
+        )
+        instancesRepository.save(
+            buildInstance("2", "1", createTempDir().absolutePath).build()
+        )
+
+        instanceDeleter.delete(listOf(instance1.dbId, instance2.dbId, instance3.dbId))
+
+        assertThat(formsRepository.all.size, equalTo(1))
+        assertThat(formsRepository.all[0].formId, equalTo("2"))
+    }
 }
@@ -0,0 +1,57 @@
+package org.odk.collect.android.instancemanagement;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.odk.collect.shared.TempFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class InstanceDiskSynchronizerTest {
+
+    @Test
+    public void readRootAttribute_returnsAttributeOfRootElement() throws Exception {
+        File instance = writeInstance("<?xml version='1.0' ?>\n" +
+                "<!-- comment -->\n" +
+                "<data id=\"my-form\" instanceID=\"uuid:123\"><name id=\"other\">Alice</name></data>");
+
+        assertThat(InstanceDiskSynchronizer.readRootAttribute(instance.getAbsolutePath(), "id"), is("my-form"));
+        assertThat(InstanceDiskSynchronizer.readRootAttribute(instance.getAbsolutePath(), "instanceID"), is("uuid:123"));
+    }
+
+    @Test
+    public void readRootAttribute_whenFileIsTruncated_returnsNull() throws Exception {
+        File instance = writeInstance("<data id=\"my-form\"><name>Alice</nam");
+        assertThat(InstanceDiskSynchronizer.readRootAttribute(instance.getAbsolutePath(), "id"), is(nullValue()));
+    }
+
+    @Test
+    public void readRootAttribute_whenFileIsNotWellFormed_returnsNull() throws Exception {
+        File instance = writeInstance("<data id=\"my-form\"><name>Alice</age></data>");
+        assertThat(InstanceDiskSynchronizer.readRootAttribute(instance.getAbsolutePath(), "id"), is(nullValue()));
+    }
+
+    @Test
+    public void readRootAttribute_whenAttributeIsMissing_returnsEmptyString() throws Exception {
+        File instance = writeInstance("<data><name id=\"other\">Alice</name></data>");
+        assertThat(InstanceDiskSynchronizer.readRootAttribute(instance.getAbsolutePath(), "id"), is(""));
+    }
+
+    @Test
+    public void readRootAttribute_whenFileIsNotXml_returnsNull() throws Exception {
+        File instance = writeInstance("not xml");
+        assertThat(InstanceDiskSynchronizer.readRootAttribute(instance.getAbsolutePath(), "id"), is(nullValue()));
+        assertThat(InstanceDiskSynchronizer.readRootAttribute(new File(instance.getParentFile(), "missing.xml").getAbsolutePath(), "id"), is(nullValue()));
+    }
+
+    private static File writeInstance(String xml) throws IOException {
+        File instance = new File(TempFiles.createTempDir(), "instance.xml");
+        FileUtils.writeStringToFile(instance, xml, StandardCharsets.UTF_8);
+        return instance;
+    }
+}
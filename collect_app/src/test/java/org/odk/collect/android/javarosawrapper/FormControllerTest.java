@@ -2,6 +2,10 @@ package org.odk.collect.android.javarosawrapper;
 
 import com.google.common.io.Files;
 
+import org.javarosa.core.model.FormIndex;
+import org.javarosa.core.model.data.IntegerData;
+import org.javarosa.core.model.data.StringData;
+import org.javarosa.core.model.instance.InstanceInitializationFactory;
 import org.javarosa.form.api.FormEntryController;
 import org.javarosa.form.api.FormEntryModel;
 import org.javarosa.xform.parse.XFormParser;
@@ -12,12 +16,17 @@ import org.junit.Test;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 public class FormControllerTest {
 
@@ -91,6 +100,117 @@ public class FormControllerTest {
     }
 
 
+    //region getIndexFromXPath
+    @Test
+    public void getIndexFromXPath_returnsIndexForEveryEventWithoutMovingIndex() throws Exception {
+        FormController formController = createInitializedFormController(ONE_QUESTION_NESTED_REPEAT);
+
+        List<FormIndex> indexes = new ArrayList<>();
+        while (formController.stepToNextEvent(true) != FormEntryController.EVENT_END_OF_FORM) {
+            indexes.add(formController.getFormIndex());
+        }
+
+        formController.jumpToIndex(indexes.get(1));
+        for (FormIndex index : indexes) {
+            assertThat(formController.getIndexFromXPath(formController.getXPath(index)), equalTo(index));
+        }
+        assertThat(formController.getFormIndex(), equalTo(indexes.get(1)));
+    }
+
+    @Test
+    public void getIndexFromXPath_whenXPathIsNotInForm_returnsNull() throws Exception {
+        FormController formController = createInitializedFormController(ONE_QUESTION_REPEAT);
+
+        assertThat(formController.getIndexFromXPath("question./data/person[3]/age[1]"), is(nullValue()));
+    }
+
+    @Test
+    public void getIndexFromXPath_afterNewRepeat_returnsIndexInNewRepeat() throws Exception {
+        FormController formController = createInitializedFormController(ONE_QUESTION_REPEAT);
+        formController.stepToNextScreenEvent();
+        formController.getIndexFromXPath(formController.getXPath(formController.getFormIndex()));
+
+        formController.jumpToNewRepeatPrompt();
+        formController.newRepeat();
+        formController.stepToNextEvent(true);
+        FormIndex newQuestion = formController.getFormIndex();
+        assertThat(formController.getEvent(), equalTo(FormEntryController.EVENT_QUESTION));
+
+        formController.jumpToIndex(FormIndex.createBeginningOfFormIndex());
+        assertThat(formController.getIndexFromXPath(formController.getXPath(newQuestion)), equalTo(newQuestion));
+    }
+
+    @Test
+    public void getIndexFromXPath_afterDeleteRepeat_doesNotReturnIndexInDeletedRepeat() throws Exception {
+        FormController formController = createInitializedFormController(ONE_QUESTION_REPEAT);
+        formController.stepToNextScreenEvent();
+        formController.jumpToNewRepeatPrompt();
+        formController.newRepeat();
+        formController.stepToNextEvent(true);
+        String deletedXPath = formController.getXPath(formController.getFormIndex());
+        assertThat(formController.getIndexFromXPath(deletedXPath), equalTo(formController.getFormIndex()));
+
+        formController.deleteRepeat();
+        assertThat(formController.getIndexFromXPath(deletedXPath), is(nullValue()));
+    }
+
+    @Test
+    public void getIndexFromXPath_whenQuestionIsNotRelevant_returnsNull() throws Exception {
+        FormController formController = createInitializedFormController(RELEVANCE);
+        formController.stepToNextEvent(true);
+        FormIndex show = formController.getFormIndex();
+        formController.stepToNextEvent(true);
+        FormIndex shown = formController.getFormIndex();
+        String shownXPath = formController.getXPath(shown);
+        assertThat(formController.getIndexFromXPath(shownXPath), equalTo(shown));
+
+        formController.answerQuestion(show, new StringData("no"));
+        assertThat(formController.getIndexFromXPath(shownXPath), is(nullValue()));
+
+        formController.answerQuestion(show, new StringData("yes"));
+        assertThat(formController.getIndexFromXPath(shownXPath), equalTo(shown));
+    }
+
+    @Test
+    public void getIndexFromXPath_whenQuestionIsNotRelevant_doesNotStepThroughForm() throws Exception {
+        FormEntryController formEntryController = spy(new FormEntryController(new FormEntryModel(
+                XFormUtils.getFormFromInputStream(new ByteArrayInputStream(RELEVANCE.getBytes())))));
+        FormController formController = new JavaRosaFormController(Files.createTempDir(), formEntryController, File.createTempFile("instance", ""));
+        formController.getFormDef().initialize(true, new InstanceInitializationFactory());
+        formController.stepToNextEvent(true);
+        FormIndex show = formController.getFormIndex();
+        formController.stepToNextEvent(true);
+        String shownXPath = formController.getXPath(formController.getFormIndex());
+
+        formController.answerQuestion(show, new StringData("no"));
+        assertThat(formController.getIndexFromXPath(shownXPath), is(nullValue()));
+        verify(formEntryController, never()).jumpToIndex(FormIndex.createBeginningOfFormIndex());
+    }
+
+    @Test
+    public void getIndexFromXPath_whenSteppingCreatesRepeats_returnsIndexesInCreatedRepeats() throws Exception {
+        List<String> xpaths = new ArrayList<>();
+        FormController steppedFormController = createInitializedFormController(COUNT_REPEAT);
+        steppedFormController.stepToNextEvent(true);
+        steppedFormController.answerQuestion(steppedFormController.getFormIndex(), new IntegerData(3));
+        while (steppedFormController.stepToNextEvent(true) != FormEntryController.EVENT_END_OF_FORM) {
+            if (steppedFormController.getEvent() == FormEntryController.EVENT_QUESTION) {
+                xpaths.add(steppedFormController.getXPath(steppedFormController.getFormIndex()));
+            }
+        }
+        assertThat(xpaths.size(), equalTo(3));
+
+        FormController formController = createInitializedFormController(COUNT_REPEAT);
+        formController.stepToNextEvent(true);
+        formController.answerQuestion(formController.getFormIndex(), new IntegerData(3));
+        for (int i = xpaths.size() - 1; i >= 0; i--) {
+            FormIndex index = formController.getIndexFromXPath(xpaths.get(i));
+            assertThat(index, is(notNullValue()));
+            assertThat(formController.getXPath(index), equalTo(xpaths.get(i)));
+        }
+    }
+    //endregion
+
     //region indexIsInFieldList
     @Test
     public void questionInGroupWithoutFieldListAppearance_isNotInFieldList() throws IOException, XFormParser.ParseException {
@@ -121,6 +241,62 @@ public class FormControllerTest {
         return new JavaRosaFormController(Files.createTempDir(), formEntryController, File.createTempFile("instance", ""));
     }
 
+    @NotNull
+    private FormController createInitializedFormController(String xform) throws IOException, XFormParser.ParseException {
+        FormController formController = createFormController(xform);
+        formController.getFormDef().initialize(true, new InstanceInitializationFactory());
+        return formController;
+    }
+
+    private static final String RELEVANCE = "<?xml version=\"1.0\"?>\n" +
+            "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\">\n" +
+            "    <h:head>\n" +
+            "        <h:title>Relevance</h:title>\n" +
+            "        <model>\n" +
+            "            <instance>\n" +
+            "                <data id=\"relevance\">\n" +
+            "                    <show>yes</show>\n" +
+            "                    <shown/>\n" +
+            "                </data>\n" +
+            "            </instance>\n" +
+            "            <bind nodeset=\"/data/show\" type=\"string\"/>\n" +
+            "            <bind nodeset=\"/data/shown\" type=\"string\" relevant=\"/data/show = 'yes'\"/>\n" +
+            "        </model>\n" +
+            "    </h:head>\n" +
+            "    <h:body>\n" +
+            "        <input ref=\"/data/show\"><label>Show</label></input>\n" +
+            "        <input ref=\"/data/shown\"><label>Shown</label></input>\n" +
+            "    </h:body>\n" +
+            "</h:html>\n";
+
+    private static final String COUNT_REPEAT = "<?xml version=\"1.0\"?>\n" +
+            "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\" xmlns:jr=\"http://openrosa.org/javarosa\">\n" +
+            "    <h:head>\n" +
+            "        <h:title>Count Repeat</h:title>\n" +
+            "        <model>\n" +
+            "            <instance>\n" +
+            "                <data id=\"count_repeat\">\n" +
+            "                    <count/>\n" +
+            "                    <person>\n" +
+            "                        <age/>\n" +
+            "                    </person>\n" +
+            "                </data>\n" +
+            "            </instance>\n" +
+            "            <bind nodeset=\"/data/count\" type=\"int\"/>\n" +
+            "            <bind nodeset=\"/data/person/age\" type=\"int\"/>\n" +
+            "        </model>\n" +
+            "    </h:head>\n" +
+            "    <h:body>\n" +
+            "        <input ref=\"/data/count\"><label>How many people?</label></input>\n" +
+            "        <group ref=\"/data/person\">\n" +
+            "            <label>Person</label>\n" +
+            "            <repeat nodeset=\"/data/person\" jr:count=\"/data/count\">\n" +
+            "                <input ref=\"/data/person/age\"><label>What is their age?</label></input>\n" +
+            "            </repeat>\n" +
+            "        </group>\n" +
+            "    </h:body>\n" +
+            "</h:html>\n";
+
     private static final String ONE_QUESTION_REPEAT = "<?xml version=\"1.0\"?>\n" +
             "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:ev=\"http://www.w3.org/2001/xml-events\" xmlns:h=\"http://www.w3.org/1999/xhtml\" xmlns:jr=\"http://openrosa.org/javarosa\" xmlns:orx=\"http://openrosa.org/xforms\" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\">\n" +
             "    <h:head>\n" +
@@ -0,0 +1,120 @@
+package org.odk.collect.android.javarosawrapper;
+
+import com.google.common.io.Files;
+
+import org.javarosa.core.model.FormDef;
+import org.javarosa.core.model.FormIndex;
+import org.javarosa.core.model.instance.InstanceInitializationFactory;
+import org.javarosa.form.api.FormEntryController;
+import org.javarosa.form.api.FormEntryModel;
+import org.javarosa.xform.util.XFormUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Compares resolving XPaths with {@link JavaRosaFormController#getIndexFromXPath(String)} (which
+ * uses a lookup table) to stepping through the whole form for each one as it used to for a form
+ * with a lot of repeats.
+ */
+public class JavaRosaFormControllerBenchmark {
+
+    private static final int QUESTIONS_PER_REPEAT = 20;
+    private static final int[] REPEATS = {10, 100, 500};
+    private static final int LOOKUPS = 50;
+
+    @Test
+    public void compareXPathLookups() throws Exception {
+        for (int repeats : REPEATS) {
+            JavaRosaFormController formController = createFormController(repeats);
+
+            List<FormIndex> indexes = new ArrayList<>();
+            formController.jumpToIndex(FormIndex.createBeginningOfFormIndex());
+            while (formController.stepToNextEvent(true) != FormEntryController.EVENT_END_OF_FORM) {
+                indexes.add(formController.getFormIndex());
+            }
+
+            Collections.shuffle(indexes, new Random(0));
+            List<String> xpaths = new ArrayList<>();
+            for (FormIndex index : indexes.subList(0, LOOKUPS)) {
+                xpaths.add(formController.getXPath(index));
+            }
+
+            // Warm up so class loading isn't measured
+            formController.findIndexFromXPath(xpaths.get(0));
+
+            long start = System.nanoTime();
+            for (String xpath : xpaths) {
+                formController.findIndexFromXPath(xpath);
+            }
+            double steppingMillis = (System.nanoTime() - start) / 1e6 / LOOKUPS;
+
+            start = System.nanoTime();
+            formController.getIndexFromXPath(xpaths.get(0));
+            double firstLookupMillis = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                assertThat(formController.getIndexFromXPath(xpaths.get(i)), equalTo(indexes.get(i)));
+            }
+            double lookupMillis = (System.nanoTime() - start) / 1e6 / LOOKUPS;
+
+            System.out.printf(Locale.US, "%d repeats (%,d events): stepping %.3fms, first lookup (building table) %.3fms, lookup %.4fms%n",
+                    repeats,
+                    indexes.size(),
+                    steppingMillis,
+                    firstLookupMillis,
+                    lookupMillis);
+        }
+    }
+
+    private static JavaRosaFormController createFormController(int repeats) throws Exception {
+        FormDef formDef = XFormUtils.getFormFromInputStream(new ByteArrayInputStream(createForm().getBytes(StandardCharsets.UTF_8)));
+        formDef.initialize(true, new InstanceInitializationFactory());
+        JavaRosaFormController formController = new JavaRosaFormController(Files.createTempDir(), new FormEntryController(new FormEntryModel(formDef)), null);
+
+        formController.stepToNextScreenEvent();
+        for (int i = 1; i < repeats; i++) {
+            formController.jumpToNewRepeatPrompt();
+            formController.newRepeat();
+        }
+
+        return formController;
+    }
+
+    private static String createForm() {
+        StringBuilder instance = new StringBuilder();
+        StringBuilder binds = new StringBuilder();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < QUESTIONS_PER_REPEAT; i++) {
+            instance.append("<q").append(i).append("/>");
+            binds.append("<bind nodeset=\"/data/item/q").append(i).append("\" type=\"string\"/>\n");
+            body.append("<input ref=\"/data/item/q").append(i).append("\"><label>Question ").append(i).append("</label></input>\n");
+        }
+
+        return "<?xml version=\"1.0\"?>\n" +
+                "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\">\n" +
+                "    <h:head>\n" +
+                "        <h:title>Repeats</h:title>\n" +
+                "        <model>\n" +
+                "            <instance><data id=\"repeats\"><item>" + instance + "</item></data></instance>\n" +
+                binds +
+                "        </model>\n" +
+                "    </h:head>\n" +
+                "    <h:body>\n" +
+                "        <group ref=\"/data/item\"><label>Item</label><repeat nodeset=\"/data/item\">\n" +
+                body +
+                "        </repeat></group>\n" +
+                "    </h:body>\n" +
+                "</h:html>\n";
+    }
+}
@@ -243,6 +243,38 @@ public abstract class OpenRosaPostRequestTest {
         assertThat(response.getResponseCode(), equalTo(500));
     }
 
+    @Test
+    public void whenRequestIsSplit_andSecondRequestIs500_onlyNotifiesListenerOfFilesInFirstRequest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(201));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+
+        URI uri = mockWebServer.url("/blah").uri();
+        File attachment1 = createTempFile("blah blah blah");
+        File attachment2 = createTempFile("blah2 blah2 blah2");
+        RecordingSubmissionUploadListener listener = new RecordingSubmissionUploadListener();
+        subject.uploadSubmissionAndFiles(createTempFile("<node>content</node>"), asList(attachment1, attachment2), uri, null, 0, listener);
+
+        assertThat(listener.uploadedFiles, equalTo(asList(attachment1)));
+    }
+
+    @Test
+    public void notifiesListenerOfProgressUntilEverythingIsSent() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(201));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(201));
+
+        URI uri = mockWebServer.url("/blah").uri();
+        File submission = createTempFile("<node>content</node>");
+        File attachment1 = createTempFile("blah blah blah");
+        File attachment2 = createTempFile("blah2 blah2 blah2");
+        RecordingSubmissionUploadListener listener = new RecordingSubmissionUploadListener();
+        subject.uploadSubmissionAndFiles(submission, asList(attachment1, attachment2), uri, null, 0, listener);
+
+        long totalBytes = 2 * submission.length() + attachment1.length() + attachment2.length();
+        assertThat(listener.bytesSent, equalTo(totalBytes));
+        assertThat(listener.totalBytes, equalTo(totalBytes));
+        assertThat(listener.uploadedFiles, equalTo(asList(attachment1, attachment2)));
+    }
+
     private File createTempFile(String content) throws Exception {
         return createTempFile(content, ".tmp");
     }
@@ -277,6 +309,24 @@ public abstract class OpenRosaPostRequestTest {
         return compressed;
     }
 
+    private static class RecordingSubmissionUploadListener implements SubmissionUploadListener {
+
+        long bytesSent;
+        long totalBytes;
+        final List<File> uploadedFiles = new ArrayList<>();
+
+        @Override
+        public void onProgress(long bytesSent, long totalBytes) {
+            this.bytesSent = bytesSent;
+            this.totalBytes = totalBytes;
+        }
+
+        @Override
+        public void onFilesUploaded(@NonNull List<File> files) {
+            uploadedFiles.addAll(files);
+        }
+    }
+
     private class XmlOrBlahContentTypeMapper implements OpenRosaHttpInterface.FileToContentTypeMapper {
 
         @NonNull
@@ -0,0 +1,120 @@
+package org.odk.collect.android.tasks;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.system.ErrnoException;
+import android.system.OsConstants;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.apache.commons.io.FileUtils;
+import org.javarosa.core.services.transport.payload.ByteArrayPayload;
+import org.javarosa.core.services.transport.payload.IDataPayload;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.odk.collect.android.javarosawrapper.FormController;
+import org.odk.collect.shared.TempFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+@RunWith(AndroidJUnit4.class)
+public class SaveFormToDiskTest {
+
+    private final File dir = TempFiles.createTempDir();
+
+    @Test
+    public void writeFile_replacesExistingFile() throws Exception {
+        File file = new File(dir, "instance.xml");
+        SaveFormToDisk.writeFile(payload("<data>first</data>"), file.getAbsolutePath());
+        SaveFormToDisk.writeFile(payload("<data>second</data>"), file.getAbsolutePath());
+
+        assertThat(FileUtils.readFileToString(file, StandardCharsets.UTF_8), is("<data>second</data>"));
+    }
+
+    @Test
+    public void linkOrCopyFile_createsFileWithSameContents() throws Exception {
+        File instance = new File(dir, "instance.xml");
+        File lastSaved = new File(dir, "media/last-saved.xml");
+        SaveFormToDisk.writeFile(payload("<data>saved</data>"), instance.getAbsolutePath());
+
+        SaveFormToDisk.linkOrCopyFile(instance, lastSaved);
+        assertThat(FileUtils.readFileToString(lastSaved, StandardCharsets.UTF_8), is("<data>saved</data>"));
+    }
+
+    @Test
+    public void linkOrCopyFile_whenFilesCanBeLinked_linksFile() throws Exception {
+        File instance = new File(dir, "instance.xml");
+        File lastSaved = new File(dir, "media/last-saved.xml");
+        SaveFormToDisk.writeFile(payload("<data>saved</data>"), instance.getAbsolutePath());
+
+        SaveFormToDisk.linkOrCopyFile(instance, lastSaved, SaveFormToDiskTest::link);
+        assertThat(Files.isSameFile(instance.toPath(), lastSaved.toPath()), is(true));
+        assertThat(FileUtils.readFileToString(lastSaved, StandardCharsets.UTF_8), is("<data>saved</data>"));
+    }
+
+    @Test
+    public void linkOrCopyFile_whenFilesCanNotBeLinked_copiesFile() throws Exception {
+        File instance = new File(dir, "instance.xml");
+        File lastSaved = new File(dir, "media/last-saved.xml");
+        SaveFormToDisk.writeFile(payload("<data>saved</data>"), instance.getAbsolutePath());
+
+        SaveFormToDisk.linkOrCopyFile(instance, lastSaved, (oldPath, newPath) -> {
+            throw new ErrnoException("link", OsConstants.EXDEV);
+        });
+        assertThat(Files.isSameFile(instance.toPath(), lastSaved.toPath()), is(false));
+        assertThat(FileUtils.readFileToString(lastSaved, StandardCharsets.UTF_8), is("<data>saved</data>"));
+    }
+
+    @Test
+    public void linkOrCopyFile_whenLinked_isNotChangedWhenSourceIsWrittenAgain() throws Exception {
+        File instance = new File(dir, "instance.xml");
+        File lastSaved = new File(dir, "last-saved.xml");
+        SaveFormToDisk.writeFile(payload("<data>first</data>"), instance.getAbsolutePath());
+        SaveFormToDisk.linkOrCopyFile(instance, lastSaved, SaveFormToDiskTest::link);
+
+        SaveFormToDisk.writeFile(payload("<data>second</data>"), instance.getAbsolutePath());
+        assertThat(FileUtils.readFileToString(lastSaved, StandardCharsets.UTF_8), is("<data>first</data>"));
+    }
+
+    @Test
+    public void writeSubmissionXml_whenEntireFormIsSubmittedUnencrypted_deletesExistingSubmissionXml() throws Exception {
+        File submissionXml = new File(dir, "submission.xml");
+        SaveFormToDisk.writeFile(payload("<data>old</data>"), submissionXml.getAbsolutePath());
+        FormController formController = mock(FormController.class);
+
+        SaveFormToDisk.writeSubmissionXml(formController, submissionXml, true, null);
+        assertThat(submissionXml.exists(), is(false));
+        verify(formController, never()).getSubmissionXml();
+    }
+
+    @Test
+    public void writeSubmissionXml_whenPartOfFormIsSubmitted_writesSubmissionXml() throws Exception {
+        File submissionXml = new File(dir, "submission.xml");
+        FormController formController = mock(FormController.class);
+        when(formController.getSubmissionXml()).thenReturn(payload("<data>submission</data>"));
+
+        SaveFormToDisk.writeSubmissionXml(formController, submissionXml, false, null);
+        assertThat(FileUtils.readFileToString(submissionXml, StandardCharsets.UTF_8), is("<data>submission</data>"));
+    }
+
+    private static void link(String oldPath, String newPath) {
+        try {
+            Files.createLink(Paths.get(newPath), Paths.get(oldPath));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ByteArrayPayload payload(String contents) {
+        return new ByteArrayPayload(contents.getBytes(StandardCharsets.UTF_8), null, IDataPayload.PAYLOAD_TYPE_XML);
+    }
+}
@@ -0,0 +1,153 @@
+package org.odk.collect.android.tasks;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.javarosa.core.model.FormDef;
+import org.javarosa.core.model.data.IAnswerData;
+import org.javarosa.core.model.data.IntegerData;
+import org.javarosa.core.model.data.StringData;
+import org.javarosa.core.model.instance.InstanceInitializationFactory;
+import org.javarosa.core.model.instance.TreeElement;
+import org.javarosa.core.services.transport.payload.ByteArrayPayload;
+import org.javarosa.form.api.FormEntryController;
+import org.javarosa.form.api.FormEntryModel;
+import org.javarosa.xform.util.XFormUtils;
+import org.junit.Test;
+import org.odk.collect.android.javarosawrapper.FormController;
+import org.odk.collect.android.javarosawrapper.JavaRosaFormController;
+import org.odk.collect.shared.TempFiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Map;
+
+public class SavepointJournalTest {
+
+    private final File savepointFile = new File(TempFiles.createTempDir(), "instance.xml.save");
+
+    @Test
+    public void append_withoutFullSavepoint_returnsFalse() throws Exception {
+        FormController formController = createFormController();
+        assertThat(SavepointJournal.append(formController, savepointFile), is(false));
+    }
+
+    @Test
+    public void replay_appliesJournaledAnswersToSavepoint() throws Exception {
+        FormController formController = createFormController();
+        answer(formController, "name", new StringData("Alice"));
+        writeSavepoint(formController);
+
+        answer(formController, "name", new StringData("Bob"));
+        assertThat(SavepointJournal.append(formController, savepointFile), is(true));
+        answer(formController, "age", new IntegerData(42));
+        assertThat(SavepointJournal.append(formController, savepointFile), is(true));
+
+        TreeElement root = restore();
+        assertThat(root.getChild("name", 0).getValue().getDisplayText(), is("Bob"));
+        assertThat(root.getChild("age", 0).getValue().getDisplayText(), is("42"));
+    }
+
+    @Test
+    public void replay_whenAnswerIsCleared_clearsIt() throws Exception {
+        FormController formController = createFormController();
+        answer(formController, "name", new StringData("Alice"));
+        writeSavepoint(formController);
+
+        answer(formController, "name", null);
+        assertThat(SavepointJournal.append(formController, savepointFile), is(true));
+
+        assertThat(restore().getChild("name", 0).getValue(), is(nullValue()));
+    }
+
+    @Test
+    public void replay_whenLastRecordIsIncomplete_appliesRecordsBeforeIt() throws Exception {
+        FormController formController = createFormController();
+        writeSavepoint(formController);
+
+        answer(formController, "name", new StringData("Alice"));
+        assertThat(SavepointJournal.append(formController, savepointFile), is(true));
+
+        try (FileOutputStream outputStream = new FileOutputStream(SavepointJournal.getJournalFile(savepointFile), true)) {
+            outputStream.write(new byte[]{0, 0, 0, 100, 1, 2, 3});
+        }
+
+        assertThat(restore().getChild("name", 0).getValue().getDisplayText(), is("Alice"));
+    }
+
+    @Test
+    public void replay_whenAnswerChangesAfterPayloadIsCreated_appliesChangedAnswer() throws Exception {
+        FormController formController = createFormController();
+        answer(formController, "name", new StringData("Alice"));
+
+        Map<String, String> values = SavepointJournal.readValues(formController);
+        ByteArrayPayload payload = formController.getFilledInFormXml();
+        answer(formController, "name", new StringData("Bob"));
+        SavepointJournal.writeSavepoint(formController, values, payload, savepointFile);
+
+        assertThat(SavepointJournal.append(formController, savepointFile), is(true));
+        assertThat(restore().getChild("name", 0).getValue().getDisplayText(), is("Bob"));
+    }
+
+    @Test
+    public void writeSavepoint_removesJournal() throws Exception {
+        FormController formController = createFormController();
+        writeSavepoint(formController);
+
+        answer(formController, "name", new StringData("Alice"));
+        SavepointJournal.append(formController, savepointFile);
+        assertThat(SavepointJournal.getJournalFile(savepointFile).exists(), is(true));
+
+        writeSavepoint(formController);
+        assertThat(SavepointJournal.getJournalFile(savepointFile).exists(), is(false));
+        assertThat(restore().getChild("name", 0).getValue().getDisplayText(), is("Alice"));
+    }
+
+    private TreeElement restore() throws Exception {
+        FormEntryController formEntryController = createFormEntryController();
+        FormLoaderTask.importData(savepointFile, true, formEntryController);
+        return formEntryController.getModel().getForm().getMainInstance().getRoot();
+    }
+
+    private void writeSavepoint(FormController formController) throws Exception {
+        Map<String, String> values = SavepointJournal.readValues(formController);
+        SavepointJournal.writeSavepoint(formController, values, formController.getFilledInFormXml(), savepointFile);
+    }
+
+    private static void answer(FormController formController, String name, IAnswerData answer) {
+        formController.getFormDef().getMainInstance().getRoot().getChild(name, 0).setAnswer(answer);
+    }
+
+    private static FormController createFormController() throws Exception {
+        return new JavaRosaFormController(TempFiles.createTempDir(), createFormEntryController(), File.createTempFile("instance", ""));
+    }
+
+    private static FormEntryController createFormEntryController() {
+        FormDef formDef = XFormUtils.getFormFromInputStream(new ByteArrayInputStream(FORM.getBytes()));
+        formDef.initialize(true, new InstanceInitializationFactory());
+        return new FormEntryController(new FormEntryModel(formDef));
+    }
+
+    private static final String FORM = "<?xml version=\"1.0\"?>\n" +
+            "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\">\n" +
+            "    <h:head>\n" +
+            "        <h:title>Journal</h:title>\n" +
+            "        <model>\n" +
+            "            <instance>\n" +
+            "                <data id=\"journal\">\n" +
+            "                    <name/>\n" +
+            "                    <age/>\n" +
+            "                </data>\n" +
+            "            </instance>\n" +
+            "            <bind nodeset=\"/data/name\" type=\"string\"/>\n" +
+            "            <bind nodeset=\"/data/age\" type=\"int\"/>\n" +
+            "        </model>\n" +
+            "    </h:head>\n" +
+            "    <h:body>\n" +
+            "        <input ref=\"/data/name\"><label>Name</label></input>\n" +
+            "        <input ref=\"/data/age\"><label>Age</label></input>\n" +
+            "    </h:body>\n" +
+            "</h:html>\n";
+}
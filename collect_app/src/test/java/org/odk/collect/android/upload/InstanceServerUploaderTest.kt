@@ -0,0 +1,191 @@
+package org.odk.collect.android.upload
+
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.greaterThan
+import org.hamcrest.Matchers.instanceOf
+import org.hamcrest.Matchers.lessThanOrEqualTo
+import org.hamcrest.Matchers.nullValue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+import org.odk.collect.android.instancemanagement.SubmissionScheduler
+import org.odk.collect.android.openrosa.OpenRosaHttpInterface
+import org.odk.collect.android.openrosa.okhttp.OkHttpConnection
+import org.odk.collect.android.openrosa.okhttp.OkHttpOpenRosaServerClientProvider
+import org.odk.collect.android.rules.MockWebServerRule
+import org.odk.collect.android.storage.StoragePathProvider
+import org.odk.collect.android.storage.StorageSubdirectory
+import org.odk.collect.android.support.CollectHelpers
+import org.odk.collect.android.utilities.InstancesRepositoryProvider
+import org.odk.collect.android.utilities.WebCredentialsUtils
+import org.odk.collect.forms.instances.Instance
+import org.odk.collect.forms.instances.InstancesRepository
+import org.odk.collect.formstest.InstanceUtils
+import java.io.File
+import java.util.concurrent.atomic.AtomicInteger
+
+@RunWith(AndroidJUnit4::class)
+class InstanceServerUploaderTest {
+
+    @get:Rule
+    val mockWebServerRule = MockWebServerRule()
+
+    private lateinit var instancesRepository: InstancesRepository
+
+    @Before
+    fun setup() {
+        CollectHelpers.setupDemoProject()
+        instancesRepository = InstancesRepositoryProvider(ApplicationProvider.getApplicationContext()).get()
+    }
+
+    @Test
+    fun `uploads instances concurrently with one HEAD request per submission URL`() {
+        val server = mockWebServerRule.start()
+        val headRequests = AtomicInteger()
+        val postRequests = AtomicInteger()
+        val inFlight = AtomicInteger()
+        val maxInFlight = AtomicInteger()
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                return if (request.method == "HEAD") {
+                    headRequests.incrementAndGet()
+                    MockResponse().setResponseCode(204)
+                } else {
+                    postRequests.incrementAndGet()
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet()) { a, b -> maxOf(a, b) }
+                    Thread.sleep(LATENCY_MILLIS)
+                    inFlight.decrementAndGet()
+                    MockResponse().setResponseCode(201)
+                }
+            }
+        }
+
+        val instances = (1..INSTANCES).map { createInstance() }
+        val uploader = createUploader()
+        val submissionUrl = server.url("/submission").toString()
+
+        val results = mutableListOf<Pair<Long, FormUploadException?>>()
+        SubmissionScheduler(MAX_CONCURRENT_UPLOADS).submit(
+            instances,
+            { server.hostName },
+            { instance -> upload(uploader, instance, submissionUrl) }
+        ) { instance, exception ->
+            results.add(instance.dbId to exception)
+        }
+
+        assertThat(results.map { it.first }, equalTo(instances.map { it.dbId }))
+        results.forEach { assertThat(it.second, nullValue()) }
+        instances.forEach {
+            assertThat(instancesRepository.get(it.dbId)!!.status, equalTo(Instance.STATUS_SUBMITTED))
+        }
+
+        assertThat(headRequests.get(), equalTo(1))
+        assertThat(postRequests.get(), equalTo(INSTANCES))
+        assertThat(maxInFlight.get(), greaterThan(1))
+        assertThat(maxInFlight.get(), lessThanOrEqualTo(MAX_CONCURRENT_UPLOADS))
+    }
+
+    @Test
+    fun `follows a redirect from the HEAD request for every upload to the same URL`() {
+        val server = mockWebServerRule.start()
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                return if (request.method == "HEAD") {
+                    MockResponse().setResponseCode(204).setHeader("Location", server.url("/redirected").toString())
+                } else {
+                    MockResponse().setResponseCode(201)
+                }
+            }
+        }
+
+        val uploader = createUploader()
+        val submissionUrl = server.url("/submission").toString()
+        repeat(3) {
+            assertThat(upload(uploader, createInstance(), submissionUrl), nullValue())
+        }
+
+        assertThat(server.requestCount, equalTo(4))
+        assertThat(server.takeRequest().method, equalTo("HEAD"))
+        repeat(3) {
+            val request = server.takeRequest()
+            assertThat(request.method, equalTo("POST"))
+            assertThat(request.path, equalTo("/redirected"))
+        }
+    }
+
+    @Test
+    fun `only asks the server once when it requests credentials`() {
+        val server = mockWebServerRule.start()
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                return MockResponse().setResponseCode(401)
+            }
+        }
+
+        val instances = (1..5).map { createInstance() }
+        val uploader = createUploader()
+        val submissionUrl = server.url("/submission").toString()
+
+        val results = mutableListOf<FormUploadException?>()
+        SubmissionScheduler(MAX_CONCURRENT_UPLOADS).submit(
+            instances,
+            { server.hostName },
+            { instance -> upload(uploader, instance, submissionUrl) }
+        ) { _, exception ->
+            results.add(exception)
+        }
+
+        results.forEach { assertThat(it, instanceOf(FormUploadAuthRequestedException::class.java)) }
+        instances.forEach {
+            assertThat(instancesRepository.get(it.dbId)!!.status, equalTo(Instance.STATUS_SUBMISSION_FAILED))
+        }
+        assertThat(server.requestCount, equalTo(1))
+    }
+
+    private fun upload(uploader: InstanceServerUploader, instance: Instance, submissionUrl: String): FormUploadException? {
+        return try {
+            uploader.uploadOneSubmission(instance, submissionUrl)
+            null
+        } catch (e: FormUploadException) {
+            e
+        }
+    }
+
+    private fun createUploader(): InstanceServerUploader {
+        val httpInterface = OkHttpConnection(
+            OkHttpOpenRosaServerClientProvider(OkHttpClient()),
+            OpenRosaHttpInterface.FileToContentTypeMapper { "application/octet-stream" },
+            "Test Agent"
+        )
+
+        return InstanceServerUploader(httpInterface, mock<WebCredentialsUtils>(), mock())
+    }
+
+    private fun createInstance(): Instance {
+        val instancesDir = StoragePathProvider().getOdkDirPath(StorageSubdirectory.INSTANCES)
+        val instance = instancesRepository.save(
+            InstanceUtils.buildInstance("formId", "1", instancesDir)
+                .status(Instance.STATUS_COMPLETE)
+                .build()
+        )
+
+        File(instance.instanceFilePath).writeText("<data id=\"formId\"><name>${instance.dbId}</name></data>")
+        return instance
+    }
+
+    private companion object {
+        const val INSTANCES = 40
+        const val MAX_CONCURRENT_UPLOADS = 4
+        const val LATENCY_MILLIS = 50L
+    }
+}
@@ -0,0 +1,72 @@
+package org.odk.collect.android.upload;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static java.util.Arrays.asList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.odk.collect.shared.TempFiles;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+public class UploadedAttachmentsTest {
+
+    private File submissionFile;
+    private File attachment1;
+    private File attachment2;
+
+    @Before
+    public void setup() throws IOException {
+        File instanceDir = TempFiles.createTempDir();
+        submissionFile = createFile(instanceDir, "instance.xml", "<data/>");
+        attachment1 = createFile(instanceDir, "1.jpg", "one");
+        attachment2 = createFile(instanceDir, "2.jpg", "two");
+    }
+
+    @Test
+    public void getRemaining_excludesFilesThatHaveBeenAdded_evenAfterReloading() {
+        new UploadedAttachments(submissionFile, "https://example.com").add(asList(attachment1));
+
+        UploadedAttachments uploadedAttachments = new UploadedAttachments(submissionFile, "https://example.com");
+        assertThat(uploadedAttachments.getRemaining(asList(attachment1, attachment2)), equalTo(asList(attachment2)));
+    }
+
+    @Test
+    public void getRemaining_includesFilesThatHaveChangedSinceTheyWereAdded() throws IOException {
+        new UploadedAttachments(submissionFile, "https://example.com").add(asList(attachment1));
+        createFile(attachment1.getParentFile(), attachment1.getName(), "one but different");
+
+        UploadedAttachments uploadedAttachments = new UploadedAttachments(submissionFile, "https://example.com");
+        assertThat(uploadedAttachments.getRemaining(asList(attachment1, attachment2)), equalTo(asList(attachment1, attachment2)));
+    }
+
+    @Test
+    public void getRemaining_includesEverything_whenTheServerIsDifferent() {
+        new UploadedAttachments(submissionFile, "https://example.com").add(asList(attachment1));
+
+        UploadedAttachments uploadedAttachments = new UploadedAttachments(submissionFile, "https://other.example.com");
+        assertThat(uploadedAttachments.getRemaining(asList(attachment1, attachment2)), equalTo(asList(attachment1, attachment2)));
+    }
+
+    @Test
+    public void getRemaining_includesEverything_afterClear() {
+        UploadedAttachments uploadedAttachments = new UploadedAttachments(submissionFile, "https://example.com");
+        uploadedAttachments.add(asList(attachment1));
+        uploadedAttachments.clear();
+
+        assertThat(new UploadedAttachments(submissionFile, "https://example.com").getRemaining(asList(attachment1, attachment2)), equalTo(asList(attachment1, attachment2)));
+        assertThat(new File(submissionFile.getParentFile(), UploadedAttachments.FILE_NAME).exists(), equalTo(false));
+    }
+
+    private static File createFile(File dir, String name, String contents) throws IOException {
+        File file = new File(dir, name);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(contents);
+        }
+
+        return file;
+    }
+}
@@ -0,0 +1,92 @@
+package org.odk.collect.android.utilities;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+import org.odk.collect.shared.TempFiles;
+import org.odk.collect.shared.strings.Md5;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypts attachments that together are bigger than the test JVM's heap with
+ * {@link EncryptionUtils#encryptFiles} and checks they decrypt to the original files.
+ */
+public class EncryptionUtilsBenchmark {
+
+    private static final int ATTACHMENTS = 3;
+
+    @Test
+    public void encryptAttachmentsBiggerThanHeap() throws Exception {
+        File dir = TempFiles.createTempDir();
+        long attachmentSize = Runtime.getRuntime().maxMemory() / ATTACHMENTS + 1024 * 1024;
+
+        byte[] keyBytes = new byte[EncryptionUtils.SYMMETRIC_KEY_LENGTH / 8];
+        new SecureRandom().nextBytes(keyBytes);
+        SecretKeySpec key = new SecretKeySpec(keyBytes, "AES");
+
+        List<File> files = new ArrayList<>();
+        List<Cipher> ciphers = new ArrayList<>();
+        List<IvParameterSpec> ivs = new ArrayList<>();
+        for (int i = 0; i < ATTACHMENTS; i++) {
+            File file = new File(dir, "video" + i + ".mp4");
+            writeRandomBytes(file, attachmentSize);
+            files.add(file);
+
+            byte[] iv = new byte[EncryptionUtils.IV_BYTE_LENGTH];
+            iv[0] = (byte) i;
+            ivs.add(new IvParameterSpec(iv));
+
+            Cipher cipher = Cipher.getInstance(EncryptionUtils.SYMMETRIC_ALGORITHM);
+            cipher.init(Cipher.ENCRYPT_MODE, key, ivs.get(i));
+            ciphers.add(cipher);
+        }
+
+        long start = System.nanoTime();
+        List<String> md5Hashes = EncryptionUtils.encryptFiles(files, ciphers);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf(Locale.US, "Encrypted %d x %.1fMB (heap %.1fMB) in %.2fs%n",
+                ATTACHMENTS, attachmentSize / 1048576.0, Runtime.getRuntime().maxMemory() / 1048576.0, elapsed / 1e9);
+
+        for (int i = 0; i < ATTACHMENTS; i++) {
+            Cipher cipher = Cipher.getInstance(EncryptionUtils.SYMMETRIC_ALGORITHM);
+            cipher.init(Cipher.DECRYPT_MODE, key, ivs.get(i));
+
+            File encryptedFile = new File(dir, files.get(i).getName() + ".enc");
+            try (InputStream inputStream = new CipherInputStream(new FileInputStream(encryptedFile), cipher)) {
+                assertThat(Md5.getMd5Hash(inputStream), is(md5Hashes.get(i)));
+            }
+            assertThat(Md5.getMd5Hash(files.get(i)), is(md5Hashes.get(i)));
+
+            files.get(i).delete();
+            encryptedFile.delete();
+        }
+    }
+
+    private static void writeRandomBytes(File file, long size) throws Exception {
+        Random random = new Random(size);
+        byte[] buffer = new byte[1024 * 1024];
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            for (long written = 0; written < size; written += buffer.length) {
+                random.nextBytes(buffer);
+                outputStream.write(buffer, 0, (int) Math.min(buffer.length, size - written));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.odk.collect.android.utilities;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.odk.collect.android.exception.EncryptionException;
+import org.odk.collect.shared.TempFiles;
+import org.odk.collect.shared.strings.Md5;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+public class EncryptionUtilsTest {
+
+    private final File dir = TempFiles.createTempDir();
+    private final SecretKeySpec key = createKey();
+
+    @Test
+    public void encryptFiles_encryptsEachFileWithItsCipher() throws Exception {
+        List<File> files = Arrays.asList(
+                createFile("video.mp4", 24 * 1024 * 1024 + 7),
+                createFile("image.jpg", 3 * 1024 * 1024),
+                createFile("empty.txt", 0),
+                createFile("submission.xml", 100)
+        );
+
+        List<byte[]> ivs = new ArrayList<>();
+        List<Cipher> ciphers = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            byte[] iv = new byte[EncryptionUtils.IV_BYTE_LENGTH];
+            iv[0] = (byte) i;
+            ivs.add(iv);
+            ciphers.add(createCipher(Cipher.ENCRYPT_MODE, iv));
+        }
+
+        List<String> md5Hashes = EncryptionUtils.encryptFiles(files, ciphers);
+
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            String md5Hash = Md5.getMd5Hash(file);
+            assertThat(md5Hashes.get(i), is(md5Hash));
+
+            File encryptedFile = new File(dir, file.getName() + ".enc");
+            try (InputStream inputStream = new CipherInputStream(new FileInputStream(encryptedFile), createCipher(Cipher.DECRYPT_MODE, ivs.get(i)))) {
+                assertThat(Md5.getMd5Hash(inputStream), is(md5Hash));
+            }
+        }
+    }
+
+    @Test
+    public void encryptFile_replacesExistingEncryptedFile() throws Exception {
+        File file = createFile("image.jpg", 1000);
+        File encryptedFile = new File(dir, "image.jpg.enc");
+        writeRandomBytes(encryptedFile, 5000);
+
+        byte[] iv = new byte[EncryptionUtils.IV_BYTE_LENGTH];
+        EncryptionUtils.encryptFile(file, createCipher(Cipher.ENCRYPT_MODE, iv));
+
+        try (InputStream inputStream = new CipherInputStream(new FileInputStream(encryptedFile), createCipher(Cipher.DECRYPT_MODE, iv))) {
+            assertThat(Md5.getMd5Hash(inputStream), is(Md5.getMd5Hash(file)));
+        }
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void encryptFiles_whenAFileIsMissing_throwsEncryptionException() throws Exception {
+        List<File> files = Arrays.asList(createFile("image.jpg", 1000), new File(dir, "missing.jpg"));
+        byte[] iv = new byte[EncryptionUtils.IV_BYTE_LENGTH];
+
+        EncryptionUtils.encryptFiles(files, Arrays.asList(createCipher(Cipher.ENCRYPT_MODE, iv), createCipher(Cipher.ENCRYPT_MODE, iv)));
+    }
+
+    @Test
+    public void encryptFiles_whenAFileIsMissing_doesNotLeaveEncryptedFiles() throws Exception {
+        List<File> files = Arrays.asList(
+                createFile("video.mp4", 8 * 1024 * 1024),
+                createFile("image.jpg", 1000),
+                new File(dir, "missing.jpg"),
+                createFile("submission.xml", 100)
+        );
+
+        List<Cipher> ciphers = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            ciphers.add(createCipher(Cipher.ENCRYPT_MODE, new byte[EncryptionUtils.IV_BYTE_LENGTH]));
+        }
+
+        try {
+            EncryptionUtils.encryptFiles(files, ciphers);
+            fail();
+        } catch (EncryptionException e) {
+            // expected
+        }
+
+        assertThat(dir.list(), arrayContainingInAnyOrder("video.mp4", "image.jpg", "submission.xml"));
+    }
+
+    private File createFile(String name, int size) throws IOException {
+        File file = new File(dir, name);
+        writeRandomBytes(file, size);
+        return file;
+    }
+
+    private Cipher createCipher(int mode, byte[] iv) throws Exception {
+        Cipher cipher = Cipher.getInstance(EncryptionUtils.SYMMETRIC_ALGORITHM);
+        cipher.init(mode, key, new IvParameterSpec(iv));
+        return cipher;
+    }
+
+    private static void writeRandomBytes(File file, int size) throws IOException {
+        Random random = new Random(size);
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            for (int written = 0; written < size; written += buffer.length) {
+                random.nextBytes(buffer);
+                outputStream.write(buffer, 0, Math.min(buffer.length, size - written));
+            }
+        }
+    }
+
+    private static SecretKeySpec createKey() {
+        byte[] key = new byte[EncryptionUtils.SYMMETRIC_KEY_LENGTH / 8];
+        new SecureRandom().nextBytes(key);
+        return new SecretKeySpec(key, "AES");
+    }
+}
@@ -0,0 +1,97 @@
+package org.odk.collect.android.utilities;
+
+import org.javarosa.core.model.FormDef;
+import org.javarosa.core.util.externalizable.ExtUtil;
+import org.javarosa.xform.util.XFormUtils;
+import org.junit.Test;
+import org.odk.collect.shared.TempFiles;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Compares loading FormDefs from the cache format used by {@link FormDefCache} (buffered, with and
+ * without compression) to the old unbuffered, uncompressed format for the largest test forms.
+ */
+public class FormDefCacheBenchmark {
+
+    private static final String[] FORMS = {
+            "nigeria-wards.xml",
+            "all-widgets.xml",
+            "fieldlist-updates.xml",
+            "nested-repeats-complex.xml",
+            "formulaire_adherent.xml"
+    };
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void compareCacheFormats() throws Exception {
+        File dir = TempFiles.createTempDir();
+
+        for (String formName : FORMS) {
+            File formFile = new File(dir, formName);
+            try (InputStream input = getClass().getClassLoader().getResourceAsStream("forms/" + formName)) {
+                org.apache.commons.io.FileUtils.copyInputStreamToFile(input, formFile);
+            }
+
+            FormDef formDef = XFormUtils.getFormFromFormXml(formFile.getAbsolutePath(), "jr://file/" + FileUtils.LAST_SAVED_FILENAME);
+
+            File oldFile = new File(dir, formName + ".old");
+            File bufferedFile = new File(dir, formName + ".buffered");
+            File compressedFile = new File(dir, formName + ".compressed");
+
+            try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(oldFile))) {
+                formDef.writeExternal(dos);
+            }
+            FormDefCache.serializeFormDef(formDef, "hash", bufferedFile, false);
+            FormDefCache.serializeFormDef(formDef, "hash", compressedFile, true);
+
+            // Warm up so class loading isn't measured
+            readOldFormat(oldFile);
+            FormDefCache.deserializeFormDef(bufferedFile, "hash");
+            FormDefCache.deserializeFormDef(compressedFile, "hash");
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                readOldFormat(oldFile);
+            }
+            long oldMicros = (System.nanoTime() - start) / 1000 / ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                FormDefCache.deserializeFormDef(bufferedFile, "hash");
+            }
+            long bufferedMicros = Math.max(1, (System.nanoTime() - start) / 1000 / ITERATIONS);
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                FormDefCache.deserializeFormDef(compressedFile, "hash");
+            }
+            long compressedMicros = Math.max(1, (System.nanoTime() - start) / 1000 / ITERATIONS);
+
+            System.out.printf(Locale.US, "%s: old %,d µs / %,d KB, buffered %,d µs / %,d KB, compressed %,d µs / %,d KB (%.1fx faster, %.1fx smaller)%n",
+                    formName,
+                    oldMicros,
+                    oldFile.length() / 1024,
+                    bufferedMicros,
+                    bufferedFile.length() / 1024,
+                    compressedMicros,
+                    compressedFile.length() / 1024,
+                    (double) oldMicros / compressedMicros,
+                    (double) oldFile.length() / compressedFile.length());
+        }
+    }
+
+    private static FormDef readOldFormat(File file) throws Exception {
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+            FormDef formDef = new FormDef();
+            formDef.readExternal(dis, ExtUtil.defaultPrototypes());
+            return formDef;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.odk.collect.android.utilities;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.javarosa.core.model.FormDef;
+import org.javarosa.xform.util.XFormUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.odk.collect.android.storage.StoragePathProvider;
+import org.odk.collect.android.storage.StorageSubdirectory;
+import org.odk.collect.android.support.CollectHelpers;
+import org.odk.collect.forms.Form;
+import org.odk.collect.formstest.FormUtils;
+import org.odk.collect.shared.strings.Md5;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+@RunWith(AndroidJUnit4.class)
+public class FormDefCacheTest {
+
+    private File cacheDir;
+
+    @Before
+    public void setup() {
+        CollectHelpers.setupDemoProject(); // Allows using StoragePathProvider
+        cacheDir = new File(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.CACHE));
+    }
+
+    @Test
+    public void readCache_returnsCachedFormDef() throws Exception {
+        File formXml = FormUtils.createXFormFile("cached", "1");
+        FormDefCache.writeCache(parse(formXml), formXml.getPath());
+
+        FormDef formDef = FormDefCache.readCache(formXml);
+        assertThat(formDef, is(notNullValue()));
+        assertThat(formDef.getMainInstance().getRoot().getAttributeValue(null, "id"), is("cached"));
+    }
+
+    @Test
+    public void deserializeFormDef_readsUncompressedCacheFiles() throws Exception {
+        File formXml = FormUtils.createXFormFile("uncompressed", "1");
+        File cacheFile = new File(cacheDir, "uncompressed.formdef");
+        FormDefCache.serializeFormDef(parse(formXml), "hash", cacheFile, false);
+
+        FormDef formDef = FormDefCache.deserializeFormDef(cacheFile, "hash");
+        assertThat(formDef, is(notNullValue()));
+        assertThat(formDef.getMainInstance().getRoot().getAttributeValue(null, "id"), is("uncompressed"));
+    }
+
+    @Test
+    public void readCache_whenFormFileIsUnchanged_usesStoredHash() throws Exception {
+        File formXml = FormUtils.createXFormFile("stored-hash", "1");
+        Form form = formFor(formXml, "stored")
+                .fileSize(formXml.length())
+                .fileLastModified(formXml.lastModified())
+                .build();
+
+        FormDefCache.writeCache(parse(formXml), formXml, form);
+
+        assertThat(new File(cacheDir, "stored.formdef").exists(), is(true));
+        assertThat(FormDefCache.readCache(formXml, form), is(notNullValue()));
+    }
+
+    @Test
+    public void readCache_whenFormFileHasChanged_hashesFile() throws Exception {
+        File formXml = FormUtils.createXFormFile("changed", "1");
+        Form form = formFor(formXml, "stale")
+                .fileSize(formXml.length() + 1)
+                .fileLastModified(formXml.lastModified())
+                .build();
+
+        FormDefCache.writeCache(parse(formXml), formXml, form);
+
+        assertThat(new File(cacheDir, "stale.formdef").exists(), is(false));
+        assertThat(FormDefCache.readCache(formXml), is(notNullValue()));
+    }
+
+    @Test
+    public void readCache_whenCacheFileIsForAnotherForm_deletesIt() throws Exception {
+        File formXml = FormUtils.createXFormFile("mismatch", "1");
+        File otherFormXml = FormUtils.createXFormFile("mismatch", "2");
+        FormDefCache.writeCache(parse(otherFormXml), otherFormXml.getPath());
+
+        File otherCacheFile = new File(cacheDir, Md5.getMd5Hash(otherFormXml) + ".formdef");
+        File cacheFile = new File(cacheDir, Md5.getMd5Hash(formXml) + ".formdef");
+        assertThat(otherCacheFile.renameTo(cacheFile), is(true));
+
+        assertThat(FormDefCache.readCache(formXml), is(nullValue()));
+        assertThat(cacheFile.exists(), is(false));
+    }
+
+    @Test
+    public void readCache_whenCacheFileHasNoHeader_deletesIt() throws Exception {
+        File formXml = FormUtils.createXFormFile("no-header", "1");
+        File cacheFile = new File(cacheDir, Md5.getMd5Hash(formXml) + ".formdef");
+        try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(cacheFile))) {
+            parse(formXml).writeExternal(dos);
+        }
+
+        assertThat(FormDefCache.readCache(formXml), is(nullValue()));
+        assertThat(cacheFile.exists(), is(false));
+    }
+
+    private static FormDef parse(File formXml) {
+        return XFormUtils.getFormFromFormXml(formXml.getAbsolutePath(), FileUtils.getOrCreateLastSavedSrc(formXml));
+    }
+
+    private static Form.Builder formFor(File formXml, String md5Hash) {
+        return new Form.Builder()
+                .formFilePath(formXml.getAbsolutePath())
+                .md5Hash(md5Hash);
+    }
+}
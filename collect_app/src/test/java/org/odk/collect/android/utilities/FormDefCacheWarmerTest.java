@@ -0,0 +1,106 @@
+package org.odk.collect.android.utilities;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.odk.collect.android.support.CollectHelpers;
+import org.odk.collect.formstest.FormUtils;
+import org.odk.collect.shared.TempFiles;
+import org.odk.collect.testshared.FakeScheduler;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+@RunWith(AndroidJUnit4.class)
+public class FormDefCacheWarmerTest {
+
+    private final File cacheDir = TempFiles.createTempDir();
+
+    @Before
+    public void setup() {
+        CollectHelpers.setupDemoProject(); // Allows using StoragePathProvider
+    }
+
+    @Test
+    public void warmNow_cachesFormInCacheDir() {
+        File formXml = FormUtils.createXFormFile("warm", "1");
+
+        assertThat(FormDefCacheWarmer.warmNow(formXml, cacheDir), is(true));
+        assertThat(FormDefCache.isCached(formXml, cacheDir), is(true));
+        assertThat(FormDefCache.isCached(formXml), is(false));
+    }
+
+    @Test
+    public void warmNow_whenFormIsAlreadyCached_doesNothing() {
+        File formXml = FormUtils.createXFormFile("warm-twice", "1");
+
+        FormDefCacheWarmer.warmNow(formXml, cacheDir);
+        assertThat(FormDefCacheWarmer.warmNow(formXml, cacheDir), is(false));
+    }
+
+    @Test
+    public void warmNow_whenCacheDirDoesNotExist_doesNothing() {
+        File formXml = FormUtils.createXFormFile("warm-missing-dir", "1");
+        File missingCacheDir = new File(cacheDir, "missing");
+
+        assertThat(FormDefCacheWarmer.warmNow(formXml, missingCacheDir), is(false));
+        assertThat(FormDefCache.isCached(formXml, missingCacheDir), is(false));
+    }
+
+    @Test
+    public void warmNow_whenFormHasExternalInstance_doesNothing() throws Exception {
+        File formXml = new File(TempFiles.createTempDir(), "external.xml");
+        org.apache.commons.io.FileUtils.writeStringToFile(formXml, "" +
+                "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\">\n" +
+                "    <h:head>\n" +
+                "        <h:title>External</h:title>\n" +
+                "        <model>\n" +
+                "            <instance><data id=\"external\"><q/></data></instance>\n" +
+                "            <instance id=\"things\" src=\"jr://file/things.xml\"/>\n" +
+                "        </model>\n" +
+                "    </h:head>\n" +
+                "    <h:body/>\n" +
+                "</h:html>", StandardCharsets.UTF_8);
+
+        assertThat(FormDefCacheWarmer.warmNow(formXml, cacheDir), is(false));
+        assertThat(FormDefCache.isCached(formXml, cacheDir), is(false));
+    }
+
+    @Test
+    public void warm_cachesFormsInTheBackground() {
+        FakeScheduler scheduler = new FakeScheduler();
+        FormDefCacheWarmer formDefCacheWarmer = new FormDefCacheWarmer(scheduler);
+        File formXml1 = FormUtils.createXFormFile("warm-background-1", "1");
+        File formXml2 = FormUtils.createXFormFile("warm-background-2", "1");
+
+        formDefCacheWarmer.warm(formXml1, cacheDir);
+        formDefCacheWarmer.warm(formXml2, cacheDir);
+        assertThat(FormDefCache.isCached(formXml1, cacheDir), is(false));
+        assertThat(FormDefCache.isCached(formXml2, cacheDir), is(false));
+
+        scheduler.runBackground();
+        assertThat(FormDefCache.isCached(formXml1, cacheDir), is(true));
+        assertThat(FormDefCache.isCached(formXml2, cacheDir), is(true));
+    }
+
+    @Test
+    public void warm_whenFormIsWarmedAgainAfterBeingCached_queuesItAgain() {
+        FakeScheduler scheduler = new FakeScheduler();
+        FormDefCacheWarmer formDefCacheWarmer = new FormDefCacheWarmer(scheduler);
+        File formXml = FormUtils.createXFormFile("warm-again", "1");
+
+        formDefCacheWarmer.warm(formXml, cacheDir);
+        scheduler.runBackground();
+        assertThat(FormDefCache.isCached(formXml, cacheDir), is(true));
+
+        File otherCacheDir = TempFiles.createTempDir();
+        formDefCacheWarmer.warm(formXml, otherCacheDir);
+        scheduler.runBackground();
+        assertThat(FormDefCache.isCached(formXml, otherCacheDir), is(true));
+    }
+}
@@ -0,0 +1,63 @@
+package org.odk.collect.android.utilities;
+
+import org.junit.Test;
+import org.odk.collect.shared.TempFiles;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Compares reading form metadata with {@link FormMetadataReader} to building a whole
+ * {@link org.javarosa.core.model.FormDef} (what every download and disk sync used to do) for the
+ * largest test forms.
+ */
+public class FormMetadataReaderBenchmark {
+
+    private static final String[] FORMS = {"nigeria-wards.xml", "all-widgets.xml", "fieldlist-updates.xml"};
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void compareStreamingReadWithFullParse() throws Exception {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (String formName : FORMS) {
+            File formFile = new File(TempFiles.createTempDir(), formName);
+            try (InputStream input = getClass().getClassLoader().getResourceAsStream("forms/" + formName)) {
+                org.apache.commons.io.FileUtils.copyInputStreamToFile(input, formFile);
+            }
+
+            // Warm up both so class loading isn't measured
+            FormMetadataReader.read(formFile);
+            FileUtils.parseMetadataFromFormDefinition(formFile);
+
+            long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                FileUtils.parseMetadataFromFormDefinition(formFile);
+            }
+            long fullParseMicros = (System.nanoTime() - start) / 1000 / ITERATIONS;
+            long fullParseBytes = (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / ITERATIONS;
+
+            allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                FormMetadataReader.read(formFile);
+            }
+            long streamingMicros = Math.max(1, (System.nanoTime() - start) / 1000 / ITERATIONS);
+            long streamingBytes = Math.max(1, (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / ITERATIONS);
+
+            System.out.printf(Locale.US, "%s (%,d KB): full parse %,d µs / %,d KB allocated, streaming %,d µs / %,d KB allocated (%.1fx faster, %.1fx less allocation)%n",
+                    formName,
+                    formFile.length() / 1024,
+                    fullParseMicros,
+                    fullParseBytes / 1024,
+                    streamingMicros,
+                    streamingBytes / 1024,
+                    (double) fullParseMicros / streamingMicros,
+                    (double) fullParseBytes / streamingBytes);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.odk.collect.android.utilities;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.odk.collect.shared.TempFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+public class FormMetadataReaderTest {
+
+    private static final String[] FORMS = {
+            "all-widgets.xml",
+            "Birds-encrypted.xml",
+            "encrypted.xml",
+            "formulaire_adherent.xml",
+            "nested-repeats-complex.xml",
+            "nigeria-wards.xml",
+            "one-question-autosend.xml",
+            "one-question-repeat.xml",
+            "OnePageFormShort.xml",
+            "RepeatGroupAndGroup.xml",
+            "setgeopoint-action.xml",
+            "setlocation-and-audit-location.xml",
+            "single-geopoint.xml",
+            "start-geopoint.xml",
+            "two-question.xml"
+    };
+
+    @Test
+    public void read_returnsSameMetadataAsFullParse() throws Exception {
+        for (String formName : FORMS) {
+            File formFile = copyTestForm(formName);
+
+            HashMap<String, String> streamed = FormMetadataReader.read(formFile);
+            assertThat(formName, streamed, is(notNullValue()));
+            assertThat(formName, streamed, is(org.odk.collect.android.utilities.FileUtils.parseMetadataFromFormDefinition(formFile)));
+        }
+    }
+
+    @Test
+    public void read_skipsSecondaryInstances() throws Exception {
+        File formFile = writeForm("" +
+                "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\">\n" +
+                "    <h:head>\n" +
+                "        <h:title>Secondary</h:title>\n" +
+                "        <model>\n" +
+                "            <instance>\n" +
+                "                <data id=\"main\"><location/></data>\n" +
+                "            </instance>\n" +
+                "            <instance id=\"things\">\n" +
+                "                <root><item id=\"other\"><location/></item></root>\n" +
+                "            </instance>\n" +
+                "            <bind nodeset=\"/data/location\" type=\"geopoint\"/>\n" +
+                "        </model>\n" +
+                "    </h:head>\n" +
+                "    <h:body>\n" +
+                "        <input ref=\"location\"><label>Location</label></input>\n" +
+                "    </h:body>\n" +
+                "</h:html>");
+
+        HashMap<String, String> metadata = FormMetadataReader.read(formFile);
+        assertThat(metadata.get(org.odk.collect.android.utilities.FileUtils.FORMID), is("main"));
+        assertThat(metadata.get(org.odk.collect.android.utilities.FileUtils.GEOMETRY_XPATH), is("/data/location"));
+    }
+
+    @Test
+    public void read_resolvesReferencesRelativeToGroups() throws Exception {
+        File formFile = writeForm("" +
+                "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\">\n" +
+                "    <h:head>\n" +
+                "        <h:title>Relative</h:title>\n" +
+                "        <model>\n" +
+                "            <instance>\n" +
+                "                <data id=\"relative\"><group><location/></group></data>\n" +
+                "            </instance>\n" +
+                "            <bind nodeset=\"/data/group/location\" type=\"geopoint\"/>\n" +
+                "        </model>\n" +
+                "    </h:head>\n" +
+                "    <h:body>\n" +
+                "        <group ref=\"/data/group\">\n" +
+                "            <input ref=\"location\"><label>Location</label></input>\n" +
+                "        </group>\n" +
+                "    </h:body>\n" +
+                "</h:html>");
+
+        HashMap<String, String> metadata = FormMetadataReader.read(formFile);
+        assertThat(metadata.get(org.odk.collect.android.utilities.FileUtils.GEOMETRY_XPATH), is("/data/group/location"));
+    }
+
+    @Test
+    public void read_returnsNull_whenQuestionReferenceIsTooComplex() throws Exception {
+        File formFile = writeForm("" +
+                "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\">\n" +
+                "    <h:head>\n" +
+                "        <h:title>Complex</h:title>\n" +
+                "        <model>\n" +
+                "            <instance>\n" +
+                "                <data id=\"complex\"><location/></data>\n" +
+                "            </instance>\n" +
+                "            <bind nodeset=\"/data/location\" type=\"geopoint\"/>\n" +
+                "        </model>\n" +
+                "    </h:head>\n" +
+                "    <h:body>\n" +
+                "        <input ref=\"../data/location\"><label>Location</label></input>\n" +
+                "    </h:body>\n" +
+                "</h:html>");
+
+        assertThat(FormMetadataReader.read(formFile), is(nullValue()));
+    }
+
+    @Test
+    public void read_returnsNull_whenFormIsNotWellFormed() throws Exception {
+        File formFile = writeForm("<h:html xmlns:h=\"http://www.w3.org/1999/xhtml\"><h:head>");
+        assertThat(FormMetadataReader.read(formFile), is(nullValue()));
+    }
+
+    private static File copyTestForm(String formName) throws IOException {
+        File formFile = new File(TempFiles.createTempDir(), formName);
+        try (InputStream input = FormMetadataReaderTest.class.getClassLoader().getResourceAsStream("forms/" + formName)) {
+            FileUtils.copyInputStreamToFile(input, formFile);
+        }
+
+        return formFile;
+    }
+
+    private static File writeForm(String xml) throws IOException {
+        File formFile = new File(TempFiles.createTempDir(), "form.xml");
+        FileUtils.writeStringToFile(formFile, xml, StandardCharsets.UTF_8);
+        return formFile;
+    }
+}
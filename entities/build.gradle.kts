@@ -55,6 +55,7 @@ dependencies {
 
     implementation(Dependencies.kotlin_stdlib)
     implementation(Dependencies.androidx_appcompat)
+    implementation(Dependencies.androidx_recyclerview)
     implementation(Dependencies.android_material)
     implementation(Dependencies.androidx_navigation_fragment_ktx)
     implementation(Dependencies.androidx_navigation_ui)
@@ -0,0 +1,55 @@
+package org.odk.collect.entities
+
+import android.view.ViewGroup
+import androidx.recyclerview.widget.RecyclerView
+import kotlin.math.abs
+
+/**
+ * Reads entities from the [EntitiesRepository] a page at a time as they are scrolled to rather
+ * than loading (and creating views for) a whole dataset up front.
+ */
+class EntitiesAdapter(
+    private val entitiesRepository: EntitiesRepository,
+    private val dataset: String,
+    private val pageSize: Int = PAGE_SIZE
+) : RecyclerView.Adapter<EntitiesAdapter.ViewHolder>() {
+
+    private val count = entitiesRepository.getCount(dataset)
+    private val pages = mutableMapOf<Int, List<Entity>>()
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ViewHolder {
+        val view = EntityItemView(parent.context)
+        view.layoutParams = RecyclerView.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT
+        )
+
+        return ViewHolder(view)
+    }
+
+    override fun onBindViewHolder(holder: ViewHolder, position: Int) {
+        holder.view.setEntity(getEntity(position))
+    }
+
+    override fun getItemCount() = count
+
+    private fun getEntity(position: Int): Entity {
+        val pageIndex = position / pageSize
+        val page = pages.getOrPut(pageIndex) {
+            if (pages.size >= MAX_CACHED_PAGES) {
+                pages.keys.maxByOrNull { abs(it - pageIndex) }?.let { pages.remove(it) }
+            }
+
+            entitiesRepository.getEntities(dataset, pageIndex * pageSize, pageSize)
+        }
+
+        return page[position % pageSize]
+    }
+
+    class ViewHolder(val view: EntityItemView) : RecyclerView.ViewHolder(view)
+
+    companion object {
+        private const val PAGE_SIZE = 50
+        private const val MAX_CACHED_PAGES = 5
+    }
+}
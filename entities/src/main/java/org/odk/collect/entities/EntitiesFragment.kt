@@ -6,7 +6,7 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import androidx.fragment.app.Fragment
-import org.odk.collect.entities.databinding.ListLayoutBinding
+import org.odk.collect.entities.databinding.EntityListLayoutBinding
 import javax.inject.Inject
 
 class EntitiesFragment : Fragment() {
@@ -26,18 +26,13 @@ class EntitiesFragment : Fragment() {
         container: ViewGroup?,
         savedInstanceState: Bundle?
     ): View {
-        return ListLayoutBinding.inflate(inflater, container, false).root
+        return EntityListLayoutBinding.inflate(inflater, container, false).root
     }
 
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
         val dataset = EntitiesFragmentArgs.fromBundle(requireArguments()).dataset
-        val binding = ListLayoutBinding.bind(view)
+        val binding = EntityListLayoutBinding.bind(view)
 
-        entitiesRepository.getEntities(dataset).forEach { entity ->
-            val item = EntityItemView(view.context)
-            item.setEntity(entity)
-
-            binding.list.addView(item)
-        }
+        binding.list.adapter = EntitiesAdapter(entitiesRepository, dataset)
     }
 }
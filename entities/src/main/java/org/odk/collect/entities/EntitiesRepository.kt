@@ -1,7 +1,14 @@
 package org.odk.collect.entities
 
 interface EntitiesRepository {
-    fun save(entity: Entity)
+    fun save(vararg entities: Entity)
     fun getDatasets(): Set<String>
     fun getEntities(dataset: String): List<Entity>
+
+    /**
+     * Returns at most [limit] entities from [dataset] starting at [offset] (in the order they
+     * were saved) so that large datasets can be read a page at a time.
+     */
+    fun getEntities(dataset: String, offset: Int, limit: Int): List<Entity>
+    fun getCount(dataset: String): Int
 }
@@ -44,6 +44,8 @@ public final class Form {
     private final String geometryXPath;
     private final boolean deleted;
     private final Long lastDetectedAttachmentsUpdateDate;
+    private final Long fileSize;
+    private final Long fileLastModified;
 
     private Form(Form.Builder builder) {
         dbId = builder.dbId;
@@ -64,6 +66,8 @@ public final class Form {
         geometryXPath = builder.geometryXpath;
         deleted = builder.deleted;
         lastDetectedAttachmentsUpdateDate = builder.lastDetectedAttachmentsUpdateDate;
+        fileSize = builder.fileSize;
+        fileLastModified = builder.fileLastModified;
     }
 
     public static class Builder {
@@ -85,6 +89,8 @@ public final class Form {
         private String geometryXpath;
         private boolean deleted;
         private Long lastDetectedAttachmentsUpdateDate;
+        private Long fileSize;
+        private Long fileLastModified;
 
         public Builder() {
         }
@@ -108,6 +114,8 @@ public final class Form {
             geometryXpath = form.geometryXPath;
             deleted = form.deleted;
             lastDetectedAttachmentsUpdateDate = form.lastDetectedAttachmentsUpdateDate;
+            fileSize = form.fileSize;
+            fileLastModified = form.fileLastModified;
         }
 
         public Builder dbId(Long id) {
@@ -200,6 +208,16 @@ public final class Form {
             return this;
         }
 
+        public Builder fileSize(Long fileSize) {
+            this.fileSize = fileSize;
+            return this;
+        }
+
+        public Builder fileLastModified(Long fileLastModified) {
+            this.fileLastModified = fileLastModified;
+            return this;
+        }
+
         public Form build() {
             return new Form(this);
         }
@@ -280,6 +298,22 @@ public final class Form {
         return lastDetectedAttachmentsUpdateDate;
     }
 
+    /**
+     * The size of the form file when its hash was last calculated.
+     */
+    @Nullable
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * The modification time of the form file when its hash was last calculated.
+     */
+    @Nullable
+    public Long getFileLastModified() {
+        return fileLastModified;
+    }
+
     @Override
     public boolean equals(Object other) {
         return other == this || other instanceof Form && this.md5Hash.equals(((Form) other).md5Hash);
@@ -20,4 +20,11 @@ public interface FormSource {
 
     @NotNull
     InputStream fetchMediaFile(String mediaFileURL) throws FormSourceException;
+
+    /**
+     * Fetches the contents of a media file from {@code offset} bytes onwards. This allows a
+     * partially downloaded media file to be resumed.
+     */
+    @NotNull
+    InputStream fetchMediaFile(String mediaFileURL, long offset) throws FormSourceException;
 }
@@ -31,6 +31,12 @@ public interface FormsRepository {
 
     Form save(@NotNull Form form);
 
+    /**
+     * Saves all of {@code forms} together (in a single transaction where that's supported). Each
+     * form is saved in the same way as it would be with {@link #save(Form)}.
+     */
+    List<Form> saveAll(@NotNull List<Form> forms);
+
     void delete(Long id);
 
     void softDelete(Long id);
@@ -3,6 +3,7 @@ package org.odk.collect.forms.instances;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Gives access to {@link Instance} objects representing filled form instances on the device.
@@ -26,20 +27,59 @@ public interface InstancesRepository {
 
     List<Instance> getAll();
 
+    /**
+     * The instance file paths of all instances (including deleted ones). Avoids loading whole
+     * instances when only their paths are needed.
+     */
+    List<String> getAllInstanceFilePaths();
+
     List<Instance> getAllNotDeleted();
 
     List<Instance> getAllByStatus(String... status);
 
+    /**
+     * A page of the instances with any of the passed statuses ordered by ID. Use this rather than
+     * {@link #getAllByStatus(String...)} when there could be a lot of instances and they don't all
+     * need to be held in memory at once.
+     */
+    List<Instance> getPageByStatus(int offset, int limit, String... status);
+
     int getCountByStatus(String... status);
 
+    /**
+     * The most recent {@link Instance#getLastStatusChangeDate()} of the instances with any of the
+     * passed statuses or null if there are none.
+     */
+    @Nullable
+    Long getLastStatusChangeDateByStatus(String... status);
+
     List<Instance> getAllByFormId(String formId);
 
     List<Instance> getAllNotDeletedByFormIdAndVersion(String formId, String version);
 
+    int getCountNotDeletedByFormIdAndVersion(String formId, @Nullable String version);
+
+    /**
+     * The most recent {@link Instance#getLastStatusChangeDate()} of every form version that has
+     * instances (including deleted ones) keyed by form ID and then version (which is null for
+     * forms without one).
+     */
+    Map<String, Map<String, Long>> getLastStatusChangeDatesByFormIdAndVersion();
+
     void delete(Long id);
 
     void deleteAll();
 
+    /**
+     * Deletes several instances at once. Submitted instances are deleted with logging (see
+     * {@link #deleteWithLogging(Long)}) and all others are removed completely, as they would be
+     * one at a time.
+     *
+     * @return the instances that were deleted as they were before deletion (IDs that don't match
+     * an instance are ignored)
+     */
+    List<Instance> deleteAll(List<Long> ids);
+
     Instance save(Instance instance);
 
     /**
@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.function.Supplier;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
@@ -232,6 +233,92 @@ public abstract class FormsRepositoryTest {
         assertThat(formsRepository.get(originalForm.getDbId()).getMD5Hash(), is(expectedHash));
     }
 
+    @Test
+    public void save_whenFormFileIsUnchangedSinceHashWasCalculated_usesExistingHash() {
+        FormsRepository formsRepository = buildSubject();
+        Form originalForm = formsRepository.save(FormUtils.buildForm("id", "version", getFormFilesPath()).build());
+
+        File formFile = new File(originalForm.getFormFilePath());
+        formsRepository.save(new Form.Builder(originalForm)
+                .md5Hash("existing-hash")
+                .fileSize(formFile.length())
+                .fileLastModified(formFile.lastModified())
+                .build());
+
+        assertThat(formsRepository.get(originalForm.getDbId()).getMD5Hash(), is("existing-hash"));
+    }
+
+    @Test
+    public void save_whenFormFileHasChangedSinceHashWasCalculated_updatesHash() {
+        FormsRepository formsRepository = buildSubject();
+        Form originalForm = formsRepository.save(FormUtils.buildForm("id", "version", getFormFilesPath()).build());
+
+        File formFile = new File(originalForm.getFormFilePath());
+        formsRepository.save(new Form.Builder(originalForm)
+                .md5Hash("existing-hash")
+                .fileSize(formFile.length() + 1)
+                .fileLastModified(formFile.lastModified())
+                .build());
+
+        assertThat(formsRepository.get(originalForm.getDbId()).getMD5Hash(), is(Md5.getMd5Hash(formFile)));
+    }
+
+    @Test
+    public void save_recordsFormFileSizeAndLastModified() {
+        FormsRepository formsRepository = buildSubject();
+        Form form = FormUtils.buildForm("id", "version", getFormFilesPath()).build();
+        File formFile = new File(form.getFormFilePath());
+        formFile.setLastModified(System.currentTimeMillis() - 60_000);
+
+        Form savedForm = formsRepository.save(form);
+
+        assertThat(formsRepository.get(savedForm.getDbId()).getFileSize(), is(formFile.length()));
+        assertThat(formsRepository.get(savedForm.getDbId()).getFileLastModified(), is(formFile.lastModified()));
+    }
+
+    @Test
+    public void save_whenFormFileWasJustModified_doesNotRecordFormFileSizeAndLastModified() {
+        FormsRepository formsRepository = buildSubject();
+        Form form = FormUtils.buildForm("id", "version", getFormFilesPath()).build();
+        File formFile = new File(form.getFormFilePath());
+        formFile.setLastModified(System.currentTimeMillis());
+
+        Form savedForm = formsRepository.save(form);
+
+        assertThat(formsRepository.get(savedForm.getDbId()).getFileSize(), is(nullValue()));
+        assertThat(formsRepository.get(savedForm.getDbId()).getFileLastModified(), is(nullValue()));
+    }
+
+    @Test
+    public void saveAll_savesAllForms() {
+        FormsRepository formsRepository = buildSubject();
+        List<Form> savedForms = formsRepository.saveAll(asList(
+                FormUtils.buildForm("id1", "version", getFormFilesPath()).build(),
+                FormUtils.buildForm("id2", "version", getFormFilesPath()).build()
+        ));
+
+        assertThat(savedForms.size(), is(2));
+        assertThat(formsRepository.getAll().size(), is(2));
+        assertThat(formsRepository.get(savedForms.get(0).getDbId()).getFormId(), is("id1"));
+        assertThat(formsRepository.get(savedForms.get(1).getDbId()).getFormId(), is("id2"));
+    }
+
+    @Test
+    public void saveAll_whenFormsHaveIds_updatesExisting() {
+        FormsRepository formsRepository = buildSubject();
+        Form form1 = formsRepository.save(FormUtils.buildForm("id1", "version", getFormFilesPath()).build());
+        Form form2 = formsRepository.save(FormUtils.buildForm("id2", "version", getFormFilesPath()).build());
+
+        formsRepository.saveAll(asList(
+                new Form.Builder(form1).displayName("changed1").build(),
+                new Form.Builder(form2).displayName("changed2").build()
+        ));
+
+        assertThat(formsRepository.getAll().size(), is(2));
+        assertThat(formsRepository.get(form1.getDbId()).getDisplayName(), is("changed1"));
+        assertThat(formsRepository.get(form2.getDbId()).getDisplayName(), is("changed2"));
+    }
+
     @Test
     public void delete_deletesFiles() throws Exception {
         FormsRepository formsRepository = buildSubject();
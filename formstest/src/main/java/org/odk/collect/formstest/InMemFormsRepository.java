@@ -5,6 +5,7 @@ import org.jetbrains.annotations.Nullable;
 import org.odk.collect.forms.Form;
 import org.odk.collect.forms.FormsRepository;
 import org.odk.collect.shared.files.DirectoryUtils;
+import org.odk.collect.shared.files.FileStats;
 import org.odk.collect.shared.strings.Md5;
 import org.odk.collect.shared.TempFiles;
 
@@ -99,10 +100,19 @@ public class InMemFormsRepository implements FormsRepository {
             builder.formMediaPath(TempFiles.getPathInTempDir());
         }
 
+        File formFile = new File(form.getFormFilePath());
+        long fileSize = formFile.length();
+        long fileLastModified = formFile.lastModified();
+        if (FileStats.canRecord(fileLastModified)) {
+            builder.fileSize(fileSize).fileLastModified(fileLastModified);
+        } else {
+            builder.fileSize(null).fileLastModified(null);
+        }
+
         if (form.getDbId() != null) {
-            String formFilePath = form.getFormFilePath();
-            String hash = Md5.getMd5Hash(new File(formFilePath));
-            builder.md5Hash(hash);
+            if (form.getMD5Hash() == null || !FileStats.isUnchanged(formFile, form.getFileSize(), form.getFileLastModified())) {
+                builder.md5Hash(Md5.getMd5Hash(formFile));
+            }
 
             forms.removeIf(f -> f.getDbId().equals(form.getDbId()));
             forms.add(builder.build());
@@ -114,8 +124,7 @@ public class InMemFormsRepository implements FormsRepository {
             // Allows tests to override hash
             String hash;
             if (form.getMD5Hash() == null) {
-                String formFilePath = form.getFormFilePath();
-                hash = Md5.getMd5Hash(new File(formFilePath));
+                hash = Md5.getMd5Hash(formFile);
                 builder.md5Hash(hash);
             } else {
                 hash = form.getMD5Hash();
@@ -136,6 +145,16 @@ public class InMemFormsRepository implements FormsRepository {
         }
     }
 
+    @Override
+    public List<Form> saveAll(@NotNull List<Form> forms) {
+        List<Form> savedForms = new ArrayList<>();
+        for (Form form : forms) {
+            savedForms.add(save(form));
+        }
+
+        return savedForms;
+    }
+
     @Override
     public void delete(Long id) {
         Optional<Form> formToRemove = forms.stream().filter(f -> f.getDbId().equals(id)).findFirst();
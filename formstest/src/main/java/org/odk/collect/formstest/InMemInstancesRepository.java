@@ -7,7 +7,10 @@ import org.odk.collect.shared.files.DirectoryUtils;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -69,6 +72,13 @@ public final class InMemInstancesRepository implements InstancesRepository {
         return new ArrayList<>(instances);
     }
 
+    @Override
+    public List<String> getAllInstanceFilePaths() {
+        return instances.stream()
+                .map(Instance::getInstanceFilePath)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public List<Instance> getAllNotDeleted() {
         return instances.stream()
@@ -90,11 +100,28 @@ public final class InMemInstancesRepository implements InstancesRepository {
         return result;
     }
 
+    @Override
+    public List<Instance> getPageByStatus(int offset, int limit, String... status) {
+        return getAllByStatus(status).stream()
+                .sorted(Comparator.comparing(Instance::getDbId))
+                .skip(offset)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public int getCountByStatus(String... status) {
         return getAllByStatus(status).size();
     }
 
+    @Override
+    public Long getLastStatusChangeDateByStatus(String... status) {
+        return getAllByStatus(status).stream()
+                .map(Instance::getLastStatusChangeDate)
+                .max(Long::compare)
+                .orElse(null);
+    }
+
     @Override
     public List<Instance> getAllByFormId(String formId) {
         List<Instance> result = new ArrayList<>();
@@ -117,6 +144,23 @@ public final class InMemInstancesRepository implements InstancesRepository {
         }).collect(Collectors.toList());
     }
 
+    @Override
+    public int getCountNotDeletedByFormIdAndVersion(String formId, String version) {
+        return getAllNotDeletedByFormIdAndVersion(formId, version).size();
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getLastStatusChangeDatesByFormIdAndVersion() {
+        Map<String, Map<String, Long>> result = new HashMap<>();
+
+        for (Instance instance : instances) {
+            result.computeIfAbsent(instance.getFormId(), formId -> new HashMap<>())
+                    .merge(instance.getFormVersion(), instance.getLastStatusChangeDate(), Math::max);
+        }
+
+        return result;
+    }
+
     @Override
     public void delete(Long id) {
         Instance instance = get(id);
@@ -134,6 +178,27 @@ public final class InMemInstancesRepository implements InstancesRepository {
         instances.clear();
     }
 
+    @Override
+    public List<Instance> deleteAll(List<Long> ids) {
+        List<Instance> deleted = new ArrayList<>();
+        for (Long id : ids) {
+            Instance instance = get(id);
+            if (instance == null) {
+                continue;
+            }
+
+            if (Instance.STATUS_SUBMITTED.equals(instance.getStatus())) {
+                deleteWithLogging(id);
+            } else {
+                delete(id);
+            }
+
+            deleted.add(instance);
+        }
+
+        return deleted;
+    }
+
     @Override
     public Instance save(Instance instance) {
         if (instance.getStatus() == null) {
@@ -20,9 +20,12 @@ import org.odk.collect.forms.instances.InstancesRepository;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -39,6 +42,22 @@ public abstract class InstancesRepositoryTest {
 
     public abstract String getInstancesDir();
 
+    @Test
+    public void getAllInstanceFilePaths_returnsPathsOfAllInstances() {
+        InstancesRepository instancesRepository = buildSubject();
+
+        Instance deleted = instancesRepository.save(InstanceUtils.buildInstance("deleted", "1", getInstancesDir())
+                .deletedDate(System.currentTimeMillis())
+                .build());
+        Instance undeleted = instancesRepository.save(InstanceUtils.buildInstance("undeleted", "1", getInstancesDir())
+                .build());
+
+        assertThat(instancesRepository.getAllInstanceFilePaths(), containsInAnyOrder(
+                deleted.getInstanceFilePath(),
+                undeleted.getInstanceFilePath()
+        ));
+    }
+
     @Test
     public void getAllNotDeleted_returnsUndeletedInstances() {
         InstancesRepository instancesRepository = buildSubject();
@@ -119,6 +138,54 @@ public abstract class InstancesRepositoryTest {
         assertThat(instancesRepository.getCountByStatus(Instance.STATUS_INCOMPLETE, Instance.STATUS_SUBMITTED), is(4));
     }
 
+    @Test
+    public void getPageByStatus_returnsMatchingInstancesInIdOrder() {
+        InstancesRepository instancesRepository = buildSubject();
+
+        for (int i = 0; i < 5; i++) {
+            instancesRepository.save(InstanceUtils.buildInstance("complete" + i, "1", getInstancesDir())
+                    .status(Instance.STATUS_COMPLETE)
+                    .build());
+            instancesRepository.save(InstanceUtils.buildInstance("incomplete" + i, "1", getInstancesDir())
+                    .status(Instance.STATUS_INCOMPLETE)
+                    .build());
+        }
+
+        List<Instance> firstPage = instancesRepository.getPageByStatus(0, 2, Instance.STATUS_COMPLETE);
+        assertThat(firstPage.size(), is(2));
+        assertThat(firstPage.get(0).getFormId(), is("complete0"));
+        assertThat(firstPage.get(1).getFormId(), is("complete1"));
+
+        List<Instance> lastPage = instancesRepository.getPageByStatus(4, 2, Instance.STATUS_COMPLETE);
+        assertThat(lastPage.size(), is(1));
+        assertThat(lastPage.get(0).getFormId(), is("complete4"));
+
+        assertThat(instancesRepository.getPageByStatus(5, 2, Instance.STATUS_COMPLETE).isEmpty(), is(true));
+        assertThat(instancesRepository.getPageByStatus(0, 20, Instance.STATUS_COMPLETE, Instance.STATUS_INCOMPLETE).size(), is(10));
+    }
+
+    @Test
+    public void getLastStatusChangeDateByStatus_returnsMostRecentDateForMatchingInstances() {
+        InstancesRepository instancesRepository = buildSubject();
+
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir())
+                .status(Instance.STATUS_SUBMITTED)
+                .lastStatusChangeDate(2L)
+                .build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir())
+                .status(Instance.STATUS_SUBMITTED)
+                .lastStatusChangeDate(4L)
+                .build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir())
+                .status(Instance.STATUS_SUBMISSION_FAILED)
+                .lastStatusChangeDate(6L)
+                .build());
+
+        assertThat(instancesRepository.getLastStatusChangeDateByStatus(Instance.STATUS_SUBMITTED), is(4L));
+        assertThat(instancesRepository.getLastStatusChangeDateByStatus(Instance.STATUS_SUBMITTED, Instance.STATUS_SUBMISSION_FAILED), is(6L));
+        assertThat(instancesRepository.getLastStatusChangeDateByStatus(Instance.STATUS_COMPLETE), is(nullValue()));
+    }
+
     @Test
     public void getAllByFormId_includesAllVersionsForFormId() {
         InstancesRepository instancesRepository = buildSubject();
@@ -150,6 +217,56 @@ public abstract class InstancesRepositoryTest {
         assertThat(instances.size(), is(3));
     }
 
+    @Test
+    public void getCountNotDeletedByFormIdAndVersion_excludesDeletedAndOtherVersions() {
+        InstancesRepository instancesRepository = buildSubject();
+
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir()).build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir()).build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "1", "display", Instance.STATUS_COMPLETE, System.currentTimeMillis(), getInstancesDir())
+                .build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "2", getInstancesDir()).build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid", null, getInstancesDir()).build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid2", "1", getInstancesDir()).build());
+
+        assertThat(instancesRepository.getCountNotDeletedByFormIdAndVersion("formid", "1"), is(2));
+        assertThat(instancesRepository.getCountNotDeletedByFormIdAndVersion("formid", null), is(1));
+        assertThat(instancesRepository.getCountNotDeletedByFormIdAndVersion("formid", "3"), is(0));
+    }
+
+    @Test
+    public void getLastStatusChangeDatesByFormIdAndVersion_returnsMostRecentDateForEachFormVersion() {
+        InstancesRepository instancesRepository = buildSubject();
+
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir()).lastStatusChangeDate(1L).build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir()).lastStatusChangeDate(3L).build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "2", getInstancesDir()).lastStatusChangeDate(2L).build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid", null, getInstancesDir()).lastStatusChangeDate(4L).build());
+        instancesRepository.save(InstanceUtils.buildInstance("formid2", "1", getInstancesDir()).lastStatusChangeDate(5L).build());
+
+        Map<String, Map<String, Long>> dates = instancesRepository.getLastStatusChangeDatesByFormIdAndVersion();
+        assertThat(dates.size(), is(2));
+        assertThat(dates.get("formid").size(), is(3));
+        assertThat(dates.get("formid").get("1"), is(3L));
+        assertThat(dates.get("formid").get("2"), is(2L));
+        assertThat(dates.get("formid").get(null), is(4L));
+        assertThat(dates.get("formid2").get("1"), is(5L));
+    }
+
+    @Test
+    public void getLastStatusChangeDatesByFormIdAndVersion_reflectsInstancesSavedAfterwards() {
+        InstancesRepository instancesRepository = buildSubject(() -> 10L);
+
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir()).lastStatusChangeDate(1L).build());
+        assertThat(instancesRepository.getLastStatusChangeDatesByFormIdAndVersion().get("formid").get("1"), is(1L));
+
+        instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir()).lastStatusChangeDate(5L).build());
+        assertThat(instancesRepository.getLastStatusChangeDatesByFormIdAndVersion().get("formid").get("1"), is(5L));
+
+        instancesRepository.deleteAll();
+        assertThat(instancesRepository.getLastStatusChangeDatesByFormIdAndVersion().isEmpty(), is(true));
+    }
+
     @Test
     public void deleteAll_deletesAllInstances() {
         InstancesRepository instancesRepository = buildSubject();
@@ -173,6 +290,43 @@ public abstract class InstancesRepositoryTest {
         assertThat(new File(instance2.getInstanceFilePath()).exists(), is(false));
     }
 
+    @Test
+    public void deleteAllWithIds_deletesInstancesAndLogsSubmittedOnes() {
+        InstancesRepository instancesRepository = buildSubject();
+
+        Instance incomplete = instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir())
+                .status(Instance.STATUS_INCOMPLETE)
+                .build());
+        Instance submitted = instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir())
+                .status(Instance.STATUS_SUBMITTED)
+                .geometry("blah")
+                .geometryType("blah")
+                .build());
+        Instance other = instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir()).build());
+
+        List<Instance> deleted = instancesRepository.deleteAll(asList(incomplete.getDbId(), submitted.getDbId(), 999L));
+        assertThat(deleted.size(), is(2));
+
+        assertThat(instancesRepository.get(incomplete.getDbId()), is(nullValue()));
+        assertThat(instancesRepository.get(submitted.getDbId()).getDeletedDate(), is(notNullValue()));
+        assertThat(instancesRepository.get(submitted.getDbId()).getGeometry(), is(nullValue()));
+        assertThat(instancesRepository.get(other.getDbId()), is(other));
+    }
+
+    @Test
+    public void deleteAllWithIds_deletesInstanceDirs() {
+        InstancesRepository instancesRepository = buildSubject();
+
+        Instance instance1 = instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir()).build());
+        Instance instance2 = instancesRepository.save(InstanceUtils.buildInstance("formid", "1", getInstancesDir())
+                .status(Instance.STATUS_SUBMITTED)
+                .build());
+
+        instancesRepository.deleteAll(asList(instance1.getDbId(), instance2.getDbId()));
+        assertThat(new File(instance1.getInstanceFilePath()).getParentFile().exists(), is(false));
+        assertThat(new File(instance2.getInstanceFilePath()).getParentFile().exists(), is(false));
+    }
+
     @Test
     public void save_addsUniqueId() {
         InstancesRepository instancesRepository = buildSubject();
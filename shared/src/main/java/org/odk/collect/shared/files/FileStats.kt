@@ -0,0 +1,33 @@
+package org.odk.collect.shared.files
+
+import java.io.File
+
+/**
+ * Lets us tell whether a file has changed from its size and modification time (recorded when it
+ * was last read) without having to read it again.
+ */
+object FileStats {
+
+    /**
+     * Some file systems only record modification times to within a couple of seconds so a file
+     * modified more recently than this could still change without its modification time changing.
+     */
+    const val MODIFICATION_TIME_GRANULARITY_MILLIS = 2000L
+
+    @JvmStatic
+    fun isUnchanged(file: File, size: Long?, lastModified: Long?): Boolean {
+        return size != null && lastModified != null &&
+            size == file.length() &&
+            lastModified == file.lastModified()
+    }
+
+    /**
+     * Whether a size and modification time can safely be recorded for a file last modified at
+     * [lastModified]. If not, the file should just be read again next time.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun canRecord(lastModified: Long, now: Long = System.currentTimeMillis()): Boolean {
+        return now - lastModified > MODIFICATION_TIME_GRANULARITY_MILLIS
+    }
+}
@@ -6,6 +6,7 @@ import java.io.FileNotFoundException
 import java.io.IOException
 import java.io.InputStream
 import java.math.BigInteger
+import java.security.DigestInputStream
 import java.security.MessageDigest
 import java.security.NoSuchAlgorithmException
 
@@ -42,16 +43,32 @@ object Md5 {
                 }
                 md.update(buffer, 0, result)
             }
-            val md5 = StringBuilder(BigInteger(1, md.digest()).toString(16))
-            while (md5.length < 32) {
-                md5.insert(0, "0")
-            }
             inputStream.close()
-            md5.toString()
+            getMd5Hash(md)
         } catch (e: NoSuchAlgorithmException) {
             null
         } catch (e: IOException) {
             null
         }
     }
+
+    /**
+     * Wraps [inputStream] so that its MD5 hash is calculated as it is read. This allows a file
+     * that needs to be read anyway to be hashed without reading it a second time. Use
+     * [getMd5Hash] with the stream's [DigestInputStream.getMessageDigest] once it has been read.
+     */
+    @JvmStatic
+    fun getMd5InputStream(inputStream: InputStream): DigestInputStream {
+        return DigestInputStream(inputStream, MessageDigest.getInstance("MD5"))
+    }
+
+    @JvmStatic
+    fun getMd5Hash(digest: MessageDigest): String {
+        val md5 = StringBuilder(BigInteger(1, digest.digest()).toString(16))
+        while (md5.length < 32) {
+            md5.insert(0, "0")
+        }
+
+        return md5.toString()
+    }
 }
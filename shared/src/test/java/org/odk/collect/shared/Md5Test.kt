@@ -23,4 +23,19 @@ class Md5Test {
             Assert.assertEquals(expectedResult, Md5.getMd5Hash(tempFile, bufSize))
         }
     }
+
+    @Test
+    fun md5InputStreamHashMatchesFileHash() {
+        val tempFile = File.createTempFile("hello", "txt")
+        tempFile.deleteOnExit()
+
+        FileWriter(tempFile).use {
+            it.write("Hello, world")
+        }
+
+        val inputStream = Md5.getMd5InputStream(tempFile.inputStream())
+        inputStream.use { it.readBytes() }
+
+        Assert.assertEquals(Md5.getMd5Hash(tempFile), Md5.getMd5Hash(inputStream.messageDigest))
+    }
 }
@@ -0,0 +1,43 @@
+package org.odk.collect.shared.files
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import org.odk.collect.shared.TempFiles
+
+class FileStatsTest {
+
+    @Test
+    fun isUnchanged_whenSizeAndLastModifiedMatch_returnsTrue() {
+        val file = TempFiles.createTempFile("blah", ".txt").also { it.writeText("blah") }
+        assertThat(FileStats.isUnchanged(file, file.length(), file.lastModified()), equalTo(true))
+    }
+
+    @Test
+    fun isUnchanged_whenSizeIsDifferent_returnsFalse() {
+        val file = TempFiles.createTempFile("blah", ".txt").also { it.writeText("blah") }
+        assertThat(FileStats.isUnchanged(file, file.length() + 1, file.lastModified()), equalTo(false))
+    }
+
+    @Test
+    fun isUnchanged_whenLastModifiedIsDifferent_returnsFalse() {
+        val file = TempFiles.createTempFile("blah", ".txt").also { it.writeText("blah") }
+        assertThat(FileStats.isUnchanged(file, file.length(), file.lastModified() - 1000), equalTo(false))
+    }
+
+    @Test
+    fun isUnchanged_whenNothingIsRecorded_returnsFalse() {
+        val file = TempFiles.createTempFile("blah", ".txt").also { it.writeText("blah") }
+        assertThat(FileStats.isUnchanged(file, null, null), equalTo(false))
+    }
+
+    @Test
+    fun canRecord_whenModifiedWithinGranularity_returnsFalse() {
+        assertThat(FileStats.canRecord(10_000, 10_000 + FileStats.MODIFICATION_TIME_GRANULARITY_MILLIS), equalTo(false))
+    }
+
+    @Test
+    fun canRecord_whenModifiedBeforeGranularity_returnsTrue() {
+        assertThat(FileStats.canRecord(10_000, 10_001 + FileStats.MODIFICATION_TIME_GRANULARITY_MILLIS), equalTo(true))
+    }
+}
@@ -4,6 +4,9 @@ import org.odk.collect.async.Cancellable
 import org.odk.collect.async.Scheduler
 import org.odk.collect.async.TaskSpec
 import java.util.LinkedList
+import java.util.concurrent.Callable
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
 import java.util.function.Consumer
 import java.util.function.Supplier
 
@@ -21,6 +24,12 @@ class FakeScheduler : Scheduler {
         foregroundTasks.push(foreground)
     }
 
+    override fun <T> immediateInBackground(background: Callable<T>): Future<T> {
+        val future = FutureTask(background)
+        backgroundTasks.addLast(future)
+        return future
+    }
+
     override fun networkDeferred(tag: String, spec: TaskSpec, inputData: Map<String, String>) {}
 
     override fun networkDeferred(